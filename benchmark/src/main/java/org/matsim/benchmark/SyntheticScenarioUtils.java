@@ -0,0 +1,214 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.router.FastDijkstraFactory;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Generates synthetic scenarios for the benchmarks, so that they do not depend on any input files.
+ * <p>
+ * All generated data is deterministic for a given size and seed.
+ */
+public final class SyntheticScenarioUtils {
+
+	public static final double GRID_SPACING = 500.0;
+
+	private SyntheticScenarioUtils() {
+	}
+
+	/**
+	 * Creates a square grid of <code>size</code> x <code>size</code> nodes, connected by links in both directions.
+	 * Node ids are <code>x_y</code>, link ids <code>fromNodeId-toNodeId</code>.
+	 */
+	public static void createGridNetwork(final Network network, final int size) {
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y), new Coord(x * GRID_SPACING, y * GRID_SPACING));
+			}
+		}
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					createLinks(network, nodes[x][y], nodes[x + 1][y]);
+				}
+				if (y + 1 < size) {
+					createLinks(network, nodes[x][y], nodes[x][y + 1]);
+				}
+			}
+		}
+	}
+
+	private static void createLinks(final Network network, final Node a, final Node b) {
+		// slightly different speeds make the shortest paths unique
+		double speed = 50.0 / 3.6 + ((a.getId().index() * 31 + b.getId().index() * 17) % 10) * 0.1;
+		NetworkUtils.createAndAddLink(network, linkId(a, b), a, b, GRID_SPACING, speed, 1000.0, 1.0);
+		NetworkUtils.createAndAddLink(network, linkId(b, a), b, a, GRID_SPACING, speed, 1000.0, 1.0);
+	}
+
+	public static Id<Link> linkId(final Node from, final Node to) {
+		return Id.createLinkId(from.getId() + "-" + to.getId());
+	}
+
+	/**
+	 * Creates home-work-home plans by car with random home and work links, routed on free speed travel times.
+	 */
+	public static void createPopulation(final Scenario scenario, final int numberOfPersons, final long seed) {
+		Network network = scenario.getNetwork();
+		Population population = scenario.getPopulation();
+		PopulationFactory factory = population.getFactory();
+		FreeSpeedTravelTime travelTime = new FreeSpeedTravelTime();
+		LeastCostPathCalculator router = new FastDijkstraFactory().createPathCalculator(network,
+				new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+		List<Link> links = new ArrayList<>(network.getLinks().values());
+		Random random = new Random(seed);
+		for (int i = 0; i < numberOfPersons; i++) {
+			Link home = links.get(random.nextInt(links.size()));
+			Link work = links.get(random.nextInt(links.size()));
+			while (work == home) {
+				work = links.get(random.nextInt(links.size()));
+			}
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Activity morning = factory.createActivityFromLinkId("home", home.getId());
+			morning.setCoord(home.getCoord());
+			morning.setEndTime(6 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(morning);
+			plan.addLeg(createCarLeg(factory, router, home, work, morning.getEndTime().seconds()));
+			Activity workAct = factory.createActivityFromLinkId("work", work.getId());
+			workAct.setCoord(work.getCoord());
+			workAct.setEndTime(15 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(workAct);
+			plan.addLeg(createCarLeg(factory, router, work, home, workAct.getEndTime().seconds()));
+			Activity evening = factory.createActivityFromLinkId("home", home.getId());
+			evening.setCoord(home.getCoord());
+			plan.addActivity(evening);
+			person.addPlan(plan);
+			population.addPerson(person);
+		}
+	}
+
+	private static Leg createCarLeg(final PopulationFactory factory, final LeastCostPathCalculator router,
+			final Link from, final Link to, final double departureTime) {
+		Leg leg = factory.createLeg(TransportMode.car);
+		Path path = router.calcLeastCostPath(from.getToNode(), to.getFromNode(), departureTime, null, null);
+		List<Id<Link>> linkIds = new ArrayList<>(path.links.size());
+		for (Link link : path.links) {
+			linkIds.add(link.getId());
+		}
+		NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(from.getId(), to.getId());
+		route.setLinkIds(from.getId(), linkIds, to.getId());
+		route.setTravelTime(path.travelTime);
+		leg.setRoute(route);
+		return leg;
+	}
+
+	/**
+	 * Creates bidirectional transit lines along every <code>lineSpacing</code>-th row and column of a grid network
+	 * created with {@link #createGridNetwork(Network, int)}, with a stop at every node and a departure every
+	 * <code>headway</code> seconds between 05:00 and 23:00.
+	 */
+	public static void createGridTransitSchedule(final Scenario scenario, final int size, final int lineSpacing, final double headway) {
+		Network network = scenario.getNetwork();
+		TransitSchedule schedule = scenario.getTransitSchedule();
+		for (int i = 0; i < size; i += lineSpacing) {
+			List<Node> row = new ArrayList<>(size);
+			List<Node> column = new ArrayList<>(size);
+			for (int j = 0; j < size; j++) {
+				row.add(network.getNodes().get(Id.createNodeId(j + "_" + i)));
+				column.add(network.getNodes().get(Id.createNodeId(i + "_" + j)));
+			}
+			TransitLine line = schedule.getFactory().createTransitLine(Id.create("row_" + i, TransitLine.class));
+			addTransitRoute(schedule, network, line, "forward", row, headway);
+			addTransitRoute(schedule, network, line, "backward", reversed(row), headway);
+			schedule.addTransitLine(line);
+			line = schedule.getFactory().createTransitLine(Id.create("column_" + i, TransitLine.class));
+			addTransitRoute(schedule, network, line, "forward", column, headway);
+			addTransitRoute(schedule, network, line, "backward", reversed(column), headway);
+			schedule.addTransitLine(line);
+		}
+	}
+
+	private static List<Node> reversed(final List<Node> nodes) {
+		List<Node> result = new ArrayList<>(nodes);
+		java.util.Collections.reverse(result);
+		return result;
+	}
+
+	private static void addTransitRoute(final TransitSchedule schedule, final Network network, final TransitLine line,
+			final String name, final List<Node> nodes, final double headway) {
+		TransitScheduleFactory factory = schedule.getFactory();
+		List<Id<Link>> linkIds = new ArrayList<>();
+		List<TransitRouteStop> stops = new ArrayList<>();
+		double offset = 0;
+		for (int i = 1; i < nodes.size(); i++) {
+			Id<Link> linkId = linkId(nodes.get(i - 1), nodes.get(i));
+			linkIds.add(linkId);
+			Id<TransitStopFacility> stopId = Id.create(linkId.toString(), TransitStopFacility.class);
+			TransitStopFacility stop = schedule.getFacilities().get(stopId);
+			if (stop == null) {
+				stop = factory.createTransitStopFacility(stopId, nodes.get(i).getCoord(), false);
+				stop.setLinkId(linkId);
+				schedule.addStopFacility(stop);
+			}
+			stops.add(factory.createTransitRouteStop(stop, offset, offset + 20));
+			offset += 20 + network.getLinks().get(linkId).getLength() / (40.0 / 3.6);
+		}
+		NetworkRoute networkRoute = RouteUtils.createNetworkRoute(linkIds, network);
+		TransitRoute route = factory.createTransitRoute(Id.create(line.getId() + "_" + name, TransitRoute.class), networkRoute, stops, "bus");
+		int departureIndex = 0;
+		for (double time = 5 * 3600; time < 23 * 3600; time += headway) {
+			route.addDeparture(factory.createDeparture(Id.create(departureIndex++, Departure.class), time));
+		}
+		line.addRoute(route);
+	}
+
+}
@@ -0,0 +1,112 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.collections;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.core.utils.collections.QuadTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures nearest-neighbour, disk and rectangle queries on a {@link QuadTree} filled with uniformly distributed points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadTreeBenchmark {
+
+	private static final int NUMBER_OF_QUERIES = 1024;
+	private static final double EXTENT = 50000.0;
+
+	@Param({"100000"})
+	public int numberOfPoints;
+
+	@Param({"1000"})
+	public double radius;
+
+	private QuadTree<Integer> quadTree;
+	private double[] x;
+	private double[] y;
+	private int query = 0;
+	private final List<Integer> result = new ArrayList<>();
+
+	@Setup
+	public void setup() {
+		Random random = new Random(4711);
+		this.quadTree = new QuadTree<>(0, 0, EXTENT, EXTENT);
+		for (int i = 0; i < this.numberOfPoints; i++) {
+			this.quadTree.put(random.nextDouble() * EXTENT, random.nextDouble() * EXTENT, i);
+		}
+		this.x = new double[NUMBER_OF_QUERIES];
+		this.y = new double[NUMBER_OF_QUERIES];
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			this.x[i] = random.nextDouble() * EXTENT;
+			this.y[i] = random.nextDouble() * EXTENT;
+		}
+	}
+
+	@Benchmark
+	public Integer getClosest() {
+		int i = this.query++ & (NUMBER_OF_QUERIES - 1);
+		return this.quadTree.getClosest(this.x[i], this.y[i]);
+	}
+
+	@Benchmark
+	public Collection<Integer> getDisk() {
+		int i = this.query++ & (NUMBER_OF_QUERIES - 1);
+		return this.quadTree.getDisk(this.x[i], this.y[i], this.radius);
+	}
+
+	@Benchmark
+	public Collection<Integer> getRectangle() {
+		int i = this.query++ & (NUMBER_OF_QUERIES - 1);
+		this.result.clear();
+		return this.quadTree.getRectangle(this.x[i] - this.radius, this.y[i] - this.radius, this.x[i] + this.radius, this.y[i] + this.radius, this.result);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(QuadTreeBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,99 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the lookup of existing ids by their string representation (as done by all readers) and by their index.
+ * <p>
+ * Only already existing ids are looked up: ids are cached in a static map for the lifetime of the JVM, so creating
+ * new ids in a benchmark loop would mostly measure the growth of that map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class IdBenchmark {
+
+	private static final int NUMBER_OF_IDS = 1 << 16;
+
+	@Param({"link_"})
+	public String prefix;
+
+	private String[] keys;
+	private int[] indices;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int position = 0;
+	}
+
+	@Setup
+	public void setup() {
+		this.keys = new String[NUMBER_OF_IDS];
+		this.indices = new int[NUMBER_OF_IDS];
+		for (int i = 0; i < NUMBER_OF_IDS; i++) {
+			// new String instances, so the lookup has to hash and compare the content like a parser would
+			this.keys[i] = new String((this.prefix + i).toCharArray());
+			this.indices[i] = Id.createLinkId(this.keys[i]).index();
+		}
+	}
+
+	@Benchmark
+	public Id<Link> createExisting(Cursor cursor) {
+		return Id.create(this.keys[cursor.position++ & (NUMBER_OF_IDS - 1)], Link.class);
+	}
+
+	@Benchmark
+	public Id<Link> getByIndex(Cursor cursor) {
+		return Id.get(this.indices[cursor.position++ & (NUMBER_OF_IDS - 1)], Link.class);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(IdBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
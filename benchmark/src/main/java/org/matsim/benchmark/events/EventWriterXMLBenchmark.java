@@ -0,0 +1,158 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.events;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.algorithms.AsyncEventWriterXML;
+import org.matsim.core.events.algorithms.EventWriter;
+import org.matsim.core.events.algorithms.EventWriterXML;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how long a mobsim-like producer thread is busy with a synchronous {@link EventWriterXML}
+ * (<code>writerThreads = 0</code>) and with an {@link AsyncEventWriterXML} attached to the events manager.
+ * <p>
+ * {@link #mobsim()} measures the time until the last event was handed over to the events manager, i.e. the
+ * wall-clock time the mobsim would take. {@link #mobsimAndClose()} additionally includes closing the file,
+ * i.e. the time until the events file is complete.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventWriterXMLBenchmark {
+
+	@Param({"0", "1", "2", "4"})
+	public int writerThreads;
+
+	@Param({"events.xml", "events.xml.gz"})
+	public String filename;
+
+	@Param({"1000000"})
+	public int numberOfEvents;
+
+	private Event[] eventStream;
+	private File directory;
+	private EventsManagerImpl events;
+	private EventWriter writer;
+	private boolean closed;
+
+	@Setup(Level.Trial)
+	public void createEvents() throws IOException {
+		this.directory = Files.createTempDirectory("eventWriterBenchmark").toFile();
+		Random random = new Random(4711);
+		this.eventStream = new Event[this.numberOfEvents];
+		for (int i = 0; i < this.numberOfEvents; i++) {
+			double time = i * 0.1;
+			Id<Link> linkId = Id.createLinkId(random.nextInt(50000));
+			Id<Vehicle> vehicleId = Id.createVehicleId(random.nextInt(100000));
+			Id<Person> personId = Id.createPersonId(random.nextInt(100000));
+			int type = random.nextInt(10);
+			if (type < 4) {
+				this.eventStream[i] = new LinkEnterEvent(time, vehicleId, linkId);
+			} else if (type < 8) {
+				this.eventStream[i] = new LinkLeaveEvent(time, vehicleId, linkId);
+			} else if (type < 9) {
+				this.eventStream[i] = new ActivityEndEvent(time, personId, linkId, null, "work");
+			} else {
+				this.eventStream[i] = new PersonDepartureEvent(time, personId, linkId, "car");
+			}
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void createWriter() {
+		String file = new File(this.directory, this.filename).getPath();
+		this.writer = this.writerThreads == 0 ? new EventWriterXML(file) : new AsyncEventWriterXML(file, this.writerThreads);
+		this.events = new EventsManagerImpl();
+		this.events.addHandler(this.writer);
+		this.closed = false;
+	}
+
+	@TearDown(Level.Iteration)
+	public void closeWriter() {
+		if (!this.closed) {
+			this.writer.closeFile();
+		}
+		new File(this.directory, this.filename).delete();
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteDirectory() {
+		this.directory.delete();
+	}
+
+	@Benchmark
+	public void mobsim() {
+		for (Event event : this.eventStream) {
+			this.events.processEvent(event);
+		}
+	}
+
+	@Benchmark
+	public void mobsimAndClose() {
+		for (Event event : this.eventStream) {
+			this.events.processEvent(event);
+		}
+		this.writer.closeFile();
+		this.closed = true;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(EventWriterXMLBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,167 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.events;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.EventHandler;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the reflective and the generated handler dispatch of {@link EventsManagerImpl}.
+ * <p>
+ * The event stream consists of core link events (which were dispatched without reflection already before)
+ * and custom events, for which the reflective dispatch falls back to {@link java.lang.reflect.Method#invoke}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventsManagerDispatchBenchmark {
+
+	private static final int NUMBER_OF_EVENTS = 1024;
+
+	@Param({"REFLECTIVE", "GENERATED"})
+	public EventsManagerImpl.DispatchMode dispatchMode;
+
+	@Param({"15"})
+	public int numberOfHandlers;
+
+	@Param({"0.5"})
+	public double shareOfCustomEvents;
+
+	private EventsManagerImpl events;
+	private Event[] eventStream;
+	private CountingHandler[] handlers;
+
+	@Setup
+	public void setup() {
+		this.events = new EventsManagerImpl(this.dispatchMode);
+		this.handlers = new CountingHandler[this.numberOfHandlers];
+		for (int i = 0; i < this.numberOfHandlers; i++) {
+			this.handlers[i] = new CountingHandler();
+			this.events.addHandler(this.handlers[i]);
+		}
+
+		Random random = new Random(4711);
+		Id<Vehicle> vehicleId = Id.createVehicleId("v");
+		this.eventStream = new Event[NUMBER_OF_EVENTS];
+		for (int i = 0; i < NUMBER_OF_EVENTS; i++) {
+			Id<Link> linkId = Id.createLinkId(random.nextInt(100));
+			double time = i;
+			if (random.nextDouble() < this.shareOfCustomEvents) {
+				this.eventStream[i] = new CustomEvent(time, linkId);
+			} else if (random.nextBoolean()) {
+				this.eventStream[i] = new LinkEnterEvent(time, vehicleId, linkId);
+			} else {
+				this.eventStream[i] = new LinkLeaveEvent(time, vehicleId, linkId);
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(NUMBER_OF_EVENTS)
+	public long processEvents() {
+		for (Event event : this.eventStream) {
+			this.events.processEvent(event);
+		}
+		long sum = 0;
+		for (CountingHandler handler : this.handlers) {
+			sum += handler.counter;
+		}
+		return sum;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(EventsManagerDispatchBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+	public static final class CustomEvent extends Event {
+		private final Id<Link> linkId;
+
+		public CustomEvent(final double time, final Id<Link> linkId) {
+			super(time);
+			this.linkId = linkId;
+		}
+
+		public Id<Link> getLinkId() {
+			return this.linkId;
+		}
+
+		@Override
+		public String getEventType() {
+			return "custom";
+		}
+	}
+
+	public interface CustomEventHandler extends EventHandler {
+		void handleEvent(CustomEvent event);
+	}
+
+	private static final class CountingHandler implements LinkEnterEventHandler, LinkLeaveEventHandler, CustomEventHandler {
+		long counter = 0;
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.counter++;
+		}
+
+		@Override
+		public void handleEvent(LinkLeaveEvent event) {
+			this.counter++;
+		}
+
+		@Override
+		public void handleEvent(CustomEvent event) {
+			this.counter += event.getLinkId().index() & 1;
+		}
+	}
+
+}
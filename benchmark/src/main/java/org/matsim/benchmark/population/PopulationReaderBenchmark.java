@@ -0,0 +1,100 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.population;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.benchmark.SyntheticScenarioUtils;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.population.io.PopulationReader;
+import org.matsim.core.population.io.PopulationWriter;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures parsing a v6 population file with the {@link org.matsim.core.utils.io.MatsimXmlParser}-based
+ * {@link PopulationReader}, sequentially (one thread) and in parallel. The file is kept in memory so that disk
+ * access does not influence the results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PopulationReaderBenchmark {
+
+	@Param({"20"})
+	public int gridSize;
+
+	@Param({"10000"})
+	public int numberOfPersons;
+
+	@Param({"1", "4"})
+	public int numberOfThreads;
+
+	private byte[] populationFile;
+
+	@Setup
+	public void setup() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		SyntheticScenarioUtils.createGridNetwork(scenario.getNetwork(), this.gridSize);
+		SyntheticScenarioUtils.createPopulation(scenario, this.numberOfPersons, 4711);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new PopulationWriter(scenario.getPopulation()).writeV6(out);
+		this.populationFile = out.toByteArray();
+	}
+
+	@Benchmark
+	public Scenario readPopulation() {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(this.numberOfThreads);
+		config.plans().setParallelReading(this.numberOfThreads > 1);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		new PopulationReader(scenario).parse(new ByteArrayInputStream(this.populationFile));
+		return scenario;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(PopulationReaderBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,148 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.pt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.benchmark.SyntheticScenarioUtils;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ch.sbb.matsim.routing.pt.raptor.DefaultRaptorIntermodalAccessEgress;
+import ch.sbb.matsim.routing.pt.raptor.DefaultRaptorParametersForPerson;
+import ch.sbb.matsim.routing.pt.raptor.DefaultRaptorStopFinder;
+import ch.sbb.matsim.routing.pt.raptor.LeastCostRaptorRouteSelector;
+import ch.sbb.matsim.routing.pt.raptor.RaptorParameters;
+import ch.sbb.matsim.routing.pt.raptor.RaptorUtils;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptor;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorCore;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData;
+
+/**
+ * Measures stop-to-stop route queries, one-to-all tree searches and range tree searches of {@link SwissRailRaptor}
+ * on a synthetic grid-shaped transit schedule.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwissRailRaptorBenchmark {
+
+	private static final int NUMBER_OF_QUERIES = 256;
+
+	@Param({"50"})
+	public int gridSize;
+
+	@Param({"5"})
+	public int lineSpacing;
+
+	@Param({"600"})
+	public double headway;
+
+	private SwissRailRaptor raptor;
+	private RaptorParameters parameters;
+	private TransitStopFacility[] fromStops;
+	private TransitStopFacility[] toStops;
+	private double[] departureTimes;
+	private int query = 0;
+
+	@Setup
+	public void setup() {
+		Config config = ConfigUtils.createConfig();
+		config.transit().setUseTransit(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		SyntheticScenarioUtils.createGridNetwork(scenario.getNetwork(), this.gridSize);
+		SyntheticScenarioUtils.createGridTransitSchedule(scenario, this.gridSize, this.lineSpacing, this.headway);
+
+		SwissRailRaptorData data = SwissRailRaptorData.create(scenario.getTransitSchedule(), RaptorUtils.createStaticConfig(config), scenario.getNetwork());
+		this.raptor = new SwissRailRaptor(data, new DefaultRaptorParametersForPerson(config), new LeastCostRaptorRouteSelector(),
+				new DefaultRaptorStopFinder(null, new DefaultRaptorIntermodalAccessEgress(), null));
+		this.parameters = RaptorUtils.createParameters(config);
+
+		List<TransitStopFacility> stops = new ArrayList<>(scenario.getTransitSchedule().getFacilities().values());
+		Random random = new Random(4711);
+		this.fromStops = new TransitStopFacility[NUMBER_OF_QUERIES];
+		this.toStops = new TransitStopFacility[NUMBER_OF_QUERIES];
+		this.departureTimes = new double[NUMBER_OF_QUERIES];
+		for (int i = 0; i < NUMBER_OF_QUERIES; i++) {
+			this.fromStops[i] = stops.get(random.nextInt(stops.size()));
+			this.toStops[i] = stops.get(random.nextInt(stops.size()));
+			this.departureTimes[i] = 6 * 3600 + random.nextInt(12 * 3600);
+		}
+	}
+
+	@Benchmark
+	public List<Leg> calcRoute() {
+		int i = this.query++ & (NUMBER_OF_QUERIES - 1);
+		return this.raptor.calcRoute(this.fromStops[i], this.toStops[i], this.departureTimes[i], null);
+	}
+
+	@Benchmark
+	public Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcTree() {
+		int i = this.query++ & (NUMBER_OF_QUERIES - 1);
+		return this.raptor.calcTree(this.fromStops[i], this.departureTimes[i], this.parameters);
+	}
+
+	/**
+	 * Range query over one hour, i.e. one tree per departure at the start stop.
+	 */
+	@Benchmark
+	public int calcTreesObservable() {
+		int i = this.query++ & (NUMBER_OF_QUERIES - 1);
+		int[] reached = new int[1];
+		this.raptor.calcTreesObservable(this.fromStops[i], this.departureTimes[i], this.departureTimes[i] + 3600, this.parameters,
+				(depTime, stop, arrivalTime, transferCount, inVehicleTime) -> reached[0]++);
+		return reached[0];
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(SwissRailRaptorBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
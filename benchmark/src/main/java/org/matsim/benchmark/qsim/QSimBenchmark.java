@@ -0,0 +1,113 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.qsim;
+
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.benchmark.SyntheticScenarioUtils;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs a complete QSim on a synthetic grid scenario without any event handlers attached.
+ * <p>
+ * With the reduced flow and storage capacities, most of the time is spent moving vehicles through the
+ * <code>QueueWithBuffer</code>s and across the nodes, which is why this benchmark is the reference for changes
+ * to the network simulation.  The lanes themselves cannot be benchmarked in isolation, as they are package-private
+ * and need a fully set-up <code>NetsimEngineContext</code>.
+ * <p>
+ * With <code>eventDrivenNetsimEngine = true</code>, the links are moved by the <code>EventDrivenQNetsimEngine</code>,
+ * which only processes links when there is something to do on them.  This is combined with skipping idle time steps,
+ * as this is what it is meant for.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class QSimBenchmark {
+
+	@Param({"1", "4"})
+	public int numberOfThreads;
+
+	@Param({"50"})
+	public int gridSize;
+
+	@Param({"20000"})
+	public int numberOfPersons;
+
+	@Param({"0.1"})
+	public double capacityFactor;
+
+	@Param({"false", "true"})
+	public boolean eventDrivenNetsimEngine;
+
+	private Config config;
+	private Scenario scenario;
+
+	@Setup
+	public void setup() {
+		this.config = ConfigUtils.createConfig();
+		this.config.qsim().setNumberOfThreads(this.numberOfThreads);
+		this.config.qsim().setFlowCapFactor(this.capacityFactor);
+		this.config.qsim().setStorageCapFactor(this.capacityFactor);
+		this.config.qsim().setEndTime(30 * 3600);
+		this.config.qsim().setUsingEventDrivenNetsimEngine(this.eventDrivenNetsimEngine);
+		this.config.qsim().setSkippingIdleTimeSteps(this.eventDrivenNetsimEngine);
+		this.scenario = ScenarioUtils.createScenario(this.config);
+		SyntheticScenarioUtils.createGridNetwork(this.scenario.getNetwork(), this.gridSize);
+		SyntheticScenarioUtils.createPopulation(this.scenario, this.numberOfPersons, 4711);
+	}
+
+	@Benchmark
+	public void runQSim() {
+		EventsManager events = EventsUtils.createEventsManager();
+		new QSimBuilder(this.config).useDefaults().build(this.scenario, events).run();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(QSimBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
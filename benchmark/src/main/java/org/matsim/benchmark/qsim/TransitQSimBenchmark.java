@@ -0,0 +1,215 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.pt.routes.DefaultTransitPassengerRoute;
+import org.matsim.pt.transitSchedule.api.Departure;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRoute;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.pt.utils.CreateVehiclesForSchedule;
+import org.matsim.vehicles.VehicleType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs a complete QSim with high-frequency metro lines that all start at one hub stop.  All agents board at the hub
+ * during the morning peak, so that thousands of agents are waiting there when a vehicle arrives, of which only a few
+ * want to board it.  Most of the time is thus spent in the boarding at the hub, i.e. in the
+ * <code>TransitStopAgentTracker</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TransitQSimBenchmark {
+
+	@Param({"20"})
+	public int numberOfLines;
+
+	@Param({"20"})
+	public int stopsPerLine;
+
+	@Param({"120"})
+	public double headway;
+
+	@Param({"50000"})
+	public int numberOfPersons;
+
+	private Config config;
+	private Scenario scenario;
+
+	@Setup
+	public void setup() {
+		this.config = ConfigUtils.createConfig();
+		this.config.transit().setUseTransit(true);
+		this.config.qsim().setEndTime(30 * 3600);
+		this.scenario = ScenarioUtils.createScenario(this.config);
+		List<TransitLine> lines = createMetroLines();
+		createPopulation(lines);
+	}
+
+	/**
+	 * Creates one link to the hub and, for every line, a chain of links from the hub outwards, with a stop at the end of
+	 * every link.  All lines start at the hub stop.
+	 */
+	private List<TransitLine> createMetroLines() {
+		Network network = this.scenario.getNetwork();
+		TransitSchedule schedule = this.scenario.getTransitSchedule();
+		TransitScheduleFactory factory = schedule.getFactory();
+
+		Node hubFrom = NetworkUtils.createAndAddNode(network, Id.createNodeId("hub_0"), new Coord(-500.0, 0.0));
+		Node hub = NetworkUtils.createAndAddNode(network, Id.createNodeId("hub_1"), new Coord(0.0, 0.0));
+		Link hubLink = NetworkUtils.createAndAddLink(network, Id.createLinkId("hub"), hubFrom, hub, 500.0, 20.0, 100000.0, 4.0);
+		TransitStopFacility hubStop = factory.createTransitStopFacility(Id.create("hub", TransitStopFacility.class), hub.getCoord(), false);
+		hubStop.setLinkId(hubLink.getId());
+		schedule.addStopFacility(hubStop);
+
+		List<TransitLine> lines = new ArrayList<>();
+		for (int l = 0; l < this.numberOfLines; l++) {
+			double angle = 2 * Math.PI * l / this.numberOfLines;
+			List<Id<Link>> linkIds = new ArrayList<>();
+			List<TransitRouteStop> stops = new ArrayList<>();
+			stops.add(factory.createTransitRouteStop(hubStop, 0.0, 30.0));
+			Node from = hub;
+			double offset = 30.0;
+			for (int s = 1; s <= this.stopsPerLine; s++) {
+				Node to = NetworkUtils.createAndAddNode(network, Id.createNodeId(l + "_" + s),
+						new Coord(Math.cos(angle) * s * 1000.0, Math.sin(angle) * s * 1000.0));
+				Link link = NetworkUtils.createAndAddLink(network, Id.createLinkId(from.getId() + "-" + to.getId()), from, to, 1000.0, 20.0, 100000.0, 2.0);
+				linkIds.add(link.getId());
+				TransitStopFacility stop = factory.createTransitStopFacility(Id.create(link.getId().toString(), TransitStopFacility.class), to.getCoord(), false);
+				stop.setLinkId(link.getId());
+				schedule.addStopFacility(stop);
+				offset += 50.0;
+				stops.add(factory.createTransitRouteStop(stop, offset, offset + 20.0));
+				offset += 20.0;
+				from = to;
+			}
+			TransitLine line = factory.createTransitLine(Id.create("metro_" + l, TransitLine.class));
+			TransitRoute route = factory.createTransitRoute(Id.create("metro_" + l + "_outbound", TransitRoute.class),
+					RouteUtils.createLinkNetworkRouteImpl(hubLink.getId(), linkIds.subList(0, linkIds.size() - 1), linkIds.get(linkIds.size() - 1)),
+					stops, "metro");
+			int departureIndex = 0;
+			for (double time = 5 * 3600; time < 23 * 3600; time += this.headway) {
+				route.addDeparture(factory.createDeparture(Id.create(departureIndex++, Departure.class), time));
+			}
+			line.addRoute(route);
+			schedule.addTransitLine(line);
+			lines.add(line);
+		}
+
+		new CreateVehiclesForSchedule(schedule, this.scenario.getTransitVehicles()).run();
+		for (VehicleType type : this.scenario.getTransitVehicles().getVehicleTypes().values()) {
+			type.getCapacity().setSeats(400);
+			type.getCapacity().setStandingRoom(800);
+		}
+		return lines;
+	}
+
+	/**
+	 * All agents start at the hub between 06:00 and 09:00 and ride a random line to one of its stops.
+	 */
+	private void createPopulation(List<TransitLine> lines) {
+		PopulationFactory factory = this.scenario.getPopulation().getFactory();
+		TransitSchedule schedule = this.scenario.getTransitSchedule();
+		TransitStopFacility hubStop = schedule.getFacilities().get(Id.create("hub", TransitStopFacility.class));
+		Random random = new Random(4711);
+		for (int i = 0; i < this.numberOfPersons; i++) {
+			TransitLine line = lines.get(random.nextInt(lines.size()));
+			TransitRoute route = line.getRoutes().values().iterator().next();
+			TransitStopFacility egressStop = route.getStops().get(1 + random.nextInt(route.getStops().size() - 1)).getStopFacility();
+
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Activity home = factory.createActivityFromLinkId("home", hubStop.getLinkId());
+			home.setCoord(hubStop.getCoord());
+			home.setEndTime(6 * 3600 + random.nextInt(3 * 3600));
+			plan.addActivity(home);
+			Leg leg = factory.createLeg(TransportMode.pt);
+			leg.setRoute(new DefaultTransitPassengerRoute(hubStop, line, route, egressStop));
+			plan.addLeg(leg);
+			Activity work = factory.createActivityFromLinkId("work", egressStop.getLinkId());
+			work.setCoord(egressStop.getCoord());
+			plan.addActivity(work);
+			person.addPlan(plan);
+			this.scenario.getPopulation().addPerson(person);
+		}
+	}
+
+	@Benchmark
+	public void runQSim() {
+		new QSimBuilder(this.config)
+				.useDefaults()
+				.build(this.scenario, EventsUtils.createEventsManager())
+				.run();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(TransitQSimBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
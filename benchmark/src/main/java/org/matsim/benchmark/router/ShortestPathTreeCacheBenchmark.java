@@ -0,0 +1,178 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.benchmark.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.benchmark.SyntheticScenarioUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.CachingLeastCostPathCalculator;
+import org.matsim.core.router.DefaultRoutingModules;
+import org.matsim.core.router.FastAStarLandmarksFactory;
+import org.matsim.core.router.FastMultiNodeDijkstra;
+import org.matsim.core.router.FastMultiNodeDijkstraFactory;
+import org.matsim.core.router.LinkWrapperFacility;
+import org.matsim.core.router.RoutingModule;
+import org.matsim.core.router.ShortestPathTreeCacheStatistics;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures how long a single replanning thread takes to re-route the morning car trips of a synthetic population, with
+ * and without a {@link CachingLeastCostPathCalculator}. The homes of the agents are concentrated in a few blocks, as in
+ * large residential areas, while the work places are spread over the whole network.
+ * <p>
+ * A new cache is used for every iteration, like in a new MATSim iteration. The numbers of requests, cache hits and
+ * computed trees of every iteration are reported as secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ShortestPathTreeCacheBenchmark {
+
+	@Param({"0", "900"})
+	public double timeBinSize;
+
+	@Param({"100"})
+	public int gridSize;
+
+	@Param({"50000"})
+	public int numberOfTrips;
+
+	@Param({"20", "200"})
+	public int numberOfHomeLinks;
+
+	private Network network;
+	private FreeSpeedTravelTime travelTime;
+	private TravelDisutility travelDisutility;
+	private FastAStarLandmarksFactory landmarksFactory;
+	private FastMultiNodeDijkstraFactory treeCalculatorFactory;
+	private PopulationFactory populationFactory;
+	private LinkWrapperFacility[] fromFacilities;
+	private LinkWrapperFacility[] toFacilities;
+	private double[] departureTimes;
+
+	private RoutingModule routingModule;
+	private ShortestPathTreeCacheStatistics statistics;
+
+	@Setup(Level.Trial)
+	public void createTrips() {
+		this.network = NetworkUtils.createNetwork();
+		SyntheticScenarioUtils.createGridNetwork(this.network, this.gridSize);
+		this.travelTime = new FreeSpeedTravelTime();
+		this.travelDisutility = new OnlyTimeDependentTravelDisutility(this.travelTime);
+		this.landmarksFactory = new FastAStarLandmarksFactory(1);
+		this.treeCalculatorFactory = new FastMultiNodeDijkstraFactory(true);
+		this.populationFactory = PopulationUtils.getFactory();
+
+		List<Link> links = new ArrayList<>(this.network.getLinks().values());
+		Random random = new Random(4711);
+		Link[] homeLinks = new Link[this.numberOfHomeLinks];
+		for (int i = 0; i < homeLinks.length; i++) {
+			homeLinks[i] = links.get(random.nextInt(links.size()));
+		}
+		this.fromFacilities = new LinkWrapperFacility[this.numberOfTrips];
+		this.toFacilities = new LinkWrapperFacility[this.numberOfTrips];
+		this.departureTimes = new double[this.numberOfTrips];
+		for (int i = 0; i < this.numberOfTrips; i++) {
+			this.fromFacilities[i] = new LinkWrapperFacility(homeLinks[random.nextInt(homeLinks.length)]);
+			this.toFacilities[i] = new LinkWrapperFacility(links.get(random.nextInt(links.size())));
+			this.departureTimes[i] = 6 * 3600 + random.nextInt(3 * 3600);
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void createRoutingModule() {
+		LeastCostPathCalculator routeAlgo = this.landmarksFactory.createPathCalculator(this.network, this.travelDisutility, this.travelTime);
+		this.statistics = new ShortestPathTreeCacheStatistics();
+		if (this.timeBinSize > 0) {
+			FastMultiNodeDijkstra treeCalculator = (FastMultiNodeDijkstra) this.treeCalculatorFactory.createPathCalculator(this.network, this.travelDisutility, this.travelTime);
+			routeAlgo = new CachingLeastCostPathCalculator(routeAlgo, treeCalculator, this.travelDisutility, this.travelTime, this.timeBinSize,
+					100 * 1024L * 1024L, this.statistics);
+		}
+		this.routingModule = DefaultRoutingModules.createPureNetworkRouter(TransportMode.car, this.populationFactory, this.network, routeAlgo);
+	}
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class CacheCounters {
+		public long requests;
+		public long hits;
+		public long trees;
+
+		@Setup(Level.Iteration)
+		public void clear() {
+			this.requests = 0;
+			this.hits = 0;
+			this.trees = 0;
+		}
+	}
+
+	@Benchmark
+	public int reRoute(CacheCounters counters) {
+		int count = 0;
+		for (int i = 0; i < this.numberOfTrips; i++) {
+			count += this.routingModule.calcRoute(this.fromFacilities[i], this.toFacilities[i], this.departureTimes[i], null).size();
+		}
+		counters.requests += this.statistics.getRequests();
+		counters.hits += this.statistics.getHits();
+		counters.trees += this.statistics.getTrees();
+		return count;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(ShortestPathTreeCacheBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
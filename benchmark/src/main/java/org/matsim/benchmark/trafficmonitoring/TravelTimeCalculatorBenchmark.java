@@ -0,0 +1,145 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.benchmark.trafficmonitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.VehicleLeavesTrafficEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.benchmark.SyntheticScenarioUtils;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.trafficmonitoring.TravelTimeCalculator;
+import org.matsim.vehicles.Vehicle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the event handlers of the {@link TravelTimeCalculator} by feeding them the vehicle events of a
+ * synthetic population directly, i.e. without any events manager in between.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TravelTimeCalculatorBenchmark {
+
+	@Param({"50"})
+	public int gridSize;
+
+	@Param({"10000"})
+	public int numberOfPersons;
+
+	private Scenario scenario;
+	private Event[] eventStream;
+
+	@Setup
+	public void setup() {
+		this.scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		SyntheticScenarioUtils.createGridNetwork(this.scenario.getNetwork(), this.gridSize);
+		SyntheticScenarioUtils.createPopulation(this.scenario, this.numberOfPersons, 4711);
+
+		Map<Id<Link>, ? extends Link> links = this.scenario.getNetwork().getLinks();
+		List<Event> events = new ArrayList<>();
+		for (Person person : this.scenario.getPopulation().getPersons().values()) {
+			Id<Vehicle> vehicleId = Id.createVehicleId(person.getId());
+			double time = 0;
+			for (PlanElement pe : person.getSelectedPlan().getPlanElements()) {
+				if (pe instanceof Activity) {
+					time = Math.max(time, ((Activity) pe).getEndTime().orElse(time));
+				} else {
+					NetworkRoute route = (NetworkRoute) ((Leg) pe).getRoute();
+					events.add(new VehicleEntersTrafficEvent(time, person.getId(), route.getStartLinkId(), vehicleId, TransportMode.car, 1.0));
+					Id<Link> previous = route.getStartLinkId();
+					List<Id<Link>> linkIds = new ArrayList<>(route.getLinkIds());
+					linkIds.add(route.getEndLinkId());
+					for (Id<Link> linkId : linkIds) {
+						events.add(new LinkLeaveEvent(time, vehicleId, previous));
+						events.add(new LinkEnterEvent(time, vehicleId, linkId));
+						Link link = links.get(linkId);
+						time += link.getLength() / link.getFreespeed();
+						previous = linkId;
+					}
+					events.add(new VehicleLeavesTrafficEvent(time, person.getId(), route.getEndLinkId(), vehicleId, TransportMode.car, 1.0));
+				}
+			}
+		}
+		// the handlers do not depend on the global order of the events, only on the order per vehicle
+		this.eventStream = events.toArray(new Event[0]);
+	}
+
+	@Benchmark
+	public TravelTimeCalculator handleEvents() {
+		TravelTimeCalculator.Builder builder = new TravelTimeCalculator.Builder(this.scenario.getNetwork());
+		builder.configure(new TravelTimeCalculatorConfigGroup());
+		TravelTimeCalculator calculator = builder.build();
+		for (Event event : this.eventStream) {
+			if (event instanceof LinkEnterEvent) {
+				calculator.handleEvent((LinkEnterEvent) event);
+			} else if (event instanceof LinkLeaveEvent) {
+				calculator.handleEvent((LinkLeaveEvent) event);
+			} else if (event instanceof VehicleEntersTrafficEvent) {
+				calculator.handleEvent((VehicleEntersTrafficEvent) event);
+			} else {
+				calculator.handleEvent((VehicleLeavesTrafficEvent) event);
+			}
+		}
+		return calculator;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(TravelTimeCalculatorBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
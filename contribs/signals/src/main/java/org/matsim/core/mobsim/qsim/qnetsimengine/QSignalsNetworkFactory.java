@@ -30,6 +30,7 @@ import org.matsim.contrib.signals.data.SignalsData;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.ConfigUtils;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineI.NetsimInternalInterface;
 import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
@@ -52,6 +53,11 @@ public final class QSignalsNetworkFactory implements QNetworkFactory{
 	private NetsimInternalInterface netsimEngine ;
 	
 	@Inject
+	QSignalsNetworkFactory(Scenario scenario, QSim qsim) {
+		// (the events manager of the qsim, so that the runners can buffer the events of the links and nodes)
+		this(scenario, qsim.getEventsManager());
+	}
+
 	public QSignalsNetworkFactory(Scenario scenario, EventsManager events) {
 		this.scenario = scenario;
 		this.events = events;
@@ -32,6 +32,10 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private static final String PARAM_TRANSFER_PENALTY_MIN = "transferPenaltyMinCost";
     private static final String PARAM_TRANSFER_PENALTY_MAX = "transferPenaltyMaxCost";
     private static final String PARAM_TRANSFER_PENALTY_PERHOUR = "transferPenaltyCostPerTravelTimeHour";
+    private static final String PARAM_DATA_CACHE_DIRECTORY = "dataCacheDirectory";
+    private static final String PARAM_DATA_CACHE_DIRECTORY_DESC = "Directory in which the transfers between route stops are cached, keyed by a hash of "
+            + "the schedule and the static raptor settings. Runs that share the directory only calculate the transfers once. "
+            + "If null (default), no cache is used.";
 
     private boolean useRangeQuery = false;
     private boolean useIntermodality = false;
@@ -42,6 +46,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     private double transferPenaltyMinCost = Double.NEGATIVE_INFINITY;
     private double transferPenaltyMaxCost = Double.POSITIVE_INFINITY;
     private double transferPenaltyHourlyCost = 0;
+    private String dataCacheDirectory = null;
 
     private ScoringParameters scoringParameters = ScoringParameters.Default;
 
@@ -153,6 +158,16 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
         this.transferPenaltyHourlyCost = hourlyCost;
     }
 
+    @StringGetter(PARAM_DATA_CACHE_DIRECTORY)
+    public String getDataCacheDirectory() {
+        return this.dataCacheDirectory;
+    }
+
+    @StringSetter(PARAM_DATA_CACHE_DIRECTORY)
+    public void setDataCacheDirectory(String dataCacheDirectory) {
+        this.dataCacheDirectory = dataCacheDirectory;
+    }
+
     @Override
     public ConfigGroup createParameterSet(String type) {
         if (RangeQuerySettingsParameterSet.TYPE.equals(type)) {
@@ -560,6 +575,7 @@ public class SwissRailRaptorConfigGroup extends ReflectiveConfigGroup {
     public Map<String, String> getComments() {
         Map<String, String> comments = super.getComments();
         comments.put(PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION, PARAM_INTERMODAL_ACCESS_EGRESS_MODE_SELECTION_DESC);
+        comments.put(PARAM_DATA_CACHE_DIRECTORY, PARAM_DATA_CACHE_DIRECTORY_DESC);
         return comments;
     }
 
@@ -0,0 +1,40 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Receives the results of {@link SwissRailRaptorCore#calcTreesObservable}.
+ */
+@FunctionalInterface
+public interface RaptorObserver {
+
+    /**
+     * @param departureTime the departure time at the start stop(s) the tree was calculated for
+     * @param stopFacility the reached stop
+     * @param arrivalTime the arrival time at the reached stop
+     * @param transferCount the number of transfers between pt legs
+     * @param inVehicleTime the time spent in pt vehicles, i.e. without waiting and transfer walks
+     */
+    void arrivedAtStop(double departureTime, TransitStopFacility stopFacility, double arrivalTime, int transferCount, double inVehicleTime);
+
+}
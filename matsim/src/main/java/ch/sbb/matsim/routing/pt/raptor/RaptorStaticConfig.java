@@ -44,6 +44,8 @@ public class RaptorStaticConfig {
 
     private RaptorOptimization optimization = RaptorOptimization.OneToOneRouting;
 
+    private String dataCacheDirectory = null;
+
     public double getBeelineWalkConnectionDistance() {
         return this.beelineWalkConnectionDistance;
     }
@@ -99,4 +101,16 @@ public class RaptorStaticConfig {
     public void setOptimization(RaptorOptimization optimization) {
         this.optimization = optimization;
     }
+
+    public String getDataCacheDirectory() {
+        return this.dataCacheDirectory;
+    }
+
+    /**
+     * If set, the transfers between route stops are cached in the given directory and reused by later runs with the same
+     * schedule and static configuration.
+     */
+    public void setDataCacheDirectory(String dataCacheDirectory) {
+        this.dataCacheDirectory = dataCacheDirectory;
+    }
 }
@@ -0,0 +1,208 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+/**
+ * Stop-to-stop matrices of travel times, transfer counts and in-vehicle times, e.g. for pt skims or accessibility
+ * computations.
+ * <p>
+ * For each origin stop, {@link SwissRailRaptorCore#calcTreesObservable} is run for all departures at the stop within
+ * the time window, and the values of the reached stops are averaged over these departures. The travel time is
+ * measured from the departure at the origin stop, so it contains waiting times for later departures of other lines,
+ * but not the waiting time until the first departure. Stop pairs that are not connected in any of the departures
+ * have a value of {@link Float#POSITIVE_INFINITY}.
+ * <p>
+ * The origins are distributed to the given number of threads, each with its own {@link SwissRailRaptorCore}.
+ * The matrices are stored in row-major order in primitive arrays, i.e. the value from stop <code>i</code> to stop
+ * <code>j</code> is at index <code>i * getStops().length + j</code>. Note that they need
+ * <code>3 * 4 * stops<sup>2</sup></code> bytes of memory, and that they can only be calculated for up to 46340 stops,
+ * as the number of entries of an array is limited to {@link Integer#MAX_VALUE}.
+ */
+public final class RaptorStopToStopMatrices {
+
+    private static final Logger log = Logger.getLogger(RaptorStopToStopMatrices.class);
+
+    private final TransitStopFacility[] stops;
+    private final Map<TransitStopFacility, Integer> stopIndices;
+    private final float[] travelTimes;
+    private final float[] transferCounts;
+    private final float[] inVehicleTimes;
+
+    private RaptorStopToStopMatrices(SwissRailRaptorData data) {
+        this.stops = new TransitStopFacility[data.countStops];
+        for (Map.Entry<TransitStopFacility, Integer> e : data.stopFacilityIndices.entrySet()) {
+            this.stops[e.getValue()] = e.getKey();
+        }
+        this.stopIndices = data.stopFacilityIndices;
+        long size = (long) data.countStops * data.countStops;
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Stop-to-stop matrices for " + data.countStops + " stops would need " + size
+                    + " entries, but arrays are limited to " + Integer.MAX_VALUE + " entries. Use a schedule with at most "
+                    + (int) Math.sqrt(Integer.MAX_VALUE) + " stops.");
+        }
+        this.travelTimes = new float[(int) size];
+        this.transferCounts = new float[(int) size];
+        this.inVehicleTimes = new float[(int) size];
+    }
+
+    public static RaptorStopToStopMatrices calculate(SwissRailRaptorData data, RaptorParameters parameters, double minDepTime, double maxDepTime, int numberOfThreads) {
+        RaptorStopToStopMatrices matrices = new RaptorStopToStopMatrices(data);
+        log.info("calculating stop-to-stop matrices for " + matrices.stops.length + " stops using " + numberOfThreads + " threads...");
+        AtomicInteger nextOrigin = new AtomicInteger(0);
+        List<Callable<Object>> workers = new ArrayList<>(numberOfThreads);
+        for (int i = 0; i < numberOfThreads; i++) {
+            workers.add(() -> {
+                new RowWorker(data, matrices, parameters, minDepTime, maxDepTime).run(nextOrigin);
+                return null;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfThreads);
+        try {
+            for (Future<Object> future : executor.invokeAll(workers)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not calculate the stop-to-stop matrices.", e.getCause());
+        } finally {
+            executor.shutdown();
+        }
+        log.info("done calculating stop-to-stop matrices.");
+        return matrices;
+    }
+
+    /**
+     * @return the stops in the order of the rows and columns of the matrices.
+     */
+    public List<TransitStopFacility> getStops() {
+        return Collections.unmodifiableList(Arrays.asList(this.stops));
+    }
+
+    public int getIndex(TransitStopFacility stop) {
+        return this.stopIndices.get(stop);
+    }
+
+    public float[] getTravelTimes() {
+        return this.travelTimes;
+    }
+
+    public float[] getTransferCounts() {
+        return this.transferCounts;
+    }
+
+    public float[] getInVehicleTimes() {
+        return this.inVehicleTimes;
+    }
+
+    public float getTravelTime(TransitStopFacility fromStop, TransitStopFacility toStop) {
+        return this.travelTimes[getIndex(fromStop) * this.stops.length + getIndex(toStop)];
+    }
+
+    public float getTransferCount(TransitStopFacility fromStop, TransitStopFacility toStop) {
+        return this.transferCounts[getIndex(fromStop) * this.stops.length + getIndex(toStop)];
+    }
+
+    public float getInVehicleTime(TransitStopFacility fromStop, TransitStopFacility toStop) {
+        return this.inVehicleTimes[getIndex(fromStop) * this.stops.length + getIndex(toStop)];
+    }
+
+    private static final class RowWorker implements RaptorObserver {
+
+        private final SwissRailRaptorCore raptor;
+        private final RaptorStopToStopMatrices matrices;
+        private final RaptorParameters parameters;
+        private final double minDepTime;
+        private final double maxDepTime;
+        private final double[] travelTimeSums;
+        private final double[] transferCountSums;
+        private final double[] inVehicleTimeSums;
+        private final int[] counts;
+
+        RowWorker(SwissRailRaptorData data, RaptorStopToStopMatrices matrices, RaptorParameters parameters, double minDepTime, double maxDepTime) {
+            this.raptor = new SwissRailRaptorCore(data);
+            this.matrices = matrices;
+            this.parameters = parameters;
+            this.minDepTime = minDepTime;
+            this.maxDepTime = maxDepTime;
+            int stopCount = matrices.stops.length;
+            this.travelTimeSums = new double[stopCount];
+            this.transferCountSums = new double[stopCount];
+            this.inVehicleTimeSums = new double[stopCount];
+            this.counts = new int[stopCount];
+        }
+
+        void run(AtomicInteger nextOrigin) {
+            int stopCount = this.matrices.stops.length;
+            for (int origin = nextOrigin.getAndIncrement(); origin < stopCount; origin = nextOrigin.getAndIncrement()) {
+                Arrays.fill(this.travelTimeSums, 0);
+                Arrays.fill(this.transferCountSums, 0);
+                Arrays.fill(this.inVehicleTimeSums, 0);
+                Arrays.fill(this.counts, 0);
+                this.raptor.calcTreesObservable(Collections.singletonList(this.matrices.stops[origin]), this.minDepTime, this.maxDepTime, this.parameters, this);
+                int rowOffset = origin * stopCount;
+                for (int destination = 0; destination < stopCount; destination++) {
+                    int count = this.counts[destination];
+                    int index = rowOffset + destination;
+                    if (destination == origin) {
+                        this.matrices.travelTimes[index] = 0;
+                        this.matrices.transferCounts[index] = 0;
+                        this.matrices.inVehicleTimes[index] = 0;
+                    } else if (count == 0) {
+                        this.matrices.travelTimes[index] = Float.POSITIVE_INFINITY;
+                        this.matrices.transferCounts[index] = Float.POSITIVE_INFINITY;
+                        this.matrices.inVehicleTimes[index] = Float.POSITIVE_INFINITY;
+                    } else {
+                        this.matrices.travelTimes[index] = (float) (this.travelTimeSums[destination] / count);
+                        this.matrices.transferCounts[index] = (float) (this.transferCountSums[destination] / count);
+                        this.matrices.inVehicleTimes[index] = (float) (this.inVehicleTimeSums[destination] / count);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void arrivedAtStop(double departureTime, TransitStopFacility stopFacility, double arrivalTime, int transferCount, double inVehicleTime) {
+            int index = this.matrices.stopIndices.get(stopFacility);
+            this.travelTimeSums[index] += arrivalTime - departureTime;
+            this.transferCountSums[index] += transferCount;
+            this.inVehicleTimeSums[index] += inVehicleTime;
+            this.counts[index]++;
+        }
+    }
+
+}
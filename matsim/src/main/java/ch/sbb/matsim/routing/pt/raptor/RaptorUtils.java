@@ -47,6 +47,8 @@ public final class RaptorUtils {
 
         staticConfig.setMinimalTransferTime(config.transitRouter().getAdditionalTransferTime());
 
+        staticConfig.setDataCacheDirectory(srrConfig.getDataCacheDirectory());
+
         staticConfig.setUseModeMappingForPassengers(srrConfig.isUseModeMappingForPassengers());
         if (srrConfig.isUseModeMappingForPassengers()) {
             for (SwissRailRaptorConfigGroup.ModeMappingForPassengersParameterSet mapping : srrConfig.getModeMappingForPassengers()) {
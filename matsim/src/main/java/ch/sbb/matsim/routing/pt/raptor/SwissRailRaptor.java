@@ -238,6 +238,13 @@ public class SwissRailRaptor implements TransitRouter {
         return this.calcLeastCostTree(accessStops, departureTime, parameters);
     }
 
+    /**
+     * See {@link SwissRailRaptorCore#calcTreesObservable(Collection, double, double, RaptorParameters, RaptorObserver)}.
+     */
+    public void calcTreesObservable(TransitStopFacility fromStop, double minDepTime, double maxDepTime, RaptorParameters parameters, RaptorObserver observer) {
+        this.raptor.calcTreesObservable(Collections.singletonList(fromStop), minDepTime, maxDepTime, parameters, observer);
+    }
+
     private Map<Id<TransitStopFacility>, SwissRailRaptorCore.TravelInfo> calcLeastCostTree(Collection<InitialStop> accessStops, double departureTime, RaptorParameters parameters) {
         return this.raptor.calcLeastCostTree(departureTime, accessStops, parameters);
     }
@@ -457,6 +457,97 @@ public class SwissRailRaptorCore {
     }
 
     public Map<Id<TransitStopFacility>, TravelInfo> calcLeastCostTree(double depTime, Collection<InitialStop> startStops, RaptorParameters parameters) {
+        calcLeastCostArrivals(depTime, startStops, parameters);
+
+        // collect information for each stop
+        Map<Id<TransitStopFacility>, TravelInfo> result = new HashMap<>();
+        for (Map.Entry<TransitStopFacility, Integer> e : this.data.stopFacilityIndices.entrySet()) {
+            TransitStopFacility stop = e.getKey();
+            int index = e.getValue();
+            PathElement destination = this.arrivalPathPerStop[index];
+            if (destination != null) {
+                TravelInfo ti = getTravelInfo(destination, parameters);
+                result.put(stop.getId(), ti);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates least cost trees from the given stops for each departure of a transit vehicle at one of these
+     * stops between <code>minDepTime</code> and <code>maxDepTime</code> (both inclusive), starting with the latest
+     * departure. For each departure time, the observer is informed about every stop that can be reached with
+     * at least one pt leg.
+     * <p>
+     * Compared to calling {@link #calcLeastCostTree(double, Collection, RaptorParameters)} for each departure
+     * time, this only computes departure times at which a vehicle actually leaves, and it does not create any
+     * {@link TravelInfo} objects.
+     */
+    public void calcTreesObservable(Collection<TransitStopFacility> fromStops, double minDepTime, double maxDepTime, RaptorParameters parameters, RaptorObserver observer) {
+        List<InitialStop> startStops = new ArrayList<>(fromStops.size());
+        for (TransitStopFacility stop : fromStops) {
+            startStops.add(new InitialStop(stop, 0, 0, 0, null));
+        }
+        double[] depTimes = collectDepartureTimes(fromStops, minDepTime, maxDepTime);
+        for (int i = depTimes.length - 1; i >= 0; i--) {
+            double depTime = depTimes[i];
+            calcLeastCostArrivals(depTime, startStops, parameters);
+            for (Map.Entry<TransitStopFacility, Integer> e : this.data.stopFacilityIndices.entrySet()) {
+                PathElement destination = this.arrivalPathPerStop[e.getValue()];
+                if (destination == null || Double.isNaN(destination.firstDepartureTime)) {
+                    continue; // not reached, or only by walking
+                }
+                double inVehicleTime = 0;
+                PathElement secondStage = null;
+                PathElement pe = destination;
+                while (pe.comingFrom != null) {
+                    if (!pe.isTransfer) {
+                        inVehicleTime += pe.arrivalTime - pe.boardingTime;
+                    }
+                    secondStage = pe;
+                    pe = pe.comingFrom;
+                }
+                observer.arrivedAtStop(depTime, e.getKey(), destination.arrivalTime, getTransferCount(destination, secondStage), inVehicleTime);
+            }
+        }
+    }
+
+    private double[] collectDepartureTimes(Collection<TransitStopFacility> fromStops, double minDepTime, double maxDepTime) {
+        double[] depTimes = new double[16];
+        int count = 0;
+        for (TransitStopFacility stop : fromStops) {
+            int[] routeStopIndices = this.data.routeStopsPerStopFacility.get(stop);
+            if (routeStopIndices == null) {
+                continue;
+            }
+            for (int routeStopIndex : routeStopIndices) {
+                RRouteStop routeStop = this.data.routeStops[routeStopIndex];
+                RRoute route = this.data.routes[routeStop.transitRouteIndex];
+                if (routeStopIndex == route.indexFirstRouteStop + route.countRouteStops - 1) {
+                    continue; // no departure at the last stop of a route
+                }
+                for (int depIndex = route.indexFirstDeparture; depIndex < route.indexFirstDeparture + route.countDepartures; depIndex++) {
+                    double depTime = this.data.departures[depIndex] + routeStop.departureOffset;
+                    if (depTime >= minDepTime && depTime <= maxDepTime) {
+                        if (count == depTimes.length) {
+                            depTimes = Arrays.copyOf(depTimes, count * 2);
+                        }
+                        depTimes[count++] = depTime;
+                    }
+                }
+            }
+        }
+        Arrays.sort(depTimes, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || depTimes[i] != depTimes[distinct - 1]) {
+                depTimes[distinct++] = depTimes[i];
+            }
+        }
+        return Arrays.copyOf(depTimes, distinct);
+    }
+
+    private void calcLeastCostArrivals(double depTime, Collection<InitialStop> startStops, RaptorParameters parameters) {
         reset();
 
         BitSet initialRouteStopIndices = new BitSet();
@@ -506,19 +597,6 @@ public class SwissRailRaptorCore {
                 break;
             }
         }
-
-        // collect information for each stop
-        Map<Id<TransitStopFacility>, TravelInfo> result = new HashMap<>();
-        for (Map.Entry<TransitStopFacility, Integer> e : this.data.stopFacilityIndices.entrySet()) {
-            TransitStopFacility stop = e.getKey();
-            int index = e.getValue();
-            PathElement destination = this.arrivalPathPerStop[index];
-            if (destination != null) {
-                TravelInfo ti = getTravelInfo(destination, parameters);
-                result.put(stop.getId(), ti);
-            }
-        }
-        return result;
     }
 
     private TravelInfo getTravelInfo(PathElement destination, RaptorParameters parameters) {
@@ -541,6 +619,15 @@ public class SwissRailRaptorCore {
         double waitingCost = waitingTime * -parameters.getMarginalUtilityOfWaitingPt_utl_s();
 
         double travelCost = destination.arrivalTravelCost - firstStage.arrivalTravelCost - waitingCost;
+        int transferCount = getTransferCount(destination, secondStage);
+        Id<TransitStopFacility> departureStopId = firstStage.toRouteStop.routeStop.getStopFacility().getId();
+        return new TravelInfo(departureStopId, departureTimeAtFirstStop, arrivalTimeAtLastStop, travelCost, accessTime, accessCost, transferCount, waitingTime, waitingCost, destination);
+    }
+
+    /**
+     * @param secondStage the path element following the initial stop, <code>null</code> if the destination is the initial stop.
+     */
+    private static int getTransferCount(PathElement destination, PathElement secondStage) {
         int transferCount = destination.transferCount;
         if (destination.isTransfer && transferCount > 0) {
             transferCount--; // do not count this as transfer, as the router would merge it with the egress walk
@@ -548,8 +635,7 @@ public class SwissRailRaptorCore {
         if (secondStage != null && secondStage.isTransfer && transferCount > 0) {
             transferCount--; // the first "leg" is a transfer, do not count it as such as the router would merge it with the access walk
         }
-        Id<TransitStopFacility> departureStopId = firstStage.toRouteStop.routeStop.getStopFacility().getId();
-        return new TravelInfo(departureStopId, departureTimeAtFirstStop, arrivalTimeAtLastStop, travelCost, accessTime, accessCost, transferCount, waitingTime, waitingCost, destination);
+        return transferCount;
     }
 
     private void exploreRoutes(RaptorParameters parameters) {
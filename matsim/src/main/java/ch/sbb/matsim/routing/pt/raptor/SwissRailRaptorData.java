@@ -13,6 +13,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
@@ -166,26 +167,25 @@ public class SwissRailRaptorData {
         QuadTree<TransitStopFacility> stopsQT = TransitScheduleUtils.createQuadTreeOfTransitStopFacilities(stops);
         int countStopFacilities = stops.size();
 
-        Map<Integer, RTransfer[]> allTransfers = calculateRouteStopTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
-        long countTransfers = 0;
-        for (RTransfer[] transfers : allTransfers.values()) {
-            countTransfers += transfers.length;
+        SwissRailRaptorDataCache cache = null;
+        RTransfer[] transfers = null;
+        if (staticConfig.getDataCacheDirectory() != null) {
+            cache = new SwissRailRaptorDataCache(staticConfig.getDataCacheDirectory(), schedule, staticConfig, routes, departures, routeStops);
+            transfers = cache.readTransfers(routeStops.length);
         }
-        if (countTransfers > Integer.MAX_VALUE) {
-            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+        if (transfers == null) {
+            transfers = calculateTransfers(schedule, stopsQT, routeStopsPerStopFacility, routeStops, staticConfig);
+            if (cache != null) {
+                cache.writeTransfers(routeStops.length, transfers);
+            }
         }
-        RTransfer[] transfers = new RTransfer[(int) countTransfers];
-        int indexTransfer = 0;
-        for (int routeStopIndex = 0; routeStopIndex < routeStops.length; routeStopIndex++) {
-            RTransfer[] stopTransfers = allTransfers.get(routeStopIndex);
-            int transferCount = stopTransfers == null ? 0 : stopTransfers.length;
-            if (transferCount > 0) {
-                RRouteStop routeStop = routeStops[routeStopIndex];
+        // the transfers are ordered by their fromRouteStop
+        for (int indexTransfer = 0; indexTransfer < transfers.length; indexTransfer++) {
+            RRouteStop routeStop = routeStops[transfers[indexTransfer].fromRouteStop];
+            if (routeStop.countTransfers == 0) {
                 routeStop.indexFirstTransfer = indexTransfer;
-                routeStop.countTransfers = transferCount;
-                System.arraycopy(stopTransfers, 0, transfers, indexTransfer, transferCount);
-                indexTransfer += transferCount;
             }
+            routeStop.countTransfers++;
         }
 
         SwissRailRaptorData data = new SwissRailRaptorData(staticConfig, countStopFacilities, routes, departures, routeStops, transfers, stopFacilityIndices, routeStopsPerStopFacility, stopsQT);
@@ -201,80 +201,124 @@ public class SwissRailRaptorData {
     }
 
     // calculate possible transfers between TransitRouteStops
-    private static Map<Integer, RTransfer[]> calculateRouteStopTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
-        Map<Integer, RTransfer[]> transfers = new HashMap<>(stopsQT.size() * 5);
+    private static RTransfer[] calculateTransfers(TransitSchedule schedule, QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility, RRouteStop[] routeStops, RaptorStaticConfig config) {
+        // collect the additional destination stops from the schedule's minimal transfer times, keeping their order
+        Map<TransitStopFacility, List<TransitStopFacility>> additionalStopsPerStop = new HashMap<>();
+        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+        while (iter.hasNext()) {
+            iter.next();
+            TransitStopFacility fromStop = schedule.getFacilities().get(iter.getFromStopId());
+            TransitStopFacility toStop = schedule.getFacilities().get(iter.getToStopId());
+            additionalStopsPerStop.computeIfAbsent(fromStop, stop -> new ArrayList<>(5)).add(toStop);
+        }
+
+        // each stop only writes the transfers of its own route stops, so the stops can be processed in parallel
+        TransitStopFacility[] fromStops = routeStopsPerStopFacility.keySet().toArray(new TransitStopFacility[0]);
+        RTransfer[][] transfersPerRouteStop = new RTransfer[routeStops.length][];
+        ThreadLocal<TransferBuffer> buffers = ThreadLocal.withInitial(TransferBuffer::new);
+        IntStream.range(0, fromStops.length).parallel().forEach(i -> {
+            TransitStopFacility fromStop = fromStops[i];
+            calculateRouteStopTransfers(fromStop, additionalStopsPerStop.get(fromStop), schedule.getMinimalTransferTimes(), stopsQT, routeStopsPerStopFacility, routeStops, config, buffers.get(), transfersPerRouteStop);
+        });
+
+        long countTransfers = 0;
+        for (RTransfer[] transfers : transfersPerRouteStop) {
+            countTransfers += transfers == null ? 0 : transfers.length;
+        }
+        if (countTransfers > Integer.MAX_VALUE) {
+            throw new RuntimeException("TransitSchedule has too many Transfers: " + countTransfers);
+        }
+        RTransfer[] transfers = new RTransfer[(int) countTransfers];
+        int indexTransfer = 0;
+        for (RTransfer[] stopTransfers : transfersPerRouteStop) {
+            int transferCount = stopTransfers == null ? 0 : stopTransfers.length;
+            if (transferCount > 0) {
+                System.arraycopy(stopTransfers, 0, transfers, indexTransfer, transferCount);
+                indexTransfer += transferCount;
+            }
+        }
+        return transfers;
+    }
+
+    // calculate the transfers of all route stops at one stop facility
+    private static void calculateRouteStopTransfers(TransitStopFacility fromStop, List<TransitStopFacility> additionalStops, MinimalTransferTimes mtt,
+                                                    QuadTree<TransitStopFacility> stopsQT, Map<TransitStopFacility, int[]> routeStopsPerStopFacility,
+                                                    RRouteStop[] routeStops, RaptorStaticConfig config, TransferBuffer buffer, RTransfer[][] transfersPerRouteStop) {
         double maxBeelineWalkConnectionDistance = config.getBeelineWalkConnectionDistance();
         double beelineWalkSpeed = config.getBeelineWalkSpeed();
         double beelineDistanceFactor = config.getBeelineWalkDistanceFactor();
         double minimalTransferTime = config.getMinimalTransferTime();
 
-        Map<TransitStopFacility, List<TransitStopFacility>> stopToStopsTransfers = new HashMap<>();
-
-        // first, add transfers based on distance
-        for (TransitStopFacility fromStop : routeStopsPerStopFacility.keySet()) {
-            Coord fromCoord = fromStop.getCoord();
-            Collection<TransitStopFacility> nearbyStops = stopsQT.getDisk(fromCoord.getX(), fromCoord.getY(), maxBeelineWalkConnectionDistance);
-            stopToStopsTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5)).addAll(nearbyStops);
+        // first, add transfers based on distance, then take the transfers from the schedule into account
+        Coord fromCoord = fromStop.getCoord();
+        List<TransitStopFacility> toStops = new ArrayList<>(stopsQT.getDisk(fromCoord.getX(), fromCoord.getY(), maxBeelineWalkConnectionDistance));
+        if (additionalStops != null) {
+            for (TransitStopFacility toStop : additionalStops) {
+                if (!toStops.contains(toStop)) {
+                    toStops.add(toStop);
+                }
+            }
         }
 
-        // take the transfers from the schedule into account
-        MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
-        while (iter.hasNext()) {
-            iter.next();
-            Id<TransitStopFacility> fromStopId = iter.getFromStopId();
-            TransitStopFacility fromStop = schedule.getFacilities().get(fromStopId);
-            Id<TransitStopFacility> toStopId = iter.getToStopId();
-            TransitStopFacility toStop = schedule.getFacilities().get(toStopId);
-            List<TransitStopFacility> destinationStops = stopToStopsTransfers.computeIfAbsent(fromStop, stop -> new ArrayList<>(5));
-            if (!destinationStops.contains(toStop)) {
-                destinationStops.add(toStop);
+        int countToStops = toStops.size();
+        int[][] toRouteStopIndices = new int[countToStops][];
+        double[] transferTimes = new double[countToStops];
+        double[] transferDistances = new double[countToStops];
+        for (int i = 0; i < countToStops; i++) {
+            TransitStopFacility toStop = toStops.get(i);
+            toRouteStopIndices[i] = routeStopsPerStopFacility.get(toStop);
+            double beelineDistance = CoordUtils.calcEuclideanDistance(fromCoord, toStop.getCoord());
+            double transferTime = beelineDistance / beelineWalkSpeed;
+            if (transferTime < minimalTransferTime) {
+                transferTime = minimalTransferTime;
             }
+            transferTimes[i] = mtt.get(fromStop.getId(), toStop.getId(), transferTime);
+            transferDistances[i] = beelineDistance * beelineDistanceFactor;
         }
 
-        // now calculate the transfers between the route stops
-        MinimalTransferTimes mtt = schedule.getMinimalTransferTimes();
-        ArrayList<RTransfer> stopTransfers = new ArrayList<>();
-        for (Map.Entry<TransitStopFacility, List<TransitStopFacility>> e : stopToStopsTransfers.entrySet()) {
-            TransitStopFacility fromStop = e.getKey();
-            Coord fromCoord = fromStop.getCoord();
-            int[] fromRouteStopIndices = routeStopsPerStopFacility.get(fromStop);
-            Collection<TransitStopFacility> nearbyStops = e.getValue();
-            for (TransitStopFacility toStop : nearbyStops) {
-                int[] toRouteStopIndices = routeStopsPerStopFacility.get(toStop);
-                double beelineDistance = CoordUtils.calcEuclideanDistance(fromCoord, toStop.getCoord());
-                double transferTime = beelineDistance / beelineWalkSpeed;
-                if (transferTime < minimalTransferTime) {
-                    transferTime = minimalTransferTime;
+        for (int fromRouteStopIndex : routeStopsPerStopFacility.get(fromStop)) {
+            RRouteStop fromRouteStop = routeStops[fromRouteStopIndex];
+            buffer.size = 0;
+            for (int i = 0; i < countToStops; i++) {
+                if (toRouteStopIndices[i] == null) {
+                    continue; // the destination stop of a minimal transfer time is not served by any route
                 }
-
-                transferTime = mtt.get(fromStop.getId(), toStop.getId(), transferTime);
-
-                final double fixedTransferTime = transferTime; // variables must be effective final to be used in lambdas (below)
-
-                for (int fromRouteStopIndex : fromRouteStopIndices) {
-                    RRouteStop fromRouteStop = routeStops[fromRouteStopIndex];
-                    stopTransfers.clear();
-                    for (int toRouteStopIndex : toRouteStopIndices) {
-                        RRouteStop toRouteStop = routeStops[toRouteStopIndex];
-                        if (isUsefulTransfer(fromRouteStop, toRouteStop, maxBeelineWalkConnectionDistance, config.getOptimization())) {
-                            RTransfer newTransfer = new RTransfer(fromRouteStopIndex, toRouteStopIndex, fixedTransferTime, beelineDistance * beelineDistanceFactor);
-                            stopTransfers.add(newTransfer);
-                        }
+                for (int toRouteStopIndex : toRouteStopIndices[i]) {
+                    RRouteStop toRouteStop = routeStops[toRouteStopIndex];
+                    if (isUsefulTransfer(fromRouteStop, toRouteStop, maxBeelineWalkConnectionDistance, config.getOptimization())) {
+                        buffer.add(toRouteStopIndex, transferTimes[i], transferDistances[i]);
                     }
-                    RTransfer[] newTransfers = stopTransfers.toArray(new RTransfer[0]);
-                    transfers.compute(fromRouteStopIndex, (routeStopIndex, currentTransfers) -> {
-                        if (currentTransfers == null) {
-                            return newTransfers;
-                        }
-                        RTransfer[] tmp = new RTransfer[currentTransfers.length + newTransfers.length];
-                        System.arraycopy(currentTransfers, 0, tmp, 0, currentTransfers.length);
-                        System.arraycopy(newTransfers, 0, tmp, currentTransfers.length, newTransfers.length);
-                        return tmp;
-                    });
                 }
             }
+            RTransfer[] transfers = new RTransfer[buffer.size];
+            for (int t = 0; t < buffer.size; t++) {
+                transfers[t] = new RTransfer(fromRouteStopIndex, buffer.toRouteStops[t], buffer.transferTimes[t], buffer.transferDistances[t]);
+            }
+            transfersPerRouteStop[fromRouteStopIndex] = transfers;
+        }
+    }
+
+    /**
+     * Reusable per-thread storage for the transfers of one route stop while they are collected.
+     */
+    private static final class TransferBuffer {
+        int size = 0;
+        int[] toRouteStops = new int[64];
+        double[] transferTimes = new double[64];
+        double[] transferDistances = new double[64];
+
+        void add(int toRouteStop, double transferTime, double transferDistance) {
+            if (this.size == this.toRouteStops.length) {
+                int newLength = this.size * 2;
+                this.toRouteStops = Arrays.copyOf(this.toRouteStops, newLength);
+                this.transferTimes = Arrays.copyOf(this.transferTimes, newLength);
+                this.transferDistances = Arrays.copyOf(this.transferDistances, newLength);
+            }
+            this.toRouteStops[this.size] = toRouteStop;
+            this.transferTimes[this.size] = transferTime;
+            this.transferDistances[this.size] = transferDistance;
+            this.size++;
         }
-        return transfers;
     }
 
     private static boolean isUsefulTransfer(RRouteStop fromRouteStop, RRouteStop toRouteStop, double maxBeelineWalkConnectionDistance, RaptorStaticConfig.RaptorOptimization optimization) {
@@ -0,0 +1,223 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package ch.sbb.matsim.routing.pt.raptor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.pt.transitSchedule.api.MinimalTransferTimes;
+import org.matsim.pt.transitSchedule.api.TransitSchedule;
+import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRoute;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RRouteStop;
+import ch.sbb.matsim.routing.pt.raptor.SwissRailRaptorData.RTransfer;
+
+/**
+ * Caches the transfers between route stops, which are by far the most expensive part of
+ * {@link SwissRailRaptorData#create}, in a directory shared by several runs.
+ * <p>
+ * A cache file is named by a SHA-256 hash of everything the transfers depend on: the route stops in the order they
+ * are enumerated, their stop facilities and coordinates, the departures, the minimal transfer times of the schedule
+ * and the static configuration. The file has a small versioned header followed by fixed-size transfer records, and is
+ * read through a memory mapping, so parallel runs on the same host share the page cache. Files are written to a
+ * temporary file first and then moved atomically, so concurrent runs never see partially written files.
+ */
+final class SwissRailRaptorDataCache {
+
+    private static final Logger log = Logger.getLogger(SwissRailRaptorDataCache.class);
+
+    private static final int MAGIC = 0x53525244; // "SRRD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 32 + 4 + 4;
+    private static final int RECORD_SIZE = 4 + 4 + 8 + 8;
+    private static final int RECORDS_PER_MAPPING = Integer.MAX_VALUE / RECORD_SIZE;
+
+    private final Path file;
+    private final byte[] key;
+
+    SwissRailRaptorDataCache(String directory, TransitSchedule schedule, RaptorStaticConfig config, RRoute[] routes, double[] departures, RRouteStop[] routeStops) {
+        this.key = calculateKey(schedule, config, routes, departures, routeStops);
+        this.file = Paths.get(directory, "swissRailRaptorData." + toHex(this.key) + ".bin");
+    }
+
+    /**
+     * @return the cached transfers, or <code>null</code> if there is no valid cache file.
+     */
+    RTransfer[] readTransfers(int countRouteStops) {
+        if (!Files.exists(this.file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(this.file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            byte[] fileKey = new byte[32];
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                log.warn("Ignoring " + this.file + ", it is not a SwissRailRaptor cache file of version " + VERSION);
+                return null;
+            }
+            header.get(fileKey);
+            if (!Arrays.equals(fileKey, this.key) || header.getInt() != countRouteStops) {
+                log.warn("Ignoring " + this.file + ", it does not belong to this schedule.");
+                return null;
+            }
+            int countTransfers = header.getInt();
+            if (channel.size() != HEADER_SIZE + (long) countTransfers * RECORD_SIZE) {
+                log.warn("Ignoring " + this.file + ", it is incomplete.");
+                return null;
+            }
+            RTransfer[] transfers = new RTransfer[countTransfers];
+            for (int first = 0; first < countTransfers; first += RECORDS_PER_MAPPING) {
+                int count = Math.min(RECORDS_PER_MAPPING, countTransfers - first);
+                ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + (long) first * RECORD_SIZE, (long) count * RECORD_SIZE);
+                for (int i = first; i < first + count; i++) {
+                    int fromRouteStop = records.getInt();
+                    int toRouteStop = records.getInt();
+                    if (fromRouteStop < 0 || fromRouteStop >= countRouteStops || toRouteStop < 0 || toRouteStop >= countRouteStops
+                            || (i > 0 && fromRouteStop < transfers[i - 1].fromRouteStop)) {
+                        log.warn("Ignoring " + this.file + ", it is corrupt.");
+                        return null;
+                    }
+                    transfers[i] = new RTransfer(fromRouteStop, toRouteStop, records.getDouble(), records.getDouble());
+                }
+            }
+            log.info("Read " + countTransfers + " transfers from " + this.file);
+            return transfers;
+        } catch (IOException e) {
+            log.warn("Could not read " + this.file + ", calculating the transfers again.", e);
+            return null;
+        }
+    }
+
+    void writeTransfers(int countRouteStops, RTransfer[] transfers) {
+        Path tmpFile = null;
+        try {
+            Files.createDirectories(this.file.getParent());
+            tmpFile = Files.createTempFile(this.file.getParent(), "swissRailRaptorData.", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpFile), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(this.key);
+                out.writeInt(countRouteStops);
+                out.writeInt(transfers.length);
+                for (RTransfer transfer : transfers) {
+                    out.writeInt(transfer.fromRouteStop);
+                    out.writeInt(transfer.toRouteStop);
+                    out.writeDouble(transfer.transferTime);
+                    out.writeDouble(transfer.transferDistance);
+                }
+            }
+            Files.move(tmpFile, this.file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            log.info("Wrote " + transfers.length + " transfers to " + this.file);
+        } catch (IOException e) {
+            log.warn("Could not write " + this.file + ", continuing without cache.", e);
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException ignored) {
+                    // nothing more we can do
+                }
+            }
+        }
+    }
+
+    private static byte[] calculateKey(TransitSchedule schedule, RaptorStaticConfig config, RRoute[] routes, double[] departures, RRouteStop[] routeStops) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest), 1 << 16))) {
+            out.writeInt(VERSION);
+            out.writeDouble(config.getBeelineWalkConnectionDistance());
+            out.writeDouble(config.getBeelineWalkSpeed());
+            out.writeDouble(config.getBeelineWalkDistanceFactor());
+            out.writeDouble(config.getMinimalTransferTime());
+            out.writeUTF(config.getOptimization().name());
+
+            out.writeInt(routes.length);
+            for (RRoute route : routes) {
+                out.writeInt(route.indexFirstRouteStop);
+                out.writeInt(route.countRouteStops);
+                out.writeInt(route.indexFirstDeparture);
+                out.writeInt(route.countDepartures);
+            }
+            out.writeInt(departures.length);
+            for (double departure : departures) {
+                out.writeDouble(departure);
+            }
+            out.writeInt(routeStops.length);
+            for (RRouteStop routeStop : routeStops) {
+                TransitStopFacility stop = routeStop.routeStop.getStopFacility();
+                out.writeUTF(stop.getId().toString());
+                out.writeDouble(stop.getCoord().getX());
+                out.writeDouble(stop.getCoord().getY());
+                out.writeInt(routeStop.stopFacilityIndex);
+                out.writeDouble(routeStop.arrivalOffset);
+                out.writeDouble(routeStop.departureOffset);
+            }
+
+            // sort the minimal transfer times, the iteration order of the schedule is not guaranteed to be stable
+            List<String> minimalTransferTimes = new ArrayList<>();
+            MinimalTransferTimes.MinimalTransferTimesIterator iter = schedule.getMinimalTransferTimes().iterator();
+            while (iter.hasNext()) {
+                iter.next();
+                minimalTransferTimes.add(iter.getFromStopId() + "\t" + iter.getToStopId() + "\t" + iter.getSeconds());
+            }
+            Collections.sort(minimalTransferTimes);
+            out.writeInt(minimalTransferTimes.size());
+            for (String minimalTransferTime : minimalTransferTimes) {
+                out.writeUTF(minimalTransferTime);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return digest.digest();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+            sb.append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+}
@@ -96,6 +96,7 @@ public final class VspConfigConsistencyCheckerImpl implements ConfigConsistencyC
 			case Dijkstra:
 			case AStarLandmarks:
 			case FastDijkstra:
+			case CCH:
 				log.log( lvl, "you are not using FastAStarLandmarks as routing algorithm.  vsp default is to use FastAStarLandmarks.") ;
 				System.out.flush();
 				break;
@@ -33,9 +33,9 @@ import java.util.*;
 public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private static final Logger log = Logger.getLogger( ControlerConfigGroup.class );
 
-	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks}
+	public enum RoutingAlgorithmType {Dijkstra, AStarLandmarks, FastDijkstra, FastAStarLandmarks, CCH}
 
-	public enum EventsFileFormat {xml, pb, json}
+	public enum EventsFileFormat {xml, pb, json, binary}
 
 	public enum CompressionType {
 		none(""),
@@ -61,6 +61,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	/*package*/ static final String EVENTS_FILE_FORMAT = "eventsFileFormat";
 	private static final String SNAPSHOT_FORMAT = "snapshotFormat";
 	private static final String WRITE_EVENTS_INTERVAL = "writeEventsInterval";
+	private static final String EVENTS_WRITER_THREADS = "eventsWriterThreads";
 	private static final String WRITE_PLANS_INTERVAL = "writePlansInterval";
     private static final String WRITE_TRIPS_INTERVAL = "writeTripsInterval";
 	private static final String OVERWRITE_FILE = "overwriteFiles";
@@ -86,6 +87,7 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	private Set<EventsFileFormat> eventsFileFormats = Collections.unmodifiableSet(EnumSet.of(EventsFileFormat.xml));
 
 	private int writeEventsInterval=10;
+	private int eventsWriterThreads = 0;
 	private int writePlansInterval=10;
 	private int writeTripsInterval = 10;
 	private String mobsim = MobsimType.qsim.toString();
@@ -103,7 +105,8 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 	public final Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(ROUTINGALGORITHM_TYPE, "The type of routing (least cost path) algorithm used, may have the values: " + RoutingAlgorithmType.Dijkstra + ", " + 
-				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + " or "  + RoutingAlgorithmType.FastAStarLandmarks);
+				RoutingAlgorithmType.FastDijkstra + ", " + RoutingAlgorithmType.AStarLandmarks + ", "  + RoutingAlgorithmType.FastAStarLandmarks +
+				" or " + RoutingAlgorithmType.CCH + " (customizable contraction hierarchies, costs are updated per time bin of the travel time calculator, requires routingRandomness 0)");
 		map.put(RUNID, "An identifier for the current run which is used as prefix for output files and mentioned in output xml files etc.");
 		map.put(EVENTS_FILE_FORMAT, "Default="+EventsFileFormat.xml+"; Specifies the file format for writing events. Currently supported: " + Arrays.toString(EventsFileFormat.values()) + IOUtils.NATIVE_NEWLINE+ "\t\t" +
 				"Multiple values can be specified separated by commas (',').");
@@ -111,6 +114,9 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 				"to a file. `0' disables events writing completely.");
         map.put(WRITE_TRIPS_INTERVAL, "iterationNumber % writeEventsInterval == 0 defines in which iterations trips CSV are written " +
                 "to a file. `0' disables trips writing completely.");
+		map.put(EVENTS_WRITER_THREADS, "Default=0. Number of threads formatting and compressing xml events files. With `0', events are written " +
+				"on the thread that produces them. Larger values buffer the events and write them asynchronously, so the mobsim is not slowed " +
+				"down by the events writer as long as the writer threads keep up.");
 		map.put(WRITE_PLANS_INTERVAL, "iterationNumber % writePlansInterval == 0 defines (hopefully) in which iterations plans are " +
                 "written to a file. `0' disables plans writing completely.  Some plans in early iterations are always written");
 		map.put(LINKTOLINK_ROUTING_ENABLED, "Default=false. If enabled, the router takes travel times needed for turning moves into account."
@@ -313,6 +319,16 @@ public final class ControlerConfigGroup extends ReflectiveConfigGroup {
 		this.writeEventsInterval = writeEventsInterval;
 	}
 
+	@StringGetter( EVENTS_WRITER_THREADS )
+	public int getEventsWriterThreads() {
+		return this.eventsWriterThreads;
+	}
+
+	@StringSetter( EVENTS_WRITER_THREADS )
+	public void setEventsWriterThreads(final int eventsWriterThreads) {
+		this.eventsWriterThreads = eventsWriterThreads;
+	}
+
 	@StringGetter( MOBSIM )
 	public String getMobsim() {
 		return this.mobsim;
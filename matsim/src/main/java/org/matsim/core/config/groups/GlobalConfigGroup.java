@@ -39,6 +39,7 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 	@Override public Map<String, String> getComments() {
 		Map<String,String> map = super.getComments();
 		map.put(NUMBER_OF_THREADS, NUMBER_OF_THREADS_CMT ) ;
+		map.put(REPLANNING_EXECUTION, REPLANNING_EXECUTION_CMT ) ;
 		return map ;
 	}
 
@@ -94,6 +95,25 @@ public final class GlobalConfigGroup extends ReflectiveConfigGroup {
 		this.numberOfThreads = numberOfThreads;
 	}
 	// ---
+	public enum ReplanningExecution { roundRobin, workStealing }
+	private ReplanningExecution replanningExecution = ReplanningExecution.roundRobin;
+	private static final String REPLANNING_EXECUTION = "replanningExecution";
+	private static final String REPLANNING_EXECUTION_CMT = "How multi-threaded replanning modules distribute the plans to the threads. "
+							     + ReplanningExecution.roundRobin + ": every thread gets every n-th plan and a new plan algorithm per iteration. "
+							     + ReplanningExecution.workStealing + ": the plans are split into four batches per thread, which are processed by a thread pool "
+							     + "as threads become free, with a new plan algorithm per batch and iteration. "
+							     + "This needs four times as many plan algorithms (e.g. routers) as " + ReplanningExecution.roundRobin + ". "
+							     + "Both are reproducible for a fixed random seed, but do not give the same results, as the plans are handled by other plan algorithms, "
+							     + "each with its own random numbers.";
+	@StringGetter( REPLANNING_EXECUTION )
+	public ReplanningExecution getReplanningExecution() {
+		return this.replanningExecution;
+	}
+	@StringSetter( REPLANNING_EXECUTION )
+	public void setReplanningExecution(final ReplanningExecution replanningExecution) {
+		this.replanningExecution = replanningExecution;
+	}
+	// ---
 	private String coordinateSystem = "Atlantis" ;
 	// see https://matsim.atlassian.net/browse/MATSIM-898
 	private static final String COORDINATE_SYSTEM = "coordinateSystem";
@@ -44,6 +44,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 	
 	private final static String ONE_THREAD_PER_HANDLER = "oneThreadPerHandler"; 
 	private Boolean oneThreadPerHandler = false;
+
+	private final static String BALANCE_HANDLERS_BY_RUNTIME = "balanceHandlersByRuntime";
+	private boolean balanceHandlersByRuntime = false;
 	
 	private boolean locked = false;
 
@@ -60,6 +63,9 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 				+ "before the next time step is simulated. E.g. neccessary when within-day replanning is used.");
 		comments.put(ONE_THREAD_PER_HANDLER, "If enabled, each event handler is assigned to its own thread. Note that enabling this feature disabled the " + NUMBER_OF_THREADS + " option! "
 				+ "This feature is still experimental!");
+		comments.put(BALANCE_HANDLERS_BY_RUNTIME, "If enabled, the time the event handlers need is measured during each iteration, and the handlers are "
+				+ "redistributed among the " + NUMBER_OF_THREADS + " threads for the next iteration, such that no thread has much more work than the others. "
+				+ "If disabled, the handlers are distributed round robin in the order they are added.");
 		return comments;
 	}
 
@@ -127,6 +133,20 @@ public final class ParallelEventHandlingConfigGroup extends ReflectiveConfigGrou
 		}
 	}
 	
+	@StringGetter( BALANCE_HANDLERS_BY_RUNTIME )
+	public boolean isBalanceHandlersByRuntime() {
+		return this.balanceHandlersByRuntime;
+	}
+
+	@StringSetter( BALANCE_HANDLERS_BY_RUNTIME )
+	public void setBalanceHandlersByRuntime(boolean balanceHandlersByRuntime) {
+		if ( !this.locked ) {
+			this.balanceHandlersByRuntime = balanceHandlersByRuntime;
+		} else {
+			throw new RuntimeException("it is too late in the control flow to modify this parameter");
+		}
+	}
+
 	public void makeLocked() {
 		this.locked = true;
 	}
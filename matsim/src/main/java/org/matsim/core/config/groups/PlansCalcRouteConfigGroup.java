@@ -75,6 +75,16 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	private static final String RANDOMNESS = "routingRandomness" ;
 	private double routingRandomness = 3. ;
 	// ---
+	private static final String TREE_CACHE_TIME_BIN_SIZE = "shortestPathTreeCacheTimeBinSize";
+	private static final String TREE_CACHE_TIME_BIN_SIZE_CMT = "If larger than 0, network routes starting at the same node within a time bin of this size (in seconds) " +
+																		"are taken from a shortest path tree once the node was requested twice within an iteration. " +
+																		"Speeds up re-routing if many agents start at the same locations, at the price of routes that are " +
+																		"only optimal for the middle of the time bin. Only used if routingRandomness is 0. Default is 0, i.e. no cache.";
+	private double shortestPathTreeCacheTimeBinSize = 0.0;
+	private static final String TREE_CACHE_MEMORY = "shortestPathTreeCacheMemory";
+	private static final String TREE_CACHE_MEMORY_CMT = "The memory (in MB) the shortest path trees and request counts of one routing module (i.e. per mode and replanning thread) may use.";
+	private int shortestPathTreeCacheMemory = 100;
+	// ---
 	private static final String CLEAR_MODE_ROUTING_PARAMS = "clearDefaultTeleportedModeParams";
 	private static final String CLEAR_MODE_ROUTING_PARAMS_CMT = "Some typical teleportation routing params are set by default, such as for walk and bike.  " +
 																		"Setting this switch to \"true\" will clear them.  Note that this will also clear " +
@@ -439,6 +449,10 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 			this.setClearingDefaultModeRoutingParams( Boolean.parseBoolean( value ) );
 		} else if (RANDOMNESS.equals( key ) ) {
 			this.setRoutingRandomness( Double.parseDouble( value ) );
+		} else if (TREE_CACHE_TIME_BIN_SIZE.equals( key ) ) {
+			this.setShortestPathTreeCacheTimeBinSize( Double.parseDouble( value ) );
+		} else if (TREE_CACHE_MEMORY.equals( key ) ) {
+			this.setShortestPathTreeCacheMemory( Integer.parseInt( value ) );
 		} else {
 			throw new IllegalArgumentException(key);
 		}
@@ -450,6 +464,8 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		map.put( NETWORK_MODES, CollectionUtils.arrayToString(this.networkModes.toArray( new String[0] ) ) );
 		map.put(  CLEAR_MODE_ROUTING_PARAMS, Boolean.toString( this.clearingDefaultModeRoutingParams ) ) ;
 		map.put(  RANDOMNESS, Double.toString( this.routingRandomness ) ) ;
+		map.put(  TREE_CACHE_TIME_BIN_SIZE, Double.toString( this.shortestPathTreeCacheTimeBinSize ) ) ;
+		map.put(  TREE_CACHE_MEMORY, Integer.toString( this.shortestPathTreeCacheMemory ) ) ;
 
 		//		map.put( BEELINE_DISTANCE_FACTOR, Double.toString(this.getBeelineDistanceFactor()) );
 
@@ -476,6 +492,8 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 	          		+ "Leads to Pareto-optimal route with randomly drawn money-vs-other-attributes tradeoff. "
 	          		+ "Technically the width parameter of a log-normal distribution. 3.0 seems to be a good value. " ) ;
 		map.put( CLEAR_MODE_ROUTING_PARAMS, CLEAR_MODE_ROUTING_PARAMS_CMT ) ;
+		map.put( TREE_CACHE_TIME_BIN_SIZE, TREE_CACHE_TIME_BIN_SIZE_CMT ) ;
+		map.put( TREE_CACHE_MEMORY, TREE_CACHE_MEMORY_CMT ) ;
 		return map;
 	}
 
@@ -575,6 +593,26 @@ public final class PlansCalcRouteConfigGroup extends ConfigGroup {
 		this.routingRandomness = routingRandomness;
 	}
 
+	@StringGetter(TREE_CACHE_TIME_BIN_SIZE)
+	public double getShortestPathTreeCacheTimeBinSize() {
+		return this.shortestPathTreeCacheTimeBinSize;
+	}
+	@StringSetter(TREE_CACHE_TIME_BIN_SIZE)
+	public void setShortestPathTreeCacheTimeBinSize(double shortestPathTreeCacheTimeBinSize) {
+		testForLocked() ;
+		this.shortestPathTreeCacheTimeBinSize = shortestPathTreeCacheTimeBinSize;
+	}
+
+	@StringGetter(TREE_CACHE_MEMORY)
+	public int getShortestPathTreeCacheMemory() {
+		return this.shortestPathTreeCacheMemory;
+	}
+	@StringSetter(TREE_CACHE_MEMORY)
+	public void setShortestPathTreeCacheMemory(int shortestPathTreeCacheMemory) {
+		testForLocked() ;
+		this.shortestPathTreeCacheMemory = shortestPathTreeCacheMemory;
+	}
+
 	@Override protected void checkConsistency(Config config) {
 		super.checkConsistency(config);
 
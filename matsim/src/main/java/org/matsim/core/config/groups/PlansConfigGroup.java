@@ -38,6 +38,7 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 	public abstract static class NetworkRouteType {
 		public static final String LinkNetworkRoute = "LinkNetworkRoute";
 		public static final String CompressedNetworkRoute = "CompressedNetworkRoute";
+		public static final String CompactNetworkRoute = "CompactNetworkRoute";
 	}
 
 	public enum ActivityDurationInterpretation { minOfDurationAndEndTime, tryEndTimeThenDuration, @Deprecated endTimeOnly }
@@ -71,7 +72,10 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 				NETWORK_ROUTE_TYPE,
 				"Defines how routes are stored in memory. Currently supported: " +
 				NetworkRouteType.LinkNetworkRoute + ", " +
-				NetworkRouteType.CompressedNetworkRoute + ".");
+				NetworkRouteType.CompressedNetworkRoute + ", " +
+				NetworkRouteType.CompactNetworkRoute + ". " +
+				NetworkRouteType.CompactNetworkRoute + " stores the links as an array of link indices, which needs less memory than " +
+				NetworkRouteType.LinkNetworkRoute + " and is faster than " + NetworkRouteType.CompressedNetworkRoute + ".");
 //		comments.put(
 //				INPUT_PERSON_ATTRIBUTES_FILE,
 //				"Path to a file containing person attributes (required file format: ObjectAttributes).");
@@ -91,6 +95,9 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		comments.put(REMOVING_UNNECESSARY_PLAN_ATTRIBUTES, "(not tested) will remove plan attributes that are presumably not used, such as " +
                 "activityStartTime. default=false. Use with Caution!");
 
+		comments.put(PARALLEL_READING, "If true, population_v6 files are parsed with the number of threads set in the global config group. " +
+				"All ids are still created in the order of the file, so the result is the same as with sequential reading. default=false.");
+
 		comments.put( INPUT_CRS , "The Coordinates Reference System in which the coordinates are expressed in the input file." +
 				" At import, the coordinates will be converted to the coordinate system defined in \"global\", and will" +
 				"be converted back at export. If not specified, no conversion happens." );
@@ -217,6 +224,19 @@ public final class PlansConfigGroup extends ReflectiveConfigGroup {
 		this.removingUnneccessaryPlanAttributes = removingUnneccessaryPlanAttributes;
 	}
 
+	// ---
+
+	private static final String PARALLEL_READING = "parallelReading";
+	private boolean parallelReading = false;
+	@StringGetter(PARALLEL_READING)
+	public boolean isParallelReading() {
+		return this.parallelReading;
+	}
+	@StringSetter(PARALLEL_READING)
+	public void setParallelReading(final boolean parallelReading) {
+		this.parallelReading = parallelReading;
+	}
+
 
 	@StringGetter( INPUT_CRS )
 	public String getInputCRS() {
@@ -20,9 +20,12 @@
 
 package org.matsim.core.config.groups;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 
 import javax.validation.constraints.Positive;
@@ -275,6 +278,37 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 				+ "flows are updated only if an agent wants to enter the link or an agent is added to buffer. "
 				+ "Default is true.") ;
 		map.put(USE_LANES, "Set this parameter to true if lanes should be used, false if not.");
+		map.put(ACTIVITY_ENGINE_TYPE, "Data structure of the activity engine for agents waiting for the end of their activity. " +
+				ActivityEngineType.priorityQueue + " (default) uses a priority queue, " + ActivityEngineType.timingWheel + " uses one bucket per " +
+				"second of simulated time, which makes rescheduling activity ends (within-day replanning) much cheaper for large populations. " +
+				"Both produce the same events.");
+		map.put(NODE_PARTITIONING, "How the nodes of the network are distributed among the threads of the QNetsimEngine. " +
+				NodePartitioning.roundRobin + " (default) assigns them one after the other, " + NodePartitioning.spaceFillingCurve +
+				" assigns contiguous regions along a Hilbert curve over the node coordinates, with about the same number of in-links per thread, " +
+				NodePartitioning.spaceFillingCurveWithRebalancing + " additionally balances the regions by the number of node moves measured " +
+				"in the previous iteration. Only relevant with more than one thread.");
+		map.put(SKIP_IDLE_TIME_STEPS, "If true, the qsim jumps directly to the next time step in which one of its engines has something to do, " +
+				"e.g. an activity end or a vehicle on the network, instead of stepping through every time step. Only takes effect if all " +
+				"engines and all sim step listeners can tell when they have work next, otherwise every time step is simulated. " +
+				"Produces the same events. Default is false.");
+		map.put(PARALLEL_AGENT_LOGIC, "If true and numberOfThreads > 1, the qsim computes the next state of agents that end an activity " +
+				"or a teleported leg in the same time step in parallel. Their events are buffered and passed on in the same order as " +
+				"without parallelization, while departures are still handled one after the other. Only use this with agents whose " +
+				"activity and leg end logic does not access shared state, e.g. the default agents, and not with within-day replanning. " +
+				"Default is false.");
+		map.put(EVENT_DRIVEN_NETSIM_ENGINE, "If true, the network is simulated by an engine that only processes a link when one of its vehicles " +
+				"can leave it or something else happens on it, instead of processing all links with vehicles in every time step. " +
+				"Saves time on sparsely used networks, in particular together with " + SKIP_IDLE_TIME_STEPS + ". With seepage, lanes, " +
+				"kinematic waves or without fast capacity update, links are still processed in every time step. " +
+				"Produces the same events. Default is false.");
+		map.put(DETERMINISTIC_NETSIM_EVENTS, "If true and numberOfThreads > 1, the events of the network simulation are collected in one " +
+				"buffer per thread and passed on after the nodes and after the links have been moved, ordered by thread, and the nodes " +
+				"of every thread are moved in the order of their ids. This makes the events independent of the thread scheduling, i.e. " +
+				"runs with the same number of threads produce the same events file. Default is false.");
+		map.put(PLAN_POSITIONS_WRITE_TIMES, "[comma-separated list of times] At these times, the position of every agent in its plan is " +
+				"written to the iteration directory, from which the plans for a restart at that time can be created. This is not a " +
+				"checkpoint of the qsim: vehicles in the link queues, transit drivers and pending events are not written, so a restart " +
+				"only approximately continues the day. Default is empty, i.e. nothing is written.");
 		{	
 			StringBuilder stb = new StringBuilder() ;
 			for ( VehiclesSource src : VehiclesSource.values() ) {
@@ -547,6 +581,108 @@ public final class QSimConfigGroup extends ReflectiveConfigGroup {
 		this.useLanes = useLanes;
 	}
 	// ---
+	private static final String ACTIVITY_ENGINE_TYPE = "activityEngineType";
+	public enum ActivityEngineType { priorityQueue, timingWheel }
+	private ActivityEngineType activityEngineType = ActivityEngineType.priorityQueue;
+
+	@StringGetter(ACTIVITY_ENGINE_TYPE)
+	public ActivityEngineType getActivityEngineType() {
+		return this.activityEngineType;
+	}
+	@StringSetter(ACTIVITY_ENGINE_TYPE)
+	public void setActivityEngineType(final ActivityEngineType activityEngineType) {
+		this.activityEngineType = activityEngineType;
+	}
+	// ---
+	private static final String NODE_PARTITIONING = "netsimNodePartitioning";
+	public enum NodePartitioning { roundRobin, spaceFillingCurve, spaceFillingCurveWithRebalancing }
+	private NodePartitioning nodePartitioning = NodePartitioning.roundRobin;
+
+	@StringGetter(NODE_PARTITIONING)
+	public NodePartitioning getNodePartitioning() {
+		return this.nodePartitioning;
+	}
+	@StringSetter(NODE_PARTITIONING)
+	public void setNodePartitioning(final NodePartitioning nodePartitioning) {
+		this.nodePartitioning = nodePartitioning;
+	}
+	// ---
+	private static final String SKIP_IDLE_TIME_STEPS = "skipIdleTimeSteps";
+	private boolean skipIdleTimeSteps = false;
+
+	@StringGetter(SKIP_IDLE_TIME_STEPS)
+	public boolean isSkippingIdleTimeSteps() {
+		return this.skipIdleTimeSteps;
+	}
+	@StringSetter(SKIP_IDLE_TIME_STEPS)
+	public void setSkippingIdleTimeSteps(final boolean skipIdleTimeSteps) {
+		this.skipIdleTimeSteps = skipIdleTimeSteps;
+	}
+	// ---
+	private static final String PARALLEL_AGENT_LOGIC = "usingParallelAgentLogic";
+	private boolean usingParallelAgentLogic = false;
+
+	@StringGetter(PARALLEL_AGENT_LOGIC)
+	public boolean isUsingParallelAgentLogic() {
+		return this.usingParallelAgentLogic;
+	}
+	@StringSetter(PARALLEL_AGENT_LOGIC)
+	public void setUsingParallelAgentLogic(final boolean usingParallelAgentLogic) {
+		this.usingParallelAgentLogic = usingParallelAgentLogic;
+	}
+	// ---
+	private static final String EVENT_DRIVEN_NETSIM_ENGINE = "usingEventDrivenNetsimEngine";
+	private boolean usingEventDrivenNetsimEngine = false;
+
+	@StringGetter(EVENT_DRIVEN_NETSIM_ENGINE)
+	public boolean isUsingEventDrivenNetsimEngine() {
+		return this.usingEventDrivenNetsimEngine;
+	}
+	@StringSetter(EVENT_DRIVEN_NETSIM_ENGINE)
+	public void setUsingEventDrivenNetsimEngine(final boolean usingEventDrivenNetsimEngine) {
+		this.usingEventDrivenNetsimEngine = usingEventDrivenNetsimEngine;
+	}
+	// ---
+	private static final String DETERMINISTIC_NETSIM_EVENTS = "usingDeterministicNetsimEvents";
+	private boolean usingDeterministicNetsimEvents = false;
+
+	@StringGetter(DETERMINISTIC_NETSIM_EVENTS)
+	public boolean isUsingDeterministicNetsimEvents() {
+		return this.usingDeterministicNetsimEvents;
+	}
+	@StringSetter(DETERMINISTIC_NETSIM_EVENTS)
+	public void setUsingDeterministicNetsimEvents(final boolean usingDeterministicNetsimEvents) {
+		this.usingDeterministicNetsimEvents = usingDeterministicNetsimEvents;
+	}
+	// ---
+	private static final String PLAN_POSITIONS_WRITE_TIMES = "planPositionsWriteTimes";
+	private List<Double> planPositionsWriteTimes = Collections.emptyList();
+
+	@StringGetter(PLAN_POSITIONS_WRITE_TIMES)
+	private String getPlanPositionsWriteTimesAsString() {
+		List<String> times = new ArrayList<>();
+		for (double time : this.planPositionsWriteTimes) {
+			times.add(Time.writeTime(time));
+		}
+		return String.join(",", times);
+	}
+	@StringSetter(PLAN_POSITIONS_WRITE_TIMES)
+	private void setPlanPositionsWriteTimes(String value) {
+		List<Double> times = new ArrayList<>();
+		for (String time : value.split(",")) {
+			if (!time.trim().isEmpty()) {
+				times.add(Time.parseTime(time.trim()));
+			}
+		}
+		setPlanPositionsWriteTimes(times);
+	}
+	public List<Double> getPlanPositionsWriteTimes() {
+		return this.planPositionsWriteTimes;
+	}
+	public void setPlanPositionsWriteTimes(final List<Double> planPositionsWriteTimes) {
+		this.planPositionsWriteTimes = planPositionsWriteTimes;
+	}
+	// ---
 	private static final String SEEP_MODE = "seepMode";
 	private Collection<String> seepModes = Arrays.asList(TransportMode.bike);
 	@StringGetter(SEEP_MODE)
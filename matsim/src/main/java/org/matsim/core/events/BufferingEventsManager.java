@@ -0,0 +1,102 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import java.util.List;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Passes all events on to a delegate, except for the events of threads that are currently buffering. This allows to
+ * compute things that throw events in parallel, and to pass the events on in a deterministic order afterwards.
+ * <p>
+ * Buffering is a property of the thread and the instance: while a thread is buffering, only its events thrown through
+ * this instance end up in the buffer.  Everything that is to be buffered together thus has to use the same instance,
+ * e.g. the network simulation uses the one of the QSim.
+ * <p>
+ * All other methods are just delegated.
+ */
+public final class BufferingEventsManager implements EventsManager {
+
+	private final EventsManager delegate;
+	private final ThreadLocal<List<Event>> buffers = new ThreadLocal<>();
+
+	public BufferingEventsManager(EventsManager delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * From now on, all events of the calling thread are added to <code>buffer</code> instead of being passed on.
+	 */
+	public void startBuffering(List<Event> buffer) {
+		this.buffers.set(buffer);
+	}
+
+	/**
+	 * From now on, all events of the calling thread are passed on to the delegate again.
+	 */
+	public void stopBuffering() {
+		this.buffers.remove();
+	}
+
+	@Override
+	public void processEvent(Event event) {
+		List<Event> buffer = this.buffers.get();
+		if (buffer == null) {
+			this.delegate.processEvent(event);
+		} else {
+			buffer.add(event);
+		}
+	}
+
+	@Override
+	public void addHandler(EventHandler handler) {
+		this.delegate.addHandler(handler);
+	}
+
+	@Override
+	public void removeHandler(EventHandler handler) {
+		this.delegate.removeHandler(handler);
+	}
+
+	@Override
+	public void resetHandlers(int iteration) {
+		this.delegate.resetHandlers(iteration);
+	}
+
+	@Override
+	public void initProcessing() {
+		this.delegate.initProcessing();
+	}
+
+	@Override
+	public void afterSimStep(double time) {
+		this.delegate.afterSimStep(time);
+	}
+
+	@Override
+	public void finishProcessing() {
+		this.delegate.finishProcessing();
+	}
+
+}
@@ -0,0 +1,110 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Distributes event handlers over the threads of a parallel events manager such that every thread gets about the same
+ * work, based on the processing times measured in the previous iteration.
+ * <p>
+ * Every event is passed to all threads, so a thread needs as long as all its handlers together, and the slowest thread
+ * determines the pace of the events processing. Handlers are assigned one by one, starting with the most expensive one,
+ * to the thread with the smallest total so far (longest processing time first).
+ */
+final class EventHandlerBalancer {
+
+	private static final Logger log = Logger.getLogger(EventHandlerBalancer.class);
+
+	private final Map<EventHandler, Long> measuredTimes = new IdentityHashMap<>();
+
+	void clearMeasuredTimes() {
+		this.measuredTimes.clear();
+	}
+
+	void addMeasuredTimes(final Map<EventHandler, Long> times) {
+		times.forEach((handler, time) -> this.measuredTimes.merge(handler, time, Long::sum));
+	}
+
+	boolean hasMeasuredTimes() {
+		return !this.measuredTimes.isEmpty();
+	}
+
+	/**
+	 * @return the thread for every handler, in the same order as <code>handlers</code>. Without measurements, the
+	 * handlers are assigned round robin.
+	 */
+	int[] assign(final List<EventHandler> handlers, final int numberOfThreads) {
+		int[] threads = new int[handlers.size()];
+		if (!hasMeasuredTimes()) {
+			for (int i = 0; i < threads.length; i++) {
+				threads[i] = i % numberOfThreads;
+			}
+			return threads;
+		}
+
+		// handlers added since the last measurement are assumed to be average
+		long sum = 0;
+		for (long time : this.measuredTimes.values()) {
+			sum += time;
+		}
+		long average = sum / this.measuredTimes.size();
+		long[] costs = new long[handlers.size()];
+		List<Integer> order = new ArrayList<>(handlers.size());
+		for (int i = 0; i < costs.length; i++) {
+			costs[i] = this.measuredTimes.getOrDefault(handlers.get(i), average);
+			order.add(i);
+		}
+		// stable sort, so handlers with equal costs keep their order
+		order.sort(Comparator.comparingLong(i -> -costs[i]));
+
+		long[] load = new long[numberOfThreads];
+		for (int i : order) {
+			int thread = 0;
+			for (int t = 1; t < numberOfThreads; t++) {
+				if (load[t] < load[thread]) {
+					thread = t;
+				}
+			}
+			threads[i] = thread;
+			load[thread] += costs[i];
+		}
+
+		for (int t = 0; t < numberOfThreads; t++) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < threads.length; i++) {
+				if (threads[i] == t) {
+					sb.append(" ").append(handlers.get(i).getClass().getSimpleName());
+				}
+			}
+			log.info("events thread " + t + ": expected load " + load[t] / 1000000 + " ms (sampled):" + sb);
+		}
+		return threads;
+	}
+
+}
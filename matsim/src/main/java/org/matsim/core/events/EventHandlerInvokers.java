@@ -0,0 +1,220 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventHandlerInvokers.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonArrivalEvent;
+import org.matsim.api.core.v01.events.PersonDepartureEvent;
+import org.matsim.api.core.v01.events.PersonEntersVehicleEvent;
+import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.events.TransitDriverStartsEvent;
+import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
+import org.matsim.api.core.v01.events.handler.ActivityEndEventHandler;
+import org.matsim.api.core.v01.events.handler.ActivityStartEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonArrivalEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonDepartureEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonEntersVehicleEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonLeavesVehicleEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonMoneyEventHandler;
+import org.matsim.api.core.v01.events.handler.PersonStuckEventHandler;
+import org.matsim.api.core.v01.events.handler.TransitDriverStartsEventHandler;
+import org.matsim.api.core.v01.events.handler.VehicleEntersTrafficEventHandler;
+import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
+import org.matsim.core.api.experimental.events.VehicleArrivesAtFacilityEvent;
+import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
+import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
+import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
+import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
+
+/**
+ * Binds the <code>handleEvent</code>-methods of event handler interfaces to typed call sites, so that
+ * {@link EventsManagerImpl} does not need to go through {@link Method#invoke(Object, Object...)} for every event.
+ * <p>
+ * The core event types are bound to hand-written casts. For all other handler interfaces, a call site is generated
+ * with {@link LambdaMetafactory}. If that is not possible (e.g. the handler interface is not visible from this
+ * class loader), a {@link MethodHandle} is used, and as last resort the reflective call.
+ * <p>
+ * Exceptions thrown by the handlers are reported in the same way as by the reflective dispatch: handlers of the core
+ * event types propagate their exceptions unchanged, all others are wrapped into a {@link RuntimeException}.
+ */
+final class EventHandlerInvokers {
+
+	private static final Logger log = Logger.getLogger(EventHandlerInvokers.class);
+
+	/**
+	 * A typed call site for one <code>handleEvent</code>-method.
+	 */
+	@FunctionalInterface
+	interface EventHandlerInvoker {
+		void invoke(EventHandler handler, Event event);
+	}
+
+	private static final Map<Class<?>, EventHandlerInvoker> CORE_INVOKERS = new IdentityHashMap<>();
+
+	static {
+		CORE_INVOKERS.put(LinkLeaveEvent.class, (h, e) -> ((LinkLeaveEventHandler) h).handleEvent((LinkLeaveEvent) e));
+		CORE_INVOKERS.put(LinkEnterEvent.class, (h, e) -> ((LinkEnterEventHandler) h).handleEvent((LinkEnterEvent) e));
+		CORE_INVOKERS.put(VehicleEntersTrafficEvent.class, (h, e) -> ((VehicleEntersTrafficEventHandler) h).handleEvent((VehicleEntersTrafficEvent) e));
+		CORE_INVOKERS.put(PersonArrivalEvent.class, (h, e) -> ((PersonArrivalEventHandler) h).handleEvent((PersonArrivalEvent) e));
+		CORE_INVOKERS.put(PersonDepartureEvent.class, (h, e) -> ((PersonDepartureEventHandler) h).handleEvent((PersonDepartureEvent) e));
+		CORE_INVOKERS.put(ActivityEndEvent.class, (h, e) -> ((ActivityEndEventHandler) h).handleEvent((ActivityEndEvent) e));
+		CORE_INVOKERS.put(ActivityStartEvent.class, (h, e) -> ((ActivityStartEventHandler) h).handleEvent((ActivityStartEvent) e));
+		CORE_INVOKERS.put(TransitDriverStartsEvent.class, (h, e) -> ((TransitDriverStartsEventHandler) h).handleEvent((TransitDriverStartsEvent) e));
+		CORE_INVOKERS.put(PersonStuckEvent.class, (h, e) -> ((PersonStuckEventHandler) h).handleEvent((PersonStuckEvent) e));
+		CORE_INVOKERS.put(PersonMoneyEvent.class, (h, e) -> ((PersonMoneyEventHandler) h).handleEvent((PersonMoneyEvent) e));
+		CORE_INVOKERS.put(AgentWaitingForPtEvent.class, (h, e) -> ((AgentWaitingForPtEventHandler) h).handleEvent((AgentWaitingForPtEvent) e));
+		CORE_INVOKERS.put(PersonEntersVehicleEvent.class, (h, e) -> ((PersonEntersVehicleEventHandler) h).handleEvent((PersonEntersVehicleEvent) e));
+		CORE_INVOKERS.put(PersonLeavesVehicleEvent.class, (h, e) -> ((PersonLeavesVehicleEventHandler) h).handleEvent((PersonLeavesVehicleEvent) e));
+		CORE_INVOKERS.put(VehicleDepartsAtFacilityEvent.class, (h, e) -> ((VehicleDepartsAtFacilityEventHandler) h).handleEvent((VehicleDepartsAtFacilityEvent) e));
+		CORE_INVOKERS.put(VehicleArrivesAtFacilityEvent.class, (h, e) -> ((VehicleArrivesAtFacilityEventHandler) h).handleEvent((VehicleArrivesAtFacilityEvent) e));
+		CORE_INVOKERS.put(Event.class, (h, e) -> ((BasicEventHandler) h).handleEvent(e));
+	}
+
+	private static final MethodType INVOKER_FACTORY_TYPE = MethodType.methodType(EventHandlerInvoker.class);
+	private static final MethodType INVOKER_METHOD_TYPE = MethodType.methodType(void.class, EventHandler.class, Event.class);
+
+	private EventHandlerInvokers() {
+	}
+
+	/**
+	 * @param eventClass the event class as declared by the single parameter of <code>method</code>
+	 * @param method a <code>handleEvent</code>-method of an event handler interface
+	 * @return a call site which invokes <code>method</code> on a handler for a given event
+	 */
+	static EventHandlerInvoker create(final Class<?> eventClass, final Method method) {
+		EventHandlerInvoker invoker = CORE_INVOKERS.get(eventClass);
+		if (invoker != null) {
+			return invoker;
+		}
+		MethodHandle target = unreflect(method);
+		if (target == null) {
+			log.warn("Could not bind " + method + " to a generated call site, falling back to reflection.");
+			return reflectiveInvoker(eventClass, method);
+		}
+		invoker = generateInvoker(eventClass, method, target);
+		if (invoker == null) {
+			invoker = methodHandleInvoker(target);
+		}
+		return wrapExceptions(eventClass, invoker);
+	}
+
+	private static MethodHandle unreflect(final Method method) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		try {
+			return lookup.unreflect(method);
+		} catch (IllegalAccessException e) {
+			// e.g. handler interface is not public, try again below
+		}
+		try {
+			method.setAccessible(true);
+			return lookup.unreflect(method);
+		} catch (IllegalAccessException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static EventHandlerInvoker generateInvoker(final Class<?> eventClass, final Method method, final MethodHandle target) {
+		ClassLoader loader = EventHandlerInvokers.class.getClassLoader();
+		Class<?> handlerClass = method.getDeclaringClass();
+		if (!EventHandler.class.isAssignableFrom(handlerClass) || !Event.class.isAssignableFrom(eventClass)
+				|| !isVisibleFrom(handlerClass, loader) || !isVisibleFrom(eventClass, loader)) {
+			return null;
+		}
+		try {
+			CallSite site = LambdaMetafactory.metafactory(MethodHandles.lookup(), "invoke", INVOKER_FACTORY_TYPE,
+					INVOKER_METHOD_TYPE, target, MethodType.methodType(void.class, handlerClass, eventClass));
+			return (EventHandlerInvoker) site.getTarget().invokeExact();
+		} catch (Throwable e) {
+			log.debug("Could not generate call site for " + method + ", using a method handle instead.", e);
+			return null;
+		}
+	}
+
+	private static EventHandlerInvoker methodHandleInvoker(final MethodHandle target) {
+		final MethodHandle handle = target.asType(INVOKER_METHOD_TYPE);
+		return (h, e) -> {
+			try {
+				handle.invokeExact(h, e);
+			} catch (RuntimeException | Error ex) {
+				throw ex;
+			} catch (Throwable ex) {
+				// handleEvent() does not declare checked exceptions, but better safe than sorry
+				throw new RuntimeException(ex);
+			}
+		};
+	}
+
+	private static EventHandlerInvoker reflectiveInvoker(final Class<?> eventClass, final Method method) {
+		return (h, e) -> {
+			try {
+				method.invoke(h, e);
+			} catch (IllegalArgumentException | IllegalAccessException ex) {
+				throw new RuntimeException(problemMessage(h, eventClass), ex);
+			} catch (InvocationTargetException ex) {
+				throw new RuntimeException(problemMessage(h, eventClass), ex.getCause());
+			}
+		};
+	}
+
+	private static EventHandlerInvoker wrapExceptions(final Class<?> eventClass, final EventHandlerInvoker delegate) {
+		return (h, e) -> {
+			try {
+				delegate.invoke(h, e);
+			} catch (RuntimeException | Error ex) {
+				throw new RuntimeException(problemMessage(h, eventClass), ex);
+			}
+		};
+	}
+
+	private static String problemMessage(final EventHandler handler, final Class<?> eventClass) {
+		return "problem invoking EventHandler " + handler.getClass().getCanonicalName() + " for event-class " + eventClass.getCanonicalName();
+	}
+
+	private static boolean isVisibleFrom(final Class<?> klass, final ClassLoader loader) {
+		try {
+			return Class.forName(klass.getName(), false, loader) == klass;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+}
@@ -24,6 +24,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -62,6 +63,7 @@ import org.matsim.core.api.experimental.events.VehicleDepartsAtFacilityEvent;
 import org.matsim.core.api.experimental.events.handler.AgentWaitingForPtEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityEventHandler;
 import org.matsim.core.api.experimental.events.handler.VehicleDepartsAtFacilityEventHandler;
+import org.matsim.core.events.EventHandlerInvokers.EventHandlerInvoker;
 import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 import org.matsim.core.utils.misc.ClassUtils;
@@ -74,9 +76,12 @@ import org.matsim.core.utils.misc.ClassUtils;
  * <li>add method public void handleEvent(MyEvent event) to it</li>
  * <li>ready to go, just implement the interface somewhere and add a
  * HandlerObject with a call to <code>Events.addHandler(HandlerObject)</code></li>
- * <li>(optional) add an appropriate line in callHandlerFast() for speeding
- * up execution!</li>
+ * <li>(optional) add an appropriate line in callHandlerFast() and
+ * {@link EventHandlerInvokers} for speeding up execution!</li>
  * </ol>
+ * By default, the handler methods are bound to generated call sites when a handler is added
+ * ({@link DispatchMode#GENERATED}). {@link DispatchMode#REFLECTIVE} keeps the former behavior
+ * of calling unknown handler interfaces via reflection.
  *
  * @author dstrippgen
  * @author mrieser
@@ -85,14 +90,26 @@ public final class EventsManagerImpl implements EventsManager {
 
 	private static final Logger log = Logger.getLogger(EventsManagerImpl.class);
 
+	/**
+	 * Defines how the <code>handleEvent</code>-methods of the registered handlers are called.
+	 */
+	public enum DispatchMode {
+		/** Calls the core event handlers directly, all others via {@link Method#invoke(Object, Object...)}. */
+		REFLECTIVE,
+		/** Binds a typed call site per handler method when the handler is added, see {@link EventHandlerInvokers}. */
+		GENERATED
+	}
+
 	static private class HandlerData {
 
 		protected Class<?> eventklass;
 		protected ArrayList<EventHandler> handlerList = new ArrayList<EventHandler>(5);
 		protected Method method;
-		protected HandlerData(final Class<?> eventklass, final Method method) {
+		protected EventHandlerInvoker invoker;
+		protected HandlerData(final Class<?> eventklass, final Method method, final EventHandlerInvoker invoker) {
 			this.eventklass = eventklass;
 			this.method = method;
+			this.invoker = invoker;
 		}
 		protected void removeHandler(final EventHandler handler) {
 			this.handlerList.remove(handler);
@@ -103,14 +120,18 @@ public final class EventsManagerImpl implements EventsManager {
 		protected final Class<?> eventClass;
 		protected final EventHandler eventHandler;
 		protected final Method method;
+		protected final EventHandlerInvoker invoker;
 
-		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method) {
+		protected HandlerInfo(final Class<?> eventClass, final EventHandler eventHandler, final Method method, final EventHandlerInvoker invoker) {
 			this.eventClass = eventClass;
 			this.eventHandler = eventHandler;
 			this.method = method;
+			this.invoker = invoker;
 		}
 	}
 
+	private final DispatchMode dispatchMode;
+
 	private final List<HandlerData> handlerData = new ArrayList<HandlerData>();
 
 	private final Map<Class<?>, HandlerInfo[]> cacheHandlers = new ConcurrentHashMap<Class<?>, HandlerInfo[]>(15);
@@ -118,6 +139,18 @@ public final class EventsManagerImpl implements EventsManager {
 	private long counter = 0;
 	private long nextCounterMsg = 1;
 
+	/** only every 16th event is measured, to keep the overhead of {@link System#nanoTime()} low */
+	private static final long MEASURED_EVENTS_MASK = 15;
+	private Map<EventHandler, long[]> handlerTimes = null;
+
+	public EventsManagerImpl() {
+		this(DispatchMode.GENERATED);
+	}
+
+	public EventsManagerImpl(final DispatchMode dispatchMode) {
+		this.dispatchMode = dispatchMode;
+	}
+
 	private HandlerData findHandler(final Class<?> evklass) {
 		for (HandlerData handler : this.handlerData) {
 			if (handler.eventklass == evklass) {
@@ -134,22 +167,58 @@ public final class EventsManagerImpl implements EventsManager {
 			this.nextCounterMsg *= 4;
 			log.info(" event # " + this.counter);
 		}
+		if (this.handlerTimes != null && (this.counter & MEASURED_EVENTS_MASK) == 0) {
+			for (HandlerInfo info : getHandlersForClass( event.getClass() )) {
+				long start = System.nanoTime();
+				callHandler(info, event);
+				this.handlerTimes.computeIfAbsent(info.eventHandler, h -> new long[1])[0] += System.nanoTime() - start;
+			}
+			return;
+		}
 		for (HandlerInfo info : getHandlersForClass( event.getClass() )) {
-			synchronized(info.eventHandler) {
-				if (callHandlerFast(info.eventClass, event, info.eventHandler )) {
-					continue;
-				}
-				try {
-					info.method.invoke(info.eventHandler, event );
-				} catch (IllegalArgumentException | IllegalAccessException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
-				} catch (InvocationTargetException e) {
-					throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
-				}
+			callHandler(info, event);
+		}
+	}
+
+	private void callHandler(final HandlerInfo info, final Event event) {
+		synchronized(info.eventHandler) {
+			if (this.dispatchMode == DispatchMode.GENERATED) {
+				info.invoker.invoke(info.eventHandler, event);
+				return;
+			}
+			if (callHandlerFast(info.eventClass, event, info.eventHandler )) {
+				return;
+			}
+			try {
+				info.method.invoke(info.eventHandler, event );
+			} catch (IllegalArgumentException | IllegalAccessException e) {
+				throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e);
+			} catch (InvocationTargetException e) {
+				throw new RuntimeException("problem invoking EventHandler " + info.eventHandler.getClass().getCanonicalName() + " for event-class " + info.eventClass.getCanonicalName(), e.getCause());
 			}
 		}
 	}
 
+	/**
+	 * Enables or disables measuring how much time the registered handlers need. Only a sample of the events is
+	 * measured, so the results are meant for comparing the handlers with each other. Enabling discards earlier
+	 * measurements.
+	 */
+	public void setMeasuringHandlerTimes(final boolean measuring) {
+		this.handlerTimes = measuring ? new IdentityHashMap<>() : null;
+	}
+
+	/**
+	 * @return the sampled processing time per handler in nanoseconds, since measuring was enabled
+	 */
+	public Map<EventHandler, Long> getMeasuredHandlerTimes() {
+		Map<EventHandler, Long> times = new IdentityHashMap<>();
+		if (this.handlerTimes != null) {
+			this.handlerTimes.forEach((handler, time) -> times.put(handler, time[0]));
+		}
+		return times;
+	}
+
 
 	@Override
 	public void addHandler (final EventHandler handler) {
@@ -221,7 +290,8 @@ public final class EventsManagerImpl implements EventsManager {
 					log.info("    > " + eventClass.getName());
 					HandlerData dat = findHandler(eventClass);
 					if (dat == null) {
-						dat = new HandlerData(eventClass, method);
+						EventHandlerInvoker invoker = this.dispatchMode == DispatchMode.GENERATED ? EventHandlerInvokers.create(eventClass, method) : null;
+						dat = new HandlerData(eventClass, method, invoker);
 						this.handlerData.add(dat);
 					}
 					dat.handlerList.add(handler);
@@ -243,7 +313,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(klass);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(klass, handler, dat.method));
+					info.add(new HandlerInfo(klass, handler, dat.method, dat.invoker));
 				}
 			}
 			klass = klass.getSuperclass();
@@ -253,7 +323,7 @@ public final class EventsManagerImpl implements EventsManager {
 			HandlerData dat = findHandler(intfc);
 			if (dat != null) {
 				for(EventHandler handler: dat.handlerList) {
-					info.add(new HandlerInfo(intfc, handler, dat.method));
+					info.add(new HandlerInfo(intfc, handler, dat.method, dat.invoker));
 				}
 			}
 		}
@@ -0,0 +1,427 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventsReaderBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.MatsimEventsReader.CustomEventMapper;
+import org.matsim.core.events.algorithms.EventWriterBinary;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads events files written by {@link EventWriterBinary}. Local files are memory-mapped, and only the parts of it that are
+ * required are decompressed: blocks outside of the requested time window and record types of event types that are not
+ * requested are skipped (only the small string dictionary of every block is always read).
+ * <p>
+ * The events are converted to their typed classes in the same way as {@link EventsReaderXMLv1} does, including the
+ * support for custom event mappers.
+ */
+public final class EventsReaderBinary {
+
+	private final static Logger LOG = Logger.getLogger(EventsReaderBinary.class);
+
+	private static final String EVENT = "event";
+	private static final String CDATA = "CDATA";
+
+	private final EventsReaderXMLv1 converter;
+	private Set<String> eventTypes = null;
+	private double fromTime = Double.NEGATIVE_INFINITY;
+	private double toTime = Double.POSITIVE_INFINITY;
+
+	private final List<String> strings = new ArrayList<>();
+	private final List<RecordType> recordTypes = new ArrayList<>();
+	private Inflater inflater = null;
+
+	public EventsReaderBinary(final EventsManager events) {
+		this.converter = new EventsReaderXMLv1(events);
+	}
+
+	public void addCustomEventMapper(String eventType, CustomEventMapper cem) {
+		this.converter.addCustomEventMapper(eventType, cem);
+	}
+
+	/**
+	 * Only events of the given types are passed on to the events manager.
+	 *
+	 * @param eventTypes the event types as returned by {@link Event#getEventType()}, or <code>null</code> to read all events.
+	 */
+	public void setEventTypes(final Set<String> eventTypes) {
+		this.eventTypes = eventTypes == null ? null : new HashSet<>(eventTypes);
+	}
+
+	/**
+	 * Only events with <code>fromTime &lt;= time &lt;= toTime</code> are passed on to the events manager.
+	 */
+	public void setTimeWindow(final double fromTime, final double toTime) {
+		this.fromTime = fromTime;
+		this.toTime = toTime;
+	}
+
+	/**
+	 * @return <code>true</code> if the file starts with the magic bytes of the binary events format.
+	 */
+	public static boolean isBinaryEventsFile(final String filename) {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(EventWriterBinary.MAGIC.length);
+			while (magic.hasRemaining() && channel.read(magic) >= 0) {
+				// continue reading
+			}
+			return !magic.hasRemaining() && Arrays.equals(magic.array(), EventWriterBinary.MAGIC);
+		} catch (IOException | RuntimeException e) {
+			// e.g. not a local file
+			return false;
+		}
+	}
+
+	public void readFile(final String filename) {
+		LOG.info("starting to read binary events from " + filename);
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			read(channel, filename);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Reads the events from a stream. As a stream cannot be memory-mapped, every block is copied to the heap, and the
+	 * skipped blocks still have to be read; prefer {@link #readFile(String)} for local files.
+	 */
+	public void readStream(final InputStream stream) {
+		LOG.info("starting to read binary events from stream");
+		try {
+			read(Channels.newChannel(stream), "stream");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private void read(final ReadableByteChannel channel, final String name) throws IOException {
+		this.strings.clear();
+		this.recordTypes.clear();
+		this.inflater = new Inflater();
+		try {
+			ByteBuffer fileHeader = ByteBuffer.allocate(EventWriterBinary.MAGIC.length + 4);
+			if (!readFully(channel, fileHeader)) {
+				throw new IllegalArgumentException(name + " is not a binary MATSim events file.");
+			}
+			byte[] magic = new byte[EventWriterBinary.MAGIC.length];
+			fileHeader.get(magic);
+			if (!Arrays.equals(magic, EventWriterBinary.MAGIC)) {
+				throw new IllegalArgumentException(name + " is not a binary MATSim events file.");
+			}
+			int version = fileHeader.getInt();
+			if (version != EventWriterBinary.VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version + " of binary events file " + name);
+			}
+			long blockCount = 0;
+			long skippedBlocks = 0;
+			BlockHeader header;
+			while ((header = readBlockHeader(channel)) != null) {
+				ByteBuffer block;
+				if (channel instanceof FileChannel) {
+					FileChannel fileChannel = (FileChannel) channel;
+					long position = fileChannel.position();
+					block = fileChannel.map(FileChannel.MapMode.READ_ONLY, position, header.dataLength);
+					fileChannel.position(position + header.dataLength);
+				} else {
+					if (header.dataLength > Integer.MAX_VALUE) {
+						throw new IllegalArgumentException("Block of " + header.dataLength + " bytes in " + name + " is too large to be read from a stream.");
+					}
+					block = ByteBuffer.allocate((int) header.dataLength);
+					if (!readFully(channel, block)) {
+						throw new IOException("Unexpected end of binary events file.");
+					}
+				}
+				blockCount++;
+				if (!processBlock(header, block)) {
+					skippedBlocks++;
+				}
+			}
+			LOG.info("finished reading " + blockCount + " blocks of binary events, " + skippedBlocks + " blocks were skipped.");
+		} finally {
+			this.inflater.end();
+			this.inflater = null;
+		}
+	}
+
+	/**
+	 * Fills the buffer from the channel and flips it.
+	 *
+	 * @return <code>false</code> if the channel was at its end before the first byte was read.
+	 * @throws IOException if the channel ends after the first byte, but before the buffer is full.
+	 */
+	private static boolean readFully(final ReadableByteChannel channel, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				if (buffer.position() == 0) {
+					return false;
+				}
+				throw new IOException("Unexpected end of binary events file.");
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+
+	/**
+	 * @return the header of the next block, or <code>null</code> at the end of the input.
+	 */
+	private static BlockHeader readBlockHeader(final ReadableByteChannel channel) throws IOException {
+		ByteBuffer fixed = ByteBuffer.allocate(4 + 8 + 8 + 4 * 5);
+		if (!readFully(channel, fixed)) {
+			return null;
+		}
+		BlockHeader header = new BlockHeader();
+		header.eventCount = fixed.getInt();
+		header.minTime = fixed.getDouble();
+		header.maxTime = fixed.getDouble();
+		header.dictRawLength = fixed.getInt();
+		header.dictLength = fixed.getInt();
+		header.orderRawLength = fixed.getInt();
+		header.orderLength = fixed.getInt();
+		int sectionCount = fixed.getInt();
+		ByteBuffer sections = ByteBuffer.allocate(sectionCount * 16);
+		if (sectionCount > 0 && !readFully(channel, sections)) {
+			throw new IOException("Unexpected end of binary events file.");
+		}
+		header.sectionCodes = new int[sectionCount];
+		header.sectionCounts = new int[sectionCount];
+		header.sectionRawLengths = new int[sectionCount];
+		header.sectionLengths = new int[sectionCount];
+		long dataLength = (long) header.dictLength + header.orderLength;
+		for (int i = 0; i < sectionCount; i++) {
+			header.sectionCodes[i] = sections.getInt();
+			header.sectionCounts[i] = sections.getInt();
+			header.sectionRawLengths[i] = sections.getInt();
+			header.sectionLengths[i] = sections.getInt();
+			dataLength += header.sectionLengths[i];
+		}
+		header.dataLength = dataLength;
+		return header;
+	}
+
+	/**
+	 * @return <code>false</code> if the block did not contain any requested events and was skipped.
+	 */
+	private boolean processBlock(final BlockHeader header, final ByteBuffer block) {
+		// the dictionary must always be read, later blocks may refer to it
+		ByteBuffer dictionary = inflate(block, 0, header.dictLength, header.dictRawLength);
+		readDictionary(dictionary);
+
+		if (header.maxTime < this.fromTime || header.minTime > this.toTime) {
+			return false;
+		}
+		int offset = header.dictLength + header.orderLength;
+		Section[] sectionsByCode = new Section[this.recordTypes.size()];
+		boolean anyRequested = false;
+		for (int i = 0; i < header.sectionCodes.length; i++) {
+			RecordType recordType = this.recordTypes.get(header.sectionCodes[i]);
+			if (recordType.requested) {
+				ByteBuffer data = inflate(block, offset, header.sectionLengths[i], header.sectionRawLengths[i]);
+				sectionsByCode[recordType.code] = new Section(recordType, data, header.sectionCounts[i]);
+				anyRequested = true;
+			}
+			offset += header.sectionLengths[i];
+		}
+		if (!anyRequested) {
+			return false;
+		}
+
+		ByteBuffer order = inflate(block, header.dictLength, header.orderLength, header.orderRawLength);
+		for (int i = 0; i < header.eventCount; i++) {
+			Section section = sectionsByCode[readVarInt(order)];
+			if (section != null) {
+				section.processNext();
+			}
+		}
+		return true;
+	}
+
+	private ByteBuffer inflate(final ByteBuffer block, final int offset, final int length, final int rawLength) {
+		ByteBuffer input = block.duplicate();
+		input.position(offset);
+		input.limit(offset + length);
+		ByteBuffer output = ByteBuffer.allocate(rawLength);
+		this.inflater.reset();
+		this.inflater.setInput(input);
+		try {
+			while (output.hasRemaining() && !this.inflater.finished()) {
+				if (this.inflater.inflate(output) == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary())) {
+					throw new IllegalStateException("Truncated block in binary events file.");
+				}
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("Corrupt block in binary events file.", e);
+		}
+		output.flip();
+		return output;
+	}
+
+	private void readDictionary(final ByteBuffer dictionary) {
+		int newStrings = readVarInt(dictionary);
+		for (int i = 0; i < newStrings; i++) {
+			int length = readVarInt(dictionary);
+			byte[] bytes = new byte[length];
+			dictionary.get(bytes);
+			this.strings.add(new String(bytes, StandardCharsets.UTF_8).intern());
+		}
+		int newRecordTypes = readVarInt(dictionary);
+		for (int i = 0; i < newRecordTypes; i++) {
+			int code = readVarInt(dictionary);
+			String eventType = this.strings.get(readVarInt(dictionary));
+			String[] keys = new String[readVarInt(dictionary)];
+			for (int k = 0; k < keys.length; k++) {
+				keys[k] = this.strings.get(readVarInt(dictionary));
+			}
+			if (code != this.recordTypes.size()) {
+				throw new IllegalStateException("Unexpected record type " + code + " in binary events file.");
+			}
+			boolean requested = this.eventTypes == null || this.eventTypes.contains(eventType);
+			this.recordTypes.add(new RecordType(code, eventType, keys, requested));
+		}
+	}
+
+	private static int readVarInt(final ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return value;
+	}
+
+	private static final class BlockHeader {
+		int eventCount;
+		double minTime;
+		double maxTime;
+		int dictRawLength;
+		int dictLength;
+		int orderRawLength;
+		int orderLength;
+		int[] sectionCodes;
+		int[] sectionCounts;
+		int[] sectionRawLengths;
+		int[] sectionLengths;
+		long dataLength;
+	}
+
+	private static final class RecordType {
+		final int code;
+		final String eventType;
+		final String[] keys;
+		final boolean requested;
+
+		RecordType(final int code, final String eventType, final String[] keys, final boolean requested) {
+			this.code = code;
+			this.eventType = eventType;
+			this.keys = keys;
+			this.requested = requested;
+		}
+	}
+
+	/**
+	 * The decompressed columns of one record type within a block, with a cursor per column.
+	 */
+	private final class Section {
+		private final RecordType recordType;
+		private final ByteBuffer times;
+		private final ByteBuffer[] columns;
+		private final AttributesImpl attributes = new AttributesImpl();
+
+		Section(final RecordType recordType, final ByteBuffer data, final int count) {
+			this.recordType = recordType;
+			this.times = data.duplicate();
+			this.times.limit(count * 8);
+			int position = count * 8;
+			this.columns = new ByteBuffer[recordType.keys.length];
+			for (int i = 0; i < this.columns.length; i++) {
+				int length = data.getInt(position);
+				position += 4;
+				ByteBuffer column = data.duplicate();
+				column.position(position);
+				column.limit(position + length);
+				this.columns[i] = column;
+				position += length;
+			}
+		}
+
+		void processNext() {
+			double time = this.times.getDouble();
+			if (time < EventsReaderBinary.this.fromTime || time > EventsReaderBinary.this.toTime) {
+				for (ByteBuffer column : this.columns) {
+					skipCell(column);
+				}
+				return;
+			}
+			this.attributes.clear();
+			this.attributes.addAttribute("", Event.ATTRIBUTE_TIME, Event.ATTRIBUTE_TIME, CDATA, Double.toString(time));
+			this.attributes.addAttribute("", Event.ATTRIBUTE_TYPE, Event.ATTRIBUTE_TYPE, CDATA, this.recordType.eventType);
+			for (int i = 0; i < this.columns.length; i++) {
+				String value = readCell(this.columns[i]);
+				if (value != null) {
+					this.attributes.addAttribute("", this.recordType.keys[i], this.recordType.keys[i], CDATA, value);
+				}
+			}
+			EventsReaderBinary.this.converter.startTag(EVENT, this.attributes, null);
+		}
+
+		private String readCell(final ByteBuffer column) {
+			int tag = readVarInt(column);
+			if (tag == EventWriterBinary.CELL_NULL) {
+				return null;
+			}
+			if (tag == EventWriterBinary.CELL_DOUBLE) {
+				return Double.toString(column.getDouble());
+			}
+			return EventsReaderBinary.this.strings.get(tag - EventWriterBinary.CELL_STRING_OFFSET);
+		}
+
+		private void skipCell(final ByteBuffer column) {
+			int tag = readVarInt(column);
+			if (tag == EventWriterBinary.CELL_DOUBLE) {
+				column.position(column.position() + 8);
+			}
+		}
+	}
+
+}
@@ -24,8 +24,11 @@ package org.matsim.core.events;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.controler.Injector;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.utils.eventsfilecomparison.EventsFileComparator;
 
+import java.util.Set;
+
 public final class EventsUtils {
 
 	private EventsUtils(){
@@ -65,6 +68,30 @@ public final class EventsUtils {
 		new MatsimEventsReader(events).readFile(filename) ;
 	}
 
+	/**
+	 * Reads only the events of the given types within the given time window. Binary events files (see
+	 * {@link org.matsim.core.events.algorithms.EventWriterBinary}) skip the data of other event types and times
+	 * without decoding it, all other formats are read completely and filtered afterwards.
+	 *
+	 * @param eventTypes the types of the events to read, <code>null</code> for all types
+	 */
+	public static void readEvents( EventsManager events, String filename, Set<String> eventTypes, double fromTime, double toTime ) {
+		if ( EventsReaderBinary.isBinaryEventsFile( filename ) ) {
+			EventsReaderBinary reader = new EventsReaderBinary( events );
+			reader.setEventTypes( eventTypes );
+			reader.setTimeWindow( fromTime, toTime );
+			reader.readFile( filename );
+			return;
+		}
+		EventsManager filter = createEventsManager();
+		filter.addHandler( (BasicEventHandler) event -> {
+			if ( (eventTypes == null || eventTypes.contains( event.getEventType() )) && event.getTime() >= fromTime && event.getTime() <= toTime ) {
+				events.processEvent( event );
+			}
+		} );
+		new MatsimEventsReader( filter ).readFile( filename );
+	}
+
 	public static EventsFileComparator.Result compareEventsFiles( String filename1, String filename2 ) {
 		EventsFileComparator.Result result = EventsFileComparator.compare( filename1, filename2 );
 		return result ;
@@ -27,9 +27,11 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.MatsimReader;
 import org.matsim.core.config.groups.ControlerConfigGroup;
 import org.matsim.core.utils.io.MatsimXmlParser;
+import org.matsim.core.utils.io.UncheckedIOException;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.util.LinkedHashMap;
@@ -83,6 +85,8 @@ public final class MatsimEventsReader implements MatsimReader {
 				reader.addCustomEventMapper(entry.getKey(), entry.getValue());
 			}
 			reader.parse(filename);
+		} else if (lcFilename.endsWith(".bin") || EventsReaderBinary.isBinaryEventsFile(filename)) {
+			createBinaryReader().readFile(filename);
 		} else if (lcFilename.endsWith(".txt") || lcFilename.endsWith(".txt.gz")) {
 			throw new RuntimeException("text events are no longer supported. Please use MATSim 0.6.1 or earlier to read text events.");
 		} else {
@@ -109,9 +113,20 @@ public final class MatsimEventsReader implements MatsimReader {
 				}
 				reader.parse(stream);
 				break;
+			case binary:
+				createBinaryReader().readStream(stream);
+				break;
 		}
 	}
 
+	private EventsReaderBinary createBinaryReader() {
+		EventsReaderBinary reader = new EventsReaderBinary(this.events);
+		for (Map.Entry<String, CustomEventMapper> entry : this.customEventMappers.entrySet()) {
+			reader.addCustomEventMapper(entry.getKey(), entry.getValue());
+		}
+		return reader;
+	}
+
 	@Override
 	public void readURL( final URL url ) {
 		if (url.getFile().contains(".xml")) {
@@ -122,6 +137,12 @@ public final class MatsimEventsReader implements MatsimReader {
 				reader.addCustomEventMapper(entry.getKey(), entry.getValue());
 			}
 			reader.parse(url);
+		} else if (url.getPath().endsWith(".bin")) {
+			try (InputStream stream = url.openStream()) {
+				createBinaryReader().readStream(stream);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
 		}
 	}
 
@@ -19,6 +19,8 @@
 package org.matsim.core.events;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.log4j.Logger;
@@ -65,6 +67,8 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 	private ProcessEventThread[] eventsProcessThread = null;
 	private Thread[] threads = null;
 	private int numberOfAddedEventsHandler = 0;
+	private final List<EventHandler> handlers = new ArrayList<>();
+	private EventHandlerBalancer balancer = null;
 	private final AtomicBoolean hadException = new AtomicBoolean(false);
 	private final ExceptionHandler uncaughtExceptionHandler = new ExceptionHandler(hadException);
 
@@ -85,6 +89,9 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 			preInputBufferMaxLength = (int) (config.parallelEventHandling().getEstimatedNumberOfEvents() / 10);
 		}
 		init(config.parallelEventHandling().getNumberOfThreads());
+		if (config.parallelEventHandling().isBalanceHandlersByRuntime() && this.numberOfThreads > 1) {
+			this.balancer = new EventHandlerBalancer();
+		}
 	}
 
 	/**
@@ -125,6 +132,7 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		synchronized (this) {
 			log.info("adding Event-Handler " + handler.getClass().getName() + " to thread " + numberOfAddedEventsHandler);
 			events[numberOfAddedEventsHandler].addHandler(handler);
+			handlers.add(handler);
 			numberOfAddedEventsHandler = (numberOfAddedEventsHandler + 1) % numberOfThreads;
 		}
 	}
@@ -141,6 +149,7 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 	@Override
 	public void removeHandler(final EventHandler handler) {
 		synchronized (this) {
+			handlers.remove(handler);
 			for (int i = 0; i < events.length; i++) {
 				events[i].removeHandler(handler);
 			}
@@ -190,6 +199,14 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		// list which threads had which handlers to debug performance issues
 		printEventHandlers();
 
+		if (this.balancer != null) {
+			this.balancer.clearMeasuredTimes();
+			for (EventsManagerImpl eventsManager : this.events) {
+				this.balancer.addMeasuredTimes(eventsManager.getMeasuredHandlerTimes());
+				eventsManager.setMeasuringHandlerTimes(false);
+			}
+		}
+
 		/*
 		 * introduction of the parallel mode variable was required, because of
 		 * the following reason: previously no event handling was possible after
@@ -208,6 +225,15 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 	// prepare for next iteration
 	@Override
 	public void initProcessing() {
+		if (this.balancer != null) {
+			if (this.balancer.hasMeasuredTimes()) {
+				redistributeHandlers();
+			}
+			for (EventsManagerImpl eventsManager : this.events) {
+				eventsManager.setMeasuringHandlerTimes(true);
+			}
+		}
+
 		// reset this class, so that it can be reused for the next iteration
 		for (int i = 0; i < numberOfThreads; i++) {
 			this.eventsProcessThread[i] = new ProcessEventThread(events[i], preInputBufferMaxLength);
@@ -220,6 +246,18 @@ public final class ParallelEventsManagerImpl implements EventsManager {
 		this.parallelMode = true;
 	}
 
+	private void redistributeHandlers() {
+		synchronized (this) {
+			int[] threads = this.balancer.assign(this.handlers, this.numberOfThreads);
+			for (int i = 0; i < numberOfThreads; i++) {
+				events[i] = (EventsManagerImpl) EventsUtils.createEventsManager();
+			}
+			for (int i = 0; i < threads.length; i++) {
+				events[threads[i]].addHandler(this.handlers.get(i));
+			}
+		}
+	}
+
 	/**
 	 * @author mrieser
 	 */
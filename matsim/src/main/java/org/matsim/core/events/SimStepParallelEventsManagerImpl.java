@@ -61,13 +61,15 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	
 	private boolean parallelMode = false;
 	private int handlerCount = 0;
+	private final List<EventHandler> handlers = new ArrayList<>();
+	private final EventHandlerBalancer balancer;
 	
 	private AtomicLong counter;
 	private AtomicReference<Throwable> hadException = new AtomicReference<>();
 
 	@Inject
 	SimStepParallelEventsManagerImpl(ParallelEventHandlingConfigGroup config) {
-		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1);
+		this(config.getNumberOfThreads() != null ? config.getNumberOfThreads() : 1, config.isBalanceHandlersByRuntime());
 	}
 
     public SimStepParallelEventsManagerImpl() {
@@ -75,7 +77,16 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	}
 	
 	public SimStepParallelEventsManagerImpl(int numOfThreads) {
+		this(numOfThreads, false);
+	}
+
+	/**
+	 * @param balanceHandlersByRuntime if <code>true</code>, the handlers are redistributed among the threads before
+	 * every iteration, based on the processing times measured in the previous iteration
+	 */
+	public SimStepParallelEventsManagerImpl(int numOfThreads, boolean balanceHandlersByRuntime) {
 		this.numOfThreads = numOfThreads;
+		this.balancer = balanceHandlersByRuntime && numOfThreads > 1 ? new EventHandlerBalancer() : null;
 		log.info("number of threads=" + numOfThreads );
 		init();
 	}
@@ -105,6 +116,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	public void addHandler(final EventHandler handler) {
 		delegate.addHandler(handler);
 		
+		handlers.add(handler);
 		eventsManagers[handlerCount % numOfThreads].addHandler(handler);
 		handlerCount++;
 	}
@@ -113,6 +125,7 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	public void removeHandler(final EventHandler handler) {
 		delegate.removeHandler(handler);
 		
+		handlers.remove(handler);
 		for (EventsManager eventsManager : eventsManagers) eventsManager.removeHandler(handler);
 	}
 	
@@ -125,6 +138,10 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 	@Override
 	public void initProcessing() {
 		delegate.initProcessing();
+		if (this.balancer != null) {
+			if (this.balancer.hasMeasuredTimes()) redistributeHandlers();
+			for (EventsManagerImpl eventsManager : this.eventsManagers) eventsManager.setMeasuringHandlerTimes(true);
+		}
 		for (EventsManager eventsManager : this.eventsManagers) eventsManager.initProcessing();
 
 		Queue<Event>[] eventsQueuesArray = new Queue[this.numOfThreads];
@@ -199,6 +216,14 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 			}
         }
 		
+		if (this.balancer != null) {
+			this.balancer.clearMeasuredTimes();
+			for (EventsManagerImpl eventsManager : this.eventsManagers) {
+				this.balancer.addMeasuredTimes(eventsManager.getMeasuredHandlerTimes());
+				eventsManager.setMeasuringHandlerTimes(false);
+			}
+		}
+
 		delegate.finishProcessing();
 		for (EventsManager eventsManager : this.eventsManagers) eventsManager.finishProcessing();
 		
@@ -213,6 +238,16 @@ class SimStepParallelEventsManagerImpl implements EventsManager {
 		}
 	}
 
+	/*
+	 * Replaces the events managers of the threads, as handlers cannot be moved between them while keeping the order
+	 * in which they were added.
+	 */
+	private void redistributeHandlers() {
+		int[] threads = this.balancer.assign(this.handlers, this.numOfThreads);
+		for (int i = 0; i < this.numOfThreads; i++) this.eventsManagers[i] = new EventsManagerImpl();
+		for (int i = 0; i < threads.length; i++) this.eventsManagers[threads[i]].addHandler(this.handlers.get(i));
+	}
+
 	@Override
 	public void afterSimStep(double time) {
 		
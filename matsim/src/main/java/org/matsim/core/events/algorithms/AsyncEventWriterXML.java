@@ -0,0 +1,431 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * AsyncEventWriterXML.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+/**
+ * Writes the same xml events files as {@link EventWriterXML}, but moves the formatting and compression of the events
+ * off the thread that calls {@link #handleEvent(Event)}.
+ * <p>
+ * Events are collected into batches. A fixed ring of batch buffers is handed over to a pool of formatting threads,
+ * a single output thread writes the formatted batches in their original order. Events are only referenced, not
+ * copied, so they must not be modified after they were passed to the events manager (which holds for all events
+ * created by MATSim itself).
+ * <p>
+ * If the file name ends with <code>.gz</code>, each batch is deflated independently by its formatting thread, and the
+ * output thread stitches the blocks together into a single gzip member (the same approach as pigz, but without
+ * priming the blocks with the tail of the previous one). The result can be read by any gzip tool. Other compressions
+ * supported by {@link IOUtils} are applied by the output thread.
+ * <p>
+ * Back-pressure: at most <code>capacity</code> batches can be in flight. If formatting or writing cannot keep up, the
+ * calling thread blocks until a batch buffer becomes free again, i.e. memory usage stays bounded and the simulation is
+ * slowed down to the speed of the writer. The time spent blocking is reported when the file is closed.
+ * <p>
+ * If formatting or writing fails on one of the background threads, the failure is rethrown by the next call to
+ * {@link #handleEvent(Event)} or {@link #closeFile()}.
+ *
+ * @see EventWriterXML
+ */
+public final class AsyncEventWriterXML implements EventWriter, BasicEventHandler {
+
+	private static final Logger log = Logger.getLogger(AsyncEventWriterXML.class);
+
+	public static final int DEFAULT_BATCH_SIZE = 8192;
+
+	private static final int GZIP_MAGIC = 0x8b1f;
+
+	private static final long FAILURE_CHECK_INTERVAL_MS = 100;
+
+	private static final Chunk END_OF_STREAM = new Chunk(new byte[0], 0, null, 0, false);
+
+	private final int batchSize;
+	private final boolean deflate;
+	private final OutputStream out;
+
+	private final BlockingQueue<Event[]> freeBatches;
+	private final BlockingQueue<Future<Chunk>> pendingChunks;
+	private final ExecutorService formatters;
+	private final Thread outputThread;
+
+	private volatile Throwable failure = null;
+
+	private Event[] batch;
+	private int batchFill = 0;
+	private boolean firstBatch = true;
+	private boolean closed = false;
+
+	private int blockedCount = 0;
+	private long blockedNanos = 0;
+
+	/**
+	 * @param filename the file to write to. The compression is derived from the file ending like in {@link EventWriterXML}.
+	 * @param numberOfThreads number of threads formatting (and, for gzip, compressing) events
+	 */
+	public AsyncEventWriterXML(final String filename, final int numberOfThreads) {
+		this(filename, numberOfThreads, DEFAULT_BATCH_SIZE, 4 * numberOfThreads);
+	}
+
+	/**
+	 * @param filename the file to write to. The compression is derived from the file ending like in {@link EventWriterXML}.
+	 * @param numberOfThreads number of threads formatting (and, for gzip, compressing) events
+	 * @param batchSize number of events per batch
+	 * @param capacity maximum number of batches in flight before {@link #handleEvent(Event)} blocks
+	 */
+	public AsyncEventWriterXML(final String filename, final int numberOfThreads, final int batchSize, final int capacity) {
+		this(openStream(filename), filename.toLowerCase().endsWith(".gz"), numberOfThreads, batchSize, capacity);
+	}
+
+	/**
+	 * Writes uncompressed xml to the given stream.
+	 */
+	public AsyncEventWriterXML(final OutputStream stream, final int numberOfThreads) {
+		this(stream, false, numberOfThreads, DEFAULT_BATCH_SIZE, 4 * numberOfThreads);
+	}
+
+	private AsyncEventWriterXML(final OutputStream out, final boolean deflate, final int numberOfThreads, final int batchSize, final int capacity) {
+		if (numberOfThreads < 1) {
+			throw new IllegalArgumentException("numberOfThreads must be at least 1, but is " + numberOfThreads);
+		}
+		if (batchSize < 1 || capacity < 2) {
+			throw new IllegalArgumentException("batchSize must be at least 1 and capacity at least 2, but are " + batchSize + " and " + capacity);
+		}
+		this.out = out;
+		this.deflate = deflate;
+		this.batchSize = batchSize;
+		this.freeBatches = new ArrayBlockingQueue<>(capacity);
+		for (int i = 1; i < capacity; i++) {
+			this.freeBatches.add(new Event[batchSize]);
+		}
+		this.batch = new Event[batchSize];
+		// one more slot for the end-of-stream marker
+		this.pendingChunks = new ArrayBlockingQueue<>(capacity + 1);
+
+		AtomicInteger threadCounter = new AtomicInteger(0);
+		this.formatters = Executors.newFixedThreadPool(numberOfThreads, r -> {
+			Thread thread = new Thread(r, "AsyncEventWriterXML-format-" + threadCounter.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.outputThread = new Thread(this::writeChunks, "AsyncEventWriterXML-output");
+		this.outputThread.setDaemon(true);
+		this.outputThread.start();
+	}
+
+	private static OutputStream openStream(final String filename) {
+		if (filename.toLowerCase().endsWith(".gz")) {
+			try {
+				return new BufferedOutputStream(new FileOutputStream(filename), 1 << 16);
+			} catch (FileNotFoundException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		return IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false);
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		if (this.closed) {
+			throw new IllegalStateException("The events file was already closed.");
+		}
+		checkFailure();
+		if (this.batchFill == this.batchSize) {
+			submitBatch(false);
+		}
+		this.batch[this.batchFill++] = event;
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void closeFile() {
+		if (this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			try {
+				submitBatch(true);
+			} finally {
+				// always terminate the output thread, also if writing failed before
+				putChunk(CompletableFuture.completedFuture(END_OF_STREAM));
+				this.outputThread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} finally {
+			this.formatters.shutdown();
+		}
+		if (this.blockedCount > 0) {
+			log.info("Writing events blocked the calling thread " + this.blockedCount + " times for a total of "
+					+ (this.blockedNanos / 1_000_000) + " ms. Consider using more threads for writing events.");
+		}
+		checkFailure();
+	}
+
+	private void submitBatch(final boolean last) {
+		checkFailure();
+		final Event[] events = this.batch;
+		final int size = this.batchFill;
+		final boolean first = this.firstBatch;
+		this.firstBatch = false;
+		putChunk(this.formatters.submit(() -> formatBatch(events, size, first, last)));
+		if (!last) {
+			this.batch = takeFreeBatch();
+			this.batchFill = 0;
+		}
+	}
+
+	/**
+	 * Blocks until a batch buffer is free again, but fails as soon as one of the writer threads failed, as the buffers
+	 * of failed batches may never come back.
+	 */
+	private Event[] takeFreeBatch() {
+		Event[] free = this.freeBatches.poll();
+		if (free == null) {
+			long start = System.nanoTime();
+			try {
+				while ((free = this.freeBatches.poll(FAILURE_CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) == null) {
+					checkFailure();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			this.blockedCount++;
+			this.blockedNanos += System.nanoTime() - start;
+		}
+		return free;
+	}
+
+	private void putChunk(final Future<Chunk> chunk) {
+		if (!this.pendingChunks.offer(chunk)) {
+			long start = System.nanoTime();
+			try {
+				// the output thread keeps draining after a failure, so this cannot block forever
+				this.pendingChunks.put(chunk);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			this.blockedCount++;
+			this.blockedNanos += System.nanoTime() - start;
+		}
+	}
+
+	private void checkFailure() {
+		Throwable t = this.failure;
+		if (t != null) {
+			if (t instanceof IOException) {
+				throw new UncheckedIOException((IOException) t);
+			}
+			throw new RuntimeException("Error while writing events asynchronously.", t);
+		}
+	}
+
+	/**
+	 * Runs on one of the formatting threads.
+	 */
+	private Chunk formatBatch(final Event[] events, final int size, final boolean first, final boolean last) throws IOException {
+		StringBuilder str = new StringBuilder(size * 128 + 64);
+		try {
+			if (first) {
+				str.append(EventWriterXML.HEADER);
+			}
+			for (int i = 0; i < size; i++) {
+				EventWriterXML.appendEvent(str, events[i]);
+			}
+			if (last) {
+				str.append(EventWriterXML.FOOTER);
+			}
+		} catch (IOException | RuntimeException | Error e) {
+			// make the failure visible to the producer right away, not only once the output thread reaches this batch
+			recordFailure(e);
+			throw e;
+		} finally {
+			// the events are not needed anymore, give the buffer back to the producer
+			Arrays.fill(events, 0, size, null);
+			if (!last) {
+				this.freeBatches.offer(events);
+			}
+		}
+		byte[] raw = str.toString().getBytes(StandardCharsets.UTF_8);
+		if (!this.deflate) {
+			return new Chunk(raw, raw.length, raw, raw.length, last);
+		}
+		byte[] compressed = deflate(raw, last);
+		return new Chunk(raw, raw.length, compressed, compressed.length, last);
+	}
+
+	private static byte[] deflate(final byte[] raw, final boolean last) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			deflater.setInput(raw);
+			byte[] compressed = new byte[Math.max(raw.length / 4, 1024)];
+			int length = 0;
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					if (length == compressed.length) {
+						compressed = Arrays.copyOf(compressed, compressed.length * 2);
+					}
+					length += deflater.deflate(compressed, length, compressed.length - length);
+				}
+			} else {
+				// a sync flush ends the block on a byte boundary without setting the final-bit, so the
+				// independently compressed blocks can simply be concatenated to one deflate stream.
+				while (true) {
+					if (length == compressed.length) {
+						compressed = Arrays.copyOf(compressed, compressed.length * 2);
+					}
+					int available = compressed.length - length;
+					int written = deflater.deflate(compressed, length, available, Deflater.SYNC_FLUSH);
+					length += written;
+					if (written < available) {
+						break;
+					}
+				}
+			}
+			return Arrays.copyOf(compressed, length);
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Runs on the output thread.
+	 */
+	private void writeChunks() {
+		CRC32 crc = new CRC32();
+		long uncompressedSize = 0;
+		try {
+			if (this.deflate) {
+				writeGzipHeader();
+			}
+		} catch (IOException e) {
+			recordFailure(e);
+		}
+		try {
+			while (true) {
+				Chunk chunk;
+				try {
+					chunk = this.pendingChunks.take().get();
+				} catch (ExecutionException e) {
+					recordFailure(e.getCause());
+					continue;
+				}
+				if (chunk == END_OF_STREAM) {
+					break;
+				}
+				if (this.failure != null) {
+					continue; // keep draining so the producer never blocks forever
+				}
+				try {
+					this.out.write(chunk.data, 0, chunk.dataLength);
+					if (this.deflate) {
+						crc.update(chunk.raw, 0, chunk.rawLength);
+						uncompressedSize += chunk.rawLength;
+						if (chunk.last) {
+							writeGzipTrailer(crc.getValue(), uncompressedSize);
+						}
+					}
+				} catch (IOException | RuntimeException e) {
+					recordFailure(e);
+				}
+			}
+		} catch (InterruptedException e) {
+			recordFailure(e);
+		} finally {
+			try {
+				this.out.close();
+			} catch (IOException e) {
+				recordFailure(e);
+			}
+		}
+	}
+
+	private synchronized void recordFailure(final Throwable t) {
+		if (this.failure == null) {
+			this.failure = t;
+		}
+	}
+
+	private void writeGzipHeader() throws IOException {
+		this.out.write(new byte[] {
+				(byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+		});
+	}
+
+	private void writeGzipTrailer(final long crc, final long size) throws IOException {
+		writeIntLE(crc);
+		writeIntLE(size);
+	}
+
+	private void writeIntLE(final long value) throws IOException {
+		this.out.write((int) (value & 0xff));
+		this.out.write((int) ((value >> 8) & 0xff));
+		this.out.write((int) ((value >> 16) & 0xff));
+		this.out.write((int) ((value >> 24) & 0xff));
+	}
+
+	private static final class Chunk {
+		final byte[] raw;
+		final int rawLength;
+		final byte[] data;
+		final int dataLength;
+		final boolean last;
+
+		Chunk(final byte[] raw, final int rawLength, final byte[] data, final int dataLength, final boolean last) {
+			this.raw = raw;
+			this.rawLength = rawLength;
+			this.data = data;
+			this.dataLength = dataLength;
+			this.last = last;
+		}
+	}
+
+}
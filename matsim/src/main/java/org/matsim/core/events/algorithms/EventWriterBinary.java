@@ -0,0 +1,424 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * EventWriterBinary.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+/**
+ * Writes events into a compact, block-compressed binary file that can be read with
+ * {@link org.matsim.core.events.EventsReaderBinary}.
+ * <p>
+ * Events are collected into blocks of a fixed number of events. Within a block, the events are grouped by their
+ * <em>record type</em> (the event type together with the list of its attribute names), and each record type is stored
+ * column by column: first all times, then all values of the first attribute, and so on. All strings (ids, modes,
+ * activity types, ...) are stored only once per file in a dictionary and referenced by their number; numbers that can
+ * be restored exactly from their binary representation are stored as such. Every block has a small uncompressed
+ * header with its time range and the record types it contains, so readers can skip blocks or record types they are not
+ * interested in without decompressing them.
+ * <p>
+ * File layout (all numbers big-endian):
+ * <pre>
+ * file   := MAGIC version:int block*
+ * block  := eventCount:int minTime:double maxTime:double
+ *           dictRawLength:int dictLength:int orderRawLength:int orderLength:int
+ *           recordTypeCount:int (code:int count:int rawLength:int length:int)*
+ *           dictionary order section*          (each deflate-compressed)
+ * dictionary := newStrings:varint (byteLength:varint utf8)* newRecordTypes:varint (code:varint type:varint keyCount:varint key:varint*)*
+ * order      := recordTypeCode:varint        (one per event, in the original order of the events)
+ * section    := time:double* (columnLength:int cell*)*
+ * cell       := varint: 0 = null, 1 = double follows, n &gt; 1 = dictionary string n-2
+ * </pre>
+ */
+public final class EventWriterBinary implements EventWriter, BasicEventHandler {
+
+	public static final byte[] MAGIC = "MATSIMEV".getBytes(StandardCharsets.US_ASCII);
+	public static final int VERSION = 1;
+
+	public static final int CELL_NULL = 0;
+	public static final int CELL_DOUBLE = 1;
+	public static final int CELL_STRING_OFFSET = 2;
+
+	private static final int DEFAULT_BLOCK_SIZE = 100_000;
+
+	private final DataOutputStream out;
+	private final int blockSize;
+	private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+	private byte[] compressBuffer = new byte[1 << 16];
+
+	private final Map<String, Integer> strings = new HashMap<>();
+	private final List<String> newStrings = new ArrayList<>();
+	private final Map<String, List<RecordType>> recordTypesByEventType = new HashMap<>();
+	private final List<RecordType> newRecordTypes = new ArrayList<>();
+	private final List<RecordType> blockRecordTypes = new ArrayList<>();
+	private int recordTypeCount = 0;
+
+	private final ByteArray order = new ByteArray(1 << 16);
+	private final ByteArray dictionary = new ByteArray(1 << 12);
+	private int eventCount = 0;
+	private double minTime = Double.POSITIVE_INFINITY;
+	private double maxTime = Double.NEGATIVE_INFINITY;
+
+	public EventWriterBinary(final String filename) {
+		this(openFile(filename), DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream) {
+		this(stream, DEFAULT_BLOCK_SIZE);
+	}
+
+	public EventWriterBinary(final OutputStream stream, final int blockSize) {
+		if (blockSize <= 0) {
+			throw new IllegalArgumentException("blockSize must be positive, but is " + blockSize);
+		}
+		this.out = new DataOutputStream(stream instanceof BufferedOutputStream ? stream : new BufferedOutputStream(stream, 1 << 16));
+		this.blockSize = blockSize;
+		try {
+			this.out.write(MAGIC);
+			this.out.writeInt(VERSION);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static OutputStream openFile(final String filename) {
+		try {
+			return new FileOutputStream(filename);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void handleEvent(final Event event) {
+		Map<String, String> attributes = event.getAttributes();
+		RecordType recordType = getRecordType(event.getEventType(), attributes);
+		if (recordType.count == 0) {
+			this.blockRecordTypes.add(recordType);
+		}
+		double time = event.getTime();
+		recordType.times.writeDouble(time);
+		int column = 0;
+		for (Map.Entry<String, String> e : attributes.entrySet()) {
+			if (isImplicit(e.getKey())) {
+				continue;
+			}
+			writeCell(recordType.columns[column], e.getValue());
+			column++;
+		}
+		recordType.count++;
+		this.order.writeVarInt(recordType.code);
+		if (time < this.minTime) {
+			this.minTime = time;
+		}
+		if (time > this.maxTime) {
+			this.maxTime = time;
+		}
+		this.eventCount++;
+		if (this.eventCount == this.blockSize) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public void reset(final int iter) {
+	}
+
+	@Override
+	public void closeFile() {
+		try {
+			if (this.eventCount > 0) {
+				writeBlock();
+			}
+			this.out.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			this.deflater.end();
+		}
+	}
+
+	private static boolean isImplicit(final String key) {
+		return Event.ATTRIBUTE_TIME.equals(key) || Event.ATTRIBUTE_TYPE.equals(key);
+	}
+
+	private RecordType getRecordType(final String eventType, final Map<String, String> attributes) {
+		List<RecordType> candidates = this.recordTypesByEventType.get(eventType);
+		if (candidates == null) {
+			candidates = new ArrayList<>(2);
+			this.recordTypesByEventType.put(eventType, candidates);
+		}
+		for (RecordType candidate : candidates) {
+			if (candidate.matches(attributes)) {
+				return candidate;
+			}
+		}
+		List<String> keys = new ArrayList<>();
+		for (String key : attributes.keySet()) {
+			if (!isImplicit(key)) {
+				keys.add(key);
+			}
+		}
+		RecordType recordType = new RecordType(this.recordTypeCount++, eventType, keys.toArray(new String[0]));
+		candidates.add(recordType);
+		this.newRecordTypes.add(recordType);
+		// make sure the strings of the record type are in the dictionary
+		getStringCode(eventType);
+		for (String key : recordType.keys) {
+			getStringCode(key);
+		}
+		return recordType;
+	}
+
+	private void writeCell(final ByteArray column, final String value) {
+		if (value == null) {
+			column.writeVarInt(CELL_NULL);
+			return;
+		}
+		if (looksNumeric(value)) {
+			try {
+				double d = Double.parseDouble(value);
+				if (Double.toString(d).equals(value)) {
+					column.writeVarInt(CELL_DOUBLE);
+					column.writeDouble(d);
+					return;
+				}
+			} catch (NumberFormatException e) {
+				// not a number, store it as string
+			}
+		}
+		column.writeVarInt(CELL_STRING_OFFSET + getStringCode(value));
+	}
+
+	private static boolean looksNumeric(final String value) {
+		if (value.isEmpty() || value.length() > 24) {
+			return false;
+		}
+		char c = value.charAt(0);
+		return (c >= '0' && c <= '9') || c == '-';
+	}
+
+	private int getStringCode(final String value) {
+		Integer code = this.strings.get(value);
+		if (code == null) {
+			code = this.strings.size();
+			this.strings.put(value, code);
+			this.newStrings.add(value);
+		}
+		return code;
+	}
+
+	private void writeBlock() {
+		try {
+			this.dictionary.clear();
+			this.dictionary.writeVarInt(this.newStrings.size());
+			for (String s : this.newStrings) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				this.dictionary.writeVarInt(bytes.length);
+				this.dictionary.write(bytes, 0, bytes.length);
+			}
+			this.dictionary.writeVarInt(this.newRecordTypes.size());
+			for (RecordType recordType : this.newRecordTypes) {
+				this.dictionary.writeVarInt(recordType.code);
+				this.dictionary.writeVarInt(this.strings.get(recordType.eventType));
+				this.dictionary.writeVarInt(recordType.keys.length);
+				for (String key : recordType.keys) {
+					this.dictionary.writeVarInt(this.strings.get(key));
+				}
+			}
+			this.newStrings.clear();
+			this.newRecordTypes.clear();
+
+			byte[] compressedDictionary = compress(this.dictionary);
+			byte[] compressedOrder = compress(this.order);
+			byte[][] compressedSections = new byte[this.blockRecordTypes.size()][];
+			int[] rawSectionLengths = new int[this.blockRecordTypes.size()];
+			ByteArray section = new ByteArray(1 << 16);
+			for (int i = 0; i < this.blockRecordTypes.size(); i++) {
+				RecordType recordType = this.blockRecordTypes.get(i);
+				section.clear();
+				section.write(recordType.times.data, 0, recordType.times.size);
+				for (ByteArray column : recordType.columns) {
+					section.writeInt(column.size);
+					section.write(column.data, 0, column.size);
+				}
+				rawSectionLengths[i] = section.size;
+				compressedSections[i] = compress(section);
+			}
+
+			this.out.writeInt(this.eventCount);
+			this.out.writeDouble(this.minTime);
+			this.out.writeDouble(this.maxTime);
+			this.out.writeInt(this.dictionary.size);
+			this.out.writeInt(compressedDictionary.length);
+			this.out.writeInt(this.order.size);
+			this.out.writeInt(compressedOrder.length);
+			this.out.writeInt(this.blockRecordTypes.size());
+			for (int i = 0; i < this.blockRecordTypes.size(); i++) {
+				RecordType recordType = this.blockRecordTypes.get(i);
+				this.out.writeInt(recordType.code);
+				this.out.writeInt(recordType.count);
+				this.out.writeInt(rawSectionLengths[i]);
+				this.out.writeInt(compressedSections[i].length);
+			}
+			this.out.write(compressedDictionary);
+			this.out.write(compressedOrder);
+			for (byte[] compressedSection : compressedSections) {
+				this.out.write(compressedSection);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		for (RecordType recordType : this.blockRecordTypes) {
+			recordType.clear();
+		}
+		this.blockRecordTypes.clear();
+		this.order.clear();
+		this.eventCount = 0;
+		this.minTime = Double.POSITIVE_INFINITY;
+		this.maxTime = Double.NEGATIVE_INFINITY;
+	}
+
+	private byte[] compress(final ByteArray raw) {
+		this.deflater.reset();
+		this.deflater.setInput(raw.data, 0, raw.size);
+		this.deflater.finish();
+		int length = 0;
+		while (!this.deflater.finished()) {
+			if (length == this.compressBuffer.length) {
+				this.compressBuffer = Arrays.copyOf(this.compressBuffer, this.compressBuffer.length * 2);
+			}
+			length += this.deflater.deflate(this.compressBuffer, length, this.compressBuffer.length - length);
+		}
+		return Arrays.copyOf(this.compressBuffer, length);
+	}
+
+	private static final class RecordType {
+		final int code;
+		final String eventType;
+		final String[] keys;
+		final ByteArray times = new ByteArray(1 << 10);
+		final ByteArray[] columns;
+		int count = 0;
+
+		RecordType(final int code, final String eventType, final String[] keys) {
+			this.code = code;
+			this.eventType = eventType;
+			this.keys = keys;
+			this.columns = new ByteArray[keys.length];
+			for (int i = 0; i < keys.length; i++) {
+				this.columns[i] = new ByteArray(1 << 10);
+			}
+		}
+
+		boolean matches(final Map<String, String> attributes) {
+			Iterator<String> iter = attributes.keySet().iterator();
+			int i = 0;
+			while (iter.hasNext()) {
+				String key = iter.next();
+				if (isImplicit(key)) {
+					continue;
+				}
+				if (i == this.keys.length || !this.keys[i].equals(key)) {
+					return false;
+				}
+				i++;
+			}
+			return i == this.keys.length;
+		}
+
+		void clear() {
+			this.count = 0;
+			this.times.clear();
+			for (ByteArray column : this.columns) {
+				column.clear();
+			}
+		}
+	}
+
+	/**
+	 * A minimal growable byte buffer, avoids the synchronization of {@link java.io.ByteArrayOutputStream}.
+	 */
+	private static final class ByteArray {
+		byte[] data;
+		int size = 0;
+
+		ByteArray(final int initialCapacity) {
+			this.data = new byte[initialCapacity];
+		}
+
+		void clear() {
+			this.size = 0;
+		}
+
+		private void ensureCapacity(final int additional) {
+			if (this.size + additional > this.data.length) {
+				this.data = Arrays.copyOf(this.data, Math.max(this.data.length * 2, this.size + additional));
+			}
+		}
+
+		void write(final byte[] bytes, final int offset, final int length) {
+			ensureCapacity(length);
+			System.arraycopy(bytes, offset, this.data, this.size, length);
+			this.size += length;
+		}
+
+		void writeInt(final int value) {
+			ensureCapacity(4);
+			this.data[this.size++] = (byte) (value >>> 24);
+			this.data[this.size++] = (byte) (value >>> 16);
+			this.data[this.size++] = (byte) (value >>> 8);
+			this.data[this.size++] = (byte) value;
+		}
+
+		void writeDouble(final double value) {
+			long bits = Double.doubleToRawLongBits(value);
+			writeInt((int) (bits >>> 32));
+			writeInt((int) bits);
+		}
+
+		void writeVarInt(int value) {
+			ensureCapacity(5);
+			while ((value & ~0x7F) != 0) {
+				this.data[this.size++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			this.data[this.size++] = (byte) value;
+		}
+	}
+
+}
@@ -85,6 +85,19 @@ public class MessageQueue {
 		return m;
 	}
 
+	/**
+	 * 
+	 * get the time stamp of the first message in the queue, without removing it. As dead
+	 * messages are not skipped, this may be earlier than the time of the next message
+	 * returned by {@link #getNextMessage()}.
+	 *
+	 * @return the arrival time of the first message in the queue, or <code>Double.POSITIVE_INFINITY</code> if the queue is empty
+	 */
+	public double getNextMessageArrivalTime() {
+		Message m = queue1.peek();
+		return m == null ? Double.POSITIVE_INFINITY : m.getMessageArrivalTime();
+	}
+
 	public boolean isEmpty() {
 		return queue1.size() == 0;
 	}
@@ -19,8 +19,9 @@
 
 package org.matsim.core.mobsim.qsim;
 
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Queue;
+import java.util.List;
 import java.util.concurrent.PriorityBlockingQueue;
 
 import javax.inject.Inject;
@@ -34,7 +35,7 @@ import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimAgent.State;
 
-class ActivityEngineDefaultImpl implements ActivityEngine {
+class ActivityEngineDefaultImpl implements ActivityEngine, HasNextWorkTime {
 	private static final Logger log = Logger.getLogger( ActivityEngineDefaultImpl.class ) ;
 
 	private final EventsManager eventsManager;
@@ -72,7 +73,7 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 	 * This list needs to be a "blocking" queue since this is needed for
 	 * thread-safety in the parallel qsim. cdobler, oct'10
 	 */
-	private final Queue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, (e0, e1) -> {
+	private final PriorityBlockingQueue<AgentEntry> activityEndsList = new PriorityBlockingQueue<>(500, (e0, e1) -> {
 		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
 		if (cmp == 0) {
 			// Both depart at the same time -> let the one with the larger id be first (=smaller)
@@ -100,6 +101,11 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 	@Override
 	public void doSimStep(double time) {
 		beforeFirstSimStep = false;
+		ParallelAgentLogic parallelAgentLogic = internalInterface.getMobsim().getParallelAgentLogic();
+		if (parallelAgentLogic != null) {
+			endActivitiesInParallel(time, parallelAgentLogic);
+			return;
+		}
 		while (activityEndsList.peek() != null) {
 			if (activityEndsList.peek().activityEndTime <= time) {
 				MobsimAgent agent = activityEndsList.poll().agent;
@@ -112,6 +118,37 @@ class ActivityEngineDefaultImpl implements ActivityEngine {
 		}
 	}
 
+	private void endActivitiesInParallel(double time, ParallelAgentLogic parallelAgentLogic) {
+		List<AgentEntry> entries = new ArrayList<>();
+		while (activityEndsList.peek() != null && activityEndsList.peek().activityEndTime <= time) {
+			AgentEntry entry = activityEndsList.poll();
+			// touches the link, so not part of the parallel agent logic
+			unregisterAgentAtActivityLocation(entry.agent);
+			entries.add(entry);
+		}
+		int[] next = {0};
+		parallelAgentLogic.run(entries, entry -> entry.agent.endActivityAndComputeNextState(time), entry -> {
+			internalInterface.arrangeNextAgentState(entry.agent);
+			// activity ends rescheduled to now while arranging are handled before the following agents of the batch
+			// if they come first in the queue, as without parallelization
+			next[0]++;
+			AgentEntry following = next[0] < entries.size() ? entries.get(next[0]) : null;
+			while (activityEndsList.peek() != null && activityEndsList.peek().activityEndTime <= time
+					&& (following == null || activityEndsList.comparator().compare(activityEndsList.peek(), following) < 0)) {
+				MobsimAgent agent = activityEndsList.poll().agent;
+				unregisterAgentAtActivityLocation(agent);
+				agent.endActivityAndComputeNextState(time);
+				internalInterface.arrangeNextAgentState(agent);
+			}
+		});
+	}
+
+	@Override
+	public double getNextWorkTime(double now) {
+		AgentEntry entry = activityEndsList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.activityEndTime;
+	}
+
 	@Override
 	public void afterSim() {
 		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
@@ -28,7 +28,15 @@ public class ActivityEngineModule extends AbstractQSimModule {
 
 	@Override
 	protected void configureQSim() {
-		bind( ActivityEngineDefaultImpl.class ).in( Singleton.class );
-		addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineDefaultImpl.class );
+		switch ( getConfig().qsim().getActivityEngineType() ) {
+			case timingWheel:
+				bind( ActivityEngineTimingWheelImpl.class ).in( Singleton.class );
+				addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineTimingWheelImpl.class );
+				break;
+			case priorityQueue:
+			default:
+				bind( ActivityEngineDefaultImpl.class ).in( Singleton.class );
+				addQSimComponentBinding( COMPONENT_NAME ).to( ActivityEngineDefaultImpl.class );
+		}
 	}
 }
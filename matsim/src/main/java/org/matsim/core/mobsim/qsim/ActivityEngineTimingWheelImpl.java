@@ -0,0 +1,430 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ * ActivityEngineTimingWheelImpl.java
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import javax.inject.Inject;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.PersonStuckEvent;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.MobsimAgent.State;
+
+/**
+ * An {@link ActivityEngine} that keeps the agents on activity in a timing wheel (a calendar queue with one bucket per
+ * second of simulated time) instead of a priority queue.
+ * <p>
+ * Adding an agent and removing it again, e.g. when within-day replanning reschedules its activity end, are O(1): every
+ * entry knows its bucket and its position in there. Only the agents whose activity ends in the current time step are
+ * sorted, using the same order as {@link ActivityEngineDefaultImpl}, so both engines produce the same events.
+ * Activity ends more than {@link #WHEEL_SIZE} seconds ahead of the current time are kept in an overflow queue until
+ * the wheel has advanced far enough.
+ * <p>
+ * All access to the data structures is synchronized on this engine, since agents may start activities from several
+ * threads in the parallel qsim.
+ */
+final class ActivityEngineTimingWheelImpl implements ActivityEngine, HasNextWorkTime {
+
+	/**
+	 * Number of one-second buckets, covers a bit more than 36 hours.
+	 */
+	static final int WHEEL_SIZE = 1 << 17;
+
+	private static final long UNINITIALIZED = Long.MIN_VALUE;
+
+	/**
+	 * Same order as in {@link ActivityEngineDefaultImpl}, including the (unusual) tie-breaking by descending agent id.
+	 */
+	private static final Comparator<AgentEntry> ACTIVITY_END_ORDER = (e0, e1) -> {
+		int cmp = Double.compare(e0.activityEndTime, e1.activityEndTime);
+		if (cmp == 0) {
+			return e1.agent.getId().compareTo(e0.agent.getId());
+		}
+		return cmp;
+	};
+
+	private final EventsManager eventsManager;
+
+	private InternalInterface internalInterface;
+
+	private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+	/** agents that started their activity before the first time step, i.e. before the wheel has a start time */
+	private final Bucket initial = new Bucket();
+	private final PriorityQueue<AgentEntry> overflow = new PriorityQueue<>(ACTIVITY_END_ORDER);
+	/** agents whose activity end is at or before {@link #dueTime} */
+	private final PriorityQueue<AgentEntry> due = new PriorityQueue<>(ACTIVITY_END_ORDER);
+	private final Map<MobsimAgent, AgentEntry> entries = new IdentityHashMap<>();
+
+	private int entriesOnWheel = 0;
+	/** the first slot of the wheel that may still contain entries */
+	private long currentSlot = UNINITIALIZED;
+	private double dueTime = Double.NEGATIVE_INFINITY;
+
+	// See ActivityEngineDefaultImpl.handleActivity for the reason for this.
+	private volatile boolean beforeFirstSimStep = true;
+
+	@Inject
+	ActivityEngineTimingWheelImpl(EventsManager eventsManager) {
+		this.eventsManager = eventsManager;
+	}
+
+	private static final class AgentEntry {
+		private final MobsimAgent agent;
+		private final double activityEndTime;
+		private Bucket bucket = null;
+		private int index = -1;
+		private boolean inOverflow = false;
+
+		AgentEntry(MobsimAgent agent, double activityEndTime) {
+			this.agent = agent;
+			this.activityEndTime = activityEndTime;
+		}
+	}
+
+	/**
+	 * Unordered set of entries with O(1) add and remove: removing moves the last entry into the gap.
+	 */
+	private static final class Bucket {
+		private AgentEntry[] entries = new AgentEntry[4];
+		private int size = 0;
+
+		void add(AgentEntry entry) {
+			if (this.size == this.entries.length) {
+				AgentEntry[] larger = new AgentEntry[this.entries.length * 2];
+				System.arraycopy(this.entries, 0, larger, 0, this.size);
+				this.entries = larger;
+			}
+			entry.bucket = this;
+			entry.index = this.size;
+			this.entries[this.size++] = entry;
+		}
+
+		void remove(AgentEntry entry) {
+			int last = --this.size;
+			if (entry.index != last) {
+				AgentEntry moved = this.entries[last];
+				this.entries[entry.index] = moved;
+				moved.index = entry.index;
+			}
+			this.entries[last] = null;
+			entry.bucket = null;
+			entry.index = -1;
+		}
+	}
+
+	@Override
+	public void onPrepareSim() {
+		// Nothing to do here
+	}
+
+	@Override
+	public void doSimStep(double time) {
+		synchronized (this) {
+			this.beforeFirstSimStep = false;
+			advanceTo(time);
+		}
+		ParallelAgentLogic parallelAgentLogic = internalInterface.getMobsim().getParallelAgentLogic();
+		if (parallelAgentLogic != null) {
+			endActivitiesInParallel(time, parallelAgentLogic);
+			return;
+		}
+		while (true) {
+			AgentEntry entry;
+			synchronized (this) {
+				entry = this.due.poll();
+				if (entry == null) {
+					return;
+				}
+				this.entries.remove(entry.agent);
+			}
+			MobsimAgent agent = entry.agent;
+			unregisterAgentAtActivityLocation(agent);
+			agent.endActivityAndComputeNextState(time);
+			internalInterface.arrangeNextAgentState(agent);
+		}
+	}
+
+	private void endActivitiesInParallel(double time, ParallelAgentLogic parallelAgentLogic) {
+		List<AgentEntry> batch = new ArrayList<>();
+		synchronized (this) {
+			while (!this.due.isEmpty()) {
+				AgentEntry entry = this.due.poll();
+				this.entries.remove(entry.agent);
+				batch.add(entry);
+			}
+		}
+		for (AgentEntry entry : batch) {
+			// touches the link, so not part of the parallel agent logic
+			unregisterAgentAtActivityLocation(entry.agent);
+		}
+		int[] next = {0};
+		parallelAgentLogic.run(batch, entry -> entry.agent.endActivityAndComputeNextState(time), entry -> {
+			internalInterface.arrangeNextAgentState(entry.agent);
+			// activity ends rescheduled to now while arranging are handled before the following agents of the batch
+			// if they come first in the queue, as without parallelization
+			next[0]++;
+			AgentEntry following = next[0] < batch.size() ? batch.get(next[0]) : null;
+			while (true) {
+				AgentEntry rescheduled;
+				synchronized (this) {
+					rescheduled = this.due.peek();
+					if (rescheduled == null || (following != null && ACTIVITY_END_ORDER.compare(rescheduled, following) >= 0)) {
+						return;
+					}
+					this.due.poll();
+					this.entries.remove(rescheduled.agent);
+				}
+				MobsimAgent agent = rescheduled.agent;
+				unregisterAgentAtActivityLocation(agent);
+				agent.endActivityAndComputeNextState(time);
+				internalInterface.arrangeNextAgentState(agent);
+			}
+		});
+	}
+
+	/**
+	 * Moves all entries with an activity end at or before <code>time</code> into {@link #due}.
+	 */
+	private void advanceTo(double time) {
+		long targetSlot = slotOf(time);
+		this.dueTime = time;
+		if (this.currentSlot == UNINITIALIZED) {
+			this.currentSlot = targetSlot;
+			while (this.initial.size > 0) {
+				AgentEntry entry = this.initial.entries[this.initial.size - 1];
+				this.initial.remove(entry);
+				insert(entry);
+			}
+		}
+		while (this.currentSlot < targetSlot) {
+			if (this.entriesOnWheel == 0) {
+				this.currentSlot = targetSlot;
+				break;
+			}
+			Bucket bucket = this.wheel[wheelIndex(this.currentSlot)];
+			if (bucket != null) {
+				while (bucket.size > 0) {
+					AgentEntry entry = bucket.entries[bucket.size - 1];
+					bucket.remove(entry);
+					this.entriesOnWheel--;
+					this.due.add(entry);
+				}
+			}
+			this.currentSlot++;
+		}
+		// the slot of the current time may also contain activity ends later in this second
+		Bucket bucket = this.wheel[wheelIndex(this.currentSlot)];
+		if (bucket != null) {
+			for (int i = bucket.size - 1; i >= 0; i--) {
+				AgentEntry entry = bucket.entries[i];
+				if (entry.activityEndTime <= time) {
+					bucket.remove(entry);
+					this.entriesOnWheel--;
+					this.due.add(entry);
+				}
+			}
+		}
+		while (!this.overflow.isEmpty() && slotOf(this.overflow.peek().activityEndTime) < this.currentSlot + WHEEL_SIZE) {
+			AgentEntry entry = this.overflow.poll();
+			entry.inOverflow = false;
+			insert(entry);
+		}
+	}
+
+	private void insert(AgentEntry entry) {
+		if (entry.activityEndTime <= this.dueTime) {
+			this.due.add(entry);
+			return;
+		}
+		if (this.currentSlot == UNINITIALIZED) {
+			this.initial.add(entry);
+			return;
+		}
+		long slot = slotOf(entry.activityEndTime);
+		if (slot >= this.currentSlot + WHEEL_SIZE) {
+			entry.inOverflow = true;
+			this.overflow.add(entry);
+			return;
+		}
+		int index = wheelIndex(slot);
+		Bucket bucket = this.wheel[index];
+		if (bucket == null) {
+			bucket = new Bucket();
+			this.wheel[index] = bucket;
+		}
+		bucket.add(entry);
+		this.entriesOnWheel++;
+	}
+
+	private static long slotOf(double time) {
+		return (long) Math.floor(time);
+	}
+
+	private static int wheelIndex(long slot) {
+		return (int) Math.floorMod(slot, (long) WHEEL_SIZE);
+	}
+
+	private synchronized void add(AgentEntry entry) {
+		this.entries.put(entry.agent, entry);
+		insert(entry);
+	}
+
+	private synchronized AgentEntry removeAgentFromQueue(MobsimAgent agent) {
+		AgentEntry entry = this.entries.remove(agent);
+		if (entry == null) {
+			return null;
+		}
+		if (entry.bucket != null) {
+			if (entry.bucket != this.initial) {
+				this.entriesOnWheel--;
+			}
+			entry.bucket.remove(entry);
+		} else if (entry.inOverflow) {
+			entry.inOverflow = false;
+			this.overflow.remove(entry);
+		} else {
+			this.due.remove(entry);
+		}
+		return entry;
+	}
+
+	@Override
+	public synchronized double getNextWorkTime(double now) {
+		if (!this.due.isEmpty() || this.initial.size > 0) {
+			return now;
+		}
+		if (this.entriesOnWheel > 0) {
+			// overflow entries are always later than the entries on the wheel
+			for (long slot = this.currentSlot; ; slot++) {
+				Bucket bucket = this.wheel[wheelIndex(slot)];
+				if (bucket != null && bucket.size > 0) {
+					double earliest = Double.POSITIVE_INFINITY;
+					for (int i = 0; i < bucket.size; i++) {
+						earliest = Math.min(earliest, bucket.entries[i].activityEndTime);
+					}
+					return earliest;
+				}
+			}
+		}
+		return this.overflow.isEmpty() ? Double.POSITIVE_INFINITY : this.overflow.peek().activityEndTime;
+	}
+
+	@Override
+	public void afterSim() {
+		double now = this.internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+		List<AgentEntry> remaining;
+		synchronized (this) {
+			remaining = new ArrayList<>(this.entries.values());
+			this.entries.clear();
+			this.due.clear();
+			this.overflow.clear();
+			while (this.initial.size > 0) {
+				this.initial.remove(this.initial.entries[this.initial.size - 1]);
+			}
+			for (int i = 0; i < WHEEL_SIZE; i++) {
+				this.wheel[i] = null;
+			}
+			this.entriesOnWheel = 0;
+		}
+		remaining.sort(ACTIVITY_END_ORDER);
+		for (AgentEntry entry : remaining) {
+			// since we are at an activity, it is not plausible to assume that the agents know mode or destination
+			// link id.  Thus generating the event with ``null'' in the corresponding entries.  kai, mar'12
+			eventsManager.processEvent(new PersonStuckEvent(now, entry.agent.getId(), null, null));
+		}
+	}
+
+	@Override
+	public void setInternalInterface(InternalInterface internalInterface) {
+		this.internalInterface = internalInterface;
+	}
+
+	/**
+	 * See {@link ActivityEngineDefaultImpl#handleActivity(MobsimAgent)}.
+	 */
+	@Override
+	public boolean handleActivity(MobsimAgent agent) {
+		if (agent.getActivityEndTime() == Double.POSITIVE_INFINITY) {
+			// This is the last planned activity.
+			// So the agent goes to sleep.
+			internalInterface.getMobsim().getAgentCounter().decLiving();
+		} else if (agent.getActivityEndTime() <= internalInterface.getMobsim().getSimTimer().getTimeOfDay() && !beforeFirstSimStep) {
+			// This activity is already over (planned for 0 duration)
+			// So we proceed immediately.
+			agent.endActivityAndComputeNextState(internalInterface.getMobsim().getSimTimer().getTimeOfDay());
+			internalInterface.arrangeNextAgentState(agent) ;
+		} else {
+			// The agent commences an activity on this link.
+			add(new AgentEntry(agent, agent.getActivityEndTime()));
+			internalInterface.registerAdditionalAgentOnLink(agent);
+		}
+		return true;
+	}
+
+	/**
+	 * See {@link ActivityEngineDefaultImpl#rescheduleActivityEnd(MobsimAgent)}.
+	 */
+	@Override
+	public void rescheduleActivityEnd(final MobsimAgent agent) {
+		if ( agent.getState()!=State.ACTIVITY ) {
+			return ;
+		}
+
+		double newActivityEndTime = agent.getActivityEndTime();
+		AgentEntry oldEntry = removeAgentFromQueue(agent);
+
+		if (oldEntry == null) {
+			if (newActivityEndTime == Double.POSITIVE_INFINITY) {
+				// agent was de-activated and still should be de-activated - nothing to do here
+			} else {
+				// re-activate the agent
+				add(new AgentEntry(agent, newActivityEndTime));
+				internalInterface.registerAdditionalAgentOnLink(agent);
+				((org.matsim.core.mobsim.qsim.AgentCounter) internalInterface.getMobsim().getAgentCounter()).incLiving();
+			}
+		} else if (newActivityEndTime == Double.POSITIVE_INFINITY) {
+			// the agent's current activity has become its last activity, de-activate the agent
+			unregisterAgentAtActivityLocation(agent);
+			internalInterface.getMobsim().getAgentCounter().decLiving();
+		} else {
+			// the activity is just rescheduled during the day, so we keep the agent active
+			add(new AgentEntry(agent, newActivityEndTime));
+		}
+	}
+
+	private void unregisterAgentAtActivityLocation(final MobsimAgent agent) {
+		Id<Person> agentId = agent.getId();
+		Id<Link> linkId = agent.getCurrentLinkId();
+		if (linkId != null) { // may be bushwacking
+			internalInterface.unregisterAdditionalAgentOnLink(agentId, linkId);
+		}
+	}
+
+}
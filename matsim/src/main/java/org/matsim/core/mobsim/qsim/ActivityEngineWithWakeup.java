@@ -32,24 +32,33 @@ import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.api.internal.HasPersonId;
+import org.matsim.core.config.Config;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.PlanAgent;
 import org.matsim.core.mobsim.qsim.agents.WithinDayAgentUtils;
 
-public final class ActivityEngineWithWakeup implements ActivityEngine {
+public final class ActivityEngineWithWakeup implements ActivityEngine, HasNextWorkTime {
 	public static final String COMPONENT_NAME = "ActivityEngineWithWakeup";
 
 	private final EventsManager eventsManager;
 	private PreplanningEngine preplanningEngine;
-	private ActivityEngine delegate;
+	private final ActivityEngine delegate;
 
 	private final Queue<AgentEntry> wakeUpList = new PriorityBlockingQueue<>(500,
 			Comparator.comparingDouble((AgentEntry o) -> o.time).thenComparing(o -> o.agent.getId()));
 	private InternalInterface internalInterface;
 
 	@Inject
-	ActivityEngineWithWakeup(EventsManager eventsManager, PreplanningEngine preplanningEngine) {
-		this.delegate = new ActivityEngineDefaultImpl(eventsManager);
+	ActivityEngineWithWakeup(EventsManager eventsManager, PreplanningEngine preplanningEngine, Config config) {
+		// same choice as in ActivityEngineModule, so the wakeups can be combined with either activity engine
+		switch ( config.qsim().getActivityEngineType() ) {
+			case timingWheel:
+				this.delegate = new ActivityEngineTimingWheelImpl(eventsManager);
+				break;
+			case priorityQueue:
+			default:
+				this.delegate = new ActivityEngineDefaultImpl(eventsManager);
+		}
 		this.eventsManager = eventsManager;
 		this.preplanningEngine = preplanningEngine;
 	}
@@ -69,6 +78,14 @@ public final class ActivityEngineWithWakeup implements ActivityEngine {
 		delegate.doSimStep(now);
 	}
 
+	@Override
+	public double getNextWorkTime(double now) {
+		AgentEntry entry = wakeUpList.peek();
+		double nextWakeup = entry == null ? Double.POSITIVE_INFINITY : entry.time;
+		// both possible delegates implement HasNextWorkTime
+		return Math.min(nextWakeup, ((HasNextWorkTime) delegate).getNextWorkTime(now));
+	}
+
 	@Override
 	public void afterSim() {
 		delegate.afterSim();
@@ -21,9 +21,11 @@
 
  package org.matsim.core.mobsim.qsim;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
 
@@ -49,11 +51,10 @@ import org.matsim.vis.snapshotwriters.TeleportationVisData;
  * Includes all agents that have transportation modes unknown to the
  * NetsimEngine (often all != "car") or have two activities on the same link
  */
-public final class DefaultTeleportationEngine implements TeleportationEngine {
+public final class DefaultTeleportationEngine implements TeleportationEngine, HasNextWorkTime {
 	private static final Logger log = Logger.getLogger( DefaultTeleportationEngine.class ) ;
 	
-	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(
-			30, new Comparator<Tuple<Double, MobsimAgent>>() {
+	private static final Comparator<Tuple<Double, MobsimAgent>> ARRIVAL_ORDER = new Comparator<Tuple<Double, MobsimAgent>>() {
 
 		@Override
 		public int compare(Tuple<Double, MobsimAgent> o1, Tuple<Double, MobsimAgent> o2) {
@@ -63,7 +64,8 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 			}
 			return ret;
 		}
-	});
+	};
+	private final Queue<Tuple<Double, MobsimAgent>> teleportationList = new PriorityQueue<>(30, ARRIVAL_ORDER);
 	private final LinkedHashMap<Id<Person>, TeleportationVisData> teleportationData = new LinkedHashMap<>();
 	private InternalInterface internalInterface;
 	private Scenario scenario;
@@ -127,29 +129,69 @@ public final class DefaultTeleportationEngine implements TeleportationEngine {
 
 	private void handleTeleportationArrivals() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
+		ParallelAgentLogic parallelAgentLogic = internalInterface.getMobsim().getParallelAgentLogic();
+		if (parallelAgentLogic != null) {
+			handleTeleportationArrivalsInParallel(now, parallelAgentLogic);
+			return;
+		}
 		while (teleportationList.peek() != null) {
 			Tuple<Double, MobsimAgent> entry = teleportationList.peek();
 			if (entry.getFirst() <= now) {
 				teleportationList.poll();
-				MobsimAgent personAgent = entry.getSecond();
-				personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
-						.getDestinationLinkId());
-				double distance = personAgent.getExpectedTravelDistance();
-				this.eventsManager.processEvent(new TeleportationArrivalEvent(this.internalInterface.getMobsim().getSimTimer().getTimeOfDay(), personAgent.getId(), distance, personAgent.getMode()));
-				personAgent.endLegAndComputeNextState(now);
-				this.teleportationData.remove(personAgent.getId());
-				internalInterface.arrangeNextAgentState(personAgent);
+				handleTeleportationArrival(entry.getSecond(), now);
 			} else {
 				break;
 			}
 		}
 	}
 
+	private void handleTeleportationArrival(MobsimAgent personAgent, double now) {
+		endTeleportation(personAgent, now, this.eventsManager);
+		this.teleportationData.remove(personAgent.getId());
+		internalInterface.arrangeNextAgentState(personAgent);
+	}
+
+	private static void endTeleportation(MobsimAgent personAgent, double now, EventsManager events) {
+		personAgent.notifyArrivalOnLinkByNonNetworkMode(personAgent
+				.getDestinationLinkId());
+		double distance = personAgent.getExpectedTravelDistance();
+		events.processEvent(new TeleportationArrivalEvent(now, personAgent.getId(), distance, personAgent.getMode()));
+		personAgent.endLegAndComputeNextState(now);
+	}
+
+	private void handleTeleportationArrivalsInParallel(double now, ParallelAgentLogic parallelAgentLogic) {
+		List<Tuple<Double, MobsimAgent>> arrivals = new ArrayList<>();
+		while (teleportationList.peek() != null && teleportationList.peek().getFirst() <= now) {
+			arrivals.add(teleportationList.poll());
+		}
+		// the agents get their events manager from the qsim, so use the same one here to keep the order of the events
+		EventsManager events = internalInterface.getMobsim().getEventsManager();
+		int[] next = {0};
+		parallelAgentLogic.run(arrivals, entry -> endTeleportation(entry.getSecond(), now, events), entry -> {
+			MobsimAgent personAgent = entry.getSecond();
+			this.teleportationData.remove(personAgent.getId());
+			internalInterface.arrangeNextAgentState(personAgent);
+			// departures without travel time arrive immediately, possibly before the next agent of this batch
+			next[0]++;
+			Tuple<Double, MobsimAgent> following = next[0] < arrivals.size() ? arrivals.get(next[0]) : null;
+			while (teleportationList.peek() != null && teleportationList.peek().getFirst() <= now
+					&& (following == null || ARRIVAL_ORDER.compare(teleportationList.peek(), following) < 0)) {
+				handleTeleportationArrival(teleportationList.poll().getSecond(), now);
+			}
+		});
+	}
+
 	@Override
 	public void onPrepareSim() {
 
 	}
 
+	@Override
+	public double getNextWorkTime(double now) {
+		Tuple<Double, MobsimAgent> entry = teleportationList.peek();
+		return entry == null ? Double.POSITIVE_INFINITY : entry.getFirst();
+	}
+
 	@Override
 	public void afterSim() {
 		double now = internalInterface.getMobsim().getSimTimer().getTimeOfDay();
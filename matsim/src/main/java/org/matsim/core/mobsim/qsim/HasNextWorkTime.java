@@ -0,0 +1,41 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import org.matsim.core.config.groups.QSimConfigGroup;
+
+/**
+ * Optional interface for mobsim engines and sim step listeners that can tell when they have something to do next.
+ * If all engines and sim step listeners of a {@link QSim} implement it, the QSim can jump over time steps in which
+ * nothing happens, see {@link QSimConfigGroup#setSkippingIdleTimeSteps(boolean)}.
+ */
+public interface HasNextWorkTime {
+
+	/**
+	 * Called after the sim step at <code>now</code> has been completed.
+	 *
+	 * @return the earliest time at which the next sim step has to be executed in order to not miss anything, i.e.
+	 * 		any value <code>&lt;= now</code> if there is still work in the next time step, and
+	 * 		{@link Double#POSITIVE_INFINITY} if nothing is scheduled at all.
+	 */
+	double getNextWorkTime(double now);
+
+}
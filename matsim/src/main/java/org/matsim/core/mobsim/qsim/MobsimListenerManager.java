@@ -31,6 +31,9 @@ import org.matsim.core.mobsim.framework.listeners.*;
 import org.matsim.core.utils.misc.ClassUtils;
 
 import javax.swing.event.EventListenerList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 class MobsimListenerManager implements MatsimManager {
 
@@ -64,6 +67,16 @@ class MobsimListenerManager implements MatsimManager {
 		}
 	}
 
+	/**
+	 * @return all listeners that are notified before or after every sim step
+	 */
+	public Set<MobsimListener> getSimStepListeners() {
+		Set<MobsimListener> listeners = new LinkedHashSet<>();
+		listeners.addAll(Arrays.asList(this.listenerList.getListeners(MobsimBeforeSimStepListener.class)));
+		listeners.addAll(Arrays.asList(this.listenerList.getListeners(MobsimAfterSimStepListener.class)));
+		return listeners;
+	}
+
 	/**
 	 * Creates the event and notifies all listeners
 	 */
@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.BufferingEventsManager;
+
+/**
+ * Computes the logic of many agents of one time step in parallel, e.g. the next state of all agents ending their
+ * activity, while everything that touches shared state is afterwards done for one agent after the other.
+ * <p>
+ * The agents are split into contiguous chunks, one per thread. The events thrown by the agent logic are buffered per
+ * thread and passed on agent by agent, each immediately before the sequential part of the same agent. Thus, the
+ * events come out in exactly the same order as if the agents were processed one after the other, independent of the
+ * number of threads and of the thread scheduling.
+ */
+final class ParallelAgentLogic {
+
+	/** below this, the overhead of handing the work to other threads is larger than the gain */
+	private static final int MIN_AGENTS_PER_THREAD = 16;
+
+	private final BufferingEventsManager events;
+	private final ExecutorService pool;
+	private final List<List<Event>> buffers = new ArrayList<>();
+
+	ParallelAgentLogic(final int numberOfThreads, final BufferingEventsManager events) {
+		this.events = events;
+		for (int i = 0; i < numberOfThreads; i++) {
+			this.buffers.add(new ArrayList<>());
+		}
+		int[] count = {0};
+		this.pool = Executors.newFixedThreadPool(numberOfThreads, r -> {
+			Thread thread = new Thread(r, "QSimAgentLogic_PooledThread_" + count[0]++);
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Calls <code>agentLogic</code> for all agents in parallel and then, for one agent after the other in the given
+	 * order, passes on the events thrown by its agent logic and calls <code>afterAgentLogic</code>.
+	 */
+	<T> void run(final List<T> agents, final Consumer<? super T> agentLogic, final Consumer<? super T> afterAgentLogic) {
+		int numberOfChunks = Math.min(this.buffers.size(), agents.size() / MIN_AGENTS_PER_THREAD);
+		if (numberOfChunks < 2) {
+			for (T agent : agents) {
+				agentLogic.accept(agent);
+				afterAgentLogic.accept(agent);
+			}
+			return;
+		}
+
+		List<Chunk<T>> chunks = new ArrayList<>(numberOfChunks);
+		for (int i = 0; i < numberOfChunks; i++) {
+			int from = (int) ((long) agents.size() * i / numberOfChunks);
+			int to = (int) ((long) agents.size() * (i + 1) / numberOfChunks);
+			chunks.add(new Chunk<>(agents.subList(from, to), agentLogic, this.buffers.get(i)));
+		}
+		try {
+			for (Future<Void> future : this.pool.invokeAll(chunks)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+
+		for (Chunk<T> chunk : chunks) {
+			int start = 0;
+			for (int i = 0; i < chunk.agents.size(); i++) {
+				int end = chunk.eventEnds[i];
+				for (int e = start; e < end; e++) {
+					this.events.processEvent(chunk.buffer.get(e));
+				}
+				start = end;
+				afterAgentLogic.accept(chunk.agents.get(i));
+			}
+			chunk.buffer.clear();
+		}
+	}
+
+	void shutdown() {
+		this.pool.shutdown();
+	}
+
+	private final class Chunk<T> implements Callable<Void> {
+		private final List<T> agents;
+		private final Consumer<? super T> agentLogic;
+		private final List<Event> buffer;
+		/** index into the buffer behind the last event of each agent */
+		private final int[] eventEnds;
+
+		Chunk(final List<T> agents, final Consumer<? super T> agentLogic, final List<Event> buffer) {
+			this.agents = agents;
+			this.agentLogic = agentLogic;
+			this.buffer = buffer;
+			this.eventEnds = new int[agents.size()];
+		}
+
+		@Override
+		public Void call() {
+			ParallelAgentLogic.this.events.startBuffering(this.buffer);
+			try {
+				for (int i = 0; i < this.agents.size(); i++) {
+					this.agentLogic.accept(this.agents.get(i));
+					this.eventEnds[i] = this.buffer.size();
+				}
+			} finally {
+				ParallelAgentLogic.this.events.stopBuffering();
+			}
+			return null;
+		}
+	}
+
+}
@@ -46,6 +46,7 @@ import org.matsim.api.core.v01.population.Population;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.EndtimeInterpretation;
+import org.matsim.core.events.BufferingEventsManager;
 import org.matsim.core.events.EventsUtils;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.AgentSource;
@@ -145,6 +146,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	private long qSimInternalTime = 0;
 	private final Map<MobsimEngine, AtomicLong> mobsimEngineRunTimes;
 	private ActivityEngine activityEngine;
+	private ParallelAgentLogic parallelAgentLogic = null;
+	/** all engines and sim step listeners if all of them implement {@link HasNextWorkTime}, null if not yet determined */
+	private List<HasNextWorkTime> nextWorkTimeProviders = null;
 
 	{
 		if (analyzeRunTimes) this.mobsimEngineRunTimes = new HashMap<>();
@@ -222,7 +226,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	@Inject
 	private QSim( final Scenario sc, EventsManager events, Injector childInjector ) {
 		this.scenario = sc;
-		if ( sc.getConfig().qsim().getNumberOfThreads() > 1) {
+		if ( sc.getConfig().qsim().getNumberOfThreads() > 1
+				&& ( sc.getConfig().qsim().isUsingParallelAgentLogic() || sc.getConfig().qsim().isUsingDeterministicNetsimEvents() ) ) {
+			// agents get their events manager from the qsim, so this allows to buffer the events of their logic
+			this.events = new BufferingEventsManager( EventsUtils.getParallelFeedableInstance( events ) );
+		} else if ( sc.getConfig().qsim().getNumberOfThreads() > 1) {
 			this.events = EventsUtils.getParallelFeedableInstance( events );
 		} else {
 			this.events = events;
@@ -296,6 +304,11 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		// to print out the info at the very first
 		// timestep already
 
+		if (this.events instanceof BufferingEventsManager && this.scenario.getConfig().qsim().isUsingParallelAgentLogic()) {
+			this.parallelAgentLogic = new ParallelAgentLogic(this.scenario.getConfig().qsim().getNumberOfThreads(),
+					(BufferingEventsManager) this.events);
+		}
+
 		for (MobsimEngine mobsimEngine : this.mobsimEngines) {
 			mobsimEngine.onPrepareSim();
 		}
@@ -359,6 +372,10 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 			}
 		}
 
+		if (this.parallelAgentLogic != null) {
+			this.parallelAgentLogic.shutdown();
+		}
+
 		if (gotException) throw new RuntimeException( "got exception while cleaning up the QSim. Please check the error messages above for details.");
 		events.finishProcessing();
 		if (analyzeRunTimes) {
@@ -425,6 +442,9 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 
 		if (doContinue) {
 			this.simTimer.incrementTime();
+			if ( qsimConfigGroup.isSkippingIdleTimeSteps() ) {
+				skipIdleTimeSteps(now);
+			}
 		}
 		
 		if (analyzeRunTimes) this.qSimInternalTime += System.nanoTime() - this.startClockTime;
@@ -503,6 +523,54 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	// private methods
 	// ############################################################################################################################
 
+	/**
+	 * Advances the timer over all time steps in which no engine and no sim step listener has something to do. The timer
+	 * is incremented step by step, so that the following sim step sees exactly the same time as without skipping.
+	 */
+	private void skipIdleTimeSteps(final double now) {
+		List<HasNextWorkTime> providers = getNextWorkTimeProviders();
+		if (providers.isEmpty()) {
+			// not everybody can tell when there is something to do next
+			return;
+		}
+		double nextWorkTime = Double.POSITIVE_INFINITY;
+		for (HasNextWorkTime provider : providers) {
+			nextWorkTime = Math.min(nextWorkTime, provider.getNextWorkTime(now));
+			if (nextWorkTime <= this.simTimer.getTimeOfDay()) {
+				return;
+			}
+		}
+		// neither the time step with the next console printout nor the last time step are skipped
+		double skipUntil = Math.min(nextWorkTime, this.infoTime);
+		final QSimConfigGroup qsimConfigGroup = this.scenario.getConfig().qsim();
+		final boolean onlyUseEndtime = qsimConfigGroup.getSimEndtimeInterpretation() == EndtimeInterpretation.onlyUseEndtime;
+		final double endTime = onlyUseEndtime ? qsimConfigGroup.getEndTime().seconds() : this.stopTime;
+		double time = this.simTimer.getTimeOfDay();
+		while (time < skipUntil && (onlyUseEndtime ? time <= endTime : time < endTime)) {
+			time = this.simTimer.incrementTime();
+		}
+	}
+
+	private List<HasNextWorkTime> getNextWorkTimeProviders() {
+		if (this.nextWorkTimeProviders == null) {
+			List<Object> participants = new ArrayList<>(this.mobsimEngines);
+			participants.addAll(this.listenerManager.getSimStepListeners());
+			List<HasNextWorkTime> providers = new ArrayList<>();
+			for (Object participant : participants) {
+				if (participant instanceof HasNextWorkTime) {
+					providers.add((HasNextWorkTime) participant);
+				} else {
+					log.warn("cannot skip idle time steps since " + participant.getClass().getName() + " does not implement "
+							+ HasNextWorkTime.class.getSimpleName() + ". Every time step will be simulated.");
+					providers = Collections.emptyList();
+					break;
+				}
+			}
+			this.nextWorkTimeProviders = providers;
+		}
+		return this.nextWorkTimeProviders;
+	}
+
 	private void initSimTimer() {
 		QSimConfigGroup qSimConfigGroup = this.scenario.getConfig().qsim();
 		double configuredStartTime = qSimConfigGroup.getStartTime().orElse(0);
@@ -618,10 +686,18 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		}
 		mobsimEngine.setInternalInterface(this.internalInterface);
 		this.mobsimEngines.add(mobsimEngine);
+		this.nextWorkTimeProviders = null;
 		
 		if (analyzeRunTimes) this.mobsimEngineRunTimes.put(mobsimEngine, new AtomicLong());
 	}
 
+	/**
+	 * @return the parallel stage for the agent logic of the engines, or null if the agent logic is to be run sequentially
+	 */
+	/*package*/ ParallelAgentLogic getParallelAgentLogic() {
+		return this.parallelAgentLogic;
+	}
+
 	@Override
 	public AgentCounter getAgentCounter() {
 		return this.agentCounter;
@@ -649,6 +725,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 	@Override
 	public void addQueueSimulationListeners(MobsimListener listener) {
 		this.listenerManager.addQueueSimulationListener(listener);
+		this.nextWorkTimeProviders = null;
 	}
 
 	@Inject
@@ -656,6 +733,7 @@ public final class QSim extends Thread implements VisMobsim, Netsim, ActivityEnd
 		for (MobsimListener listener : listeners) {
 			this.listenerManager.addQueueSimulationListener(listener);
 		}
+		this.nextWorkTimeProviders = null;
 	}
 
 //	/**
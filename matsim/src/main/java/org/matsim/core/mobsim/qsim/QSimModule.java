@@ -43,6 +43,7 @@ import org.matsim.core.mobsim.qsim.pt.TransitStopHandlerFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.DefaultQNetworkFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QLanesNetworkFactory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineModule;
+import org.matsim.core.mobsim.qsim.qnetsimengine.QNodeLoadHistory;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetworkFactory;
 
 import com.google.inject.Key;
@@ -110,6 +111,9 @@ public class QSimModule extends AbstractModule {
 		// I don't know why this is here.  kai, nov'18
 
 		bind(Mobsim.class).toProvider(QSimProvider.class);
+
+		bind(QNodeLoadHistory.class);
+		// lives in the controler injector so that the node loads measured in one mobsim run are available in the next one
 		
 		// yyyy the following will eventually be moved to QSim scope, and into QNetsimEngineModule:
 //		if ( config.qsim().isUseLanes() ) {
@@ -65,6 +65,18 @@ public class SteppableScheduler extends Scheduler implements Steppable {
 		finished = true; // queue has run dry.
 	}
 
+	/**
+	 * @return the earliest time at which {@link #doSimStep(double)} may have a message to process,
+	 * or {@link Double#POSITIVE_INFINITY} if there are no messages left.
+	 */
+	public double getNextMessageArrivalTime() {
+		double next = queue.getNextMessageArrivalTime();
+		if (lookahead != null) {
+			next = Math.min(next, lookahead.getMessageArrivalTime());
+		}
+		return next;
+	}
+
 	public boolean isFinished() {
 		return finished;
 	}
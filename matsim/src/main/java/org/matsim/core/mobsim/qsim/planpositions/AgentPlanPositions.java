@@ -0,0 +1,307 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.planpositions;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.framework.PlanAgent;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.agents.HasModifiablePlan;
+import org.matsim.core.mobsim.qsim.agents.WithinDayAgentUtils;
+import org.matsim.core.population.PersonUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.utils.io.IOUtils;
+
+/**
+ * Where the plan-based agents of a {@link QSim} are in their plans at one point in time, see {@link AgentPlanPositionsWriter}.
+ * <p>
+ * This is <i>not</i> a checkpoint of the QSim.  Only the current plan element, the current link and, for agents on a
+ * network route, the position within that route are recorded.  The vehicles in the link queues and buffers, the flow and
+ * storage capacity accumulators of the links, transit drivers, the passengers in transit vehicles and events that were not
+ * yet processed are not.  {@link #createRestartPlans(Population)} turns the positions into plans that start at
+ * {@link #getTime()}, which allows to approximately continue the day with a QSim that starts at that time: agents on a
+ * network leg re-enter traffic on their current link, agents on any other leg repeat that leg, and transit vehicles are
+ * started from the schedule as usual.  The result therefore differs from the one of the original run.
+ */
+public final class AgentPlanPositions {
+
+	/**
+	 * Activity type of the activities inserted for agents that were on a leg at {@link #getTime()}.
+	 */
+	public static final String RESTART_INTERACTION = "restart interaction";
+
+	private static final Logger log = Logger.getLogger(AgentPlanPositions.class);
+
+	private static final int MAGIC = 0x4d515050; // "MQPP"
+	private static final int VERSION = 1;
+
+	private final double time;
+	private final List<AgentState> agentStates;
+
+	/* package */ AgentPlanPositions(double time, List<AgentState> agentStates) {
+		this.time = time;
+		this.agentStates = agentStates;
+	}
+
+	/**
+	 * Collects the state of all plan-based agents of the qsim. Has to be called from the thread that runs the qsim,
+	 * between two sim steps.
+	 */
+	public static AgentPlanPositions create(QSim qsim, double time) {
+		List<AgentState> agentStates = new ArrayList<>(qsim.getAgents().size());
+		for (MobsimAgent agent : qsim.getAgents().values()) {
+			if (!(agent instanceof PlanAgent) || !(agent instanceof HasModifiablePlan)) {
+				// e.g. transit drivers, which are created from the schedule again anyway
+				continue;
+			}
+			agentStates.add(new AgentState(agent.getId(), agent.getState(), WithinDayAgentUtils.getCurrentPlanElementIndex(agent),
+					agent.getCurrentLinkId(), WithinDayAgentUtils.getCurrentRouteLinkIdIndex(agent), agent.getActivityEndTime()));
+		}
+		return new AgentPlanPositions(time, agentStates);
+	}
+
+	public double getTime() {
+		return this.time;
+	}
+
+	public List<AgentState> getAgentStates() {
+		return Collections.unmodifiableList(this.agentStates);
+	}
+
+	public void write(String filename) {
+		try (DataOutputStream out = new DataOutputStream(IOUtils.getOutputStream(IOUtils.getFileUrl(filename), false))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeDouble(this.time);
+			out.writeInt(this.agentStates.size());
+			for (AgentState state : this.agentStates) {
+				out.writeUTF(state.personId.toString());
+				out.writeByte(state.state.ordinal());
+				out.writeInt(state.planElementIndex);
+				out.writeUTF(state.linkId == null ? "" : state.linkId.toString());
+				out.writeInt(state.routeLinkIndex);
+				out.writeDouble(state.activityEndTime);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static AgentPlanPositions read(String filename) {
+		try (DataInputStream in = new DataInputStream(IOUtils.getInputStream(IOUtils.getFileUrl(filename)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IllegalArgumentException(filename + " does not contain agent plan positions.");
+			}
+			int version = in.readInt();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported agent plan positions version " + version + " in " + filename);
+			}
+			double time = in.readDouble();
+			int size = in.readInt();
+			List<AgentState> agentStates = new ArrayList<>(size);
+			MobsimAgent.State[] states = MobsimAgent.State.values();
+			for (int i = 0; i < size; i++) {
+				Id<Person> personId = Id.createPersonId(in.readUTF());
+				MobsimAgent.State state = states[in.readByte()];
+				int planElementIndex = in.readInt();
+				String linkId = in.readUTF();
+				int routeLinkIndex = in.readInt();
+				double activityEndTime = in.readDouble();
+				agentStates.add(new AgentState(personId, state, planElementIndex, linkId.isEmpty() ? null : Id.createLinkId(linkId),
+						routeLinkIndex, activityEndTime));
+			}
+			return new AgentPlanPositions(time, agentStates);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Replaces the plans of all persons contained in the positions by the remainder of their selected plan, starting
+	 * at {@link #getTime()}. The population must contain the same selected plans as the one the positions were taken
+	 * from. Other persons are not modified.
+	 */
+	public void createRestartPlans(Population population) {
+		for (AgentState state : this.agentStates) {
+			Person person = population.getPersons().get(state.personId);
+			if (person == null) {
+				continue;
+			}
+			List<PlanElement> planElements = person.getSelectedPlan().getPlanElements();
+			Plan plan = PopulationUtils.createPlan(person);
+			if (state.state == MobsimAgent.State.ACTIVITY) {
+				Activity activity = PopulationUtils.createActivity((Activity) planElements.get(state.planElementIndex));
+				activity.setMaximumDurationUndefined();
+				if (Double.isFinite(state.activityEndTime)) {
+					activity.setEndTime(state.activityEndTime);
+				} else {
+					activity.setEndTimeUndefined();
+				}
+				plan.addActivity(activity);
+				copyPlanElements(planElements, state.planElementIndex + 1, plan);
+			} else if (state.state == MobsimAgent.State.LEG) {
+				Leg leg = PopulationUtils.createLeg((Leg) planElements.get(state.planElementIndex));
+				Id<Link> linkId = leg.getRoute() == null ? state.linkId : leg.getRoute().getStartLinkId();
+				if (leg.getRoute() instanceof NetworkRoute && state.linkId != null) {
+					linkId = state.linkId;
+					leg.setRoute(createRemainingRoute((NetworkRoute) leg.getRoute(), linkId, state.routeLinkIndex));
+				}
+				Activity activity = createRestartActivity(linkId, planElements, state.planElementIndex);
+				if (activity == null) {
+					log.warn("Cannot tell where agent " + state.personId + " is, its plan is not modified.");
+					continue;
+				}
+				activity.setEndTime(this.time);
+				plan.addActivity(activity);
+				plan.addLeg(leg);
+				copyPlanElements(planElements, state.planElementIndex + 1, plan);
+			} else {
+				// the agent is stuck, keep it where it is
+				Activity activity = createRestartActivity(state.linkId, planElements, state.planElementIndex);
+				if (activity == null) {
+					log.warn("Cannot tell where agent " + state.personId + " is, its plan is not modified.");
+					continue;
+				}
+				plan.addActivity(activity);
+			}
+			person.addPlan(plan);
+			person.setSelectedPlan(plan);
+			PersonUtils.removeUnselectedPlans(person);
+		}
+	}
+
+	/**
+	 * @return the first activity of a restart plan, at the given link or, if it is not known, at the location of the last
+	 * activity up to the given plan element; <code>null</code> if there is no such location
+	 */
+	private static Activity createRestartActivity(Id<Link> linkId, List<PlanElement> planElements, int planElementIndex) {
+		if (linkId != null) {
+			return PopulationUtils.createActivityFromLinkId(RESTART_INTERACTION, linkId);
+		}
+		for (int i = Math.min(planElementIndex, planElements.size() - 1); i >= 0; i--) {
+			if (planElements.get(i) instanceof Activity) {
+				Activity previous = (Activity) planElements.get(i);
+				if (previous.getLinkId() != null) {
+					return PopulationUtils.createActivityFromLinkId(RESTART_INTERACTION, previous.getLinkId());
+				}
+				if (previous.getCoord() != null) {
+					return PopulationUtils.createActivityFromCoord(RESTART_INTERACTION, previous.getCoord());
+				}
+			}
+		}
+		return null;
+	}
+
+	private static void copyPlanElements(List<PlanElement> planElements, int fromIndex, Plan plan) {
+		for (PlanElement pe : planElements.subList(fromIndex, planElements.size())) {
+			if (pe instanceof Activity) {
+				plan.addActivity(PopulationUtils.createActivity((Activity) pe));
+			} else {
+				plan.addLeg(PopulationUtils.createLeg((Leg) pe));
+			}
+		}
+	}
+
+	private static NetworkRoute createRemainingRoute(NetworkRoute route, Id<Link> currentLinkId, int nextLinkIndex) {
+		List<Id<Link>> linkIds = route.getLinkIds();
+		List<Id<Link>> remainingLinkIds;
+		if (currentLinkId.equals(route.getEndLinkId()) && nextLinkIndex >= linkIds.size()) {
+			remainingLinkIds = Collections.emptyList();
+		} else {
+			remainingLinkIds = new ArrayList<>(linkIds.subList(Math.min(nextLinkIndex, linkIds.size()), linkIds.size()));
+		}
+		NetworkRoute remainingRoute = RouteUtils.createLinkNetworkRouteImpl(currentLinkId, route.getEndLinkId());
+		remainingRoute.setLinkIds(currentLinkId, remainingLinkIds, route.getEndLinkId());
+		remainingRoute.setVehicleId(route.getVehicleId());
+		return remainingRoute;
+	}
+
+	/**
+	 * The position of a single agent in its plan.
+	 */
+	public static final class AgentState {
+
+		private final Id<Person> personId;
+		private final MobsimAgent.State state;
+		private final int planElementIndex;
+		private final Id<Link> linkId;
+		private final int routeLinkIndex;
+		private final double activityEndTime;
+
+		AgentState(Id<Person> personId, MobsimAgent.State state, int planElementIndex, Id<Link> linkId, int routeLinkIndex,
+				double activityEndTime) {
+			this.personId = personId;
+			this.state = state;
+			this.planElementIndex = planElementIndex;
+			this.linkId = linkId;
+			this.routeLinkIndex = routeLinkIndex;
+			this.activityEndTime = activityEndTime;
+		}
+
+		public Id<Person> getPersonId() {
+			return this.personId;
+		}
+
+		public MobsimAgent.State getState() {
+			return this.state;
+		}
+
+		public int getPlanElementIndex() {
+			return this.planElementIndex;
+		}
+
+		public Id<Link> getLinkId() {
+			return this.linkId;
+		}
+
+		/**
+		 * @return the index of the <i>next</i> link in the link ids of the current network route, see
+		 * 		{@link HasModifiablePlan#getCurrentLinkIndex()}.
+		 */
+		public int getRouteLinkIndex() {
+			return this.routeLinkIndex;
+		}
+
+		public double getActivityEndTime() {
+			return this.activityEndTime;
+		}
+
+	}
+
+}
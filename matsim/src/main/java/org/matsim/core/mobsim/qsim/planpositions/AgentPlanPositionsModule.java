@@ -0,0 +1,69 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.planpositions;
+
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Provider;
+
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.OutputDirectoryHierarchy;
+import org.matsim.core.mobsim.framework.listeners.MobsimListener;
+import org.matsim.core.replanning.ReplanningContext;
+
+/**
+ * Writes the {@link AgentPlanPositions} into the iteration directory at the times set in
+ * {@link org.matsim.core.config.groups.QSimConfigGroup#getPlanPositionsWriteTimes()}.
+ */
+public class AgentPlanPositionsModule extends AbstractModule {
+	@Override
+	public void install() {
+		if (!getConfig().qsim().getPlanPositionsWriteTimes().isEmpty()) {
+			addMobsimListenerBinding().toProvider(AgentPlanPositionsWriterProvider.class);
+		}
+	}
+
+	private static class AgentPlanPositionsWriterProvider implements Provider<MobsimListener> {
+
+		private final Config config;
+		private final OutputDirectoryHierarchy controlerIO;
+		private final ReplanningContext iterationContext;
+
+		@Inject
+		private AgentPlanPositionsWriterProvider(Config config, OutputDirectoryHierarchy controlerIO, ReplanningContext iterationContext) {
+			this.config = config;
+			this.controlerIO = controlerIO;
+			this.iterationContext = iterationContext;
+		}
+
+		@Override
+		public MobsimListener get() {
+			List<Double> times = this.config.qsim().getPlanPositionsWriteTimes();
+			double[] writeTimes = new double[times.size()];
+			for (int i = 0; i < writeTimes.length; i++) {
+				writeTimes[i] = times.get(i);
+			}
+			return new AgentPlanPositionsWriter(this.controlerIO.getIterationFilename(this.iterationContext.getIteration(), ""), writeTimes);
+		}
+	}
+}
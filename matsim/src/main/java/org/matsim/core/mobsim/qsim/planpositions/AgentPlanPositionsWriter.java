@@ -0,0 +1,122 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.planpositions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeCleanupEvent;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeCleanupListener;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.mobsim.qsim.HasNextWorkTime;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.utils.misc.Time;
+
+/**
+ * Writes the {@link AgentPlanPositions} at the beginning of the first sim step at or after each of the given times.
+ * <p>
+ * The positions are collected in the mobsim thread, the files are written by a separate thread so that the simulation
+ * does not wait for the disk. All files are complete when the mobsim has finished.
+ * <p>
+ * Usage: set the times in {@link org.matsim.core.config.groups.QSimConfigGroup#setPlanPositionsWriteTimes(List)}, then
+ * {@link AgentPlanPositionsModule} writes them in every iteration, or
+ * <code>qsim.addQueueSimulationListeners(new AgentPlanPositionsWriter(...))</code>.
+ */
+public final class AgentPlanPositionsWriter implements MobsimBeforeSimStepListener, MobsimBeforeCleanupListener, HasNextWorkTime {
+
+	private static final Logger log = Logger.getLogger(AgentPlanPositionsWriter.class);
+
+	private final String filenamePrefix;
+	private final double[] times;
+	private int nextTimeIndex = 0;
+	private ExecutorService executor = null;
+	private final List<Future<?>> pendingWrites = new ArrayList<>();
+
+	/**
+	 * @param filenamePrefix the positions are written to <code>filenamePrefix + "agentPlanPositions." + time + ".bin.gz"</code>,
+	 * 		with the time in seconds.
+	 */
+	public AgentPlanPositionsWriter(String filenamePrefix, double... times) {
+		this.filenamePrefix = filenamePrefix;
+		this.times = times.clone();
+		Arrays.sort(this.times);
+	}
+
+	public static String getFilename(String filenamePrefix, double time) {
+		return filenamePrefix + "agentPlanPositions." + (long) time + ".bin.gz";
+	}
+
+	@Override
+	public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+		double now = e.getSimulationTime();
+		if (this.nextTimeIndex >= this.times.length || now < this.times[this.nextTimeIndex]) {
+			return;
+		}
+		while (this.nextTimeIndex < this.times.length && this.times[this.nextTimeIndex] <= now) {
+			this.nextTimeIndex++;
+		}
+		AgentPlanPositions positions = AgentPlanPositions.create((QSim) e.getQueueSimulation(), now);
+		String filename = getFilename(this.filenamePrefix, now);
+		log.info("writing plan positions of " + positions.getAgentStates().size() + " agents at " + Time.writeTime(now) + " to " + filename);
+		if (this.executor == null) {
+			this.executor = Executors.newSingleThreadExecutor(r -> {
+				Thread thread = new Thread(r, "AgentPlanPositionsWriter");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		this.pendingWrites.add(this.executor.submit(() -> positions.write(filename)));
+	}
+
+	@Override
+	public double getNextWorkTime(double now) {
+		return this.nextTimeIndex < this.times.length ? this.times[this.nextTimeIndex] : Double.POSITIVE_INFINITY;
+	}
+
+	@Override
+	public void notifyMobsimBeforeCleanup(MobsimBeforeCleanupEvent e) {
+		if (this.executor == null) {
+			return;
+		}
+		try {
+			for (Future<?> write : this.pendingWrites) {
+				write.get();
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(ex);
+		} catch (ExecutionException ex) {
+			throw new RuntimeException("Could not write agent plan positions.", ex.getCause());
+		} finally {
+			this.pendingWrites.clear();
+			this.executor.shutdown();
+			this.executor = null;
+		}
+	}
+
+}
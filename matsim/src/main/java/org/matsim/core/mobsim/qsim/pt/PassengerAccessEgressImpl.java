@@ -57,6 +57,7 @@ class PassengerAccessEgressImpl implements PassengerAccessEgress {
 	private final TransitStopAgentTracker agentTracker;
 	private final boolean isGeneratingDeniedBoardingEvents ;
 	private Set<PTPassengerAgent> agentsDeniedToBoard = null;
+	private final List<PTPassengerAgent> agentsAtStop = new ArrayList<>(); // reused for every stop
 	private Scenario scenario;
 	private EventsManager eventsManager;
 	
@@ -106,10 +107,11 @@ class PassengerAccessEgressImpl implements PassengerAccessEgress {
 	private List<PTPassengerAgent> findPassengersEntering(TransitRoute transitRoute, TransitLine transitLine, TransitVehicle vehicle, 
 			final TransitStopFacility stop, List<TransitRouteStop> stopsToCome, int freeCapacity, double now) {
 		ArrayList<PTPassengerAgent> passengersEntering = new ArrayList<>();
+		this.agentTracker.getAgentsAtFacility(stop.getId(), stopsToCome, this.agentsAtStop);
 		
 		if (this.isGeneratingDeniedBoardingEvents) {
 			
-			for (PTPassengerAgent agent : this.agentTracker.getAgentsAtFacility(stop.getId())) {
+			for (PTPassengerAgent agent : this.agentsAtStop) {
 				if (agent.getEnterTransitRoute(transitLine, transitRoute, stopsToCome, vehicle)) {
 					if (freeCapacity >= 1) {
 						passengersEntering.add(agent);
@@ -122,7 +124,7 @@ class PassengerAccessEgressImpl implements PassengerAccessEgress {
 
 		} else {
 		
-			for (PTPassengerAgent agent : this.agentTracker.getAgentsAtFacility(stop.getId())) {
+			for (PTPassengerAgent agent : this.agentsAtStop) {
 				if (freeCapacity == 0) {
 					break;
 				}
@@ -133,6 +135,7 @@ class PassengerAccessEgressImpl implements PassengerAccessEgress {
 			}
 		
 		}
+		this.agentsAtStop.clear();
 		
 		return passengersEntering;
 	}
@@ -25,15 +25,29 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.core.api.experimental.events.AgentWaitingForPtEvent;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.mobsim.qsim.AgentTracker;
+import org.matsim.core.mobsim.qsim.agents.TransitAgent;
+import org.matsim.core.mobsim.qsim.agents.TransitAgentImpl;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
+ * Keeps track of the agents waiting at the stops.
+ * <p></p>
+ * The agents at a stop are additionally indexed by their desired destination stop, so that
+ * {@link #getAgentsAtFacility(Id, List, List)} only has to look at the agents whose destination is served by an arriving
+ * vehicle instead of at all agents waiting at the stop.  If the destination of a waiting agent changes, e.g. by within-day
+ * replanning, {@link #updateAgentAtStop(PTPassengerAgent, Id)} has to be called.
  * @author mrieser
  */
 public class TransitStopAgentTracker implements AgentTracker {
@@ -42,6 +56,7 @@ public class TransitStopAgentTracker implements AgentTracker {
 	
 	private final EventsManager events;
 	private final Map<Id<TransitStopFacility>, List<PTPassengerAgent>> agentsAtStops = new ConcurrentHashMap<>();
+	private final Map<Id<TransitStopFacility>, AgentsAtStop> agentsByDestination = new ConcurrentHashMap<>();
 
 	public TransitStopAgentTracker(final EventsManager events) {
 		this.events = events;
@@ -59,6 +74,7 @@ public class TransitStopAgentTracker implements AgentTracker {
 		if ( !agents.add(agent) ) {
 			log.error("did NOT add agent " + agent.getId() + " since it was already there.");
 		}
+		this.agentsByDestination.computeIfAbsent(stopId, id -> new AgentsAtStop()).add(agent);
 		Id<TransitStopFacility> destinationStopId = agent.getDesiredDestinationStopId();
 		events.processEvent(new AgentWaitingForPtEvent(now, agent.getId(), stopId, destinationStopId));
 	}
@@ -72,11 +88,23 @@ public class TransitStopAgentTracker implements AgentTracker {
 			if (!agents.remove(agent)) {
 				log.error("Agent " + agent.getId() + " could not be removed from waiting at stop " + stopId);
 			}
+			this.agentsByDestination.get(stopId).remove(agent);
 		} else {
 			log.error("Agent " + agent.getId() + " could not be removed from waiting at stop " + stopId + " since agents list was null.");
 		}
 	}
 
+	/**
+	 * Has to be called if the desired destination stop of an agent changes while it is waiting at a stop.  The agent keeps
+	 * its position among the waiting agents.
+	 */
+	public void updateAgentAtStop(final PTPassengerAgent agent, final Id<TransitStopFacility> stopId) {
+		AgentsAtStop agents = this.agentsByDestination.get(stopId);
+		if (agents == null || !agents.update(agent)) {
+			log.error("Agent " + agent.getId() + " could not be updated since it is not waiting at stop " + stopId);
+		}
+	}
+
 	@Override
 	public List<PTPassengerAgent> getAgentsAtFacility(final Id<TransitStopFacility> stopId) {
 		List<PTPassengerAgent> agents = this.agentsAtStops.get(stopId);
@@ -86,7 +114,144 @@ public class TransitStopAgentTracker implements AgentTracker {
 		return Collections.unmodifiableList(agents);
 	}
 
+	/**
+	 * @return the agents waiting at the stop, in the order of their arrival, except for the ones that are known not to enter a
+	 * vehicle which serves <code>stopsToCome</code> next, as their destination stop is not among them.  All other agents
+	 * still have to be asked.
+	 */
+	public List<PTPassengerAgent> getAgentsAtFacility(final Id<TransitStopFacility> stopId, final List<TransitRouteStop> stopsToCome) {
+		List<PTPassengerAgent> result = new ArrayList<>();
+		getAgentsAtFacility(stopId, stopsToCome, result);
+		return result;
+	}
+
+	/**
+	 * Same as {@link #getAgentsAtFacility(Id, List)}, but adds the agents to <code>result</code>, so that the caller can reuse
+	 * the list for every stop.
+	 */
+	public void getAgentsAtFacility(final Id<TransitStopFacility> stopId, final List<TransitRouteStop> stopsToCome, final List<PTPassengerAgent> result) {
+		AgentsAtStop agents = this.agentsByDestination.get(stopId);
+		if (agents != null) {
+			agents.getAgents(stopsToCome, result);
+		}
+	}
+
 	public Map<Id<TransitStopFacility>, List<PTPassengerAgent>> getAgentsAtStop() {
 		return this.agentsAtStops;
 	}
+
+	/**
+	 * The default transit agents only enter vehicles that serve their destination stop later on.  For all other agents, we do
+	 * not know, so they are not indexed.
+	 */
+	private static Id<TransitStopFacility> getIndexedDestinationStopId(final PTPassengerAgent agent) {
+		if (agent instanceof TransitAgent || agent instanceof TransitAgentImpl) {
+			return agent.getDesiredDestinationStopId();
+		}
+		return null;
+	}
+
+	private static final class WaitingAgent {
+		private final PTPassengerAgent agent;
+		private final long sequenceNumber;
+		private Id<TransitStopFacility> destinationStopId; // null if the agent is not indexed
+
+		private WaitingAgent(PTPassengerAgent agent, long sequenceNumber) {
+			this.agent = agent;
+			this.sequenceNumber = sequenceNumber;
+		}
+	}
+
+	/**
+	 * The agents at one stop, indexed by their destination stop.  Vehicles at the same stop may be handled by different threads
+	 * of the netsim, so all access is synchronized.
+	 */
+	private static final class AgentsAtStop {
+		private static final Comparator<WaitingAgent> ARRIVAL_ORDER = Comparator.comparingLong(waiting -> waiting.sequenceNumber);
+
+		private final Map<PTPassengerAgent, WaitingAgent> agents = new HashMap<>();
+		private final Map<Id<TransitStopFacility>, List<WaitingAgent>> agentsByDestination = new HashMap<>();
+		private final List<WaitingAgent> otherAgents = new ArrayList<>();
+		private long nextSequenceNumber = 0;
+
+		// reused for every lookup
+		private final Set<Id<TransitStopFacility>> destinationStopIds = new HashSet<>();
+		private final List<WaitingAgent> candidates = new ArrayList<>();
+		private final List<WaitingAgent> moved = new ArrayList<>();
+
+		synchronized void add(PTPassengerAgent agent) {
+			if (this.agents.containsKey(agent)) {
+				return;
+			}
+			WaitingAgent waiting = new WaitingAgent(agent, this.nextSequenceNumber++);
+			this.agents.put(agent, waiting);
+			index(waiting, getIndexedDestinationStopId(agent));
+		}
+
+		synchronized void remove(PTPassengerAgent agent) {
+			WaitingAgent waiting = this.agents.remove(agent);
+			if (waiting != null) {
+				unindex(waiting);
+			}
+		}
+
+		synchronized boolean update(PTPassengerAgent agent) {
+			WaitingAgent waiting = this.agents.get(agent);
+			if (waiting == null) {
+				return false;
+			}
+			unindex(waiting);
+			index(waiting, getIndexedDestinationStopId(agent));
+			return true;
+		}
+
+		private void index(WaitingAgent waiting, Id<TransitStopFacility> destinationStopId) {
+			waiting.destinationStopId = destinationStopId;
+			List<WaitingAgent> list = destinationStopId == null ? this.otherAgents
+					: this.agentsByDestination.computeIfAbsent(destinationStopId, id -> new ArrayList<>());
+			// keep every list in the order of arrival, also for re-indexed agents
+			int pos = Collections.binarySearch(list, waiting, ARRIVAL_ORDER);
+			list.add(-pos - 1, waiting);
+		}
+
+		private void unindex(WaitingAgent waiting) {
+			List<WaitingAgent> list = waiting.destinationStopId == null ? this.otherAgents
+					: this.agentsByDestination.get(waiting.destinationStopId);
+			list.remove(Collections.binarySearch(list, waiting, ARRIVAL_ORDER));
+			if (list.isEmpty() && waiting.destinationStopId != null) {
+				this.agentsByDestination.remove(waiting.destinationStopId);
+			}
+		}
+
+		synchronized void getAgents(List<TransitRouteStop> stopsToCome, List<PTPassengerAgent> result) {
+			this.candidates.addAll(this.otherAgents);
+			for (TransitRouteStop stop : stopsToCome) {
+				Id<TransitStopFacility> destinationStopId = stop.getStopFacility().getId();
+				if (this.destinationStopIds.add(destinationStopId)) {
+					List<WaitingAgent> agentsToDestination = this.agentsByDestination.get(destinationStopId);
+					if (agentsToDestination != null) {
+						this.candidates.addAll(agentsToDestination);
+					}
+				}
+			}
+			this.candidates.sort(ARRIVAL_ORDER);
+			for (WaitingAgent waiting : this.candidates) {
+				// an agent whose destination was changed without updateAgentAtStop() is not returned for its old destination
+				if (waiting.destinationStopId != null && !waiting.destinationStopId.equals(waiting.agent.getDesiredDestinationStopId())) {
+					this.moved.add(waiting);
+					if (!this.destinationStopIds.contains(waiting.agent.getDesiredDestinationStopId())) {
+						continue;
+					}
+				}
+				result.add(waiting.agent);
+			}
+			for (WaitingAgent waiting : this.moved) {
+				unindex(waiting);
+				index(waiting, getIndexedDestinationStopId(waiting.agent));
+			}
+			this.destinationStopIds.clear();
+			this.candidates.clear();
+			this.moved.clear();
+		}
+	}
 }
@@ -131,6 +131,10 @@ abstract class AbstractQLink implements QLinkI {
 		return toQNode ;
 	}
 
+	/* package */ final EventsManager getEventsManager() {
+		return context.getEventsManager() ;
+	}
+
 	/** 
 	 * Links are active while (see checkForActivity()): () vehicles move on it; () vehicles wait to enter; () vehicles wait at the transit stop.
 	 * Once all of those have left the link, the link is no longer active.  It then needs to be activated from the outside, which is done by
@@ -20,27 +20,36 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.inject.Inject;
+
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
 import org.matsim.api.core.v01.events.PersonLeavesVehicleEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
 import org.matsim.api.core.v01.population.Person;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.QSimConfigGroup.LinkDynamics;
+import org.matsim.core.config.groups.QSimConfigGroup.NodePartitioning;
 import org.matsim.core.config.groups.QSimConfigGroup.SnapshotStyle;
 import org.matsim.core.config.groups.QSimConfigGroup.VehicleBehavior;
+import org.matsim.core.events.BufferingEventsManager;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.mobsim.framework.MobsimAgent;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.qsim.HasNextWorkTime;
 import org.matsim.core.mobsim.qsim.InternalInterface;
 import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
@@ -59,7 +68,7 @@ import org.matsim.vis.snapshotwriters.SnapshotLinkWidthCalculator;
  * @author dgrether
  * @author dstrippgen
  */
-abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI {
+abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> implements QNetsimEngineI, HasNextWorkTime {
 
 	private NetsimInternalInterface ii = new NetsimInternalInterface(){
 		@Override public QNetwork getNetsimNetwork() {
@@ -86,6 +95,11 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 //	private final Set<QLinkI> linksToActivateInitially = new HashSet<>();
 	protected final int numOfThreads;
 	protected final QNetwork network;
+	private final NodePartitioning nodePartitioning;
+	private QNodeLoadHistory nodeLoadHistory = null;
+	private boolean countingNodeMoves = false;
+	/** the events manager to pass the buffered events of the runners on to, null if the events are not buffered */
+	private EventsManager bufferedEventsTarget = null;
 
 	private double infoTime = 0;
 	private List<A> engines;
@@ -130,6 +144,15 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		network.initialize(this, sim.getAgentCounter(), sim.getSimTimer() );
 
 		this.numOfThreads = sim.getScenario().getConfig().qsim().getNumberOfThreads();
+		this.nodePartitioning = qSimConfigGroup.getNodePartitioning();
+		if (this.numOfThreads > 1 && qSimConfigGroup.isUsingDeterministicNetsimEvents()) {
+			checkNetsimEventsManager(sim.getEventsManager());
+		}
+	}
+
+	@Inject
+	final void setNodeLoadHistory(QNodeLoadHistory nodeLoadHistory) {
+		this.nodeLoadHistory = nodeLoadHistory;
 	}
 	
 	static AbstractAgentSnapshotInfoBuilder createAgentSnapshotInfoBuilder(Scenario scenario, SnapshotLinkWidthCalculator linkWidthCalculator) {
@@ -164,9 +187,38 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		this.engines = initQSimEngineRunners();
 		assignNetElementActivators();
+		if (this.numOfThreads > 1 && this.qsim.getScenario().getConfig().qsim().isUsingDeterministicNetsimEvents()) {
+			// (the qsim then hands out a buffering events manager, see there)
+			BufferingEventsManager events = (BufferingEventsManager) this.qsim.getEventsManager();
+			for (AbstractQNetsimEngineRunner engine : this.engines) {
+				engine.setBufferingEventsManager(events);
+			}
+			this.bufferedEventsTarget = events;
+		}
 		initMultiThreading();
 	}
 	
+	/**
+	 * Fails if a link or node throws its events through another events manager than the buffering one of the QSim, as
+	 * these events would bypass the buffers of the runners and end up in a random order.
+	 */
+	private void checkNetsimEventsManager(final EventsManager events) {
+		for (QLinkI link : this.network.getNetsimLinks().values()) {
+			if (link instanceof AbstractQLink && ((AbstractQLink) link).getEventsManager() != events) {
+				throw new IllegalStateException("Link " + link.getLink().getId() + " does not use the events manager of the QSim. With "
+						+ "deterministic netsim events, the " + QNetworkFactory.class.getSimpleName() + " must be created with "
+						+ "qsim.getEventsManager(), i.e. inject the QSim instead of the EventsManager.");
+			}
+		}
+		for (QNodeI node : this.network.getNetsimNodes().values()) {
+			if (node instanceof QNodeImpl && ((QNodeImpl) node).getEventsManager() != events) {
+				throw new IllegalStateException("Node " + node.getNode().getId() + " does not use the events manager of the QSim. With "
+						+ "deterministic netsim events, the " + QNetworkFactory.class.getSimpleName() + " must be created with "
+						+ "qsim.getEventsManager(), i.e. inject the QSim instead of the EventsManager.");
+			}
+		}
+	}
+
 	/** 
 	 * do everything necessary to start the threads for {@link AbstractQNetsimEngineRunner}
 	 */
@@ -186,6 +238,14 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 
 		finishMultiThreading();
 
+		if (this.countingNodeMoves && this.nodeLoadHistory != null) {
+			int[] nodeMoves = new int[Id.getNumberOfIds(Node.class)];
+			for (AbstractQNetsimEngineRunner engine : this.engines) {
+				engine.addNodeMoves(nodeMoves);
+			}
+			this.nodeLoadHistory.setNodeMoves(nodeMoves);
+		}
+
 		/* Reset vehicles on ALL links. We cannot iterate only over the active links
 		 * (this.simLinksArray), because there may be links that have vehicles only
 		 * in the buffer (such links are *not* active, as the buffer gets emptied
@@ -223,11 +283,46 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 	@Override
 	public final void doSimStep(final double time) {
 		run(time);
+		if (this.bufferedEventsTarget != null) {
+			passOnBufferedEvents();
+		}
 		
 		this.printSimLog(time);
 	}
 
 	
+	/**
+	 * Passes on the events of all runners in a fixed order: first the events thrown while moving the nodes, then the ones
+	 * thrown while moving the links, each of them in the order of the runners.  Called from the main thread, which is not
+	 * buffering, so that the events go directly to the delegate.
+	 */
+	private void passOnBufferedEvents() {
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			for (Event event : engine.getNodeEvents()) {
+				this.bufferedEventsTarget.processEvent(event);
+			}
+			engine.getNodeEvents().clear();
+		}
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			for (Event event : engine.getLinkEvents()) {
+				this.bufferedEventsTarget.processEvent(event);
+			}
+			engine.getLinkEvents().clear();
+		}
+	}
+
+	@Override
+	public final double getNextWorkTime(final double now) {
+		double nextWorkTime = Double.POSITIVE_INFINITY;
+		for (AbstractQNetsimEngineRunner engine : this.engines) {
+			nextWorkTime = Math.min(nextWorkTime, engine.getNextWorkTime(now));
+			if (nextWorkTime <= now) {
+				return now;
+			}
+		}
+		return nextWorkTime;
+	}
+
 	@Override
 	public final void setInternalInterface( InternalInterface internalInterface) {
 		this.internalInterface = internalInterface;
@@ -389,9 +484,30 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 		int nodes[] = new int[this.engines.size()];
 		int links[] = new int[this.engines.size()];
 
-		int roundRobin = 0;
-		for (QNodeI node : network.getNetsimNodes().values()) {
-			int i = roundRobin % this.engines.size();
+		List<QNodeI> qNodes = new ArrayList<>(network.getNetsimNodes().values());
+		int[] parts = partitionNodes(qNodes);
+		if (this.countingNodeMoves) {
+			initNodeMoveCounters(qNodes, parts);
+		}
+
+		if (this.numOfThreads > 1 && this.qsim.getScenario().getConfig().qsim().isUsingDeterministicNetsimEvents()) {
+			// (nodes are moved in the order of their ids then, which is fixed here once)
+			List<List<QNodeI>> nodesPerEngine = new ArrayList<>();
+			for (int i = 0; i < this.engines.size(); i++) {
+				nodesPerEngine.add(new ArrayList<>());
+			}
+			for (int n = 0; n < qNodes.size(); n++) {
+				nodesPerEngine.get(parts[n]).add(qNodes.get(n));
+			}
+			for (int i = 0; i < this.engines.size(); i++) {
+				nodesPerEngine.get(i).sort(Comparator.comparingInt(node -> node.getNode().getId().index()));
+				this.engines.get(i).setNodeOrder(nodesPerEngine.get(i));
+			}
+		}
+
+		for (int n = 0; n < qNodes.size(); n++) {
+			QNodeI node = qNodes.get(n);
+			int i = parts[n];
 			if( node instanceof AbstractQNode){
 				((AbstractQNode) node).setNetElementActivationRegistry(this.engines.get(i));
 			}
@@ -418,8 +534,6 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 				links[i]++;
 
 			}
-
-			roundRobin++;
 		}
 
 		// print some statistics
@@ -430,6 +544,71 @@ abstract class AbstractQNetsimEngine<A extends AbstractQNetsimEngineRunner> impl
 //		this.linksToActivateInitially.clear();
 	}
 
+	/**
+	 * Gives every runner its own counters for the moves of its nodes, merged after the simulation.
+	 */
+	private void initNodeMoveCounters(List<QNodeI> qNodes, int[] parts) {
+		int[] positions = new int[Id.getNumberOfIds(Node.class)];
+		int[][] idIndices = new int[this.engines.size()][];
+		int[] counts = new int[this.engines.size()];
+		for (int part : parts) {
+			counts[part]++;
+		}
+		for (int i = 0; i < idIndices.length; i++) {
+			idIndices[i] = new int[counts[i]];
+			counts[i] = 0;
+		}
+		for (int n = 0; n < qNodes.size(); n++) {
+			int index = qNodes.get(n).getNode().getId().index();
+			int position = counts[parts[n]]++;
+			positions[index] = position;
+			idIndices[parts[n]][position] = index;
+		}
+		for (int i = 0; i < idIndices.length; i++) {
+			this.engines.get(i).setNodeMoveCounter(positions, idIndices[i]);
+		}
+	}
+
+	/**
+	 * @return for each node the index of the runner it is assigned to
+	 */
+	private int[] partitionNodes(List<QNodeI> qNodes) {
+		int[] parts = new int[qNodes.size()];
+		if (this.nodePartitioning == NodePartitioning.roundRobin || this.engines.size() == 1) {
+			for (int n = 0; n < parts.length; n++) {
+				parts[n] = n % this.engines.size();
+			}
+			return parts;
+		}
+
+		/*
+		 * Moving a node loops over its in-links, so this is a good guess for its work in the absence of measurements.
+		 * Measured moves are only available if the previous mobsim run used the same partitioning option.
+		 */
+		int[] previousMoves = null;
+		if (this.nodePartitioning == NodePartitioning.spaceFillingCurveWithRebalancing) {
+			this.countingNodeMoves = true;
+			if (this.nodeLoadHistory != null) {
+				previousMoves = this.nodeLoadHistory.getNodeMoves();
+			}
+		}
+		double[] weights = new double[qNodes.size()];
+		for (int n = 0; n < weights.length; n++) {
+			Node node = qNodes.get(n).getNode();
+			int index = node.getId().index();
+			if (previousMoves != null) {
+				// nodes that were never moved still cost a little bit when they are registered as active
+				weights[n] = 1 + (index < previousMoves.length ? previousMoves[index] : 0);
+			} else {
+				weights[n] = 1 + node.getInLinks().size();
+			}
+		}
+		if (previousMoves != null) {
+			log.info("Partitioning the network nodes by the node moves of the previous mobsim run.");
+		}
+		return QNodePartitioner.partition(qNodes, weights, this.engines.size());
+	}
+
 	private final void arrangeNextAgentState(MobsimAgent pp) {
 		internalInterface.arrangeNextAgentState(pp);
 	}
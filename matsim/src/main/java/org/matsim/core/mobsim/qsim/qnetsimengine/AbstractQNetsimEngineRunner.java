@@ -20,13 +20,19 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.core.events.BufferingEventsManager;
 import org.matsim.core.mobsim.qsim.QSim;
 
 /**
@@ -70,6 +76,33 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	private boolean lockNodes = false;
 	private boolean lockLinks = false;
 
+	/*
+	 * Counts how often each node of this runner was moved, for the rebalancing of the node partitioning. The counters
+	 * belong to this runner only, so that the runners do not write to the same cache lines; they are indexed by the
+	 * position of the node within its runner, which the read-only nodeMovePositions holds per node id index.
+	 */
+	private int[] nodeMoves = null;
+	private int[] nodeMovePositions = null;
+	private int[] nodeMoveIdIndices = null; // the node id index per position
+
+	/*
+	 * If the events are to be independent of the thread scheduling, the events thrown while moving the nodes and
+	 * while moving the links are collected here, and passed on by the engine in the order of the runners.
+	 */
+	private BufferingEventsManager bufferingEvents = null;
+	private final List<Event> nodeEvents = new ArrayList<>();
+	private final List<Event> linkEvents = new ArrayList<>();
+
+	/*
+	 * As nodes are activated concurrently by the links of other runners, the order of the nodesQueue depends on the
+	 * thread scheduling.  If the events are to be independent of it, the nodes of this runner are given a fixed order
+	 * once, and the active nodes are kept as bits at their position in this order instead.
+	 */
+	private QNodeI[] orderedNodes = null;
+	private int[] orderedNodePositions = null; // indexed by the node id index
+	private AtomicLongArray activeOrderedNodes = null;
+	private final AtomicInteger numberOfActiveOrderedNodes = new AtomicInteger();
+
 	/*package*/ long[] runTimes;
 	private long startTime = 0;
 	{	
@@ -81,22 +114,124 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 		time = t;
 	}
 
+	protected final double getTime() {
+		return time;
+	}
+
+	/**
+	 * @param positions the position of every node within its runner, indexed by the node id index, shared by all runners
+	 * @param idIndices the node id index of every node of this runner, by position
+	 */
+	/*package*/ final void setNodeMoveCounter(final int[] positions, final int[] idIndices) {
+		this.nodeMovePositions = positions;
+		this.nodeMoveIdIndices = idIndices;
+		this.nodeMoves = new int[idIndices.length];
+	}
+
+	/**
+	 * Adds the moves of the nodes of this runner to <code>nodeMoves</code>, indexed by the node id index.
+	 */
+	/*package*/ final void addNodeMoves(final int[] nodeMoves) {
+		for (int position = 0; position < this.nodeMoves.length; position++) {
+			nodeMoves[this.nodeMoveIdIndices[position]] += this.nodeMoves[position];
+		}
+	}
+
 	public abstract void afterSim() ;
 
+	/*package*/ final void setBufferingEventsManager(final BufferingEventsManager bufferingEvents) {
+		this.bufferingEvents = bufferingEvents;
+	}
+
+	/**
+	 * Has to be called before any of the nodes can be activated.  From then on, the active nodes are moved in the given
+	 * order.
+	 */
+	/*package*/ final void setNodeOrder(final List<QNodeI> nodes) {
+		this.orderedNodes = nodes.toArray(new QNodeI[0]);
+		int maxIndex = -1;
+		for (QNodeI node : nodes) {
+			maxIndex = Math.max(maxIndex, node.getNode().getId().index());
+		}
+		this.orderedNodePositions = new int[maxIndex + 1];
+		Arrays.fill(this.orderedNodePositions, -1);
+		for (int position = 0; position < this.orderedNodes.length; position++) {
+			this.orderedNodePositions[this.orderedNodes[position].getNode().getId().index()] = position;
+		}
+		this.activeOrderedNodes = new AtomicLongArray((this.orderedNodes.length + 63) / 64);
+	}
+
+	/*package*/ final List<Event> getNodeEvents() {
+		return this.nodeEvents;
+	}
+
+	/*package*/ final List<Event> getLinkEvents() {
+		return this.linkEvents;
+	}
+
+	/**
+	 * Has to be called by the thread moving the nodes, before doing so.
+	 */
+	protected final void startBufferingNodeEvents() {
+		if (this.bufferingEvents != null) this.bufferingEvents.startBuffering(this.nodeEvents);
+	}
+
+	/**
+	 * Has to be called by the thread moving the links, before doing so.
+	 */
+	protected final void startBufferingLinkEvents() {
+		if (this.bufferingEvents != null) this.bufferingEvents.startBuffering(this.linkEvents);
+	}
+
+	protected final void stopBufferingEvents() {
+		if (this.bufferingEvents != null) this.bufferingEvents.stopBuffering();
+	}
+
 	protected void moveNodes() {
 		boolean remainsActive;
 		this.lockNodes = true;
+		if (this.orderedNodes != null) {
+			moveOrderedNodes();
+			this.lockNodes = false;
+			return;
+		}
 		QNodeI node;
 		Iterator<QNodeI> simNodes = this.nodesQueue.iterator();
 		while (simNodes.hasNext()) {
 			node = simNodes.next();
+			if (this.nodeMoves != null) this.nodeMoves[this.nodeMovePositions[node.getNode().getId().index()]]++;
 			remainsActive = node.doSimStep(time);
 			if (!remainsActive) simNodes.remove();
 		}
 		this.lockNodes = false;
 	}
+
+	private void moveOrderedNodes() {
+		// (no node can be activated while the nodes are moved, so the bits only change here)
+		for (int word = 0; word < this.activeOrderedNodes.length(); word++) {
+			long bits = this.activeOrderedNodes.get(word);
+			long remainingBits = bits;
+			while (bits != 0) {
+				long lowestBit = Long.lowestOneBit(bits);
+				bits ^= lowestBit;
+				QNodeI node = this.orderedNodes[64 * word + Long.numberOfTrailingZeros(lowestBit)];
+				if (this.nodeMoves != null) this.nodeMoves[this.nodeMovePositions[node.getNode().getId().index()]]++;
+				if (!node.doSimStep(time)) {
+					remainingBits ^= lowestBit;
+					this.numberOfActiveOrderedNodes.decrementAndGet();
+				}
+			}
+			this.activeOrderedNodes.set(word, remainingBits);
+		}
+	}
 	
-	protected final void moveLinks() {
+	/**
+	 * Runners may keep the active links in their own data structure, as the {@link EventDrivenQNetsimEngineRunner} does.
+	 * They then have to override this method, {@link #registerLinkAsActive(QLinkI)}, {@link #getNumberOfSimulatedLinks()}
+	 * and {@link #getNextWorkTime(double)} together, and must move every link registered here in the order of its
+	 * activation until its <code>doSimStep()</code> returns false, so that the events stay the same.
+	 */
+	protected void moveLinks() {
 		boolean remainsActive;
 		lockLinks = true;
 		QLinkI link;
@@ -117,13 +252,13 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 * cdobler, sep'14
 	 */
 	@Override
-	protected final void registerLinkAsActive(QLinkI link) {
+	protected void registerLinkAsActive(QLinkI link) {
 		if (!lockLinks) linksList.add(link);
 		else throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
 	}
 
 	@Override
-	public final int getNumberOfSimulatedLinks() {
+	public int getNumberOfSimulatedLinks() {
 		return this.linksList.size();
 	}
 
@@ -134,8 +269,17 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 */
 	@Override
 	protected final void registerNodeAsActive(QNodeI node) {
-		if (!this.lockNodes) this.nodesQueue.add(node);
-		else throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
+		if (this.lockNodes) {
+			throw new RuntimeException("Tried to activate a QNode at a time where this was not allowed. Aborting!");
+		} else if (this.orderedNodes == null) {
+			this.nodesQueue.add(node);
+		} else {
+			int position = this.orderedNodePositions[node.getNode().getId().index()];
+			long bit = 1L << (position % 64);
+			if ((this.activeOrderedNodes.getAndAccumulate(position / 64, bit, (bits, b) -> bits | b) & bit) == 0) {
+				this.numberOfActiveOrderedNodes.incrementAndGet();
+			}
+		}
 	}
 
 	/*
@@ -146,7 +290,19 @@ abstract class AbstractQNetsimEngineRunner extends NetElementActivationRegistry
 	 */
 	@Override
 	public final int getNumberOfSimulatedNodes() {
-		return this.nodesQueue.size();
+		return this.nodesQueue.size() + this.numberOfActiveOrderedNodes.get();
+	}
+
+	protected final boolean hasActiveNodes() {
+		return !this.nodesQueue.isEmpty() || this.numberOfActiveOrderedNodes.get() > 0;
+	}
+
+	/**
+	 * Vehicles on the network, including vehicles waiting to enter a link, always keep their link or node active,
+	 * so the runner is idle exactly when it has no active link or node.
+	 */
+	/*package*/ double getNextWorkTime(final double now) {
+		return hasActiveNodes() || !this.linksList.isEmpty() ? now : Double.POSITIVE_INFINITY;
 	}
 
 	protected final void startMeasure() {
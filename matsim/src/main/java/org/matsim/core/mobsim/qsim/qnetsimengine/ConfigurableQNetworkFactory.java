@@ -55,6 +55,11 @@ public final class ConfigurableQNetworkFactory implements QNetworkFactory {
 	private Optional<FlowEfficiencyCalculator> flowEfficiencyCalculator = Optional.empty();
 	private Optional<VehicleQ.Factory<QVehicle>> vehicleQFactory = Optional.empty();
 
+	/**
+	 * With {@link QSimConfigGroup#isUsingDeterministicNetsimEvents()}, <code>events</code> has to be the events manager of the
+	 * QSim, as only the events thrown through it are buffered by the runners.  Otherwise, the netsim engine fails when the
+	 * simulation is prepared.
+	 */
 	public ConfigurableQNetworkFactory(EventsManager events, Scenario scenario) {
 		this.events = events;
 		this.scenario = scenario;
@@ -28,6 +28,7 @@ import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.pt.TransitStopAgentTracker;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineI.NetsimInternalInterface;
@@ -67,6 +68,10 @@ public final class DefaultQNetworkFactory implements QNetworkFactory {
 	private NetsimEngineContext context;
 	private NetsimInternalInterface netsimEngine ;
 	@Inject
+	DefaultQNetworkFactory( QSim qsim, Scenario scenario ) {
+		// (the events manager of the qsim, so that the runners can buffer the events of the links and nodes)
+		this( qsim.getEventsManager(), scenario );
+	}
 	DefaultQNetworkFactory( EventsManager events, Scenario scenario ) {
 		this.events = events;
 		this.scenario = scenario;
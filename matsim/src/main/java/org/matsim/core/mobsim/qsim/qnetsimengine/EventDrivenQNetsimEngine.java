@@ -0,0 +1,134 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.inject.Inject;
+
+import org.matsim.core.config.groups.QSimConfigGroup;
+import org.matsim.core.mobsim.qsim.QSim;
+
+/**
+ * Coordinates the movement of vehicles on the links and the nodes, like the {@link QNetsimEngineWithThreadpool}, but
+ * does not move links in time steps in which nothing can happen on them.
+ * <p></p>
+ * Links only need to be moved when one of their vehicles may leave the link or enter it from the waiting list, or when a
+ * hole arrives at the upstream end.  The {@link EventDrivenQNetsimEngineRunner}s therefore keep the links in a wake-up
+ * queue between these times, and only the active nodes and the due links are moved in a time step.  Since the network
+ * elements themselves are the same as in the other engines, everything that works with them (transit, signals, lanes,
+ * link speed calculators, vehicle handlers, flow efficiency calculators) also works with this engine, and the events are
+ * the same.  Links which cannot tell when they have to be moved next are moved in every time step.
+ * <p></p>
+ * Together with {@link QSimConfigGroup#setSkippingIdleTimeSteps(boolean)}, time steps in which no link is due are skipped
+ * altogether.
+ *
+ * @see QSimConfigGroup#setUsingEventDrivenNetsimEngine(boolean)
+ */
+final class EventDrivenQNetsimEngine extends AbstractQNetsimEngine<EventDrivenQNetsimEngineRunner> {
+
+	private final double timeStepSize;
+	private ExecutorService pool;
+
+	public EventDrivenQNetsimEngine(final QSim sim) {
+		this(sim, null);
+	}
+
+	@Inject
+	public EventDrivenQNetsimEngine(final QSim sim, QNetworkFactory netsimNetworkFactory) {
+		super(sim, netsimNetworkFactory);
+		this.timeStepSize = sim.getScenario().getConfig().qsim().getTimeStepSize();
+	}
+
+	@Override
+	public void finishMultiThreading() {
+		if (this.pool != null) {
+			this.pool.shutdown();
+		}
+	}
+
+	@Override
+	protected void run(double time) {
+		List<EventDrivenQNetsimEngineRunner> runners = this.getQnetsimEngineRunner();
+		for (EventDrivenQNetsimEngineRunner runner : runners) {
+			runner.setTime(time);
+		}
+
+		if (this.pool == null) {
+			EventDrivenQNetsimEngineRunner runner = runners.get(0);
+			runner.setMovingNodes(true);
+			runner.call();
+			runner.setMovingNodes(false);
+			runner.call();
+			return;
+		}
+
+		try {
+			for (EventDrivenQNetsimEngineRunner runner : runners) {
+				runner.setMovingNodes(true);
+			}
+			for (Future<Boolean> future : pool.invokeAll(runners)) {
+				future.get();
+			}
+			for (EventDrivenQNetsimEngineRunner runner : runners) {
+				runner.setMovingNodes(false);
+			}
+			for (Future<Boolean> future : pool.invokeAll(runners)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e) ;
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private static class NamedThreadFactory implements ThreadFactory {
+		private int count = 0;
+
+		@Override
+		public Thread newThread(Runnable r) {
+			return new Thread( r , "EventDrivenQNetsimEngine_PooledThread_" + count++);
+		}
+	}
+
+	@Override
+	protected List<EventDrivenQNetsimEngineRunner> initQSimEngineRunners() {
+		List<EventDrivenQNetsimEngineRunner> runners = new ArrayList<>();
+		for (int i = 0; i < this.numOfThreads; i++) {
+			runners.add(new EventDrivenQNetsimEngineRunner(this.timeStepSize));
+		}
+		return runners;
+	}
+
+	@Override
+	protected void initMultiThreading() {
+		if (this.numOfThreads > 1) {
+			this.pool = Executors.newFixedThreadPool(this.numOfThreads, new NamedThreadFactory());
+		}
+	}
+}
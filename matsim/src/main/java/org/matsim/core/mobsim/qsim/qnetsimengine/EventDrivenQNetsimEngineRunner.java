@@ -0,0 +1,223 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+
+import org.matsim.core.gbl.Gbl;
+import org.matsim.core.mobsim.qsim.HasNextWorkTime;
+
+/**
+ * The runner of the {@link EventDrivenQNetsimEngine}.  Nodes are moved as in the other runners, but links which cannot do
+ * anything in the next time step are put to sleep until the time they tell by {@link HasNextWorkTime}, and are woken up
+ * earlier if they get activated in the meantime.
+ * <p></p>
+ * A sleeping link is marked as inactive, so that it calls {@link #registerLinkAsActive(QLinkI)} as soon as a vehicle is
+ * added to it.  Apart from that, sleeping links are still considered active, and all links are moved in the order in which
+ * they have been activated, exactly as in the {@link QNetsimEngineRunnerForThreadpool}.
+ */
+final class EventDrivenQNetsimEngineRunner extends AbstractQNetsimEngineRunner implements Callable<Boolean> {
+
+	private static final Comparator<LinkState> ACTIVATION_ORDER = Comparator.comparingLong(state -> state.sequenceNumber);
+
+	private static final class LinkState {
+		private final QLinkI link;
+		private long sequenceNumber;
+		private WakeUp wakeUp = null; // non-null while the link is sleeping
+
+		private LinkState(QLinkI link) {
+			this.link = link;
+		}
+	}
+
+	private static final class WakeUp {
+		private final double time;
+		private final LinkState state;
+
+		private WakeUp(double time, LinkState state) {
+			this.time = time;
+			this.state = state;
+		}
+	}
+
+	private final double timeStepSize;
+
+	private volatile boolean simulationRunning = true;
+	private boolean movingNodes;
+
+	private LinkState[] linkStates = new LinkState[0];
+	private long nextSequenceNumber = 0;
+	private int numberOfActiveLinks = 0;
+
+	/** the links to move in the next time step, in activation order except for the links woken up in between */
+	private List<LinkState> busyLinks = new ArrayList<>();
+	private List<LinkState> nextBusyLinks = new ArrayList<>();
+	/** sleeping links, by wake-up time. Entries of links that were woken up earlier are skipped. */
+	private final PriorityQueue<WakeUp> wakeUps = new PriorityQueue<>(Comparator.comparingDouble(wakeUp -> wakeUp.time));
+	/** links woken up while moving the links, which need to be moved in the same time step */
+	private final PriorityQueue<LinkState> lateLinks = new PriorityQueue<>(ACTIVATION_ORDER);
+
+	private boolean movingLinks = false;
+	private long currentSequenceNumber;
+
+	EventDrivenQNetsimEngineRunner(double timeStepSize) {
+		this.timeStepSize = timeStepSize;
+	}
+
+	@Override
+	public Boolean call() {
+		if (!this.simulationRunning) {
+			Gbl.printCurrentThreadCpuTime();
+			return false;
+		}
+
+		if (this.movingNodes) {
+			startBufferingNodeEvents();
+			moveNodes();
+		} else {
+			startBufferingLinkEvents();
+			moveLinks();
+		}
+		stopBufferingEvents();
+		return true ;
+	}
+
+	public void afterSim() {
+		this.simulationRunning = false;
+	}
+
+	void setMovingNodes(boolean movingNodes) {
+		this.movingNodes = movingNodes;
+	}
+
+	@Override
+	protected final void moveLinks() {
+		final double time = getTime();
+
+		while (!this.wakeUps.isEmpty() && this.wakeUps.peek().time <= time) {
+			WakeUp wakeUp = this.wakeUps.poll();
+			if (wakeUp.state.wakeUp == wakeUp) {
+				wakeUp(wakeUp.state);
+				this.busyLinks.add(wakeUp.state);
+			}
+		}
+		this.busyLinks.sort(ACTIVATION_ORDER); // mostly sorted already
+
+		this.movingLinks = true;
+		int index = 0;
+		while (index < this.busyLinks.size() || !this.lateLinks.isEmpty()) {
+			LinkState state;
+			if (this.lateLinks.isEmpty() || (index < this.busyLinks.size()
+					&& this.busyLinks.get(index).sequenceNumber < this.lateLinks.peek().sequenceNumber)) {
+				state = this.busyLinks.get(index++);
+			} else {
+				state = this.lateLinks.poll();
+			}
+			this.currentSequenceNumber = state.sequenceNumber;
+
+			if (!state.link.doSimStep()) {
+				this.numberOfActiveLinks--;
+				continue;
+			}
+
+			double nextWorkTime = state.link instanceof HasNextWorkTime ? ((HasNextWorkTime) state.link).getNextWorkTime(time) : time;
+			if (nextWorkTime <= time + this.timeStepSize) {
+				this.nextBusyLinks.add(state);
+			} else {
+				state.wakeUp = new WakeUp(nextWorkTime, state);
+				this.wakeUps.add(state.wakeUp);
+				((AbstractQLink) state.link).setActive(false);
+				// (so that the link registers itself as soon as something is added to it)
+			}
+		}
+		this.movingLinks = false;
+
+		List<LinkState> tmp = this.busyLinks;
+		this.busyLinks = this.nextBusyLinks;
+		this.nextBusyLinks = tmp;
+		this.nextBusyLinks.clear();
+	}
+
+	private void wakeUp(LinkState state) {
+		state.wakeUp = null;
+		((AbstractQLink) state.link).setActive(true);
+	}
+
+	@Override
+	protected final void registerLinkAsActive(QLinkI link) {
+		LinkState state = getLinkState(link);
+		if (state.wakeUp != null) {
+			// a sleeping link; it keeps its position in the activation order
+			wakeUp(state);
+			if (this.movingLinks && state.sequenceNumber > this.currentSequenceNumber) {
+				this.lateLinks.add(state);
+			} else if (this.movingLinks) {
+				this.nextBusyLinks.add(state);
+			} else {
+				this.busyLinks.add(state);
+			}
+		} else if (!this.movingLinks) {
+			state.sequenceNumber = this.nextSequenceNumber++;
+			this.numberOfActiveLinks++;
+			this.busyLinks.add(state);
+		} else {
+			throw new RuntimeException("Tried to activate a QLink at a time where this was not allowed. Aborting!");
+		}
+	}
+
+	private LinkState getLinkState(QLinkI link) {
+		int index = link.getLink().getId().index();
+		if (index >= this.linkStates.length) {
+			this.linkStates = Arrays.copyOf(this.linkStates, Math.max(index + 1, 2 * this.linkStates.length));
+		}
+		LinkState state = this.linkStates[index];
+		if (state == null) {
+			state = new LinkState(link);
+			this.linkStates[index] = state;
+		}
+		return state;
+	}
+
+	@Override
+	public final int getNumberOfSimulatedLinks() {
+		return this.numberOfActiveLinks;
+	}
+
+	/**
+	 * Sleeping links only need to be moved again at their wake-up time.
+	 */
+	@Override
+	final double getNextWorkTime(final double now) {
+		if (hasActiveNodes() || !this.busyLinks.isEmpty()) {
+			return now;
+		}
+		while (!this.wakeUps.isEmpty() && this.wakeUps.peek().state.wakeUp != this.wakeUps.peek()) {
+			this.wakeUps.poll();
+		}
+		return this.wakeUps.isEmpty() ? Double.POSITIVE_INFINITY : this.wakeUps.peek().time;
+	}
+
+}
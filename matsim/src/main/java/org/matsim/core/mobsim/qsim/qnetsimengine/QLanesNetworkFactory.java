@@ -32,6 +32,7 @@ import org.matsim.api.core.v01.network.Node;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.mobsim.framework.MobsimTimer;
+import org.matsim.core.mobsim.qsim.QSim;
 import org.matsim.core.mobsim.qsim.interfaces.AgentCounter;
 import org.matsim.core.mobsim.qsim.qnetsimengine.QNetsimEngineI.NetsimInternalInterface;
 import org.matsim.lanes.Lanes;
@@ -59,7 +60,12 @@ public final class QLanesNetworkFactory implements QNetworkFactory {
 
 	private NetsimInternalInterface netsimEngine;
 	
-	@Inject 
+	@Inject
+	QLanesNetworkFactory( QSim qsim, Scenario scenario ) {
+		// (the events manager of the qsim, so that the runners can buffer the events of the links and nodes)
+		this( qsim.getEventsManager(), scenario );
+	}
+
 	public QLanesNetworkFactory( EventsManager events, Scenario scenario ) {
 		this.qsimConfig = scenario.getConfig().qsim();
 		this.events = events ;
@@ -28,6 +28,7 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.VehicleEntersTrafficEvent;
 import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.mobsim.qsim.HasNextWorkTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
 import org.matsim.core.mobsim.qsim.interfaces.SignalizeableItem;
@@ -52,7 +53,7 @@ import org.matsim.vis.snapshotwriters.VisData;
  * @author dgrether
  * @author mrieser
  */
-public final class QLinkImpl extends AbstractQLink implements SignalizeableItem {
+public final class QLinkImpl extends AbstractQLink implements SignalizeableItem, HasNextWorkTime {
 	@SuppressWarnings("unused")
 	private final static Logger log = Logger.getLogger(QLinkImpl.class);
 	
@@ -236,6 +237,23 @@ public final class QLinkImpl extends AbstractQLink implements SignalizeableItem
 		return this.visdata;
 	}
 
+	/**
+	 * Vehicles waiting to enter the link are handled in every time step, the lane and the transit stop queue are asked for
+	 * the next time one of their vehicles may move on.
+	 */
+	@Override
+	public double getNextWorkTime(final double now) {
+		if ( !this.getWaitingList().isEmpty() || !(qlane instanceof HasNextWorkTime) ) {
+			return now ;
+		}
+		double nextWorkTime = ((HasNextWorkTime) qlane).getNextWorkTime(now) ;
+		QVehicle veh = this.getTransitQLink().getTransitVehicleStopQueue().peek() ;
+		if ( veh != null ) {
+			nextWorkTime = Math.min( nextWorkTime, veh.getEarliestLinkExitTime() ) ;
+		}
+		return nextWorkTime ;
+	}
+
 	private boolean checkForActivity() {
 		/*
 		 * Leave Link active as long as there are vehicles on the link (ignore
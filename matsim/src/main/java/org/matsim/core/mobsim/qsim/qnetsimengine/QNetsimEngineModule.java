@@ -28,7 +28,9 @@ public class QNetsimEngineModule extends AbstractQSimModule {
 	
 	@Override
 	protected void configureQSim() {
-		if(this.getConfig().qsim().isUsingThreadpool()) {
+		if(this.getConfig().qsim().isUsingEventDrivenNetsimEngine()) {
+			bind(QNetsimEngineI.class).to(EventDrivenQNetsimEngine.class).asEagerSingleton();
+		}else if(this.getConfig().qsim().isUsingThreadpool()) {
 			bind(QNetsimEngineI.class).to(QNetsimEngineWithThreadpool.class).asEagerSingleton();
 		}else {
 			bind(QNetsimEngineI.class).to(QNetsimEngineWithBarriers.class).asEagerSingleton();
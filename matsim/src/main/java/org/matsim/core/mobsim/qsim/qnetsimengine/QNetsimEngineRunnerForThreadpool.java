@@ -46,10 +46,13 @@ final class QNetsimEngineRunnerForThreadpool extends AbstractQNetsimEngineRunner
 		}
 
 		if (this.movingNodes) {
+			startBufferingNodeEvents();
 			moveNodes();
 		} else {
+			startBufferingLinkEvents();
 			moveLinks();
 		}
+		stopBufferingEvents();
 		return true ;
 	}
 
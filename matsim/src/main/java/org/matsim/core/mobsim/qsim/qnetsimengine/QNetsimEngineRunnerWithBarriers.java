@@ -64,12 +64,15 @@ class QNetsimEngineRunnerWithBarriers extends AbstractQNetsimEngineRunner implem
 				return;
 			}
 
+			startBufferingNodeEvents();
 			moveNodes();
 
 			// After moving the QNodes all we use a Phaser to synchronize the threads.
 			this.separationBarrier.arriveAndAwaitAdvance();
 
+			startBufferingLinkEvents();
 			moveLinks();
+			stopBufferingEvents();
 
 			super.endMeasure();
 			
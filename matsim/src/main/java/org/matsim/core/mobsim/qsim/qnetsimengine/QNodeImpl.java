@@ -30,6 +30,7 @@ import org.matsim.api.core.v01.events.LinkEnterEvent;
 import org.matsim.api.core.v01.events.LinkLeaveEvent;
 import org.matsim.api.core.v01.network.Link;
 import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.MobsimAgent;
@@ -86,6 +87,10 @@ final class QNodeImpl extends AbstractQNode {
 			this.random = MatsimRandom.getRandom();
 		}
 	}
+
+	/* package */ final EventsManager getEventsManager() {
+		return this.context.getEventsManager();
+	}
 	
 	/**
 	 * Loads the inLinks-array with the corresponding links.
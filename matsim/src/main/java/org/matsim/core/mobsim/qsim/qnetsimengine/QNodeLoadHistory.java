@@ -0,0 +1,48 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import javax.inject.Singleton;
+
+/**
+ * Remembers how often each node was moved in the last mobsim run, so that the next run can balance the node
+ * partitioning of the {@link AbstractQNetsimEngine} by the measured work instead of the static network structure.
+ * <p>
+ * It is bound as a singleton in the {@link org.matsim.core.mobsim.qsim.QSimModule}, i.e. in the controler injector, so
+ * it survives the per-iteration QSim injectors.
+ */
+@Singleton
+public final class QNodeLoadHistory {
+
+	private int[] nodeMoves = null;
+
+	/**
+	 * @return the number of moves per node, indexed by the node id index, or <code>null</code> if nothing was recorded yet
+	 */
+	synchronized int[] getNodeMoves() {
+		return this.nodeMoves;
+	}
+
+	synchronized void setNodeMoves(final int[] nodeMoves) {
+		this.nodeMoves = nodeMoves;
+	}
+
+}
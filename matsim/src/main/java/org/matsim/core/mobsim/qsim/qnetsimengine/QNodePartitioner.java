@@ -0,0 +1,117 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.matsim.api.core.v01.Coord;
+
+/**
+ * Splits the nodes of the network into spatially contiguous parts of about the same weight, one per
+ * {@link AbstractQNetsimEngineRunner}.
+ * <p>
+ * The nodes are ordered along a Hilbert curve over their coordinates, which keeps neighbouring nodes close to each
+ * other in the order, and the order is then cut into pieces of equal total weight. Compared to a round-robin
+ * assignment, most links then connect nodes handled by the same runner, and the work per runner can be balanced by
+ * the weights.
+ */
+final class QNodePartitioner {
+
+	private static final int ORDER = 16;
+	private static final int MAX_CELL = (1 << ORDER) - 1;
+
+	private QNodePartitioner() {
+	}
+
+	/**
+	 * @param nodes the nodes to partition
+	 * @param weights the expected work for each node, in the same order as <code>nodes</code>; all weights must be positive
+	 * @param numberOfParts the number of parts
+	 * @return for each node the part it is assigned to, in the same order as <code>nodes</code>
+	 */
+	static int[] partition(final List<? extends QNodeI> nodes, final double[] weights, final int numberOfParts) {
+		int n = nodes.size();
+		double minX = Double.POSITIVE_INFINITY;
+		double minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		for (QNodeI node : nodes) {
+			Coord coord = node.getNode().getCoord();
+			minX = Math.min(minX, coord.getX());
+			minY = Math.min(minY, coord.getY());
+			maxX = Math.max(maxX, coord.getX());
+			maxY = Math.max(maxY, coord.getY());
+		}
+		double scale = MAX_CELL / Math.max(Math.max(maxX - minX, maxY - minY), 1e-9);
+
+		long[] keys = new long[n];
+		List<Integer> order = new ArrayList<>(n);
+		for (int i = 0; i < n; i++) {
+			Coord coord = nodes.get(i).getNode().getCoord();
+			int x = (int) ((coord.getX() - minX) * scale);
+			int y = (int) ((coord.getY() - minY) * scale);
+			keys[i] = hilbertIndex(Math.min(x, MAX_CELL), Math.min(y, MAX_CELL));
+			order.add(i);
+		}
+		// ties (e.g. nodes at the same coordinate) are broken by the node id to keep the result deterministic
+		order.sort(Comparator.<Integer>comparingLong(i -> keys[i]).thenComparingInt(i -> nodes.get(i).getNode().getId().index()));
+
+		double total = 0;
+		for (double weight : weights) {
+			total += weight;
+		}
+		int[] parts = new int[n];
+		double cumulated = 0;
+		for (int i : order) {
+			// a node belongs to the part its center of weight falls into
+			int part = (int) ((cumulated + weights[i] / 2) * numberOfParts / total);
+			parts[i] = Math.min(part, numberOfParts - 1);
+			cumulated += weights[i];
+		}
+		return parts;
+	}
+
+	/**
+	 * @return the position of the cell (x, y) along a Hilbert curve through a 2^16 x 2^16 grid
+	 */
+	static long hilbertIndex(int x, int y) {
+		long d = 0;
+		for (int s = 1 << (ORDER - 1); s > 0; s >>= 1) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+			// rotate the quadrant
+			if (ry == 0) {
+				if (rx == 1) {
+					x = MAX_CELL - x;
+					y = MAX_CELL - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+}
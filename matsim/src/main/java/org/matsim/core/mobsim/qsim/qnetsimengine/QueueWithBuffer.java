@@ -19,10 +19,10 @@
 
 package org.matsim.core.mobsim.qsim.qnetsimengine;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.Queue;
 
 import org.apache.log4j.Logger;
@@ -39,6 +39,7 @@ import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
 import org.matsim.core.gbl.Gbl;
 import org.matsim.core.gbl.MatsimRandom;
 import org.matsim.core.mobsim.framework.MobsimDriverAgent;
+import org.matsim.core.mobsim.qsim.HasNextWorkTime;
 import org.matsim.core.mobsim.qsim.interfaces.MobsimVehicle;
 import org.matsim.core.mobsim.qsim.interfaces.SignalGroupState;
 import org.matsim.core.mobsim.qsim.interfaces.SignalizeableItem;
@@ -73,7 +74,7 @@ import org.matsim.vis.snapshotwriters.VisVehicle;
  *
  * @author nagel
  */
-final class QueueWithBuffer implements QLaneI, SignalizeableItem {
+final class QueueWithBuffer implements QLaneI, SignalizeableItem, HasNextWorkTime {
 	private static final Logger log = Logger.getLogger( QueueWithBuffer.class ) ;
 
 	static final class Builder implements LaneFactory {
@@ -150,7 +151,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	private double flowCapacityPerTimeStep;
 	private double remainingHolesStorageCapacity = 0.0 ;
 
-	private final Queue<QueueWithBuffer.Hole> holes = new LinkedList<>();
+	private final Queue<QueueWithBuffer.Hole> holes = new ArrayDeque<>();
 
 	/** the last time-step the front-most vehicle in the buffer was moved. Used for detecting dead-locks. */
 	private double bufferLastMovedTime = Double.NEGATIVE_INFINITY ;
@@ -165,7 +166,7 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 	/**
 	 * Holds all vehicles that are ready to cross the outgoing intersection
 	 */
-	private final Queue<QVehicle> buffer = new LinkedList<>() ;
+	private final Queue<QVehicle> buffer = new ArrayDeque<>() ;
 	/**
 	 * null if the link is not signalized
 	 */
@@ -590,6 +591,32 @@ final class QueueWithBuffer implements QLaneI, SignalizeableItem {
 		}
 	}
 
+	/**
+	 * Without fast capacity update, the flow capacity accumulates in every time step, and so does the inflow capacity with
+	 * kinematic waves.  With seepage, any vehicle on the lane might leave next.  With lanes, the buffer needs to be moved
+	 * in every time step.  Otherwise, nothing happens on the lane until the first vehicle may leave it or the first hole
+	 * arrives at the upstream end.
+	 */
+	@Override
+	public final double getNextWorkTime(final double now) {
+		if ( !context.qsimConfig.isUsingFastCapacityUpdate()
+				|| context.qsimConfig.getTrafficDynamics()==TrafficDynamics.kinematicWaves
+				|| context.qsimConfig.getLinkDynamics()==LinkDynamics.SeepageQ
+				|| context.qsimConfig.isUseLanes() ) {
+			return now ;
+		}
+		double nextWorkTime = Double.POSITIVE_INFINITY ;
+		QVehicle veh = this.vehQueue.peek() ;
+		if ( veh != null ) {
+			nextWorkTime = veh.getEarliestLinkExitTime() ;
+		}
+		if ( !this.holes.isEmpty() ) {
+			// holes arrive strictly after their earliest link exit time, see processArrivalOfHoles()
+			nextWorkTime = Math.min( nextWorkTime, Math.nextUp( this.holes.peek().getEarliestLinkExitTime() ) ) ;
+		}
+		return nextWorkTime ;
+	}
+
 	@Override
 	public final void setSignalStateAllTurningMoves( final SignalGroupState state) {
 		qSignalizedItem.setSignalStateAllTurningMoves(state);
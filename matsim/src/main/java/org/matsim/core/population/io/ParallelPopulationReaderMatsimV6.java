@@ -0,0 +1,311 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Route;
+import org.matsim.core.population.routes.GenericRouteImpl;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteFactories;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.utils.objectattributes.AttributeConverter;
+import org.matsim.utils.objectattributes.ObjectAttributesConverter;
+import org.matsim.vehicles.Vehicle;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Parallel implementation of the PopulationReaderMatsimV6. The main thread only tokenizes
+ * the file: it copies the xml data of each person and hands blocks of persons over to
+ * worker threads, which create the persons, their plans, routes and attributes. The main
+ * thread adds the finished persons to the population in the order of the file, so the
+ * result is the same as with the non-parallel reader.
+ * <p></p>
+ * All ids are created by the main thread in the order of the file, so that their
+ * {@link Id#index()} does not depend on the thread scheduling: it creates the ids in the
+ * attributes of persons, activities and routes, and the link ids of network route
+ * descriptions. Other route types with a description are replayed on a throw-away route.
+ * Attributes with custom converters, which may contain further ids, are converted by the
+ * main thread only, and the workers use the converted values. The workers then only
+ * look up existing ids. Population streaming is not supported, in that case the
+ * non-parallel reader has to be used.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6 extends PopulationReaderMatsimV6 {
+
+	private static final Logger log = Logger.getLogger(ParallelPopulationReaderMatsimV6.class);
+
+	private static final int PERSONS_PER_BLOCK = 100;
+
+	private final Scenario scenario;
+	private final int numThreads;
+	private final Map<Class<?>, AttributeConverter<?>> attributeConverters = new HashMap<>();
+	private final ObjectAttributesConverter idConverter = new ObjectAttributesConverter();
+	private final Set<String> customAttributeClasses = new HashSet<>();
+
+	private ExecutorService executor = null;
+	private final Queue<Future<List<Person>>> pendingBlocks = new ArrayDeque<>();
+	private List<Tag> currentBlock = new ArrayList<>();
+	private int personsInCurrentBlock = 0;
+	private int depthInPerson = 0;
+
+	private String legMode = null;
+	private Attributes routeAtts = null;
+	private String attributeClass = null;
+
+	ParallelPopulationReaderMatsimV6(
+			final String inputCRS,
+			final String targetCRS,
+			final Scenario scenario,
+			final int numThreads) {
+		super(inputCRS, targetCRS, scenario);
+		this.scenario = scenario;
+		this.numThreads = numThreads;
+	}
+
+	@Override
+	public void putAttributeConverter(final Class<?> clazz, final AttributeConverter<?> converter) {
+		super.putAttributeConverter(clazz, converter);
+		this.attributeConverters.put(clazz, converter);
+		this.idConverter.putAttributeConverter(clazz, converter);
+		this.customAttributeClasses.add(clazz.getName());
+	}
+
+	@Override
+	public void putAttributeConverters(final Map<Class<?>, AttributeConverter<?>> converters) {
+		super.putAttributeConverters(converters);
+		this.attributeConverters.putAll(converters);
+		this.idConverter.putAttributeConverters(converters);
+		for (Class<?> clazz : converters.keySet()) {
+			this.customAttributeClasses.add(clazz.getName());
+		}
+	}
+
+	@Override
+	public void startTag(final String name, final Attributes atts, final Stack<String> context) {
+		if (this.depthInPerson == 0 && !PERSON.equals(name)) {
+			super.startTag(name, atts, context);
+			return;
+		}
+		if (this.depthInPerson == 0) {
+			if (this.executor == null) {
+				initThreads();
+			}
+		}
+		this.depthInPerson++;
+		// We have to create copies of the attributes because the object is re-used by the parser!
+		Attributes attsCopy = new AttributesImpl(atts);
+		this.currentBlock.add(new Tag(name, attsCopy, null));
+		createIds(name, attsCopy);
+	}
+
+	@Override
+	public void endTag(final String name, final String content, final Stack<String> context) {
+		if (this.depthInPerson == 0) {
+			if (POPULATION.equals(name) && this.executor != null) {
+				finishReading();
+			}
+			super.endTag(name, content, context);
+			return;
+		}
+		this.depthInPerson--;
+		if (ATTRIBUTE.equals(name) && this.customAttributeClasses.contains(this.attributeClass)) {
+			// converted only here, in the order of the file, as the value may contain ids
+			this.currentBlock.add(new Tag(name, this.idConverter.convert(this.attributeClass, content)));
+		} else {
+			this.currentBlock.add(new Tag(name, null, content));
+			if (ROUTE.equals(name)) {
+				createRouteIds(content);
+			}
+		}
+		if (this.depthInPerson == 0) {
+			this.personsInCurrentBlock++;
+			if (this.personsInCurrentBlock == PERSONS_PER_BLOCK) {
+				submitCurrentBlock();
+			}
+		}
+	}
+
+	/**
+	 * Creates the ids referenced by the attributes of a start tag in the order of the file, the worker will find them.
+	 */
+	private void createIds(final String name, final Attributes atts) {
+		switch (name) {
+			case PERSON:
+				Id.create(atts.getValue("id"), Person.class);
+				break;
+			case ACT:
+				if (atts.getValue("link") != null) {
+					Id.create(atts.getValue("link"), Link.class);
+				}
+				if (atts.getValue("facility") != null) {
+					Id.create(atts.getValue("facility"), ActivityFacility.class);
+				}
+				break;
+			case LEG:
+				this.legMode = atts.getValue("mode");
+				break;
+			case ROUTE:
+				this.routeAtts = atts;
+				break;
+			case ATTRIBUTE:
+				this.attributeClass = atts.getValue("class");
+				break;
+		}
+	}
+
+	/**
+	 * Creates the ids of a route in the order of the file: the link ids of network routes by tokenizing the
+	 * description like {@link org.matsim.core.network.NetworkUtils#getLinkIds(String)}, nothing for generic routes,
+	 * whose description contains no ids, and by setting the description of a throw-away route for all other types.
+	 */
+	private void createRouteIds(final String content) {
+		RouteFactories routeFactories = this.scenario.getPopulation().getFactory().getRouteFactories();
+		Class<? extends Route> routeClass = routeFactories.getRouteClassForType(getRouteType(this.routeAtts, this.legMode));
+		String startLinkId = this.routeAtts.getValue("start_link");
+		String endLinkId = this.routeAtts.getValue("end_link");
+		Id<Link> startId = startLinkId == null ? null : Id.create(startLinkId, Link.class);
+		Id<Link> endId = endLinkId == null ? null : Id.create(endLinkId, Link.class);
+		boolean isNetworkRoute = NetworkRoute.class.isAssignableFrom(routeClass);
+		String vehicleRefId = this.routeAtts.getValue("vehicleRefId");
+		if (vehicleRefId != null && !vehicleRefId.equals("null") && isNetworkRoute) {
+			Id.create(vehicleRefId, Vehicle.class);
+		}
+		this.routeAtts = null;
+
+		if (isNetworkRoute) {
+			int length = content.length();
+			int start = -1;
+			for (int i = 0; i <= length; i++) {
+				// xml content has no other control characters than tab and (normalized) new line
+				if (i == length || content.charAt(i) <= ' ') {
+					if (start >= 0) {
+						Id.create(content.substring(start, i), Link.class);
+						start = -1;
+					}
+				} else if (start < 0) {
+					start = i;
+				}
+			}
+		} else if (routeClass != GenericRouteImpl.class) {
+			routeFactories.createRoute(routeClass, startId, endId).setRouteDescription(content.trim());
+		}
+	}
+
+	private void initThreads() {
+		log.info("Start parallel population reading with " + this.numThreads + " threads...");
+		AtomicInteger threadCounter = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(this.numThreads, r -> {
+			Thread thread = new Thread(r);
+			thread.setDaemon(true);
+			thread.setName(ParallelPopulationReaderMatsimV6Runner.class.getSimpleName() + threadCounter.getAndIncrement());
+			return thread;
+		});
+	}
+
+	private void submitCurrentBlock() {
+		this.pendingBlocks.add(this.executor.submit(new ParallelPopulationReaderMatsimV6Runner(
+				this.coordinateTransformation, this.attributeConverters, this.scenario, this.currentBlock)));
+		this.currentBlock = new ArrayList<>();
+		this.personsInCurrentBlock = 0;
+
+		// add finished blocks in file order; wait if the workers fall behind, so the copied xml data does not pile up
+		while (!this.pendingBlocks.isEmpty() && (this.pendingBlocks.peek().isDone() || this.pendingBlocks.size() > 4 * this.numThreads)) {
+			addPersons(this.pendingBlocks.poll());
+		}
+	}
+
+	private void finishReading() {
+		if (this.personsInCurrentBlock > 0) {
+			submitCurrentBlock();
+		}
+		try {
+			while (!this.pendingBlocks.isEmpty()) {
+				addPersons(this.pendingBlocks.poll());
+			}
+		} finally {
+			this.executor.shutdownNow();
+			this.executor = null;
+		}
+		log.info("Finished parallel population reading...");
+	}
+
+	private void addPersons(final Future<List<Person>> block) {
+		List<Person> persons;
+		try {
+			persons = block.get();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			this.executor.shutdownNow();
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new RuntimeException(e.getCause());
+		}
+		for (Person person : persons) {
+			addPerson(person);
+		}
+	}
+
+	/* package */ static final class Tag {
+		final String name;
+		final Attributes atts; // only set for start tags
+		final String content; // only set for end tags
+		final boolean converted; // end tag of an attribute already converted by the main thread
+		final Object value; // the converted value, may be null
+
+		Tag(final String name, final Attributes atts, final String content) {
+			this.name = name;
+			this.atts = atts;
+			this.content = content;
+			this.converted = false;
+			this.value = null;
+		}
+
+		Tag(final String name, final Object value) {
+			this.name = name;
+			this.atts = null;
+			this.content = null;
+			this.converted = true;
+			this.value = value;
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.population.io.ParallelPopulationReaderMatsimV6.Tag;
+import org.matsim.core.utils.geometry.CoordinateTransformation;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+/**
+ * Task used by ParallelPopulationReaderMatsimV6. Replays the xml data of a block of
+ * persons and returns the created persons in the order they appear in the file,
+ * instead of adding them to the population. Attributes converted by the main thread are
+ * set with their converted values.
+ */
+/* deliberately package */ class ParallelPopulationReaderMatsimV6Runner extends PopulationReaderMatsimV6 implements Callable<List<Person>> {
+
+	private final List<Tag> tags;
+	private final List<Person> persons = new ArrayList<>();
+	private String attributeName = null;
+
+	ParallelPopulationReaderMatsimV6Runner(
+			final CoordinateTransformation coordinateTransformation,
+			final Map<Class<?>, AttributeConverter<?>> attributeConverters,
+			final Scenario scenario,
+			final List<Tag> tags) {
+		super(null, null, scenario);
+		this.coordinateTransformation = coordinateTransformation;
+		this.putAttributeConverters(attributeConverters);
+		this.tags = tags;
+	}
+
+	@Override
+	public List<Person> call() {
+		// persons are always direct children of the population element
+		Stack<String> context = new Stack<>();
+		context.push(POPULATION);
+		for (Tag tag : this.tags) {
+			if (tag.atts != null) {
+				if (ATTRIBUTE.equals(tag.name)) {
+					this.attributeName = tag.atts.getValue("name");
+				}
+				this.startTag(tag.name, tag.atts, context);
+				context.push(tag.name);
+			} else if (tag.converted) {
+				context.pop();
+				if (tag.value != null) {
+					this.attributesReader.getCurrentAttributes().putAttribute(this.attributeName, tag.value);
+				}
+			} else {
+				context.pop();
+				this.endTag(tag.name, tag.content, context);
+			}
+		}
+		return this.persons;
+	}
+
+	@Override
+	void addPerson(final Person person) {
+		this.persons.add(person);
+	}
+
+}
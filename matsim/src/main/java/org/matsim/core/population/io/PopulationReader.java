@@ -81,6 +81,14 @@ public final class PopulationReader extends MatsimXmlParser {
 		this.inputCRS = inputCRS;
 		this.targetCRS = targetCRS;
 		this.scenario = scenario;
+		// decompress in a separate thread if the plans are parsed in parallel anyway:
+		this.setReadAhead( isParallel() );
+	}
+
+	private boolean isParallel() {
+		return this.scenario.getConfig().plans().isParallelReading()
+				&& this.scenario.getConfig().global().getNumberOfThreads() > 1
+				&& !(this.scenario.getPopulation() instanceof StreamingPopulation);
 	}
 
 	public void putAttributeConverter( final Class<?> clazz , AttributeConverter<?> converter ) {
@@ -114,11 +122,20 @@ public final class PopulationReader extends MatsimXmlParser {
 
 		switch ( doctype ) {
 			case POPULATION_V6:
-				this.delegate =
-						new PopulationReaderMatsimV6(
-						        inputCRS,
-						        targetCRS,
-								this.scenario);
+				if ( isParallel() ) {
+					this.delegate =
+							new ParallelPopulationReaderMatsimV6(
+									inputCRS,
+									targetCRS,
+									this.scenario,
+									this.scenario.getConfig().global().getNumberOfThreads());
+				} else {
+					this.delegate =
+							new PopulationReaderMatsimV6(
+									inputCRS,
+									targetCRS,
+									this.scenario);
+				}
 				((PopulationReaderMatsimV6) delegate).putAttributeConverters( attributeConverters );
 				log.info("using population_v6-reader.");
 				break;
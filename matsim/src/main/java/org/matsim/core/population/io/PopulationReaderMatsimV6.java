@@ -65,14 +65,14 @@ import com.google.inject.Inject;
 /* deliberately package */ class PopulationReaderMatsimV6 extends MatsimXmlParser implements MatsimReader {
     private static final Logger log = Logger.getLogger(PopulationReaderMatsimV6.class);
 
-	private final static String POPULATION = "population";
-	private final static String PERSON = "person";
+	/* package */ final static String POPULATION = "population";
+	/* package */ final static String PERSON = "person";
 	private final static String ATTRIBUTES = "attributes";
-	private final static String ATTRIBUTE = "attribute";
+	/* package */ final static String ATTRIBUTE = "attribute";
 	private final static String PLAN = "plan";
-	private final static String ACT = "activity";
-	private final static String LEG = "leg";
-	private final static String ROUTE = "route";
+	/* package */ final static String ACT = "activity";
+	/* package */ final static String LEG = "leg";
+	/* package */ final static String ROUTE = "route";
 
 	private final static String ATTR_POPULATION_DESC = "desc";
 	private final static String ATTR_PERSON_ID = "id";
@@ -100,7 +100,7 @@ import com.google.inject.Inject;
 	private final static String VALUE_UNDEF = "undef";
 
 	// TODO: infrastructure to configure converters
-	private final AttributesXmlReaderDelegate attributesReader = new AttributesXmlReaderDelegate();
+	/* package */ final AttributesXmlReaderDelegate attributesReader = new AttributesXmlReaderDelegate();
 
 	private final Scenario scenario;
 	private final Population plans;
@@ -115,7 +115,7 @@ import com.google.inject.Inject;
 	private org.matsim.utils.objectattributes.attributable.Attributes currAttributes = null;
 
 	private final String targetCRS;
-	private CoordinateTransformation coordinateTransformation = new IdentityTransformation();
+	/* package */ CoordinateTransformation coordinateTransformation = new IdentityTransformation();
 
 	private Activity prevAct = null;
 
@@ -197,7 +197,7 @@ import com.google.inject.Inject;
 	public void endTag(final String name, final String content, final Stack<String> context) {
 		switch ( name ) {
 			case PERSON:
-				this.plans.addPerson(this.currperson);
+				addPerson(this.currperson);
 				this.currperson = null;
 				break;
 			case ATTRIBUTE:
@@ -233,6 +233,10 @@ import com.google.inject.Inject;
 		}
 	}
 
+	/* package */ void addPerson(final Person person) {
+		this.plans.addPerson(person);
+	}
+
 	private void startPopulation(final Attributes atts) {
 		this.plans.setName(atts.getValue(ATTR_POPULATION_DESC));
 	}
@@ -403,18 +407,7 @@ import com.google.inject.Inject;
 	private void startRoute(final Attributes atts) {
 		String startLinkId = atts.getValue(ATTR_ROUTE_STARTLINK);
 		String endLinkId = atts.getValue(ATTR_ROUTE_ENDLINK);
-		String routeType = atts.getValue("type");
-		
-		if (routeType == null) {
-			String legMode = this.currleg.getMode();
-			if ("pt".equals(legMode)) {
-				routeType = "experimentalPt1";
-			} else if ("car".equals(legMode)) {
-				routeType = "links";
-			} else {
-				routeType = "generic";
-			}
-		}
+		String routeType = getRouteType(atts, this.currleg.getMode());
 		
 		RouteFactories factory = this.scenario.getPopulation().getFactory().getRouteFactories();
 		Class<? extends Route> routeClass = factory.getRouteClassForType(routeType);
@@ -436,6 +429,23 @@ import com.google.inject.Inject;
 		}
 	}
 
+	/**
+	 * @return the type of the route, with a default depending on the leg mode for files without route types.
+	 */
+	/* package */ static String getRouteType(final Attributes routeAtts, final String legMode) {
+		String routeType = routeAtts.getValue("type");
+		if (routeType == null) {
+			if ("pt".equals(legMode)) {
+				routeType = "experimentalPt1";
+			} else if ("car".equals(legMode)) {
+				routeType = "links";
+			} else {
+				routeType = "generic";
+			}
+		}
+		return routeType;
+	}
+
 	private void endRoute(final String content) {
 		this.routeDescription = content;
 
@@ -0,0 +1,235 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.routes;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Implementation of {@link NetworkRoute} which internally stores the route as an array of
+ * link indices (see {@link Id#index()}) instead of a list of {@link Id} objects.
+ * <p></p>
+ * Compared to {@link LinkNetworkRouteImpl}, this saves the list objects and, on heaps that
+ * do not use compressed object pointers, half of the memory per link.  Contrary to
+ * {@link CompressedNetworkRouteImpl}, the links can still be accessed by position in
+ * constant time, which is what the mobsim does at every link.  The list returned by
+ * {@link #getLinkIds()} is a read-only view that looks up the {@link Id} objects on access.
+ */
+final class CompactNetworkRouteImpl extends AbstractRoute implements NetworkRoute {
+
+	private static final int[] EMPTY = new int[0];
+
+	private int[] route = EMPTY;
+	private double travelCost = Double.NaN;
+	private Id<Vehicle> vehicleId = null;
+
+	CompactNetworkRouteImpl(final Id<Link> startLinkId, final Id<Link> endLinkId) {
+		super(startLinkId, endLinkId);
+	}
+
+	@Override
+	public CompactNetworkRouteImpl clone() {
+		// the array is never modified, only replaced, so it can be shared with the clone
+		return (CompactNetworkRouteImpl) super.clone();
+	}
+
+	@Override
+	public List<Id<Link>> getLinkIds() {
+		return new LinkIdList(this.route);
+	}
+
+	@Override
+	public NetworkRoute getSubRoute(final Id<Link> fromLinkId, final Id<Link> toLinkId) {
+		// same semantics as in LinkNetworkRouteImpl, see there for comments
+		int fromIndex = -1;
+		int toIndex = -1;
+
+		if (fromLinkId.equals(this.getStartLinkId())) {
+			fromIndex = 0;
+		} else {
+			for (int i = 0, n = this.route.length; (i < n) && (fromIndex < 0); i++) {
+				if (fromLinkId.index() == this.route[i]) {
+					fromIndex = i+1;
+				}
+			}
+			if (fromIndex < 0 && fromLinkId.equals(this.getEndLinkId())) {
+				fromIndex = this.route.length;
+			}
+			if (fromIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because fromLinkId is not part of the route.");
+			}
+		}
+
+		if (fromLinkId.equals(toLinkId)) {
+			toIndex = fromIndex - 1;
+		} else {
+			for (int i = fromIndex, n = this.route.length; (i < n) && (toIndex < 0); i++) {
+				if (fromLinkId.index() == this.route[i]) {
+					fromIndex = i+1; // in case of a loop, cut it short
+				}
+				if (toLinkId.index() == this.route[i]) {
+					toIndex = i;
+				}
+			}
+			if (toIndex < 0 && toLinkId.equals(this.getEndLinkId())) {
+				toIndex = this.route.length;
+			}
+			if (toIndex < 0) {
+				throw new IllegalArgumentException("Cannot create subroute because toLinkId is not part of the route.");
+			}
+		}
+		CompactNetworkRouteImpl ret = new CompactNetworkRouteImpl(fromLinkId, toLinkId);
+		if (toIndex > fromIndex) {
+			ret.route = Arrays.copyOfRange(this.route, fromIndex, toIndex);
+		}
+		return ret;
+	}
+
+	@Override
+	public double getTravelCost() {
+		return this.travelCost;
+	}
+
+	@Override
+	public void setTravelCost(final double travelCost) {
+		this.travelCost = travelCost;
+	}
+
+	@Override
+	public void setLinkIds(final Id<Link> startLinkId, final List<Id<Link>> srcRoute, final Id<Link> endLinkId) {
+		setStartLinkId(startLinkId);
+		setEndLinkId(endLinkId);
+		if (srcRoute == null || srcRoute.isEmpty()) {
+			this.route = EMPTY;
+		} else if (srcRoute instanceof LinkIdList) {
+			this.route = ((LinkIdList) srcRoute).indices;
+		} else {
+			int[] indices = new int[srcRoute.size()];
+			int i = 0;
+			for (Id<Link> linkId : srcRoute) {
+				indices[i++] = linkId.index();
+			}
+			this.route = indices;
+		}
+	}
+
+	@Override
+	public Id<Vehicle> getVehicleId() {
+		return this.vehicleId;
+	}
+
+	@Override
+	public void setVehicleId(final Id<Vehicle> vehicleId) {
+		this.vehicleId = vehicleId;
+	}
+
+	@Override
+	public String getRouteDescription() {
+		StringBuilder desc = new StringBuilder(100);
+		desc.append(this.getStartLinkId().toString());
+		for (Id<Link> linkId : this.getLinkIds()) {
+			desc.append(" ");
+			desc.append(linkId.toString());
+		}
+		// If the start links equals the end link additionally check if its is a round trip.
+		if (!this.getEndLinkId().equals(this.getStartLinkId()) || this.route.length > 0) {
+			desc.append(" ");
+			desc.append(this.getEndLinkId().toString());
+		}
+		return desc.toString();
+	}
+
+	@Override
+	public void setRouteDescription(final String routeDescription) {
+		List<Id<Link>> linkIds = NetworkUtils.getLinkIds(routeDescription);
+		Id<Link> startLinkId = getStartLinkId();
+		Id<Link> endLinkId = getEndLinkId();
+		if (linkIds.size() > 0) {
+			startLinkId = linkIds.remove(0);
+			setStartLinkId(startLinkId);
+		}
+		if (linkIds.size() > 0) {
+			endLinkId = linkIds.remove(linkIds.size() - 1);
+			setEndLinkId(endLinkId);
+		}
+		this.setLinkIds(startLinkId, linkIds, endLinkId);
+	}
+
+	@Override
+	public String getRouteType() {
+		return LinkNetworkRouteImpl.ROUTE_TYPE;
+	}
+
+	@Override
+	public String toString() {
+		String str = super.toString();
+		str += " linkIds=" + this.getLinkIds() ;
+		str += " travelCost=" + this.getTravelCost() ;
+		return str ;
+	}
+
+	/**
+	 * Read-only view on the link indices of a route.
+	 */
+	private static final class LinkIdList extends AbstractList<Id<Link>> implements RandomAccess {
+
+		private final int[] indices;
+
+		LinkIdList(final int[] indices) {
+			this.indices = indices;
+		}
+
+		@Override
+		public Id<Link> get(final int index) {
+			return Id.get(this.indices[index], Link.class);
+		}
+
+		@Override
+		public int size() {
+			return this.indices.length;
+		}
+
+		@Override
+		public int indexOf(final Object o) {
+			if (o instanceof Id) {
+				for (int i = 0; i < this.indices.length; i++) {
+					if (get(i) == o) {
+						return i;
+					}
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public boolean contains(final Object o) {
+			return indexOf(o) >= 0;
+		}
+	}
+
+}
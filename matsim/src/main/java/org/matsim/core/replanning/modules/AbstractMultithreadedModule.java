@@ -24,13 +24,19 @@ import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.api.core.v01.replanning.PlanStrategyModule;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningExecution;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 import org.matsim.core.replanning.ReplanningContext;
 import org.matsim.core.utils.misc.Counter;
 
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -50,6 +56,18 @@ import java.util.concurrent.atomic.AtomicReference;
  * "fast threads"), it helps building reproducible runs.  Additionally, as the threads are only
  * started after all to-be-handled plans are added, we can use unsynchronized data structures.
  * <p></p>
+ * With {@link ReplanningExecution#workStealing}, the plans are instead distributed to
+ * several batches per thread, each with its own plan algorithm instance.  The batches
+ * are processed by a {@link ForkJoinPool}, so a thread that is done with its batch takes the next
+ * one that is not yet started, and slow batches delay the end of the replanning much less.  As the assignment
+ * of plans to plan algorithm instances does not depend on the timing, this is reproducible as well.  As with
+ * the threads, the plan algorithm instances and the pool are created anew in every iteration.
+ * <p></p>
+ * This comes at a price: there are {@value #BATCHES_PER_THREAD} times as many plan algorithm instances as threads,
+ * and as the plans are handled by other instances than with one instance per thread, the results are not the same
+ * as in the round-robin mode.  Reusing one instance per thread for several batches would make the assignment of plans
+ * to instances, and thus the random numbers each plan gets, depend on the timing of the threads.
+ * <p></p>
  * Design comments/questions:<ul>
  * <li> As a consequence of the design, the instances that getPlanAlgoInstance() returns, need to be thread-safe.  kai, dec'12
  * For an example with discussions, see {@link tutorial.programming.multiThreadedPlanStrategy.RunWithMultithreadedModule}
@@ -58,7 +76,10 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author mrieser
  */
 abstract public class AbstractMultithreadedModule implements PlanStrategyModule {
+	private static final int BATCHES_PER_THREAD = 4;
+
 	private final int numOfThreads;
+	private final boolean workStealing;
 
 	private PlanAlgoThread[] algothreads = null;
 	private Thread[] threads = null;
@@ -84,10 +105,16 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 
 	public AbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 		this.numOfThreads = globalConfigGroup.getNumberOfThreads();
+		this.workStealing = globalConfigGroup.getReplanningExecution() == ReplanningExecution.workStealing;
 	}
 
 	public AbstractMultithreadedModule(final int numOfThreads) {
+		this(numOfThreads, ReplanningExecution.roundRobin);
+	}
+
+	public AbstractMultithreadedModule(final int numOfThreads, final ReplanningExecution replanningExecution) {
 		this.numOfThreads = numOfThreads;
+		this.workStealing = replanningExecution == ReplanningExecution.workStealing;
 	}
 	
 	protected void beforePrepareReplanningHook(@SuppressWarnings("unused") ReplanningContext replanningContextTmp) {
@@ -105,6 +132,8 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		if (this.numOfThreads == 0) {
 			// it seems, no threads are desired :(
 			this.directAlgo = getPlanAlgoInstance();
+		} else if (this.workStealing) {
+			initBatches();
 		} else {
 			initThreads();
 		}
@@ -118,7 +147,7 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	@Override
 	public final void handlePlan(final Plan plan) {
 		if (this.directAlgo == null) {
-			this.algothreads[this.count % this.numOfThreads].addPlanToThread(plan);
+			this.algothreads[this.count % this.algothreads.length].addPlanToThread(plan);
 			this.count++;
 		} else {
 			this.directAlgo.run(plan);
@@ -136,7 +165,9 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 	public final void finishReplanning() {
 		this.beforeFinishReplanningHook();
 		
-		if (this.directAlgo == null) {
+		if (this.directAlgo == null && this.workStealing) {
+			runBatches();
+		} else if (this.directAlgo == null) {
 			// only try to start threads if we did not directly work on all the plans
 			log.info("[" + this.name + "] starting " + this.threads.length + " threads, handling " + this.count + " plans");
 
@@ -193,6 +224,56 @@ abstract public class AbstractMultithreadedModule implements PlanStrategyModule
 		}
 	}
 
+	private void initBatches() {
+		if (this.algothreads != null) {
+			throw new RuntimeException("batches are already initialized");
+		}
+
+		this.algothreads = new PlanAlgoThread[this.numOfThreads * BATCHES_PER_THREAD];
+
+		Counter counter = null;
+		// setup batches
+		for (int i = 0; i < this.algothreads.length; i++) {
+			PlanAlgorithm algo = getPlanAlgoInstance();
+			if (i == 0) {
+				this.name = algo.getClass().getSimpleName();
+				counter = new Counter("[" + this.name + "] handled plan # ");
+			}
+			this.algothreads[i] = new PlanAlgoThread(algo, counter);
+		}
+	}
+
+	private void runBatches() {
+		log.info("[" + this.name + "] handling " + this.count + " plans in " + this.algothreads.length + " batches on " + this.numOfThreads + " threads");
+		List<Callable<Object>> batches = new ArrayList<>(this.algothreads.length);
+		for (PlanAlgoThread algothread : this.algothreads) {
+			batches.add(() -> {
+				algothread.run();
+				return null;
+			});
+		}
+		Throwable throwable = null;
+		ForkJoinPool pool = new ForkJoinPool(this.numOfThreads);
+		try {
+			for (Future<Object> future : pool.invokeAll(batches)) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					log.error("A batch failed with exception. Will stop after all batches finished.", e.getCause());
+					throwable = e.getCause();
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdown();
+		}
+		log.info("[" + this.name + "] all " + this.algothreads.length + " batches finished.");
+		if (throwable != null) {
+			throw new RuntimeException("Some batches crashed, thus not all plans may have been handled.", throwable);
+		}
+	}
+
 	/* package (for a test) */ final int getNumOfThreads() {
 		return numOfThreads;
 	}
@@ -0,0 +1,251 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * Least cost path calculator based on a customizable contraction hierarchy (CCH).
+ * <p>
+ * The link costs are customized lazily per time bin, when the first route departing in this time bin is
+ * requested, and are shared with the other routers created by the same {@link CCHFactory}. The route is then searched with the costs of its departure time bin, while the returned travel time and
+ * cost are calculated along the route with the actual time-dependent values. As the costs are taken from the
+ * departure time bin only, routes spanning several time bins might differ slightly from the ones found by
+ * {@link Dijkstra}.
+ * <p>
+ * Queries are elimination tree searches: both the forward search from the start node and the backward search from
+ * the end node simply scan all ancestors of their node in the elimination tree, which requires neither a
+ * priority queue nor any allocations besides the returned path.
+ * <p>
+ * Like the other routers, this class is not thread-safe. Each thread should use its own instance.
+ */
+final class CCH implements LeastCostPathCalculator {
+
+	private static final Logger log = Logger.getLogger(CCH.class);
+
+	private static final int UP = 0;
+	private static final int DOWN = 1;
+
+	private final CCHGraph graph;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+	private final CCHMetrics metrics;
+
+	private final double[] forwardCost;
+	private final double[] backwardCost;
+	private final int[] forwardEdge;
+	private final int[] backwardEdge;
+	private final int[] forwardVisited;
+	private final int[] backwardVisited;
+	private int iteration = 0;
+	private int[] stack = new int[64];
+
+	CCH(final CCHGraph graph, final CCHMetrics metrics, final TravelDisutility travelDisutility, final TravelTime travelTime) {
+		this.graph = graph;
+		this.metrics = metrics;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		this.forwardCost = new double[graph.nodeCount];
+		this.backwardCost = new double[graph.nodeCount];
+		this.forwardEdge = new int[graph.nodeCount];
+		this.backwardEdge = new int[graph.nodeCount];
+		this.forwardVisited = new int[graph.nodeCount];
+		this.backwardVisited = new int[graph.nodeCount];
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int source = getRank(fromNode);
+		int target = getRank(toNode);
+		if (source == target) {
+			List<Node> nodes = new ArrayList<>(1);
+			nodes.add(toNode);
+			return new Path(nodes, new ArrayList<>(0), 0.0, 0.0);
+		}
+		CCHMetric metric = this.metrics.getMetric(starttime);
+		int visited = nextIteration();
+
+		// walk up both elimination tree paths in rank order, until they merge and continue together to the root
+		double bestCost = Double.POSITIVE_INFINITY;
+		int meetingNode = -1;
+		int forward = source;
+		int backward = target;
+		this.forwardVisited[source] = visited;
+		this.forwardCost[source] = 0.0;
+		this.backwardVisited[target] = visited;
+		this.backwardCost[target] = 0.0;
+		while (forward >= 0 || backward >= 0) {
+			if (backward < 0 || (forward >= 0 && forward < backward)) {
+				relax(forward, metric.up, this.forwardCost, this.forwardEdge, this.forwardVisited, visited, bestCost);
+				forward = this.graph.parent[forward];
+			} else if (forward < 0 || backward < forward) {
+				relax(backward, metric.down, this.backwardCost, this.backwardEdge, this.backwardVisited, visited, bestCost);
+				backward = this.graph.parent[backward];
+			} else {
+				int v = forward;
+				if (this.forwardVisited[v] == visited && this.backwardVisited[v] == visited) {
+					double cost = this.forwardCost[v] + this.backwardCost[v];
+					if (cost < bestCost) {
+						bestCost = cost;
+						meetingNode = v;
+					}
+				}
+				relax(v, metric.up, this.forwardCost, this.forwardEdge, this.forwardVisited, visited, bestCost);
+				relax(v, metric.down, this.backwardCost, this.backwardEdge, this.backwardVisited, visited, bestCost);
+				forward = this.graph.parent[v];
+				backward = forward;
+			}
+		}
+		if (meetingNode < 0) {
+			log.warn("No route was found from node " + fromNode.getId() + " to node " + toNode.getId() + ". Some possible reasons:");
+			log.warn("  * Network is not connected.  Run NetworkCleaner().") ;
+			log.warn("  * Network for considered mode does not even exist.  Modes need to be entered for each link in network.xml.");
+			log.warn("  * Network for considered mode is not connected to starting or ending point of route.  Setting insertingAccessEgressWalk to true may help.");
+			log.warn("This will now return null, but it may fail later with a null pointer exception.");
+			return null;
+		}
+
+		List<Link> links = unpack(source, target, meetingNode, metric);
+		List<Node> nodes = new ArrayList<>(links.size() + 1);
+		nodes.add(fromNode);
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			nodes.add(link.getToNode());
+			cost += this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	private int getRank(final Node node) {
+		int rank = this.graph.getRank(node);
+		if (rank < 0) {
+			throw new IllegalArgumentException("The nodes passed as parameters are not part of the network stored by "+
+					getClass().getSimpleName() + ": the validity of the results cannot be guaranteed. Aborting!");
+		}
+		return rank;
+	}
+
+	private int nextIteration() {
+		if (this.iteration == Integer.MAX_VALUE) {
+			Arrays.fill(this.forwardVisited, 0);
+			Arrays.fill(this.backwardVisited, 0);
+			this.iteration = 0;
+		}
+		return ++this.iteration;
+	}
+
+	/**
+	 * Relaxes the upward edges of a node. All nodes reachable with upward edges are ancestors of the node in the
+	 * elimination tree, and every node can only be reached from its descendants, so scanning the ancestors bottom-up
+	 * settles them in a valid order. Nodes which are already more expensive than the best path found so far need not
+	 * be relaxed, as costs are never negative.
+	 */
+	private void relax(final int v, final float[] weights, final double[] cost, final int[] edge, final int[] visited, final int iteration, final double bestCost) {
+		if (visited[v] != iteration) {
+			return;
+		}
+		double c = cost[v];
+		if (c >= bestCost) {
+			return;
+		}
+		int[] upHead = this.graph.upHead;
+		for (int e = this.graph.upStart[v], end = this.graph.upStart[v + 1]; e < end; e++) {
+			int u = upHead[e];
+			double newCost = c + weights[e];
+			if (visited[u] != iteration || newCost < cost[u]) {
+				visited[u] = iteration;
+				cost[u] = newCost;
+				edge[u] = e;
+			}
+		}
+	}
+
+	private List<Link> unpack(final int source, final int target, final int meetingNode, final CCHMetric metric) {
+		int size = 0;
+		// the stack is processed from the top, so push the edges in reverse order of the path
+		int first = size;
+		for (int v = meetingNode; v != target; v = this.graph.upTail[this.backwardEdge[v]]) {
+			size = push(size, this.backwardEdge[v], DOWN);
+		}
+		reverse(first, size);
+		for (int v = meetingNode; v != source; v = this.graph.upTail[this.forwardEdge[v]]) {
+			size = push(size, this.forwardEdge[v], UP);
+		}
+
+		List<Link> links = new ArrayList<>();
+		while (size > 0) {
+			size--;
+			int edge = this.stack[size] >>> 1;
+			int direction = this.stack[size] & 1;
+			int lower = this.graph.upTail[edge];
+			int higher = this.graph.upHead[edge];
+			if (direction == UP) {
+				int via = metric.upVia[edge];
+				if (via < 0) {
+					links.add(this.graph.links[-via - 1]);
+				} else {
+					// lower -> via -> higher
+					size = push(size, this.graph.findEdge(via, higher), UP);
+					size = push(size, this.graph.findEdge(via, lower), DOWN);
+				}
+			} else {
+				int via = metric.downVia[edge];
+				if (via < 0) {
+					links.add(this.graph.links[-via - 1]);
+				} else {
+					// higher -> via -> lower
+					size = push(size, this.graph.findEdge(via, lower), UP);
+					size = push(size, this.graph.findEdge(via, higher), DOWN);
+				}
+			}
+		}
+		return links;
+	}
+
+	private int push(final int size, final int edge, final int direction) {
+		if (size == this.stack.length) {
+			this.stack = Arrays.copyOf(this.stack, size * 2);
+		}
+		this.stack[size] = (edge << 1) | direction;
+		return size + 1;
+	}
+
+	private void reverse(final int from, final int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			int tmp = this.stack[i];
+			this.stack[i] = this.stack[j];
+			this.stack[j] = tmp;
+		}
+	}
+
+}
@@ -0,0 +1,144 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationStartsListener;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+
+/**
+ * Creates {@link CCH} routers. The metric-independent {@link CCHGraph} is computed once per network and shared by all
+ * routers. The costs are customized per time bin of the travel time calculator, once for all routers using the same
+ * network, travel time and cost identity, and are then shared read-only among them, also across threads. The cost
+ * identity is the {@link TravelDisutilityFactory} the disutilities were created by, so that routers with their own
+ * disutility instances of the same function share the costs. Routers created from a bare disutility only share the
+ * costs with routers using the same disutility instance.
+ * <p>
+ * As the costs are customized without a person, the randomizing travel disutility cannot be used, i.e. the
+ * routingRandomness must be 0. Within a controler, the customized costs are dropped at the start of every iteration,
+ * so the routers created during an iteration use the travel times of the previous one. Without a controler, a new
+ * factory must be created whenever the travel times change.
+ */
+@Singleton
+public class CCHFactory implements LeastCostPathCalculatorFactory, IterationStartsListener {
+
+	private final Map<Network, CCHGraph> graphs = new HashMap<>();
+	private final Map<MetricsKey, CCHMetrics> metrics = new HashMap<>();
+	private final int timeBinSize;
+	private final int maxTime;
+
+	@Inject
+	public CCHFactory(final TravelTimeCalculatorConfigGroup travelTimeCalculatorConfigGroup, final PlansCalcRouteConfigGroup plansCalcRouteConfigGroup) {
+		this(travelTimeCalculatorConfigGroup.getTraveltimeBinSize(), travelTimeCalculatorConfigGroup.getMaxTime());
+		if (plansCalcRouteConfigGroup.getRoutingRandomness() != 0.) {
+			throw new IllegalArgumentException("The CCH router customizes the costs without a person, which the randomizing travel disutility "
+					+ "does not allow. Set routingRandomness in the " + PlansCalcRouteConfigGroup.GROUP_NAME + " config group to 0, or use "
+					+ "another routing algorithm. routingRandomness is " + plansCalcRouteConfigGroup.getRoutingRandomness());
+		}
+	}
+
+	public CCHFactory(final int timeBinSize, final int maxTime) {
+		if (timeBinSize <= 0) {
+			throw new IllegalArgumentException("The time bin size must be positive, but is " + timeBinSize);
+		}
+		this.timeBinSize = timeBinSize;
+		this.maxTime = maxTime;
+	}
+
+	@Override
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		return createPathCalculator(network, travelCosts, travelCosts, travelTimes);
+	}
+
+	/**
+	 * Creates a router sharing the customized costs with all routers of the same network, travel time and
+	 * travel disutility factory. <code>travelCosts</code> must have been created by <code>travelDisutilityFactory</code>.
+	 */
+	public LeastCostPathCalculator createPathCalculator(final Network network, final TravelDisutilityFactory travelDisutilityFactory,
+			final TravelDisutility travelCosts, final TravelTime travelTimes) {
+		return createPathCalculator(network, (Object) travelDisutilityFactory, travelCosts, travelTimes);
+	}
+
+	private LeastCostPathCalculator createPathCalculator(final Network network, final Object costIdentity, final TravelDisutility travelCosts,
+			final TravelTime travelTimes) {
+		CCHGraph graph;
+		CCHMetrics sharedMetrics;
+		synchronized (this.graphs) {
+			graph = this.graphs.computeIfAbsent(network, CCHGraph::new);
+			// the first router's disutility customizes the costs for all of them
+			sharedMetrics = this.metrics.computeIfAbsent(new MetricsKey(network, travelTimes, costIdentity),
+					key -> new CCHMetrics(graph, travelCosts, this.timeBinSize, this.maxTime));
+		}
+		return new CCH(graph, sharedMetrics, travelCosts, travelTimes);
+	}
+
+	@Override
+	public void notifyIterationStarts(final IterationStartsEvent event) {
+		synchronized (this.graphs) {
+			this.metrics.clear();
+		}
+	}
+
+	/**
+	 * Networks, travel times and cost identities are compared by identity, like in the map of graphs.
+	 */
+	private static final class MetricsKey {
+		private final Network network;
+		private final TravelTime travelTime;
+		private final Object costIdentity;
+
+		MetricsKey(final Network network, final TravelTime travelTime, final Object costIdentity) {
+			this.network = network;
+			this.travelTime = travelTime;
+			this.costIdentity = costIdentity;
+		}
+
+		@Override
+		public boolean equals(final Object o) {
+			if (!(o instanceof MetricsKey)) {
+				return false;
+			}
+			MetricsKey other = (MetricsKey) o;
+			return this.network == other.network && this.travelTime == other.travelTime
+					&& this.costIdentity == other.costIdentity;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(System.identityHashCode(this.network), System.identityHashCode(this.travelTime),
+					System.identityHashCode(this.costIdentity));
+		}
+	}
+
+}
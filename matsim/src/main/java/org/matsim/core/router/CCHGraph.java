@@ -0,0 +1,387 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.apache.log4j.Logger;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+
+/**
+ * The metric-independent part of a customizable contraction hierarchy (CCH): a node order and the
+ * resulting chordal supergraph of the network, stored as upward adjacency arrays.
+ * <p>
+ * The node order is computed by geometric nested dissection: cells are recursively split at the median
+ * coordinate of their longer side, and the nodes separating the two halves are ranked above both halves.
+ * Nodes are referred to by their rank in all arrays. An edge connects a node with one of its higher
+ * ranked neighbours; edges of a node are sorted by the rank of their head.
+ * <p>
+ * This class does not depend on travel times or costs, so it is computed only once per network.
+ * See {@link CCHMetric} for the customization with actual link costs.
+ */
+final class CCHGraph {
+
+	private static final Logger log = Logger.getLogger(CCHGraph.class);
+
+	private static final int LEAF_SIZE = 16;
+
+	final Network network;
+	final int nodeCount;
+	final int edgeCount;
+
+	/** the nodes, by rank */
+	final Node[] nodes;
+	/** first edge of each node, with one additional entry at the end */
+	final int[] upStart;
+	/** the higher ranked node of each edge */
+	final int[] upHead;
+	/** the lower ranked node of each edge */
+	final int[] upTail;
+	/** the parent of each node in the elimination tree, i.e. its lowest ranked upward neighbour, or -1 */
+	final int[] parent;
+
+	/** the links of the network, referenced by their index in this array */
+	final Link[] links;
+	/** the edge each link contributes to, or -1 for loops */
+	final int[] linkEdge;
+	/** whether the link goes from the lower to the higher ranked node of its edge */
+	final boolean[] linkUpward;
+
+	private final int[] rankByIdIndex;
+
+	CCHGraph(final Network network) {
+		this.network = network;
+		Node[] original = network.getNodes().values().toArray(new Node[0]);
+		this.nodeCount = original.length;
+
+		int maxIdIndex = -1;
+		for (Node node : original) {
+			maxIdIndex = Math.max(maxIdIndex, node.getId().index());
+		}
+		int[] positionByIdIndex = new int[maxIdIndex + 1];
+		for (int i = 0; i < original.length; i++) {
+			positionByIdIndex[original[i].getId().index()] = i;
+		}
+
+		this.links = network.getLinks().values().toArray(new Link[0]);
+		int[] adjacencyStart = new int[this.nodeCount + 1];
+		for (Link link : this.links) {
+			adjacencyStart[positionByIdIndex[link.getFromNode().getId().index()] + 1]++;
+			adjacencyStart[positionByIdIndex[link.getToNode().getId().index()] + 1]++;
+		}
+		for (int i = 0; i < this.nodeCount; i++) {
+			adjacencyStart[i + 1] += adjacencyStart[i];
+		}
+		int[] adjacency = new int[adjacencyStart[this.nodeCount]];
+		int[] fill = Arrays.copyOf(adjacencyStart, this.nodeCount);
+		for (Link link : this.links) {
+			int from = positionByIdIndex[link.getFromNode().getId().index()];
+			int to = positionByIdIndex[link.getToNode().getId().index()];
+			adjacency[fill[from]++] = to;
+			adjacency[fill[to]++] = from;
+		}
+
+		int[] order = new NestedDissection(original, adjacencyStart, adjacency).computeOrder();
+		int[] rankByPosition = new int[this.nodeCount];
+		this.nodes = new Node[this.nodeCount];
+		this.rankByIdIndex = new int[maxIdIndex + 1];
+		Arrays.fill(this.rankByIdIndex, -1);
+		for (int rank = 0; rank < this.nodeCount; rank++) {
+			rankByPosition[order[rank]] = rank;
+			this.nodes[rank] = original[order[rank]];
+			this.rankByIdIndex[this.nodes[rank].getId().index()] = rank;
+		}
+
+		// symbolic elimination: the upward neighbours of a node, minus its parent, become upward neighbours of its parent
+		int[][] up = new int[this.nodeCount][];
+		int[] upSize = new int[this.nodeCount];
+		for (int position = 0; position < this.nodeCount; position++) {
+			int rank = rankByPosition[position];
+			for (int i = adjacencyStart[position]; i < adjacencyStart[position + 1]; i++) {
+				int other = rankByPosition[adjacency[i]];
+				if (other > rank) {
+					add(up, upSize, rank, other);
+				}
+			}
+		}
+		int edges = 0;
+		this.parent = new int[this.nodeCount];
+		for (int v = 0; v < this.nodeCount; v++) {
+			int size = sortAndRemoveDuplicates(up[v], upSize[v]);
+			upSize[v] = size;
+			edges += size;
+			this.parent[v] = size > 0 ? up[v][0] : -1;
+			for (int i = 1; i < size; i++) {
+				add(up, upSize, up[v][0], up[v][i]);
+			}
+		}
+
+		this.edgeCount = edges;
+		this.upStart = new int[this.nodeCount + 1];
+		this.upHead = new int[edges];
+		this.upTail = new int[edges];
+		int e = 0;
+		for (int v = 0; v < this.nodeCount; v++) {
+			this.upStart[v] = e;
+			for (int i = 0; i < upSize[v]; i++) {
+				this.upHead[e] = up[v][i];
+				this.upTail[e] = v;
+				e++;
+			}
+			up[v] = null;
+		}
+		this.upStart[this.nodeCount] = e;
+
+		this.linkEdge = new int[this.links.length];
+		this.linkUpward = new boolean[this.links.length];
+		for (int i = 0; i < this.links.length; i++) {
+			int from = getRank(this.links[i].getFromNode());
+			int to = getRank(this.links[i].getToNode());
+			if (from == to) {
+				this.linkEdge[i] = -1;
+			} else if (from < to) {
+				this.linkEdge[i] = findEdge(from, to);
+				this.linkUpward[i] = true;
+			} else {
+				this.linkEdge[i] = findEdge(to, from);
+			}
+		}
+
+		log.info("CCH for network with " + this.nodeCount + " nodes and " + this.links.length + " links has " + this.edgeCount + " edges.");
+	}
+
+	/**
+	 * @return the rank of the node, or -1 if the node is not part of the network this graph was built for
+	 */
+	int getRank(final Node node) {
+		int index = node.getId().index();
+		if (index >= this.rankByIdIndex.length) {
+			return -1;
+		}
+		int rank = this.rankByIdIndex[index];
+		return rank >= 0 && this.nodes[rank] == node ? rank : -1;
+	}
+
+	/**
+	 * @return the index of the edge between the two nodes, or -1 if there is no such edge
+	 */
+	int findEdge(final int lowerRank, final int higherRank) {
+		int index = Arrays.binarySearch(this.upHead, this.upStart[lowerRank], this.upStart[lowerRank + 1], higherRank);
+		return index >= 0 ? index : -1;
+	}
+
+	private static void add(final int[][] lists, final int[] sizes, final int list, final int value) {
+		int[] values = lists[list];
+		if (values == null) {
+			values = new int[4];
+			lists[list] = values;
+		} else if (sizes[list] == values.length) {
+			values = Arrays.copyOf(values, values.length * 2);
+			lists[list] = values;
+		}
+		values[sizes[list]++] = value;
+	}
+
+	private static int sortAndRemoveDuplicates(final int[] values, final int size) {
+		if (size == 0) {
+			return 0;
+		}
+		Arrays.sort(values, 0, size);
+		int count = 1;
+		for (int i = 1; i < size; i++) {
+			if (values[i] != values[count - 1]) {
+				values[count++] = values[i];
+			}
+		}
+		return count;
+	}
+
+	private static final class NestedDissection {
+
+		private final double[] x;
+		private final double[] y;
+		private final int[] adjacencyStart;
+		private final int[] adjacency;
+		private final int[] nodes;
+		private final int[] order;
+		private final int[] mark;
+		private int stamp = 0;
+		private int nextRank = 0;
+
+		NestedDissection(final Node[] nodes, final int[] adjacencyStart, final int[] adjacency) {
+			this.x = new double[nodes.length];
+			this.y = new double[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				this.x[i] = nodes[i].getCoord().getX();
+				this.y[i] = nodes[i].getCoord().getY();
+			}
+			this.adjacencyStart = adjacencyStart;
+			this.adjacency = adjacency;
+			this.nodes = new int[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				this.nodes[i] = i;
+			}
+			this.order = new int[nodes.length];
+			this.mark = new int[nodes.length];
+		}
+
+		/**
+		 * @return the positions of the nodes, ordered by rank
+		 */
+		int[] computeOrder() {
+			dissect(0, this.nodes.length);
+			return this.order;
+		}
+
+		private void dissect(final int from, final int to) {
+			if (to - from <= LEAF_SIZE) {
+				rank(from, to);
+				return;
+			}
+			double minX = Double.POSITIVE_INFINITY;
+			double minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			for (int i = from; i < to; i++) {
+				int node = this.nodes[i];
+				minX = Math.min(minX, this.x[node]);
+				maxX = Math.max(maxX, this.x[node]);
+				minY = Math.min(minY, this.y[node]);
+				maxY = Math.max(maxY, this.y[node]);
+			}
+			int mid = (from + to) >>> 1;
+			select(from, to, mid, (maxX - minX) >= (maxY - minY) ? this.x : this.y);
+
+			// use the smaller one of the two possible vertex separators along the cut
+			int separatorA = countBoundary(from, mid, mid, to);
+			int separatorB = countBoundary(mid, to, from, mid);
+			if (separatorA <= separatorB) {
+				int inner = moveBoundaryToEnd(from, mid, mid, to);
+				dissect(from, inner);
+				dissect(mid, to);
+				rank(inner, mid);
+			} else {
+				int inner = moveBoundaryToEnd(mid, to, from, mid);
+				dissect(from, mid);
+				dissect(mid, inner);
+				rank(inner, to);
+			}
+		}
+
+		private void rank(final int from, final int to) {
+			for (int i = from; i < to; i++) {
+				this.order[this.nextRank++] = this.nodes[i];
+			}
+		}
+
+		/**
+		 * @return the number of nodes in [from, to) adjacent to a node in [otherFrom, otherTo)
+		 */
+		private int countBoundary(final int from, final int to, final int otherFrom, final int otherTo) {
+			int otherStamp = markRange(otherFrom, otherTo);
+			int count = 0;
+			for (int i = from; i < to; i++) {
+				if (isAdjacentTo(this.nodes[i], otherStamp)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Reorders [from, to) such that the nodes adjacent to a node in [otherFrom, otherTo) are at the end.
+		 *
+		 * @return the index of the first boundary node
+		 */
+		private int moveBoundaryToEnd(final int from, final int to, final int otherFrom, final int otherTo) {
+			int otherStamp = markRange(otherFrom, otherTo);
+			int inner = from;
+			for (int i = from; i < to; i++) {
+				int node = this.nodes[i];
+				if (!isAdjacentTo(node, otherStamp)) {
+					this.nodes[i] = this.nodes[inner];
+					this.nodes[inner] = node;
+					inner++;
+				}
+			}
+			return inner;
+		}
+
+		private int markRange(final int from, final int to) {
+			this.stamp++;
+			for (int i = from; i < to; i++) {
+				this.mark[this.nodes[i]] = this.stamp;
+			}
+			return this.stamp;
+		}
+
+		private boolean isAdjacentTo(final int node, final int otherStamp) {
+			for (int j = this.adjacencyStart[node]; j < this.adjacencyStart[node + 1]; j++) {
+				if (this.mark[this.adjacency[j]] == otherStamp) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Partially sorts [from, to) such that position k holds the node it would hold if the range was sorted by
+		 * the given coordinate, with all smaller nodes before and all larger nodes after it.
+		 */
+		private void select(final int from, final int to, final int k, final double[] coord) {
+			int lo = from;
+			int hi = to - 1;
+			while (hi > lo) {
+				int pivot = this.nodes[(lo + hi) >>> 1];
+				int i = lo;
+				int j = hi;
+				while (i <= j) {
+					while (isLess(this.nodes[i], pivot, coord)) {
+						i++;
+					}
+					while (isLess(pivot, this.nodes[j], coord)) {
+						j--;
+					}
+					if (i <= j) {
+						int tmp = this.nodes[i];
+						this.nodes[i] = this.nodes[j];
+						this.nodes[j] = tmp;
+						i++;
+						j--;
+					}
+				}
+				if (k <= j) {
+					hi = j;
+				} else if (k >= i) {
+					lo = i;
+				} else {
+					return;
+				}
+			}
+		}
+
+		private static boolean isLess(final int a, final int b, final double[] coord) {
+			return coord[a] < coord[b] || (coord[a] == coord[b] && a < b);
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.Arrays;
+
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The customization of a {@link CCHGraph} with the link costs at a specific time.
+ * <p>
+ * For each edge, the costs in both directions are stored, together with the information needed to unpack
+ * the edge again: either the original link, or the middle node of the lower triangle the cost was taken from.
+ */
+final class CCHMetric {
+
+	/** costs from the lower to the higher ranked node */
+	final float[] up;
+	/** costs from the higher to the lower ranked node */
+	final float[] down;
+	/** middle node (rank) of the shortcut, or <code>-(linkIndex + 1)</code> for original links */
+	final int[] upVia;
+	final int[] downVia;
+
+	CCHMetric(final CCHGraph graph, final TravelDisutility travelDisutility, final double time) {
+		this.up = new float[graph.edgeCount];
+		this.down = new float[graph.edgeCount];
+		this.upVia = new int[graph.edgeCount];
+		this.downVia = new int[graph.edgeCount];
+		Arrays.fill(this.up, Float.POSITIVE_INFINITY);
+		Arrays.fill(this.down, Float.POSITIVE_INFINITY);
+
+		for (int i = 0; i < graph.links.length; i++) {
+			int e = graph.linkEdge[i];
+			if (e < 0) {
+				continue;
+			}
+			float cost = (float) travelDisutility.getLinkTravelDisutility(graph.links[i], time, null, null);
+			if (graph.linkUpward[i]) {
+				if (cost < this.up[e]) {
+					this.up[e] = cost;
+					this.upVia[e] = -(i + 1);
+				}
+			} else if (cost < this.down[e]) {
+				this.down[e] = cost;
+				this.downVia[e] = -(i + 1);
+			}
+		}
+
+		// process the lower triangles of all edges, bottom-up. Every edge (v,u) with v < u is final once all nodes below v are processed.
+		int[] upStart = graph.upStart;
+		int[] upHead = graph.upHead;
+		for (int v = 0; v < graph.nodeCount; v++) {
+			int end = upStart[v + 1];
+			for (int i = upStart[v]; i < end; i++) {
+				int u = upHead[i];
+				float fromU = this.down[i];
+				float toU = this.up[i];
+				int j = upStart[u];
+				for (int k = i + 1; k < end; k++) {
+					int w = upHead[k];
+					// the graph is chordal, so (u,w) exists, and both edge lists are sorted
+					while (upHead[j] != w) {
+						j++;
+					}
+					float uvw = fromU + this.up[k];
+					if (uvw < this.up[j]) {
+						this.up[j] = uvw;
+						this.upVia[j] = v;
+					}
+					float wvu = this.down[k] + toU;
+					if (wvu < this.down[j]) {
+						this.down[j] = wvu;
+						this.downVia[j] = v;
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.matsim.core.router.util.TravelDisutility;
+
+/**
+ * The customized {@link CCHMetric}s of one {@link CCHGraph}, one per time bin. They are customized lazily when the
+ * first route departing in a time bin is requested, and are then shared read-only by all {@link CCH} routers using
+ * the same travel times and costs, also across threads.
+ */
+final class CCHMetrics {
+
+	private final CCHGraph graph;
+	private final TravelDisutility travelDisutility;
+	private final int timeBinSize;
+	private final AtomicReferenceArray<CCHMetric> metrics;
+	private final Object[] locks;
+
+	/**
+	 * @param travelDisutility used to customize all time bins, possibly from several threads. It is only asked for
+	 *                         costs without person and vehicle.
+	 */
+	CCHMetrics(final CCHGraph graph, final TravelDisutility travelDisutility, final int timeBinSize, final int maxTime) {
+		this.graph = graph;
+		this.travelDisutility = travelDisutility;
+		this.timeBinSize = timeBinSize;
+		int binCount = maxTime / timeBinSize + 1;
+		this.metrics = new AtomicReferenceArray<>(binCount);
+		this.locks = new Object[binCount];
+		for (int i = 0; i < binCount; i++) {
+			this.locks[i] = new Object();
+		}
+	}
+
+	CCHMetric getMetric(final double time) {
+		int bin = Math.max(0, Math.min(this.metrics.length() - 1, (int) (time / this.timeBinSize)));
+		CCHMetric metric = this.metrics.get(bin);
+		if (metric == null) {
+			// other threads needing the same bin wait for its customization, other bins are not blocked
+			synchronized (this.locks[bin]) {
+				metric = this.metrics.get(bin);
+				if (metric == null) {
+					metric = new CCHMetric(this.graph, this.travelDisutility, (double) bin * this.timeBinSize);
+					this.metrics.set(bin, metric);
+				}
+			}
+		}
+		return metric;
+	}
+
+}
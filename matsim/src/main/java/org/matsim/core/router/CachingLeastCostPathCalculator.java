@@ -0,0 +1,224 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.router.util.ArrayRoutingNetworkNode;
+import org.matsim.core.router.util.DijkstraNodeData;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.RoutingNetworkLink;
+import org.matsim.core.router.util.RoutingNetworkNode;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+/**
+ * A {@link LeastCostPathCalculator} that serves requests starting at the same node in the same time bin from a shortest
+ * path tree, instead of searching each path separately.
+ * <p>
+ * The first request of a (from node, time bin) pair is passed on to the delegate. Once the pair is requested again,
+ * a full tree is calculated with a {@link FastMultiNodeDijkstra}, starting at the middle of the time bin, and all further
+ * requests of this pair are served from the tree. The travel time and cost of a path taken from a tree are re-calculated
+ * for the actual departure time, person and vehicle, so only the choice of the links is approximated. For time-independent
+ * travel disutilities, the paths are the same as the ones of the delegate (except for paths with equal costs).
+ * <p>
+ * The trees are calculated without a person or vehicle, so the cache must only be used with travel disutilities that
+ * do not depend on them. The number of trees is bounded by the given memory: once it is used up, no further trees are
+ * calculated in this iteration, and all other pairs are passed on to the delegate. (Replacing trees instead makes things
+ * worse, as the requests are usually not sorted by time, so evicted trees are needed again soon and every request of an
+ * evicted pair triggers a new tree.) A tenth of the memory, but at least enough for {@value #MIN_REQUEST_COUNTS} entries,
+ * is reserved for counting the requests per (from node, time bin) pair; if there are more pairs, the ones seen first are
+ * forgotten. All trees and counts are dropped when a new iteration starts, as the travel times change.
+ * <p>
+ * Instances are not thread-safe, like most other {@link LeastCostPathCalculator}s.
+ */
+public final class CachingLeastCostPathCalculator implements LeastCostPathCalculator {
+
+	/*package*/ static final int MIN_REQUESTS_FOR_TREE = 2;
+	private static final int BYTES_PER_TREE_NODE = 16;
+	private static final int BYTES_PER_REQUEST_COUNT = 80; // linked hash map entry with boxed key and value
+	/*package*/ static final int MIN_REQUEST_COUNTS = 1000;
+
+	private final LeastCostPathCalculator delegate;
+	private final FastMultiNodeDijkstra treeCalculator;
+	private final TravelDisutility travelDisutility;
+	private final TravelTime travelTime;
+	private final double timeBinSize;
+	private final ShortestPathTreeCacheStatistics statistics;
+
+	private final RoutingNetworkNode[] routingNodes;
+	private final Node allNodes;
+	private final Map<Long, Integer> requestCounts;
+	private final Map<Long, Tree> trees = new HashMap<>();
+	private final long maxTrees;
+	private int iteration;
+
+	/**
+	 * @param treeCalculator must have been created by a {@link FastMultiNodeDijkstraFactory} searching all end nodes,
+	 *                       for the same network, travel disutility and travel time as the delegate.
+	 * @param maxMemory      the memory in bytes the trees of this cache may use.
+	 */
+	public CachingLeastCostPathCalculator(final LeastCostPathCalculator delegate, final FastMultiNodeDijkstra treeCalculator,
+			final TravelDisutility travelDisutility, final TravelTime travelTime, final double timeBinSize, final long maxMemory,
+			final ShortestPathTreeCacheStatistics statistics) {
+		if (timeBinSize <= 0) {
+			throw new IllegalArgumentException("timeBinSize must be positive, but is " + timeBinSize);
+		}
+		if (!treeCalculator.isSearchAllEndNodes()) {
+			throw new IllegalArgumentException("The tree calculator must search all end nodes.");
+		}
+		this.delegate = delegate;
+		this.treeCalculator = treeCalculator;
+		this.travelDisutility = travelDisutility;
+		this.travelTime = travelTime;
+		this.timeBinSize = timeBinSize;
+		this.statistics = statistics;
+		this.iteration = statistics.getIteration();
+
+		this.routingNodes = new RoutingNetworkNode[treeCalculator.routingNetwork.getNodes().size()];
+		List<InitialNode> endNodes = new ArrayList<>(this.routingNodes.length);
+		for (RoutingNetworkNode node : treeCalculator.routingNetwork.getNodes().values()) {
+			this.routingNodes[((ArrayRoutingNetworkNode) node).getArrayIndex()] = node;
+			endNodes.add(new InitialNode(node, 0.0, 0.0));
+		}
+		this.allNodes = MultiNodeDijkstra.createImaginaryNode(endNodes);
+
+		long maxRequestCounts = Math.max(MIN_REQUEST_COUNTS, maxMemory / 10 / BYTES_PER_REQUEST_COUNT);
+		this.requestCounts = new LinkedHashMap<Long, Integer>() {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+				return size() > maxRequestCounts;
+			}
+		};
+		long treeMemory = maxMemory - maxRequestCounts * BYTES_PER_REQUEST_COUNT;
+		this.maxTrees = Math.max(1, treeMemory / Math.max(1L, (long) this.routingNodes.length * BYTES_PER_TREE_NODE));
+	}
+
+	@Override
+	public Path calcLeastCostPath(final Node fromNode, final Node toNode, final double starttime, final Person person, final Vehicle vehicle) {
+		int fromIndex = fromNode instanceof ImaginaryNode ? -1 : getIndex(fromNode);
+		int toIndex = toNode instanceof ImaginaryNode ? -1 : getIndex(toNode);
+		if (fromIndex < 0 || toIndex < 0 || fromIndex == toIndex) {
+			this.statistics.addRequest(false);
+			return this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		}
+		if (this.iteration != this.statistics.getIteration()) {
+			clear();
+			this.iteration = this.statistics.getIteration();
+		}
+
+		int timeBin = (int) (starttime / this.timeBinSize);
+		long key = ((long) timeBin << 32) | fromIndex;
+		Tree tree = this.trees.get(key);
+		if (tree == null && this.trees.size() < this.maxTrees && this.requestCounts.merge(key, 1, Integer::sum) >= MIN_REQUESTS_FOR_TREE) {
+			tree = calcTree(fromIndex, (timeBin + 0.5) * this.timeBinSize);
+			this.trees.put(key, tree);
+			this.requestCounts.remove(key);
+			this.statistics.addTree();
+		}
+		if (tree == null || !tree.reached(toIndex)) {
+			this.statistics.addRequest(false);
+			return this.delegate.calcLeastCostPath(fromNode, toNode, starttime, person, vehicle);
+		}
+		this.statistics.addRequest(true);
+		return constructPath(tree, toIndex, starttime, person, vehicle);
+	}
+
+	/**
+	 * Drops all trees, e.g. after the travel times have changed.
+	 */
+	public void clear() {
+		this.trees.clear();
+		this.requestCounts.clear();
+	}
+
+	private int getIndex(final Node node) {
+		RoutingNetworkNode routingNode = this.treeCalculator.routingNetwork.getNodes().get(node.getId());
+		return routingNode == null ? -1 : ((ArrayRoutingNetworkNode) routingNode).getArrayIndex();
+	}
+
+	private Tree calcTree(final int fromIndex, final double time) {
+		this.treeCalculator.calcLeastCostPath(this.routingNodes[fromIndex], this.allNodes, time, null, null);
+		int iterationId = this.treeCalculator.getIterationId();
+		Tree tree = new Tree(fromIndex, this.routingNodes.length);
+		for (int i = 0; i < this.routingNodes.length; i++) {
+			DijkstraNodeData data = this.treeCalculator.getData(this.routingNodes[i]);
+			if (i != fromIndex && data.isVisited(iterationId) && data.getPrevLink() != null) {
+				RoutingNetworkLink prevLink = (RoutingNetworkLink) data.getPrevLink();
+				tree.prevLinks[i] = prevLink.getLink();
+				tree.prevNodes[i] = ((ArrayRoutingNetworkNode) prevLink.getFromNode()).getArrayIndex();
+			}
+		}
+		return tree;
+	}
+
+	private Path constructPath(final Tree tree, final int toIndex, final double starttime, final Person person, final Vehicle vehicle) {
+		List<Link> links = new ArrayList<>();
+		List<Node> nodes = new ArrayList<>();
+		int index = toIndex;
+		while (index != tree.fromIndex) {
+			Link link = tree.prevLinks[index];
+			links.add(link);
+			nodes.add(link.getToNode());
+			index = tree.prevNodes[index];
+		}
+		nodes.add(this.routingNodes[tree.fromIndex].getNode());
+		Collections.reverse(links);
+		Collections.reverse(nodes);
+
+		// same order of operations as in Dijkstra, so the results are the same for the same links
+		double time = starttime;
+		double cost = 0.0;
+		for (Link link : links) {
+			double linkTravelTime = this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+			double linkTravelCost = this.travelDisutility.getLinkTravelDisutility(link, time, person, vehicle);
+			time += linkTravelTime;
+			cost += linkTravelCost;
+		}
+		return new Path(nodes, links, time - starttime, cost);
+	}
+
+	private static final class Tree {
+		final int fromIndex;
+		final Link[] prevLinks;
+		final int[] prevNodes;
+
+		Tree(final int fromIndex, final int countNodes) {
+			this.fromIndex = fromIndex;
+			this.prevLinks = new Link[countNodes];
+			this.prevNodes = new int[countNodes];
+		}
+
+		boolean reached(final int index) {
+			return this.prevLinks[index] != null;
+		}
+	}
+
+}
@@ -32,6 +32,7 @@ import org.matsim.core.network.algorithms.TransportModeNetworkFilter;
 import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
 import org.matsim.core.router.util.LeastCostPathCalculator;
 import org.matsim.core.router.util.LeastCostPathCalculatorFactory;
+import org.matsim.core.router.util.TravelDisutility;
 import org.matsim.core.router.util.TravelTime;
 
 import com.google.inject.name.Named;
@@ -55,6 +56,7 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 	@Inject PopulationFactory populationFactory;
 	@Inject LeastCostPathCalculatorFactory leastCostPathCalculatorFactory;
 	@Inject Scenario scenario ;
+	@com.google.inject.Inject(optional = true) ShortestPathTreeCacheStatistics shortestPathTreeCacheStatistics = new ShortestPathTreeCacheStatistics();
 	@Inject
 	@Named(TransportMode.walk)
 	private RoutingModule walkRouter;
@@ -85,6 +87,7 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 	}
 
 	private final String mode;
+	private final FastMultiNodeDijkstraFactory treeCalculatorFactory = new FastMultiNodeDijkstraFactory(true);
 
 	@Override
 	public RoutingModule get() {
@@ -116,11 +119,29 @@ public class NetworkRoutingProvider implements Provider<RoutingModule> {
 		if (travelTime == null) {
 			throw new RuntimeException("No TravelTime bound for mode "+routingMode+".");
 		}
-		LeastCostPathCalculator routeAlgo =
-				leastCostPathCalculatorFactory.createPathCalculator(
-						filteredNetwork,
-						travelDisutilityFactory.createTravelDisutility(travelTime),
-						travelTime);
+		TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
+		LeastCostPathCalculator routeAlgo;
+		if ( leastCostPathCalculatorFactory instanceof CCHFactory ) {
+			// lets the routers of all threads share the costs customized with this disutility function
+			routeAlgo = ((CCHFactory) leastCostPathCalculatorFactory).createPathCalculator(filteredNetwork, travelDisutilityFactory, travelDisutility, travelTime);
+		} else {
+			routeAlgo = leastCostPathCalculatorFactory.createPathCalculator(
+					filteredNetwork,
+					travelDisutility,
+					travelTime);
+		}
+
+		double treeCacheTimeBinSize = plansCalcRouteConfigGroup.getShortestPathTreeCacheTimeBinSize();
+		if ( treeCacheTimeBinSize > 0 ) {
+			// the trees are calculated without a person, which the randomizing travel disutility does not allow
+			if ( plansCalcRouteConfigGroup.getRoutingRandomness() == 0. ) {
+				FastMultiNodeDijkstra treeCalculator = (FastMultiNodeDijkstra) treeCalculatorFactory.createPathCalculator(filteredNetwork, travelDisutility, travelTime);
+				routeAlgo = new CachingLeastCostPathCalculator(routeAlgo, treeCalculator, travelDisutility, travelTime, treeCacheTimeBinSize,
+						plansCalcRouteConfigGroup.getShortestPathTreeCacheMemory() * 1024L * 1024L, shortestPathTreeCacheStatistics);
+			} else {
+				log.warn( "shortest path tree cache is not used for routingMode=" + routingMode + " because routingRandomness is not 0." ) ;
+			}
+		}
 
 		// the following again refers to the (transport)mode, since it will determine the mode of the leg on the network:
 		if ( plansCalcRouteConfigGroup.isInsertingAccessEgressWalk() ) {
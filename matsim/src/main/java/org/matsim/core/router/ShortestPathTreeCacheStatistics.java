@@ -0,0 +1,100 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Singleton;
+
+import org.apache.log4j.Logger;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
+import org.matsim.core.controler.listener.IterationStartsListener;
+
+/**
+ * Collects the number of requests served by all {@link CachingLeastCostPathCalculator}s and reports the hit rate at the end
+ * of every iteration. The current iteration is also used by the caches to drop their trees once the travel times change.
+ */
+@Singleton
+public final class ShortestPathTreeCacheStatistics implements IterationStartsListener, IterationEndsListener {
+
+	private static final Logger log = Logger.getLogger(ShortestPathTreeCacheStatistics.class);
+
+	private volatile int iteration = 0;
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong trees = new AtomicLong();
+
+	@Override
+	public void notifyIterationStarts(IterationStartsEvent event) {
+		reset();
+		this.iteration = event.getIteration();
+	}
+
+	@Override
+	public void notifyIterationEnds(IterationEndsEvent event) {
+		log.info("shortest path tree cache: " + getRequests() + " requests, " + getHits() + " of them served from "
+				+ getTrees() + " trees (hit rate " + Math.round(getHitRate() * 1000) / 10.0 + "%)");
+	}
+
+	/**
+	 * @return the iteration the caches are valid for. Caches created for an earlier iteration must drop their trees.
+	 */
+	public int getIteration() {
+		return this.iteration;
+	}
+
+	public void reset() {
+		this.requests.set(0);
+		this.hits.set(0);
+		this.trees.set(0);
+	}
+
+	void addRequest(boolean hit) {
+		this.requests.incrementAndGet();
+		if (hit) {
+			this.hits.incrementAndGet();
+		}
+	}
+
+	void addTree() {
+		this.trees.incrementAndGet();
+	}
+
+	public long getRequests() {
+		return this.requests.get();
+	}
+
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	public long getTrees() {
+		return this.trees.get();
+	}
+
+	public double getHitRate() {
+		long requests = getRequests();
+		return requests == 0 ? 0.0 : (double) getHits() / requests;
+	}
+
+}
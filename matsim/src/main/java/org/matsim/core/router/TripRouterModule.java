@@ -48,6 +48,10 @@ public class TripRouterModule extends AbstractModule {
         install(new TransitRouterModule());
         bind(SingleModeNetworksCache.class).asEagerSingleton();
         PlansCalcRouteConfigGroup routeConfigGroup = getConfig().plansCalcRoute();
+        bind(ShortestPathTreeCacheStatistics.class);
+        if (routeConfigGroup.getShortestPathTreeCacheTimeBinSize() > 0) {
+            addControlerListenerBinding().to(ShortestPathTreeCacheStatistics.class);
+        }
         for (String mode : routeConfigGroup.getTeleportedModeFreespeedFactors().keySet()) {
             if (getConfig().transit().isUseTransit() && getConfig().transit().getTransitModes().contains(mode)) {
                 // default config contains "pt" as teleported mode, but if we have simulated transit, this is supposed to override it
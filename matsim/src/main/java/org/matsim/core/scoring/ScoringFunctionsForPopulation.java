@@ -63,6 +63,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
  * This class helps EventsToScore by keeping ScoringFunctions for the entire Population - one per Person -, and dispatching Activities
  * and Legs to the ScoringFunctions. It also gives out the ScoringFunctions, so they can be given other events by EventsToScore.
  * It is not independently useful. Please do not make public.
+ * <p>
+ * Legs, activities and events may arrive from several threads at the same time (e.g. when the events are processed by
+ * {@link org.matsim.core.events.ParallelEventsManagerImpl} or {@link org.matsim.core.events.SimStepParallelEventsManagerImpl},
+ * where {@link EventsToLegs}, {@link EventsToActivities} and this class are served by different threads). Instead of one
+ * global monitor, the persons are sharded by {@link Id#index()}, and only the shard of the affected person is locked.
+ * The maps holding the per-person state are filled once in {@link #init()} and only read afterwards, so they can be
+ * shared by all shards. As all calls for one person are still serialized, the scores are the same as with sequential
+ * events processing.
  * 
  * @author michaz
  *
@@ -88,6 +96,7 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	private final IdMap<Person, TDoubleCollection> partialScores = new IdMap<>(Person.class);
 	private final AtomicReference<Throwable> exception = new AtomicReference<>();
 	private final IdMap<Person, Plan> tripRecords = new IdMap<>(Person.class);
+	private final Object[] shardLocks;
 	
 	private Vehicle2DriverEventHandler vehicles2Drivers = new Vehicle2DriverEventHandler();
 
@@ -102,6 +111,11 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		});
 		this.population = population;
 		this.scoringFunctionFactory = scoringFunctionFactory;
+		// more shards than cores, so that two threads rarely hit the same shard by chance
+		this.shardLocks = new Object[4 * Runtime.getRuntime().availableProcessors()];
+		for (int i = 0; i < this.shardLocks.length; i++) {
+			this.shardLocks[i] = new Object();
+		}
 		eventsManager.addHandler(this);
 		eventsToActivities.addActivityHandler(this);
 		eventsToLegs.addLegHandler(this);
@@ -116,36 +130,48 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		}
 	}
 
+	private Object getShardLock(final Id<Person> agentId) {
+		return this.shardLocks[agentId.index() % this.shardLocks.length];
+	}
+
 	@Override
-	synchronized public void handleEvent(Event o) {
+	public void handleEvent(Event o) {
 		// this is for the stuff that is directly based on events.
 		// note that this passes on _all_ person events, even those which are aggregated into legs and activities.
 		// for the time being, not all PersonEvents may "implement HasPersonId".
 		// link enter/leave events are NOT passed on, for performance reasons.
 		// kai/dominik, dec'12
 		if (o instanceof HasPersonId) {
-			ScoringFunction scoringFunction = getScoringFunctionForAgent(((HasPersonId) o).getPersonId());
+			Id<Person> agentId = ((HasPersonId) o).getPersonId();
+			ScoringFunction scoringFunction = getScoringFunctionForAgent(agentId);
 			if (scoringFunction != null) {
-				if (o instanceof PersonStuckEvent) {
-					scoringFunction.agentStuck(o.getTime());
-				} else if (o instanceof PersonMoneyEvent) {
-					scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
-					// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
-					// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
-				} 
-//				else {
-					scoringFunction.handleEvent(o);
-					// passing this on in any case, see comment above.  kai, mar'17
-//				}
+				synchronized (getShardLock(agentId)) {
+					if (o instanceof PersonStuckEvent) {
+						scoringFunction.agentStuck(o.getTime());
+					} else if (o instanceof PersonMoneyEvent) {
+						scoringFunction.addMoney(((PersonMoneyEvent) o).getAmount());
+						// yy looking at this, I am a bit skeptic if it truly makes sense to not pass this additionally into the general events handling function below.
+						// A use case might be different utilities of money by money transaction type (e.g. toll, fare, reimbursement, ...).  kai, mar'17
+					} 
+//					else {
+						scoringFunction.handleEvent(o);
+						// passing this on in any case, see comment above.  kai, mar'17
+//					}
+				}
 			}
 		}
 
 		// Establish and end connection between driver and vehicle
+		// (only accessed from the thread delivering the events to this handler, but better safe than sorry)
 		if (o instanceof VehicleEntersTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+			synchronized (this.vehicles2Drivers) {
+				this.vehicles2Drivers.handleEvent((VehicleEntersTrafficEvent) o);
+			}
 		}
 		if (o instanceof VehicleLeavesTrafficEvent) {
-			this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			synchronized (this.vehicles2Drivers) {
+				this.vehicles2Drivers.handleEvent((VehicleLeavesTrafficEvent) o);
+			}
 		}
 		// Pass LinkEnterEvent to person scoring, required e.g. for bicycle where link attributes are observed in scoring
 		/*
@@ -157,19 +183,29 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 		 */
 		if ( o instanceof LinkEnterEvent ) {
 			Id<Vehicle> vehicleId = ((LinkEnterEvent)o).getVehicleId();
-			Id<Person> driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
+			Id<Person> driverId;
+			synchronized (this.vehicles2Drivers) {
+				driverId = this.vehicles2Drivers.getDriverOfVehicle(vehicleId);
+			}
 			ScoringFunction scoringFunction = getScoringFunctionForAgent( driverId );
 			// (this will NOT do the scoring function lookup twice since LinkEnterEvent is not an instance of HasPersonId.  kai, mar'17)
 			if (scoringFunction != null) {
-				scoringFunction.handleEvent(o);
+				synchronized (getShardLock(driverId)) {
+					scoringFunction.handleEvent(o);
+				}
 			}
 		}
 	}
 
 	@Override
-	synchronized public void handleLeg(PersonExperiencedLeg o) {
+	public void handleLeg(PersonExperiencedLeg o) {
 		Id<Person> agentId = o.getAgentId();
-		Leg leg = o.getLeg();
+		synchronized (getShardLock(agentId)) {
+			handleLegInShard(agentId, o.getLeg());
+		}
+	}
+
+	private void handleLegInShard(Id<Person> agentId, Leg leg) {
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
 		if (scoringFunction != null) {
 			scoringFunction.handleLeg(leg);
@@ -183,9 +219,14 @@ import static org.matsim.core.router.TripStructureUtils.Trip;
 	}
 
 	@Override
-	synchronized public void handleActivity(PersonExperiencedActivity o) {
+	public void handleActivity(PersonExperiencedActivity o) {
 		Id<Person> agentId = o.getAgentId();
-		Activity activity = o.getActivity();
+		synchronized (getShardLock(agentId)) {
+			handleActivityInShard(agentId, o.getActivity());
+		}
+	}
+
+	private void handleActivityInShard(Id<Person> agentId, Activity activity) {
 		ScoringFunction scoringFunction = ScoringFunctionsForPopulation.this.getScoringFunctionForAgent(agentId);
 		if (scoringFunction != null) {
 			scoringFunction.handleActivity(activity);
@@ -20,6 +20,8 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import org.matsim.api.core.v01.network.Link;
+
 /**
  *  Returns the travel time that is stored in the TravelTimeData objects without modification. 
  *
@@ -38,4 +40,10 @@ class AveragingTravelTimeGetter implements TravelTimeGetter {
 		return travelTimeData.getTravelTime(timeSlot, time);
 	}
 
+	@Override
+	public double getTravelTime(TravelTimeDataSnapshot snapshot, Link link, double time) {
+		final int timeSlot = travelTimeAggregator.getTimeSlotIndex(time);
+		return snapshot.getTravelTime(link, timeSlot, time);
+	}
+
 }
@@ -20,6 +20,8 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import org.matsim.api.core.v01.network.Link;
+
 class LinearInterpolatingTravelTimeGetter implements TravelTimeGetter {
 
 	private final TimeSlotComputation travelTimeAggregator ;
@@ -62,6 +64,25 @@ class LinearInterpolatingTravelTimeGetter implements TravelTimeGetter {
 		double firstTravelTime = travelTimeData.getTravelTime(firstSlot, time); 
 		double secondTravelTime = travelTimeData.getTravelTime(secondSlot, time);
 		
+		return interpolate(firstSlot, firstTravelTime, secondTravelTime, time);
+	}
+
+	@Override
+	public double getTravelTime(TravelTimeDataSnapshot snapshot, Link link, double time) {
+		final int timeSlot = travelTimeAggregator.getTimeSlotIndex(time);
+
+		// same as above, see there for comments
+		if (time <= halfBinSize) return snapshot.getTravelTime(link, timeSlot, time);
+		else if (time >= numSlots * travelTimeBinSize - halfBinSize) return snapshot.getTravelTime(link, timeSlot, time);
+
+		int firstSlot = timeSlot * travelTimeBinSize + halfBinSize > time ? timeSlot - 1 : timeSlot;
+		double firstTravelTime = snapshot.getTravelTime(link, firstSlot, time);
+		double secondTravelTime = snapshot.getTravelTime(link, firstSlot + 1, time);
+
+		return interpolate(firstSlot, firstTravelTime, secondTravelTime, time);
+	}
+
+	private double interpolate(int firstSlot, double firstTravelTime, double secondTravelTime, double time) {
 		// interpolate travel time
 		double dx = time - (firstSlot * travelTimeBinSize + halfBinSize); 
 //		double dy = (secondTravelTime - firstTravelTime) * (travelTimeBinSize - dx) / travelTimeBinSize;
@@ -45,6 +45,7 @@ import org.matsim.core.api.experimental.events.handler.VehicleArrivesAtFacilityE
 import org.matsim.core.config.groups.QSimConfigGroup;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.gbl.Gbl;
+import org.matsim.core.network.TimeDependentNetwork;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -65,6 +66,10 @@ import com.google.inject.Inject;
  * use {@link TravelTimeDataHashMap},}
  * as that one does not use any memory to time bins where no traffic occurred. By default,
  * {@link TravelTimeDataArray} is used.
+ * <br>
+ * Once all events of an iteration are handled, {@link #createTravelTimeSnapshot()} copies the link travel times
+ * into a read-only, array-based {@link TravelTimeDataSnapshot}, from which {@link #getLinkTravelTimes()} then
+ * answers until new travel times are observed.
  *
  * @author dgrether
  * @author mrieser
@@ -101,6 +106,10 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private TravelTimeDataFactory ttDataFactory = null;
 
+	private final Network network;
+
+	private volatile TravelTimeDataSnapshot snapshot = null;
+
 	@Inject private QSimConfigGroup qsimConfig ;
 	TravelTimeGetter travelTimeGetter ;
 
@@ -227,6 +236,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	private TravelTimeCalculator(final Network network, final int timeslice, final int maxTime,
 				   boolean calculateLinkTravelTimes, boolean calculateLinkToLinkTravelTimes, boolean filterModes, Set<String> analyzedModes) {
+		this.network = network;
 		this.calculateLinkTravelTimes = calculateLinkTravelTimes;
 		this.calculateLinkToLinkTravelTimes = calculateLinkToLinkTravelTimes;
 		this.filterAnalyzedModes = filterModes;
@@ -297,6 +307,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 				final int timeSlot = this.aggregator.getTimeSlotIndex(enterTime );
 				data.addTravelTime(timeSlot, e.getTime() - enterTime );
 				data.setNeedsConsolidation( true );
+				invalidateSnapshot();
 			}
 		}
 	}
@@ -336,6 +347,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		if (e != null) {
 			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(e.getLinkId(), true);
 			data.setNeedsConsolidation( true );
+			invalidateSnapshot();
 
 			//			this.aggregator.addStuckEventTravelTime(data, e.getTime(), event.getTime());
 			// this functionality is no longer there.
@@ -371,6 +383,11 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 	private double getLinkTravelTime(final Link link, final double time) {
 		if (this.calculateLinkTravelTimes) {
 
+			TravelTimeDataSnapshot snapshot = this.snapshot;
+			if (snapshot != null) {
+				return this.travelTimeGetter.getTravelTime( snapshot, link, time );
+			}
+
 			TravelTimeData data = this.dataContainerProvider.getTravelTimeData(link, true);
 			if ( data.isNeedingConsolidation() ) {
 				consolidateData(data);
@@ -423,6 +440,7 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 
 	@Override
 	public void reset(int iteration) {
+		this.snapshot = null;
 		if (this.calculateLinkTravelTimes) {
 			for (TravelTimeData data : this.linkData.values()){
 				data.resetTravelTimes();
@@ -491,6 +509,43 @@ public final class TravelTimeCalculator implements LinkEnterEventHandler, LinkLe
 		}
 	}
 
+	/**
+	 * Consolidates the travel times of all links and copies them into one contiguous array, indexed by the link's
+	 * {@link Id#index()} and the time slot.  Until the next event changes the collected travel times (or {@link #reset(int)}
+	 * is called), {@link #getLinkTravelTimes()} reads from that array instead of looking up the per-link data objects.
+	 * <p></p>
+	 * Should be called once all events of an iteration are handled, e.g. at the end of the iteration.  Does nothing if link
+	 * travel times are not calculated, or if the network has network change events, since then the free speed travel time of
+	 * slots without data depends on the exact time of the request.  Does also nothing, apart from a warning, if the links times
+	 * the time slots exceed the size of an array.
+	 */
+	public void createTravelTimeSnapshot() {
+		if (!this.calculateLinkTravelTimes) {
+			return;
+		}
+		if (this.network instanceof TimeDependentNetwork && !((TimeDependentNetwork) this.network).getNetworkChangeEvents().isEmpty()) {
+			return;
+		}
+		long size = TravelTimeDataSnapshot.getSize(this.linkData.keySet(), this.numSlots);
+		if (size > TravelTimeDataSnapshot.MAX_SIZE) {
+			log.warn("Not creating a travel time snapshot, as " + size + " values (links times " + this.numSlots + " time slots) do not fit into "
+					+ "an array. Travel times are read from the per-link data instead. Use a larger travel time bin size to enable the snapshot.");
+			return;
+		}
+		for (TravelTimeData data : this.linkData.values()) {
+			if (data.isNeedingConsolidation()) {
+				consolidateData(data);
+			}
+		}
+		this.snapshot = new TravelTimeDataSnapshot(this.linkData, this.numSlots, this.timeSlice);
+	}
+
+	private void invalidateSnapshot() {
+		if (this.snapshot != null) {
+			this.snapshot = null;
+		}
+	}
+
 	private static int cnt = 0 ;
 
 	public TravelTime getLinkTravelTimes() {
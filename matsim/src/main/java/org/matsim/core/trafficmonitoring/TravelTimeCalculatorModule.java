@@ -31,6 +31,8 @@ import org.matsim.api.core.v01.network.Network;
 import org.matsim.core.api.experimental.events.EventsManager;
 import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
 import org.matsim.core.controler.AbstractModule;
+import org.matsim.core.controler.events.IterationEndsEvent;
+import org.matsim.core.controler.listener.IterationEndsListener;
 import org.matsim.core.router.util.LinkToLinkTravelTime;
 import org.matsim.core.router.util.TravelTime;
 import org.matsim.core.utils.collections.CollectionUtils;
@@ -79,6 +81,9 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 				}).in( Singleton.class );
 				// (This used to be without "Singleton".  I think that with Singleton it makes more sense, but don't know ramifications. kai, nov'19)
 
+				// freeze the observed travel times for the router threads of the next iteration:
+				addControlerListenerBinding().toInstance(new TravelTimeSnapshotCreator(Key.get(TravelTimeCalculator.class, Names.named(mode))));
+
 			}
 		} else {
 			// (all analyzed modes are measured together, and the same result is returned to each mode)
@@ -92,6 +97,7 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 				for ( String mode : getConfig().plansCalcRoute().getNetworkModes() ) {
 					addTravelTimeBinding(mode).toProvider(ObservedLinkTravelTimes.class);
 				}
+				addControlerListenerBinding().toInstance(new TravelTimeSnapshotCreator(Key.get(TravelTimeCalculator.class)));
 			}
 			if (getConfig().travelTimeCalculator().isCalculateLinkToLinkTravelTimes()) {
 				bind(LinkToLinkTravelTime.class).toProvider(ObservedLinkToLinkTravelTimes.class);
@@ -132,6 +138,22 @@ public class TravelTimeCalculatorModule extends AbstractModule {
 		}
 	}
 
+	private static class TravelTimeSnapshotCreator implements IterationEndsListener {
+
+		@Inject Injector injector;
+
+		private final Key<TravelTimeCalculator> key;
+
+		TravelTimeSnapshotCreator(Key<TravelTimeCalculator> key) {
+			this.key = key;
+		}
+
+		@Override
+		public void notifyIterationEnds(IterationEndsEvent event) {
+			injector.getInstance(key).createTravelTimeSnapshot();
+		}
+	}
+
 	private static class ObservedLinkTravelTimes implements Provider<TravelTime> {
 
 		@Inject
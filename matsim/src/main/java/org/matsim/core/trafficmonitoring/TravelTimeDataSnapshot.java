@@ -0,0 +1,100 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.trafficmonitoring;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+
+/**
+ * A read-only copy of the (consolidated) travel times of all links, stored in one contiguous array
+ * indexed by <code>linkIndex * numSlots + timeSlot</code>, where <code>linkIndex</code> is
+ * {@link Id#index()} of the link's id.
+ * <p></p>
+ * Looking up a travel time is a single array access, without map lookups, consolidation checks or
+ * synchronization, so the snapshot can be shared by any number of router threads.  Slots without
+ * data (e.g. links that were never traversed) fall back to the free speed travel time, as
+ * {@link TravelTimeDataArray} does.
+ * <p></p>
+ * The snapshot is held in addition to the per-link data objects, i.e. it costs another 8 bytes per link and time slot,
+ * also for links without data below the highest link index (e.g. 80 MB for 100'000 links with 15 minute bins over 30
+ * hours).  Doubles are kept so that the routers see exactly the travel times of the data objects.  If the array would
+ * exceed {@link #MAX_SIZE} values, no snapshot can be created.
+ */
+final class TravelTimeDataSnapshot {
+
+	/**
+	 * The largest number of values a Java array can safely hold.
+	 */
+	static final long MAX_SIZE = Integer.MAX_VALUE - 8;
+
+	private final int numSlots;
+	private final int numberOfLinks;
+	private final double[] travelTimes;
+
+	/**
+	 * The data objects must already be consolidated, and {@link #getSize(Collection, int)} must not exceed
+	 * {@link #MAX_SIZE}.
+	 */
+	TravelTimeDataSnapshot(final Map<Id<Link>, TravelTimeData> linkData, final int numSlots, final int timeSlice) {
+		long size = getSize(linkData.keySet(), numSlots);
+		if (size > MAX_SIZE) {
+			throw new IllegalArgumentException("A travel time snapshot of " + size + " values does not fit into an array.");
+		}
+		this.numSlots = numSlots;
+		this.numberOfLinks = (int) (size / numSlots);
+		this.travelTimes = new double[(int) size];
+		Arrays.fill(this.travelTimes, -1.0);
+		for (Map.Entry<Id<Link>, TravelTimeData> e : linkData.entrySet()) {
+			TravelTimeData data = e.getValue();
+			int offset = e.getKey().index() * numSlots;
+			synchronized (data) {
+				for (int i = 0; i < numSlots; i++) {
+					this.travelTimes[offset + i] = data.getTravelTime(i, i * timeSlice);
+				}
+			}
+		}
+	}
+
+	double getTravelTime(final Link link, final int timeSlot, final double now) {
+		int linkIndex = link.getId().index();
+		if (linkIndex < this.numberOfLinks) {
+			double ttime = this.travelTimes[linkIndex * this.numSlots + timeSlot];
+			if (ttime >= 0.0) return ttime; // negative values are invalid.
+		}
+		return link.getLength() / link.getFreespeed(now);
+	}
+
+	/**
+	 * @return the number of values of a snapshot of these links, computed without overflow
+	 */
+	static long getSize(final Collection<Id<Link>> linkIds, final int numSlots) {
+		int numberOfLinks = 0;
+		for (Id<Link> linkId : linkIds) {
+			numberOfLinks = Math.max(numberOfLinks, linkId.index() + 1);
+		}
+		return (long) numberOfLinks * numSlots;
+	}
+
+}
@@ -20,9 +20,16 @@
 
 package org.matsim.core.trafficmonitoring;
 
+import org.matsim.api.core.v01.network.Link;
+
 interface TravelTimeGetter {
 
 //	public void setTravelTimeAggregator( TimeSlotComputation travelTimeAggregator );
 	
 	public double getTravelTime(TravelTimeData travelTimeData, double time);
+
+	/**
+	 * Same as above, but reads the travel times of the link from a finalized {@link TravelTimeDataSnapshot}.
+	 */
+	public double getTravelTime(TravelTimeDataSnapshot snapshot, Link link, double time);
 }
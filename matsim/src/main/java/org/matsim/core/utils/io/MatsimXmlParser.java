@@ -29,9 +29,11 @@ import org.xml.sax.helpers.DefaultHandler;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.Stack;
@@ -58,6 +60,7 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 
 	private boolean isValidating = true;
 	private boolean isNamespaceAware = true;
+	private boolean isReadAhead = false;
 
 	private String localDtdBase = null;
 	// yy this is NOT working for me with "dtd", but it IS working with null. 
@@ -123,6 +126,16 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 		this.isNamespaceAware = awareness;
 	}
 
+	/**
+	 * Specifies that files read with {@link #readFile(String)} are read and decompressed in a separate thread, in parallel
+	 * to the parsing. Useful for large, compressed files. By default, files are read in the parsing thread.
+	 *
+	 * @param readAhead true if files should be read and decompressed in a separate thread.
+	 */
+	public final void setReadAhead(final boolean readAhead) {
+		this.isReadAhead = readAhead;
+	}
+
 	/**
 	 * Sets the directory where to look for DTD and XSD files if they are not found
 	 * at the location specified in the XML.
@@ -146,7 +159,15 @@ public abstract class MatsimXmlParser extends DefaultHandler implements MatsimRe
 	public final void readFile(final String filename) throws UncheckedIOException {
 		log.info("starting to parse xml from file " + filename + " ...");
 		this.theSource = filename;
-		parse(new InputSource(IOUtils.getBufferedReader(filename)));
+		if (this.isReadAhead) {
+			try (InputStream stream = new ReadAheadInputStream(IOUtils.getInputStream(IOUtils.resolveFileOrResource(filename)))) {
+				parse(new InputSource(new BufferedReader(new InputStreamReader(stream, IOUtils.CHARSET_UTF8))));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} else {
+			parse(new InputSource(IOUtils.getBufferedReader(filename)));
+		}
 	}
 
 	@Override
@@ -0,0 +1,143 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.utils.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads (and thus typically decompresses) the underlying stream in a separate thread,
+ * so that the decompression runs in parallel to the thread consuming the data.
+ * The underlying stream is closed by the reading thread once it is consumed or when
+ * this stream is closed.
+ */
+/* deliberately package */ final class ReadAheadInputStream extends InputStream {
+
+	private static final byte[] END_OF_STREAM = new byte[0];
+
+	private final BlockingQueue<byte[]> chunks;
+	private final Thread thread;
+	private volatile Throwable exception = null;
+
+	private byte[] chunk = null;
+	private int pos = 0;
+	private boolean finished = false;
+
+	ReadAheadInputStream(final InputStream in) {
+		this(in, 64 * 1024, 16);
+	}
+
+	ReadAheadInputStream(final InputStream in, final int chunkSize, final int capacity) {
+		this.chunks = new ArrayBlockingQueue<>(capacity);
+		this.thread = new Thread(() -> readAll(in, chunkSize), "ReadAheadInputStream");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	private void readAll(final InputStream in, final int chunkSize) {
+		try (InputStream stream = in) {
+			while (true) {
+				byte[] buffer = new byte[chunkSize];
+				int length = 0;
+				int read = 0;
+				while (length < chunkSize && (read = stream.read(buffer, length, chunkSize - length)) >= 0) {
+					length += read;
+				}
+				if (length > 0) {
+					this.chunks.put(length == chunkSize ? buffer : Arrays.copyOf(buffer, length));
+				}
+				if (read < 0) {
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			return; // the stream was closed, nobody waits for more data
+		} catch (IOException | RuntimeException e) {
+			this.exception = e;
+		}
+		try {
+			this.chunks.put(END_OF_STREAM);
+		} catch (InterruptedException e) {
+			// the stream was closed, nobody waits for more data
+		}
+	}
+
+	private boolean nextChunk() throws IOException {
+		if (this.finished) {
+			return false;
+		}
+		try {
+			this.chunk = this.chunks.take();
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+		this.pos = 0;
+		if (this.chunk == END_OF_STREAM) {
+			this.finished = true;
+			Throwable e = this.exception;
+			if (e instanceof IOException) {
+				throw (IOException) e;
+			} else if (e != null) {
+				throw (RuntimeException) e;
+			}
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if ((this.chunk == null || this.pos == this.chunk.length) && !nextChunk()) {
+			return -1;
+		}
+		return this.chunk[this.pos++] & 0xff;
+	}
+
+	@Override
+	public int read(final byte[] b, final int off, final int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if ((this.chunk == null || this.pos == this.chunk.length) && !nextChunk()) {
+			return -1;
+		}
+		int n = Math.min(len, this.chunk.length - this.pos);
+		System.arraycopy(this.chunk, this.pos, b, off, n);
+		this.pos += n;
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return this.chunk == null ? 0 : this.chunk.length - this.pos;
+	}
+
+	@Override
+	public void close() {
+		this.finished = true;
+		this.chunk = null;
+		this.thread.interrupt();
+	}
+
+}
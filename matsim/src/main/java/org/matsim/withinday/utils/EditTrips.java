@@ -302,6 +302,10 @@ public final class EditTrips {
 						newTripElements.remove(0);
 						wantsToLeaveStop = false;
 						WithinDayAgentUtils.resetCaches(agent);
+						if (transitAgentTracker != null) {
+							// (the tracker indexes the waiting agents by their destination stop)
+							transitAgentTracker.updateAgentAtStop(ptPassengerAgent, currentOrNextStop.getId());
+						}
 					}
 				}
 			}
@@ -4,16 +4,23 @@
 
 package ch.sbb.matsim.routing.pt.raptor;
 
+import java.io.File;
+
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
+import org.matsim.testcases.MatsimTestUtils;
 
 /**
  * @author mrieser / SBB
  */
 public class SwissRailRaptorDataTest {
 
+    @Rule
+    public MatsimTestUtils utils = new MatsimTestUtils();
+
     @Test
     public void testTransfersFromSchedule() {
         Fixture f = new Fixture();
@@ -82,4 +89,63 @@ public class SwissRailRaptorDataTest {
         Assert.assertEquals("number of transfers should have stayed the same.", data2.transfers.length, data4.transfers.length);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testDataCache() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        SwissRailRaptorData expected = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+
+        String cacheDirectory = utils.getOutputDirectory() + "raptorCache";
+        raptorConfig.setDataCacheDirectory(cacheDirectory);
+        SwissRailRaptorData written = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        Assert.assertEquals(1, new File(cacheDirectory).listFiles().length);
+        SwissRailRaptorData read = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        Assert.assertEquals(1, new File(cacheDirectory).listFiles().length);
+        assertSameTransfers(expected, written);
+        assertSameTransfers(expected, read);
+
+        // a different schedule must not use the same cache file
+        f.schedule.getMinimalTransferTimes().set(Id.create(19, TransitStopFacility.class), Id.create(9, TransitStopFacility.class), 345);
+        SwissRailRaptorData changed = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        Assert.assertEquals(2, new File(cacheDirectory).listFiles().length);
+        Assert.assertEquals(expected.transfers.length + 1, changed.transfers.length);
+    }
+
+    @Test
+    public void testTransfersAreDeterministic() {
+        Fixture f = new Fixture();
+        f.init();
+
+        // a generous walk distance, so that many stops are processed with many transfers each
+        f.config.transitRouter().setMaxBeelineWalkConnectionDistance(5000);
+        RaptorStaticConfig raptorConfig = RaptorUtils.createStaticConfig(f.config);
+        SwissRailRaptorData expected = SwissRailRaptorData.create(f.schedule, raptorConfig, f.network);
+        Assert.assertTrue(expected.transfers.length > 0);
+        for (int i = 1; i < expected.transfers.length; i++) {
+            Assert.assertTrue("transfers must be ordered by their fromRouteStop.", expected.transfers[i - 1].fromRouteStop <= expected.transfers[i].fromRouteStop);
+        }
+        for (int run = 0; run < 5; run++) {
+            assertSameTransfers(expected, SwissRailRaptorData.create(f.schedule, raptorConfig, f.network));
+        }
+    }
+
+    private static void assertSameTransfers(SwissRailRaptorData expected, SwissRailRaptorData actual) {
+        Assert.assertEquals(expected.transfers.length, actual.transfers.length);
+        for (int i = 0; i < expected.transfers.length; i++) {
+            Assert.assertEquals(expected.transfers[i].fromRouteStop, actual.transfers[i].fromRouteStop);
+            Assert.assertEquals(expected.transfers[i].toRouteStop, actual.transfers[i].toRouteStop);
+            Assert.assertEquals(expected.transfers[i].transferTime, actual.transfers[i].transferTime, 0.0);
+            Assert.assertEquals(expected.transfers[i].transferDistance, actual.transfers[i].transferDistance, 0.0);
+        }
+        Assert.assertEquals(expected.routeStops.length, actual.routeStops.length);
+        for (int i = 0; i < expected.routeStops.length; i++) {
+            Assert.assertEquals(expected.routeStops[i].countTransfers, actual.routeStops[i].countTransfers);
+            if (expected.routeStops[i].countTransfers > 0) {
+                Assert.assertEquals(expected.routeStops[i].indexFirstTransfer, actual.routeStops[i].indexFirstTransfer);
+            }
+        }
+    }
+
+}
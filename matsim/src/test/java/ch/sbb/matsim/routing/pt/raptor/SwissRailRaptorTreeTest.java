@@ -13,6 +13,8 @@ import org.matsim.core.utils.misc.Time;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -401,6 +403,97 @@ public class SwissRailRaptorTreeTest {
         Assert.assertNull(stage5.line); // egress_walk
     }
 
+    @Test
+    public void testCalcTreesObservable_sameAsCalcTree() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), config, f.scenario.getNetwork());
+        DefaultRaptorStopFinder stopFinder = new DefaultRaptorStopFinder(null, new DefaultRaptorIntermodalAccessEgress(), null);
+        SwissRailRaptor raptor = new SwissRailRaptor(data, new DefaultRaptorParametersForPerson(f.scenario.getConfig()),
+                new LeastCostRaptorRouteSelector(), stopFinder );
+
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+
+        TransitStopFacility fromStop = f.schedule.getFacilities().get(Id.create(23, TransitStopFacility.class));
+        List<Double> depTimes = new ArrayList<>();
+        Map<Double, Map<Id<TransitStopFacility>, double[]>> results = new HashMap<>();
+        raptor.calcTreesObservable(fromStop, 7*3600 + 30*60, 8*3600 + 30*60, raptorParams, (depTime, stop, arrivalTime, transferCount, inVehicleTime) -> {
+            if (depTimes.isEmpty() || depTimes.get(depTimes.size() - 1) != depTime) {
+                depTimes.add(depTime);
+            }
+            results.computeIfAbsent(depTime, t -> new HashMap<>()).put(stop.getId(), new double[] { arrivalTime, transferCount, inVehicleTime });
+        });
+
+        Assert.assertTrue(depTimes.size() > 1);
+        Assert.assertEquals(Time.parseTime("07:31:00"), depTimes.get(depTimes.size() - 1), 0.0); // green line, 06:41 + 50 min
+        for (int i = 1; i < depTimes.size(); i++) {
+            Assert.assertTrue("departures must be in descending order", depTimes.get(i) < depTimes.get(i - 1));
+        }
+        Assert.assertEquals(1200, results.get(Time.parseTime("07:41:00")).get(Id.create(2, TransitStopFacility.class))[2], 1e-7); // 9 min green, 11 min blue
+
+        for (double depTime : depTimes) {
+            Map<Id<TransitStopFacility>, double[]> observed = results.get(depTime);
+            int expectedCount = 0;
+            for (Map.Entry<Id<TransitStopFacility>, TravelInfo> e : raptor.calcTree(fromStop, depTime, raptorParams).entrySet()) {
+                TravelInfo info = e.getValue();
+                if (info.isWalkOnly()) {
+                    continue;
+                }
+                expectedCount++;
+                double[] values = observed.get(e.getKey());
+                Assert.assertNotNull("Stop " + e.getKey() + " was not observed.", values);
+                Assert.assertEquals(info.ptArrivalTime, values[0], 0.0);
+                Assert.assertEquals(info.transferCount, (int) values[1]);
+            }
+            Assert.assertEquals(expectedCount, observed.size());
+        }
+    }
+
+    @Test
+    public void testStopToStopMatrices() {
+        Fixture f = new Fixture();
+        f.init();
+
+        RaptorStaticConfig config = RaptorUtils.createStaticConfig(f.config);
+        config.setOptimization(RaptorStaticConfig.RaptorOptimization.OneToAllRouting);
+        SwissRailRaptorData data = SwissRailRaptorData.create(f.scenario.getTransitSchedule(), config, f.scenario.getNetwork());
+        RaptorParameters raptorParams = RaptorUtils.createParameters(f.config);
+        double minDepTime = 7*3600;
+        double maxDepTime = 8*3600;
+
+        RaptorStopToStopMatrices matrices = RaptorStopToStopMatrices.calculate(data, raptorParams, minDepTime, maxDepTime, 2);
+        Assert.assertEquals(f.schedule.getFacilities().size(), matrices.getStops().size());
+
+        SwissRailRaptorCore core = new SwissRailRaptorCore(data);
+        for (TransitStopFacility fromStop : matrices.getStops()) {
+            Assert.assertEquals(0, matrices.getTravelTime(fromStop, fromStop), 0.0);
+            Map<TransitStopFacility, double[]> sums = new HashMap<>();
+            core.calcTreesObservable(Collections.singletonList(fromStop), minDepTime, maxDepTime, raptorParams, (depTime, stop, arrivalTime, transferCount, inVehicleTime) -> {
+                double[] sum = sums.computeIfAbsent(stop, s -> new double[4]);
+                sum[0] += arrivalTime - depTime;
+                sum[1] += transferCount;
+                sum[2] += inVehicleTime;
+                sum[3]++;
+            });
+            for (TransitStopFacility toStop : matrices.getStops()) {
+                if (toStop == fromStop) {
+                    continue;
+                }
+                double[] sum = sums.get(toStop);
+                if (sum == null) {
+                    Assert.assertEquals(Float.POSITIVE_INFINITY, matrices.getTravelTime(fromStop, toStop), 0.0);
+                } else {
+                    Assert.assertEquals((float) (sum[0] / sum[3]), matrices.getTravelTime(fromStop, toStop), 0.0);
+                    Assert.assertEquals((float) (sum[1] / sum[3]), matrices.getTransferCount(fromStop, toStop), 0.0);
+                    Assert.assertEquals((float) (sum[2] / sum[3]), matrices.getInVehicleTime(fromStop, toStop), 0.0);
+                }
+            }
+        }
+    }
+
     private void assertTravelInfo(Map<Id<TransitStopFacility>, TravelInfo> map, int stopId, String expectedDepartureStop, int expectedTransfers, String expectedDepartureTime, String expectedArrivalTime) {
         TravelInfo info = map.get(Id.create(stopId, TransitStopFacility.class));
         Assert.assertNotNull("Stop " + stopId + " is not reachable.", info);
@@ -0,0 +1,73 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.events;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.events.handler.EventHandler;
+
+public class EventHandlerBalancerTest {
+
+	@Test
+	public void testRoundRobinWithoutMeasurements() {
+		EventHandlerBalancer balancer = new EventHandlerBalancer();
+		List<EventHandler> handlers = Arrays.asList(handler(), handler(), handler(), handler(), handler());
+		Assert.assertArrayEquals(new int[] {0, 1, 2, 0, 1}, balancer.assign(handlers, 3));
+	}
+
+	@Test
+	public void testLongestProcessingTimeFirst() {
+		EventHandler a = handler();
+		EventHandler b = handler();
+		EventHandler c = handler();
+		EventHandler d = handler();
+		EventHandler e = handler();
+		EventHandler unmeasured = handler();
+		EventHandlerBalancer balancer = new EventHandlerBalancer();
+		Map<EventHandler, Long> thread0 = new HashMap<>();
+		thread0.put(a, 100L);
+		thread0.put(c, 30L);
+		Map<EventHandler, Long> thread1 = new HashMap<>();
+		thread1.put(b, 50L);
+		thread1.put(d, 40L);
+		thread1.put(e, 20L);
+		balancer.addMeasuredTimes(thread0);
+		balancer.addMeasuredTimes(thread1);
+
+		// the unmeasured handler is assumed to be average (48): a, c, e (150) and b, d, unmeasured (138)
+		int[] threads = balancer.assign(Arrays.asList(a, b, c, d, e, unmeasured), 2);
+		Assert.assertArrayEquals(new int[] {0, 1, 0, 1, 0, 1}, threads);
+
+		balancer.clearMeasuredTimes();
+		Assert.assertFalse(balancer.hasMeasuredTimes());
+	}
+
+	private static EventHandler handler() {
+		return (BasicEventHandler) event -> {};
+	}
+
+}
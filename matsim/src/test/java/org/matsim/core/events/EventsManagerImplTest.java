@@ -24,6 +24,7 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.events.Event;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.handler.BasicEventHandler;
 import org.matsim.core.events.handler.EventHandler;
 
 /**
@@ -63,6 +64,43 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	@Test
+	public void testProcessEvent_DispatchModes() {
+		for (EventsManagerImpl.DispatchMode mode : EventsManagerImpl.DispatchMode.values()) {
+			EventsManager manager = new EventsManagerImpl(mode);
+			CountingMyEventHandler handler = new CountingMyEventHandler();
+			CountingBasicEventHandler basicHandler = new CountingBasicEventHandler();
+			manager.addHandler(handler);
+			manager.addHandler(basicHandler);
+			manager.processEvent(new MyEvent(123.45));
+			manager.processEvent(new MyEvent(234.56));
+			Assert.assertEquals("EventHandler was not called with dispatch mode " + mode, 2, handler.counter);
+			Assert.assertEquals("BasicEventHandler was not called with dispatch mode " + mode, 2, basicHandler.counter);
+
+			manager.removeHandler(handler);
+			manager.processEvent(new MyEvent(345.67));
+			Assert.assertEquals("EventHandler was called after removal with dispatch mode " + mode, 2, handler.counter);
+			Assert.assertEquals(3, basicHandler.counter);
+		}
+	}
+
+	@Test
+	public void testProcessEvent_ExceptionInEventHandler_DispatchModes() {
+		for (EventsManagerImpl.DispatchMode mode : EventsManagerImpl.DispatchMode.values()) {
+			EventsManager manager = new EventsManagerImpl(mode);
+			CrashingMyEventHandler handler = new CrashingMyEventHandler();
+			manager.addHandler(handler);
+			try {
+				manager.processEvent(new MyEvent(123.45));
+				Assert.fail("expected exception with dispatch mode " + mode + ", but got none.");
+			} catch (final RuntimeException e) {
+				log.info("Catched expected exception.", e);
+				Assert.assertEquals(1, handler.counter);
+				Assert.assertTrue(e.getCause() instanceof ArithmeticException);
+			}
+		}
+	}
+
 	/*package*/ static class MyEvent extends Event {
 		public MyEvent(final double time) {
 			super(time);
@@ -89,6 +127,18 @@ public class EventsManagerImplTest {
 		}
 	}
 
+	/*package*/ static class CountingBasicEventHandler implements BasicEventHandler {
+		/*package*/ int counter = 0;
+		@Override
+		public void reset(final int iteration) {
+			this.counter = 0;
+		}
+		@Override
+		public void handleEvent(final Event e) {
+			this.counter++;
+		}
+	}
+
 	/*package*/ static class CrashingMyEventHandler implements MyEventHandler {
 		/*package*/ int counter = 0;
 		@Override
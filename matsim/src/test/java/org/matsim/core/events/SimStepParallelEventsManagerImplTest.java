@@ -21,6 +21,7 @@
 
  package org.matsim.core.events;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.events.LinkEnterEvent;
@@ -29,6 +30,9 @@ import org.matsim.api.core.v01.events.PersonStuckEvent;
 import org.matsim.api.core.v01.events.handler.LinkEnterEventHandler;
 import org.matsim.testcases.utils.EventsCollector;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.junit.Assert.assertThat;
 
@@ -72,4 +76,65 @@ public class SimStepParallelEventsManagerImplTest {
 					new PersonStuckEvent(1.0, Id.createPersonId(0), Id.createLinkId(0), "car")));
 	}
 
+	@Test
+	public void testHandlersAreBalancedByRuntime() {
+		SimStepParallelEventsManagerImpl events = new SimStepParallelEventsManagerImpl(2, true);
+		// round robin puts the expensive handler together with light2 on one thread
+		ThreadRecordingHandler heavy = new ThreadRecordingHandler(20000);
+		ThreadRecordingHandler light1 = new ThreadRecordingHandler(0);
+		ThreadRecordingHandler light2 = new ThreadRecordingHandler(0);
+		ThreadRecordingHandler light3 = new ThreadRecordingHandler(0);
+		events.addHandler(heavy);
+		events.addHandler(light1);
+		events.addHandler(light2);
+		events.addHandler(light3);
+
+		for (int iteration = 0; iteration < 2; iteration++) {
+			for (ThreadRecordingHandler handler : new ThreadRecordingHandler[] {heavy, light1, light2, light3}) {
+				handler.threads.clear();
+				handler.count = 0;
+			}
+			events.initProcessing();
+			for (int i = 0; i < 1000; i++) {
+				events.processEvent(new LinkEnterEvent(i, Id.createVehicleId(0), Id.createLinkId(0)));
+				events.afterSimStep(i);
+			}
+			events.finishProcessing();
+
+			for (ThreadRecordingHandler handler : new ThreadRecordingHandler[] {heavy, light1, light2, light3}) {
+				Assert.assertEquals(1000, handler.count);
+				Assert.assertEquals(1, handler.threads.size());
+			}
+		}
+
+		// after the first iteration, the expensive handler got a thread on its own
+		String heavyThread = heavy.threads.iterator().next();
+		Assert.assertNotEquals(heavyThread, light1.threads.iterator().next());
+		Assert.assertNotEquals(heavyThread, light2.threads.iterator().next());
+		Assert.assertNotEquals(heavyThread, light3.threads.iterator().next());
+	}
+
+	private static class ThreadRecordingHandler implements LinkEnterEventHandler {
+		private final long busyNanos;
+		private final Set<String> threads = new HashSet<>();
+		private int count = 0;
+
+		ThreadRecordingHandler(long busyNanos) {
+			this.busyNanos = busyNanos;
+		}
+
+		@Override
+		public void handleEvent(LinkEnterEvent event) {
+			this.count++;
+			this.threads.add(Thread.currentThread().getName());
+			long end = System.nanoTime() + this.busyNanos;
+			while (System.nanoTime() < end) {
+				// simulate an expensive handler
+			}
+		}
+
+		@Override
+		public void reset(int iteration) {}
+	}
+
 }
@@ -0,0 +1,171 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.utils.io.UncheckedIOException;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class AsyncEventWriterXMLTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameOutputAsEventWriterXML() {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		EventWriterXML syncWriter = new EventWriterXML(expected);
+		writeEvents(syncWriter, 10000);
+		syncWriter.closeFile();
+
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		AsyncEventWriterXML asyncWriter = new AsyncEventWriterXML(actual, 3);
+		writeEvents(asyncWriter, 10000);
+		asyncWriter.closeFile();
+
+		Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		EventWriterXML syncWriter = new EventWriterXML(expected);
+		writeEvents(syncWriter, 10000);
+		syncWriter.closeFile();
+
+		String filename = this.utils.getOutputDirectory() + "events.xml.gz";
+		// small batches and capacity, so that the writer has to block and stitch many blocks together
+		AsyncEventWriterXML asyncWriter = new AsyncEventWriterXML(filename, 2, 100, 2);
+		writeEvents(asyncWriter, 10000);
+		asyncWriter.closeFile();
+
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		try (InputStream in = new GZIPInputStream(new FileInputStream(filename))) {
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) >= 0) {
+				actual.write(buffer, 0, read);
+			}
+		}
+		Assert.assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+		Assert.assertEquals(10000, collector.getEvents().size());
+	}
+
+	@Test
+	public void testNoEvents() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "events.xml.gz";
+		AsyncEventWriterXML asyncWriter = new AsyncEventWriterXML(filename, 1);
+		asyncWriter.closeFile();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+		Assert.assertEquals(0, collector.getEvents().size());
+	}
+
+	@Test
+	public void testFailureIsReported() {
+		OutputStream failingStream = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("disk full");
+			}
+		};
+		AsyncEventWriterXML asyncWriter = new AsyncEventWriterXML(failingStream, 2);
+		try {
+			writeEvents(asyncWriter, 100000);
+			asyncWriter.closeFile();
+			Assert.fail("expected exception.");
+		} catch (UncheckedIOException e) {
+			Assert.assertEquals("disk full", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testFormattingFailureIsReportedWhileWriting() {
+		AsyncEventWriterXML asyncWriter = new AsyncEventWriterXML(new ByteArrayOutputStream(), 2);
+		GenericEvent brokenEvent = new GenericEvent("broken", 0.0) {
+			@Override
+			public Map<String, String> getAttributes() {
+				throw new IllegalStateException("cannot format");
+			}
+		};
+		int written = 0;
+		try {
+			// many more batches than buffers, so the writer would block forever if the failed batches kept their buffers
+			for (; written < 1000000; written++) {
+				asyncWriter.handleEvent(brokenEvent);
+			}
+			Assert.fail("expected exception.");
+		} catch (RuntimeException e) {
+			Assert.assertEquals("cannot format", e.getCause().getMessage());
+		}
+		Assert.assertTrue(written < 1000000);
+		try {
+			asyncWriter.closeFile();
+			Assert.fail("expected exception.");
+		} catch (RuntimeException e) {
+			Assert.assertEquals("cannot format", e.getCause().getMessage());
+		}
+	}
+
+	private static void writeEvents(BasicEventHandler writer, int count) {
+		for (int i = 0; i < count; i++) {
+			double time = i * 0.5;
+			switch (i % 3) {
+				case 0:
+					writer.handleEvent(new LinkEnterEvent(time, Id.createVehicleId("v" + (i % 17)), Id.createLinkId(i % 5)));
+					break;
+				case 1:
+					writer.handleEvent(new LinkLeaveEvent(time, Id.createVehicleId("v<" + (i % 17)), Id.createLinkId(i % 5)));
+					break;
+				default:
+					GenericEvent event = new GenericEvent("custom", time);
+					event.getAttributes().put("name", "\"bär\" & co");
+					writer.handleEvent(event);
+			}
+		}
+	}
+
+}
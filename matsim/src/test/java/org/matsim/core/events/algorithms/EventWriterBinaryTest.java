@@ -0,0 +1,165 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.events.algorithms;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.api.core.v01.events.LinkEnterEvent;
+import org.matsim.api.core.v01.events.LinkLeaveEvent;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.groups.ControlerConfigGroup;
+import org.matsim.core.events.EventsReaderBinary;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.events.MatsimEventsReader;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class EventWriterBinaryTest {
+
+	@Rule public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRead() throws FileNotFoundException {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		List<Event> original = createEvents();
+		writeEvents(filename, original);
+		Assert.assertTrue(new File(filename).exists());
+		Assert.assertTrue(EventsReaderBinary.isBinaryEventsFile(filename));
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		new MatsimEventsReader(events).readFile(filename);
+
+		assertSameEvents(original, collector.getEvents());
+	}
+
+	@Test
+	public void testReadStreamAndURL() throws IOException {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		List<Event> original = createEvents();
+		writeEvents(filename, original);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		try (InputStream stream = new FileInputStream(filename)) {
+			new MatsimEventsReader(events).readStream(stream, ControlerConfigGroup.EventsFileFormat.binary);
+		}
+		assertSameEvents(original, collector.getEvents());
+
+		collector.reset(0);
+		new MatsimEventsReader(events).readURL(new File(filename).toURI().toURL());
+		assertSameEvents(original, collector.getEvents());
+	}
+
+	@Test
+	public void testFilteredRead() throws FileNotFoundException {
+		String filename = this.utils.getOutputDirectory() + "testEvents.bin";
+		List<Event> original = createEvents();
+		writeEvents(filename, original);
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		EventsUtils.readEvents(events, filename, Collections.singleton(LinkEnterEvent.EVENT_TYPE), 100.0, 1000.0);
+
+		int expected = 0;
+		for (Event event : original) {
+			if (event instanceof LinkEnterEvent && event.getTime() >= 100.0 && event.getTime() <= 1000.0) {
+				expected++;
+			}
+		}
+		Assert.assertTrue(expected > 0);
+		Assert.assertEquals(expected, collector.getEvents().size());
+		for (Event event : collector.getEvents()) {
+			Assert.assertTrue(event instanceof LinkEnterEvent);
+		}
+	}
+
+	@Test
+	public void testNotBinary() {
+		String filename = this.utils.getOutputDirectory() + "testEvents.xml";
+		EventWriterXML writer = new EventWriterXML(filename);
+		writer.handleEvent(new LinkLeaveEvent(3600.0, Id.createVehicleId("v1"), Id.createLinkId("l1")));
+		writer.closeFile();
+		Assert.assertFalse(EventsReaderBinary.isBinaryEventsFile(filename));
+	}
+
+	private static void assertSameEvents(List<Event> expectedEvents, List<Event> actualEvents) {
+		Assert.assertEquals(expectedEvents.size(), actualEvents.size());
+		for (int i = 0; i < expectedEvents.size(); i++) {
+			Event expected = expectedEvents.get(i);
+			Event actual = actualEvents.get(i);
+			Assert.assertEquals(expected.getClass(), actual.getClass());
+			Assert.assertEquals(expected.getAttributes(), actual.getAttributes());
+		}
+	}
+
+	private static void writeEvents(String filename, List<Event> events) throws FileNotFoundException {
+		// small blocks so that the reader has to deal with several of them
+		EventWriterBinary writer = new EventWriterBinary(new FileOutputStream(filename), 97);
+		for (Event event : events) {
+			writer.handleEvent(event);
+		}
+		writer.closeFile();
+	}
+
+	private static List<Event> createEvents() {
+		List<Event> events = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			double time = i * 1.5;
+			switch (i % 4) {
+				case 0:
+					events.add(new LinkEnterEvent(time, Id.createVehicleId("v" + (i % 13)), Id.createLinkId(i % 7)));
+					break;
+				case 1:
+					events.add(new ActivityStartEvent(time, Id.createPersonId(i % 11), Id.createLinkId(3), null, "home", new Coord(i * 0.1, 12.5)));
+					break;
+				case 2:
+					events.add(new PersonMoneyEvent(time, Id.createPersonId(7), -3.25, "toll", null));
+					break;
+				default:
+					GenericEvent event = new GenericEvent("custom", time);
+					event.getAttributes().put("name", "<bär>" + (i % 3));
+					events.add(event);
+			}
+		}
+		return events;
+	}
+
+}
@@ -0,0 +1,131 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.GenericEvent;
+import org.matsim.core.config.Config;
+import org.matsim.core.events.BufferingEventsManager;
+import org.matsim.core.events.EventsManagerImpl;
+import org.matsim.core.events.handler.BasicEventHandler;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class ParallelAgentLogicTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testEventsInSequentialOrder() {
+		List<Integer> agents = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			agents.add(i);
+		}
+		List<String> expected = new ArrayList<>();
+		for (int agent : agents) {
+			for (int e = 0; e < agent % 4; e++) {
+				expected.add("logic_" + agent + "_" + e);
+			}
+			expected.add("after_" + agent);
+		}
+
+		EventsManagerImpl delegate = new EventsManagerImpl();
+		List<String> actual = new ArrayList<>();
+		delegate.addHandler((BasicEventHandler) event -> actual.add(event.getEventType()));
+		BufferingEventsManager events = new BufferingEventsManager(delegate);
+		Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+
+		ParallelAgentLogic parallelAgentLogic = new ParallelAgentLogic(4, events);
+		try {
+			for (int run = 0; run < 3; run++) {
+				actual.clear();
+				parallelAgentLogic.run(agents, agent -> {
+					threads.add(Thread.currentThread());
+					for (int e = 0; e < agent % 4; e++) {
+						events.processEvent(new GenericEvent("logic_" + agent + "_" + e, 0.0));
+					}
+				}, agent -> events.processEvent(new GenericEvent("after_" + agent, 0.0)));
+				Assert.assertEquals(expected, actual);
+			}
+		} finally {
+			parallelAgentLogic.shutdown();
+		}
+		Assert.assertEquals(4, threads.size());
+		Assert.assertFalse(threads.contains(Thread.currentThread()));
+	}
+
+	@Test
+	public void testFewAgentsInCallingThread() {
+		EventsManagerImpl delegate = new EventsManagerImpl();
+		List<Event> actual = new ArrayList<>();
+		delegate.addHandler((BasicEventHandler) actual::add);
+		BufferingEventsManager events = new BufferingEventsManager(delegate);
+		Set<Thread> threads = new HashSet<>();
+
+		ParallelAgentLogic parallelAgentLogic = new ParallelAgentLogic(4, events);
+		try {
+			parallelAgentLogic.run(Arrays.asList(1, 2, 3), agent -> {
+				threads.add(Thread.currentThread());
+				events.processEvent(new GenericEvent("logic_" + agent, 0.0));
+			}, agent -> events.processEvent(new GenericEvent("after_" + agent, 0.0)));
+		} finally {
+			parallelAgentLogic.shutdown();
+		}
+		Assert.assertEquals(Collections.singleton(Thread.currentThread()), threads);
+		Assert.assertEquals(6, actual.size());
+		Assert.assertEquals("logic_1", actual.get(0).getEventType());
+		Assert.assertEquals("after_1", actual.get(1).getEventType());
+	}
+
+	@Test
+	public void testSameEventsInQSim() {
+		List<String> expected = runQSim(false);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, runQSim(true));
+	}
+
+	private List<String> runQSim(boolean usingParallelAgentLogic) {
+		Config config = QSimTestUtils.loadEquilConfig(utils);
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setUsingParallelAgentLogic(usingParallelAgentLogic);
+		// so that the events of the netsim threads come in a defined order, and the whole stream can be compared
+		config.qsim().setUsingDeterministicNetsimEvents(true);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		// let many agents end their activities in the same time step
+		QSimTestUtils.roundDownActivityEndTimes(scenario.getPopulation(), 900);
+
+		return QSimTestUtils.runQSim(scenario);
+	}
+
+}
@@ -0,0 +1,116 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.ActivityEngineType;
+import org.matsim.core.mobsim.framework.events.MobsimBeforeSimStepEvent;
+import org.matsim.core.mobsim.framework.listeners.MobsimBeforeSimStepListener;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class QSimIdleTimeStepSkippingTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameEventsWhenSkippingIdleTimeSteps() {
+		StepCounter expectedSteps = new SkippableStepCounter();
+		List<String> expected = runQSim(false, ActivityEngineType.priorityQueue, 1, expectedSteps);
+		StepCounter actualSteps = new SkippableStepCounter();
+		List<String> actual = runQSim(true, ActivityEngineType.priorityQueue, 1, actualSteps);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+		Assert.assertTrue("expected idle time steps to be skipped", actualSteps.steps < expectedSteps.steps);
+	}
+
+	@Test
+	public void testSameEventsWhenSkippingIdleTimeStepsWithTimingWheelAndThreads() {
+		List<String> expected = runQSim(false, ActivityEngineType.timingWheel, 2, new SkippableStepCounter());
+		StepCounter actualSteps = new SkippableStepCounter();
+		List<String> actual = runQSim(true, ActivityEngineType.timingWheel, 2, actualSteps);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testNoSkippingWithUnawareListener() {
+		StepCounter expectedSteps = new StepCounter();
+		List<String> expected = runQSim(false, ActivityEngineType.priorityQueue, 1, expectedSteps);
+		StepCounter actualSteps = new StepCounter();
+		List<String> actual = runQSim(true, ActivityEngineType.priorityQueue, 1, actualSteps);
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(expectedSteps.steps, actualSteps.steps);
+	}
+
+	private List<String> runQSim(boolean skipIdleTimeSteps, ActivityEngineType activityEngineType, int threads, StepCounter stepCounter) {
+		Config config = QSimTestUtils.loadEquilConfig(utils);
+		config.qsim().setSkippingIdleTimeSteps(skipIdleTimeSteps);
+		config.qsim().setActivityEngineType(activityEngineType);
+		config.qsim().setNumberOfThreads(threads);
+		// so that the events of several netsim threads come in the same order in every run
+		config.qsim().setUsingDeterministicNetsimEvents(true);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		// spread the activity ends, including fractional times, so that there are gaps between the vehicles
+		Random random = new Random(4711);
+		for (Person person : scenario.getPopulation().getPersons().values()) {
+			for (PlanElement pe : person.getSelectedPlan().getPlanElements()) {
+				if (pe instanceof Activity) {
+					Activity act = (Activity) pe;
+					if (act.getEndTime().isDefined()) {
+						act.setEndTime(act.getEndTime().seconds() + random.nextInt(7200) + (random.nextBoolean() ? 0.5 : 0.0));
+					}
+				}
+			}
+		}
+
+		return QSimTestUtils.runQSim(scenario, qsim -> qsim.addQueueSimulationListeners(stepCounter));
+	}
+
+	private static class StepCounter implements MobsimBeforeSimStepListener {
+		int steps = 0;
+
+		@Override
+		public void notifyMobsimBeforeSimStep(MobsimBeforeSimStepEvent e) {
+			this.steps++;
+		}
+	}
+
+	private static class SkippableStepCounter extends StepCounter implements HasNextWorkTime {
+		@Override
+		public double getNextWorkTime(double now) {
+			return Double.POSITIVE_INFINITY;
+		}
+	}
+
+}
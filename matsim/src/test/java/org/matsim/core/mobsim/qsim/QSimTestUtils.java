@@ -0,0 +1,107 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.Population;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+/**
+ * Helpers for tests that run the same scenario through differently configured QSims and compare the events.
+ */
+public final class QSimTestUtils {
+
+	private QSimTestUtils() {
+	}
+
+	/**
+	 * @return the config of the equil scenario with 100 agents
+	 */
+	public static Config loadEquilConfig(MatsimTestUtils utils) {
+		Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans100.xml");
+		return config;
+	}
+
+	/**
+	 * Rounds the activity end times of all selected plans down to multiples of <code>timeBinSize</code>, so that many
+	 * agents depart in the same time step.
+	 */
+	public static void roundDownActivityEndTimes(Population population, double timeBinSize) {
+		for (Person person : population.getPersons().values()) {
+			for (PlanElement pe : person.getSelectedPlan().getPlanElements()) {
+				if (pe instanceof Activity) {
+					Activity act = (Activity) pe;
+					if (act.getEndTime().isDefined()) {
+						act.setEndTime(Math.floor(act.getEndTime().seconds() / timeBinSize) * timeBinSize);
+					}
+				}
+			}
+		}
+	}
+
+	public static List<String> runQSim(Scenario scenario) {
+		return runQSim(scenario, qsim -> {
+		});
+	}
+
+	/**
+	 * Prepares the scenario for the mobsim, runs a QSim with the default modules and returns the attributes of all events
+	 * in the order in which they were thrown.  The random numbers are reset before, so that the QNodes make the same
+	 * choices in every run.
+	 *
+	 * @param beforeRun called with the QSim before it is started, e.g. to add listeners
+	 */
+	public static List<String> runQSim(Scenario scenario, Consumer<QSim> beforeRun) {
+		MatsimRandom.reset(scenario.getConfig().global().getRandomSeed());
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector collector = new EventsCollector();
+		events.addHandler(collector);
+		QSim qsim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, events);
+		beforeRun.accept(qsim);
+		qsim.run();
+
+		List<String> result = new ArrayList<>();
+		for (Event event : collector.getEvents()) {
+			result.add(event.getAttributes().toString());
+		}
+		return result;
+	}
+
+}
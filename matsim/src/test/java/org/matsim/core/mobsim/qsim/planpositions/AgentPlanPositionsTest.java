@@ -0,0 +1,185 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.planpositions;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.events.ActivityEndEvent;
+import org.matsim.api.core.v01.events.ActivityStartEvent;
+import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.Controler;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.framework.MobsimAgent;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.testcases.utils.EventsCollector;
+
+public class AgentPlanPositionsTest {
+
+	private static final double WRITE_TIME = 6 * 3600 + 15 * 60;
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testWriteAndRestart() {
+		Config config = loadConfig();
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		EventsManager events = EventsUtils.createEventsManager();
+		EventsCollector fullRun = new EventsCollector();
+		events.addHandler(fullRun);
+		QSim qsim = new QSimBuilder(config).useDefaults().build(scenario, events);
+		qsim.addQueueSimulationListeners(new AgentPlanPositionsWriter(utils.getOutputDirectory(), WRITE_TIME));
+		qsim.run();
+
+		AgentPlanPositions positions = AgentPlanPositions.read(AgentPlanPositionsWriter.getFilename(utils.getOutputDirectory(), WRITE_TIME));
+		Assert.assertEquals(WRITE_TIME, positions.getTime(), 0.0);
+		Assert.assertEquals(scenario.getPopulation().getPersons().size(), positions.getAgentStates().size());
+		int agentsInActivity = 0;
+		int agentsOnLeg = 0;
+		for (AgentPlanPositions.AgentState state : positions.getAgentStates()) {
+			if (state.getState() == MobsimAgent.State.ACTIVITY) {
+				agentsInActivity++;
+			} else if (state.getState() == MobsimAgent.State.LEG) {
+				agentsOnLeg++;
+			}
+		}
+		Assert.assertTrue(agentsInActivity > 0);
+		Assert.assertTrue(agentsOnLeg > 0);
+
+		Config restartConfig = loadConfig();
+		restartConfig.qsim().setStartTime(WRITE_TIME);
+		Scenario restartScenario = ScenarioUtils.loadScenario(restartConfig);
+		PrepareForSimUtils.createDefaultPrepareForSim(restartScenario).run();
+		positions.createRestartPlans(restartScenario.getPopulation());
+		EventsManager restartEvents = EventsUtils.createEventsManager();
+		EventsCollector restartRun = new EventsCollector();
+		restartEvents.addHandler(restartRun);
+		new QSimBuilder(restartConfig).useDefaults().build(restartScenario, restartEvents).run();
+
+		for (Event event : restartRun.getEvents()) {
+			Assert.assertTrue(event.getTime() >= WRITE_TIME);
+		}
+		// agents in an activity at the write time end it at the same time as in the original run
+		Map<Id<Person>, Double> originalEnds = getFirstActivityEndsAfterWriteTime(fullRun);
+		Map<Id<Person>, Double> restartEnds = getFirstActivityEndsAfterWriteTime(restartRun);
+		for (AgentPlanPositions.AgentState state : positions.getAgentStates()) {
+			if (state.getState() == MobsimAgent.State.ACTIVITY && Double.isFinite(state.getActivityEndTime())) {
+				Assert.assertEquals(originalEnds.get(state.getPersonId()), restartEnds.get(state.getPersonId()));
+			}
+		}
+		// and all agents complete their day
+		Assert.assertEquals(countActivityStarts(fullRun, "h"), countActivityStarts(restartRun, "h"));
+		Assert.assertEquals(scenario.getPopulation().getPersons().size(), countActivityStarts(restartRun, "h"));
+	}
+
+	@Test
+	public void testWrittenByControlerFromConfig() {
+		Config config = loadConfig();
+		config.controler().setLastIteration(0);
+		config.qsim().setPlanPositionsWriteTimes(Arrays.asList(WRITE_TIME, 12 * 3600.));
+		Controler controler = new Controler(config);
+		controler.run();
+
+		String prefix = controler.getControlerIO().getIterationFilename(0, "");
+		Assert.assertEquals(WRITE_TIME, AgentPlanPositions.read(AgentPlanPositionsWriter.getFilename(prefix, WRITE_TIME)).getTime(), 0.0);
+		Assert.assertEquals(12 * 3600., AgentPlanPositions.read(AgentPlanPositionsWriter.getFilename(prefix, 12 * 3600.)).getTime(), 0.0);
+	}
+
+	@Test
+	public void testRestartPlansWithoutRouteOrLink() {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		PopulationFactory pf = scenario.getPopulation().getFactory();
+		for (String id : Arrays.asList("onLeg", "stuck")) {
+			Person person = pf.createPerson(Id.createPersonId(id));
+			Plan plan = pf.createPlan();
+			plan.addActivity(pf.createActivityFromLinkId("h", Id.createLinkId("1")));
+			plan.addLeg(pf.createLeg(TransportMode.walk));
+			plan.addActivity(pf.createActivityFromLinkId("w", Id.createLinkId("2")));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		AgentPlanPositions positions = new AgentPlanPositions(WRITE_TIME, Arrays.asList(
+				new AgentPlanPositions.AgentState(Id.createPersonId("onLeg"), MobsimAgent.State.LEG, 1, null, 0, Double.POSITIVE_INFINITY),
+				new AgentPlanPositions.AgentState(Id.createPersonId("stuck"), MobsimAgent.State.ABORT, 1, null, 0, Double.POSITIVE_INFINITY)));
+		positions.createRestartPlans(scenario.getPopulation());
+
+		// without a route or a current link, the agents restart where their last activity was
+		List<PlanElement> onLeg = scenario.getPopulation().getPersons().get(Id.createPersonId("onLeg")).getSelectedPlan().getPlanElements();
+		Assert.assertEquals(3, onLeg.size());
+		Assert.assertEquals(AgentPlanPositions.RESTART_INTERACTION, ((Activity) onLeg.get(0)).getType());
+		Assert.assertEquals(Id.createLinkId("1"), ((Activity) onLeg.get(0)).getLinkId());
+		Assert.assertEquals(WRITE_TIME, ((Activity) onLeg.get(0)).getEndTime().seconds(), 0.0);
+		List<PlanElement> stuck = scenario.getPopulation().getPersons().get(Id.createPersonId("stuck")).getSelectedPlan().getPlanElements();
+		Assert.assertEquals(1, stuck.size());
+		Assert.assertEquals(Id.createLinkId("1"), ((Activity) stuck.get(0)).getLinkId());
+	}
+
+	private Config loadConfig() {
+		Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans100.xml");
+		return config;
+	}
+
+	private static Map<Id<Person>, Double> getFirstActivityEndsAfterWriteTime(EventsCollector collector) {
+		Map<Id<Person>, Double> ends = new HashMap<>();
+		for (Event event : collector.getEvents()) {
+			if (event instanceof ActivityEndEvent && event.getTime() >= WRITE_TIME) {
+				ends.putIfAbsent(((ActivityEndEvent) event).getPersonId(), event.getTime());
+			}
+		}
+		return ends;
+	}
+
+	private static int countActivityStarts(EventsCollector collector, String actType) {
+		int count = 0;
+		for (Event event : collector.getEvents()) {
+			if (event instanceof ActivityStartEvent && ((ActivityStartEvent) event).getActType().equals(actType)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+}
@@ -20,15 +20,40 @@
 
 package org.matsim.core.mobsim.qsim.pt;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 import org.apache.log4j.Logger;
 import org.matsim.api.core.v01.Coord;
 import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
 import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.controler.PrepareForSimUtils;
 import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.QSim;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.mobsim.qsim.agents.TransitAgent;
+import org.matsim.core.mobsim.qsim.agents.WithinDayAgentUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.MutableScenario;
+import org.matsim.core.scenario.ScenarioUtils;
 import org.matsim.pt.fakes.FakeAgent;
+import org.matsim.pt.routes.DefaultTransitPassengerRoute;
 import org.matsim.pt.transitSchedule.TransitScheduleFactoryImpl;
+import org.matsim.pt.transitSchedule.api.TransitLine;
+import org.matsim.pt.transitSchedule.api.TransitRouteStop;
 import org.matsim.pt.transitSchedule.api.TransitScheduleFactory;
 import org.matsim.pt.transitSchedule.api.TransitStopFacility;
 
@@ -114,4 +139,77 @@ public class TransitStopAgentTrackerTest extends TestCase {
 			log.info("catched expected exception.", e);
 		}
 	}
+
+	public void testGetAgentsAtFacilityForStopsToCome() {
+		MutableScenario scenario = (MutableScenario) ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Network network = scenario.getNetwork();
+		Node node1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord((double) 0, (double) 0));
+		Node node2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord((double) 1000, (double) 0));
+		NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), node1, node2, 1000.0, 10.0, 3600.0, (double) 1 );
+
+		TransitScheduleFactory builder = new TransitScheduleFactoryImpl();
+		TransitStopFacility stop1 = builder.createTransitStopFacility(Id.create(1, TransitStopFacility.class), new Coord((double) 2, (double) 3), false);
+		TransitStopFacility stop2 = builder.createTransitStopFacility(Id.create(2, TransitStopFacility.class), new Coord((double) 3, (double) 4), false);
+		TransitStopFacility stop3 = builder.createTransitStopFacility(Id.create(3, TransitStopFacility.class), new Coord((double) 4, (double) 5), false);
+		TransitLine line1 = builder.createTransitLine(Id.create("L1", TransitLine.class));
+		for (TransitStopFacility stop : Arrays.asList(stop2, stop3, stop2)) {
+			PopulationFactory pb = scenario.getPopulation().getFactory();
+			Person person = pb.createPerson(Id.create(scenario.getPopulation().getPersons().size(), Person.class));
+			Plan plan = pb.createPlan();
+			person.addPlan(plan);
+			plan.addActivity(pb.createActivityFromLinkId("home", Id.create("1", Link.class)));
+			Leg leg = pb.createLeg(TransportMode.pt);
+			leg.setRoute(new DefaultTransitPassengerRoute(stop1, line1, null, stop));
+			plan.addLeg(leg);
+			plan.addActivity(pb.createActivityFromLinkId("work", Id.create("1", Link.class)));
+			scenario.getPopulation().addPerson(person);
+		}
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+		QSim sim = new QSimBuilder(scenario.getConfig()).useDefaults().build(scenario, EventsUtils.createEventsManager());
+		TransitAgent[] agents = new TransitAgent[3];
+		for (int i = 0; i < agents.length; i++) {
+			agents[i] = TransitAgent.createTransitAgent(scenario.getPopulation().getPersons().get(Id.create(i, Person.class)), sim);
+			sim.insertAgentIntoMobsim(agents[i]);
+			agents[i].endActivityAndComputeNextState(10);
+		}
+		PTPassengerAgent fakeAgent = new FakeAgent(null, null);
+
+		TransitStopAgentTracker tracker = new TransitStopAgentTracker(EventsUtils.createEventsManager());
+		tracker.addAgentToStop(10, agents[0], stop1.getId());
+		tracker.addAgentToStop(10, fakeAgent, stop1.getId());
+		tracker.addAgentToStop(10, agents[1], stop1.getId());
+		tracker.addAgentToStop(10, agents[2], stop1.getId());
+
+		TransitRouteStop routeStop2 = builder.createTransitRouteStop(stop2, 50, 60);
+		TransitRouteStop routeStop3 = builder.createTransitRouteStop(stop3, 100, 110);
+		// the agents which might enter, in the order of their arrival; the fake agent is always returned
+		assertEquals(Arrays.asList(agents[0], fakeAgent, agents[2]), tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop2)));
+		assertEquals(Arrays.asList(fakeAgent, agents[1]), tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop3)));
+		assertEquals(Arrays.asList(agents[0], fakeAgent, agents[1], agents[2]),
+				tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop3, routeStop2, routeStop3)));
+		assertEquals(Collections.singletonList(fakeAgent), tracker.getAgentsAtFacility(stop1.getId(), Collections.<TransitRouteStop>emptyList()));
+		assertEquals(Collections.emptyList(), tracker.getAgentsAtFacility(stop2.getId(), Arrays.asList(routeStop2)));
+
+		tracker.removeAgentFromStop(agents[0], stop1.getId());
+		assertEquals(Arrays.asList(fakeAgent, agents[2]), tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop2)));
+
+		// the destination of a waiting agent changes, it keeps its position
+		WithinDayAgentUtils.getModifiableCurrentLeg(agents[2]).setRoute(new DefaultTransitPassengerRoute(stop1, line1, null, stop3));
+		WithinDayAgentUtils.resetCaches(agents[2]);
+		tracker.updateAgentAtStop(agents[2], stop1.getId());
+		assertEquals(Collections.singletonList(fakeAgent), tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop2)));
+		assertEquals(Arrays.asList(fakeAgent, agents[1], agents[2]), tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop3)));
+		assertEquals(Arrays.asList(fakeAgent, agents[1], agents[2]), tracker.getAgentsAtFacility(stop1.getId()));
+
+		// without the update, the agent is not returned for its old destination any more, and found under the new one afterwards
+		WithinDayAgentUtils.getModifiableCurrentLeg(agents[1]).setRoute(new DefaultTransitPassengerRoute(stop1, line1, null, stop2));
+		WithinDayAgentUtils.resetCaches(agents[1]);
+		assertEquals(Arrays.asList(fakeAgent, agents[2]), tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop3)));
+		assertEquals(Arrays.asList(fakeAgent, agents[1]), tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop2)));
+
+		// the agents are added to the given list
+		List<PTPassengerAgent> result = new ArrayList<>();
+		tracker.getAgentsAtFacility(stop1.getId(), Arrays.asList(routeStop2, routeStop3), result);
+		assertEquals(Arrays.asList(fakeAgent, agents[1], agents[2]), result);
+	}
 }
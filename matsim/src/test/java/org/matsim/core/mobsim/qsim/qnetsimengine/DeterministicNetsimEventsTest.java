@@ -0,0 +1,139 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.core.api.experimental.events.EventsManager;
+import org.matsim.core.config.Config;
+import org.matsim.core.controler.PrepareForSimUtils;
+import org.matsim.core.events.EventsUtils;
+import org.matsim.core.mobsim.qsim.AbstractQSimModule;
+import org.matsim.core.mobsim.qsim.QSimBuilder;
+import org.matsim.core.mobsim.qsim.QSimTestUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+import com.google.inject.Provides;
+
+/**
+ * Checks that the multi-threaded network simulation produces the same events in the same order in every run if the
+ * events are buffered per thread.
+ */
+@RunWith(Parameterized.class)
+public class DeterministicNetsimEventsTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	private final boolean usingThreadpool;
+	private final boolean usingEventDrivenNetsimEngine;
+
+	public DeterministicNetsimEventsTest(boolean usingThreadpool, boolean usingEventDrivenNetsimEngine) {
+		this.usingThreadpool = usingThreadpool;
+		this.usingEventDrivenNetsimEngine = usingEventDrivenNetsimEngine;
+	}
+
+	@Parameters(name = "{index}: usingThreadpool == {0}; usingEventDrivenNetsimEngine == {1}")
+	public static Collection<Object[]> parameterObjects() {
+		return Arrays.asList(new Object[][] {{true, false}, {false, false}, {true, true}});
+	}
+
+	@Test
+	public void testSameEventsInEveryRun() {
+		List<String> expected = runQSim(true);
+		Assert.assertFalse(expected.isEmpty());
+		for (int run = 0; run < 3; run++) {
+			Assert.assertEquals(expected, runQSim(true));
+		}
+	}
+
+	@Test
+	public void testSameEventsAsWithoutBuffering() {
+		List<String> expected = runQSim(false);
+		List<String> actual = runQSim(true);
+		// without buffering, the order of events from different threads within a time step is not defined
+		Collections.sort(expected);
+		Collections.sort(actual);
+		Assert.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testNetworkFactoryWithOtherEventsManagerIsRejected() {
+		Config config = QSimTestUtils.loadEquilConfig(utils);
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setUsingThreadpool(this.usingThreadpool);
+		config.qsim().setUsingEventDrivenNetsimEngine(this.usingEventDrivenNetsimEngine);
+		config.qsim().setUsingDeterministicNetsimEvents(true);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+		PrepareForSimUtils.createDefaultPrepareForSim(scenario).run();
+
+		try {
+			new QSimBuilder(config)
+				.useDefaults()
+				.addOverridingQSimModule(new AbstractQSimModule() {
+					@Override
+					protected void configureQSim() {
+					}
+
+					@Provides
+					QNetworkFactory provideQNetworkFactory(EventsManager events, Scenario scenario) {
+						// the events manager of the controler, not the buffering one of the qsim
+						return new ConfigurableQNetworkFactory(events, scenario);
+					}
+				})
+				.build(scenario, EventsUtils.createEventsManager());
+			Assert.fail("expected an exception, as the events of the links would bypass the buffers");
+		} catch (RuntimeException e) {
+			Throwable cause = e;
+			while (!(cause instanceof IllegalStateException) && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			Assert.assertTrue(cause.getMessage(), cause.getMessage().contains("events manager of the QSim"));
+		}
+	}
+
+	private List<String> runQSim(boolean usingDeterministicNetsimEvents) {
+		Config config = QSimTestUtils.loadEquilConfig(utils);
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setUsingThreadpool(this.usingThreadpool);
+		config.qsim().setUsingEventDrivenNetsimEngine(this.usingEventDrivenNetsimEngine);
+		config.qsim().setUsingDeterministicNetsimEvents(usingDeterministicNetsimEvents);
+		config.qsim().setFlowCapFactor(0.05);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		// let many agents depart at the same time, so that there is congestion on many links
+		QSimTestUtils.roundDownActivityEndTimes(scenario.getPopulation(), 900);
+
+		return QSimTestUtils.runQSim(scenario);
+	}
+
+}
@@ -0,0 +1,152 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.TransportMode;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Activity;
+import org.matsim.api.core.v01.population.Leg;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.Plan;
+import org.matsim.api.core.v01.population.PopulationFactory;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.config.groups.QSimConfigGroup.TrafficDynamics;
+import org.matsim.core.mobsim.qsim.QSimTestUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.routes.NetworkRoute;
+import org.matsim.core.population.routes.RouteUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+
+/**
+ * Compares the events of the {@link EventDrivenQNetsimEngine} with the ones of the default engine.
+ */
+@RunWith(Parameterized.class)
+public class EventDrivenQNetsimEngineTest {
+
+	private final TrafficDynamics trafficDynamics;
+	private final boolean isUsingFastCapacityUpdate;
+
+	public EventDrivenQNetsimEngineTest(TrafficDynamics trafficDynamics, boolean isUsingFastCapacityUpdate) {
+		this.trafficDynamics = trafficDynamics;
+		this.isUsingFastCapacityUpdate = isUsingFastCapacityUpdate;
+	}
+
+	@Parameters(name = "{index}: trafficDynamics == {0}; isUsingFastCapacityUpdate == {1}")
+	public static Collection<Object[]> parameterObjects() {
+		List<Object[]> parameters = new ArrayList<>();
+		for (TrafficDynamics trafficDynamics : TrafficDynamics.values()) {
+			parameters.add(new Object[] {trafficDynamics, false});
+			parameters.add(new Object[] {trafficDynamics, true});
+		}
+		return parameters;
+	}
+
+	@Test
+	public void testSameEventsAsDefaultEngine() {
+		List<String> expected = runQSim(false, false);
+		List<String> actual = runQSim(true, false);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testSameEventsWhenSkippingIdleTimeSteps() {
+		List<String> expected = runQSim(false, false);
+		List<String> actual = runQSim(true, true);
+		Assert.assertEquals(expected, actual);
+	}
+
+	private List<String> runQSim(boolean usingEventDrivenNetsimEngine, boolean skippingIdleTimeSteps) {
+		Scenario scenario = createScenario();
+		scenario.getConfig().qsim().setUsingEventDrivenNetsimEngine(usingEventDrivenNetsimEngine);
+		scenario.getConfig().qsim().setSkippingIdleTimeSteps(skippingIdleTimeSteps);
+		return QSimTestUtils.runQSim(scenario);
+	}
+
+	/**
+	 * Two links merge into a short bottleneck.  The departures are spread over the day, with a congested period in the
+	 * morning.  Some of the agents end their trip on the bottleneck, some of them travel on the same link twice.
+	 */
+	private Scenario createScenario() {
+		Config config = ConfigUtils.createConfig();
+		config.qsim().setTrafficDynamics(this.trafficDynamics);
+		config.qsim().setUsingFastCapacityUpdate(this.isUsingFastCapacityUpdate);
+		config.qsim().setEndTime(30 * 3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+
+		Network network = scenario.getNetwork();
+		Node nodeA = NetworkUtils.createAndAddNode(network, Id.createNodeId("A"), new Coord(0.0, 0.0));
+		Node nodeB = NetworkUtils.createAndAddNode(network, Id.createNodeId("B"), new Coord(0.0, 1000.0));
+		Node nodeC = NetworkUtils.createAndAddNode(network, Id.createNodeId("C"), new Coord(1000.0, 500.0));
+		Node nodeD = NetworkUtils.createAndAddNode(network, Id.createNodeId("D"), new Coord(1200.0, 500.0));
+		Node nodeE = NetworkUtils.createAndAddNode(network, Id.createNodeId("E"), new Coord(2200.0, 500.0));
+		Link linkAC = NetworkUtils.createAndAddLink(network, Id.createLinkId("AC"), nodeA, nodeC, 1000.0, 20.0, 3600.0, 1.0);
+		Link linkBC = NetworkUtils.createAndAddLink(network, Id.createLinkId("BC"), nodeB, nodeC, 1000.0, 15.0, 1800.0, 1.0);
+		Link linkCD = NetworkUtils.createAndAddLink(network, Id.createLinkId("CD"), nodeC, nodeD, 200.0, 10.0, 600.0, 1.0);
+		Link linkDE = NetworkUtils.createAndAddLink(network, Id.createLinkId("DE"), nodeD, nodeE, 1000.0, 20.0, 3600.0, 1.0);
+		Link linkEA = NetworkUtils.createAndAddLink(network, Id.createLinkId("EA"), nodeE, nodeA, 2200.0, 20.0, 3600.0, 1.0);
+
+		PopulationFactory factory = scenario.getPopulation().getFactory();
+		for (int i = 0; i < 600; i++) {
+			Link startLink = i % 2 == 0 ? linkAC : linkBC;
+			Link endLink = i % 7 == 0 ? linkCD : linkDE;
+			List<Id<Link>> routeLinkIds = endLink == linkCD ? new ArrayList<>() : Arrays.asList(linkCD.getId());
+			if (i % 11 == 0) {
+				// go around once more
+				endLink = linkCD;
+				routeLinkIds = Arrays.asList(linkCD.getId(), linkDE.getId(), linkEA.getId(), linkAC.getId());
+			}
+
+			Person person = factory.createPerson(Id.createPersonId(i));
+			Plan plan = factory.createPlan();
+			Activity home = factory.createActivityFromLinkId("home", startLink.getId());
+			// half of the agents depart within 20 minutes, the others during the rest of the day
+			home.setEndTime(i % 2 == 0 ? 6 * 3600 + i * 2 : 6 * 3600 + i * 97);
+			plan.addActivity(home);
+			Leg leg = factory.createLeg(TransportMode.car);
+			NetworkRoute route = RouteUtils.createLinkNetworkRouteImpl(startLink.getId(), endLink.getId());
+			route.setLinkIds(startLink.getId(), routeLinkIds, endLink.getId());
+			leg.setRoute(route);
+			plan.addLeg(leg);
+			plan.addActivity(factory.createActivityFromLinkId("work", endLink.getId()));
+			person.addPlan(plan);
+			scenario.getPopulation().addPerson(person);
+		}
+		return scenario;
+	}
+
+}
@@ -0,0 +1,216 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.mobsim.qsim.qnetsimengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.events.handler.LinkLeaveEventHandler;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.groups.QSimConfigGroup.NodePartitioning;
+import org.matsim.core.mobsim.qsim.QSimTestUtils;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.testcases.MatsimTestUtils;
+
+public class QNodePartitionerTest {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testHilbertIndex_consecutiveCellsAreNeighbours() {
+		// the first 4^k positions of the curve cover the 2^k x 2^k corner of the grid
+		int size = 16;
+		int[][] cells = new int[size * size][];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				long d = QNodePartitioner.hilbertIndex(x, y);
+				Assert.assertTrue(d < size * size);
+				Assert.assertNull("two cells with the same index", cells[(int) d]);
+				cells[(int) d] = new int[] {x, y};
+			}
+		}
+		for (int d = 1; d < cells.length; d++) {
+			int distance = Math.abs(cells[d][0] - cells[d - 1][0]) + Math.abs(cells[d][1] - cells[d - 1][1]);
+			Assert.assertEquals(1, distance);
+		}
+	}
+
+	@Test
+	public void testPartition_gridIsSplitIntoCompactEqualParts() {
+		int size = 20;
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		List<QNodeI> qNodes = new ArrayList<>();
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId("p" + x + "_" + y), new Coord(100 * x, 100 * y));
+			}
+		}
+		// shuffle the input, the result must not depend on the order of the nodes
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				qNodes.add(new NodeStub(nodes[(x * 7) % size][(y * 13) % size]));
+			}
+		}
+		double[] weights = new double[qNodes.size()];
+		Arrays.fill(weights, 1.0);
+
+		int[] parts = QNodePartitioner.partition(qNodes, weights, 4);
+
+		int[] nodesPerPart = new int[4];
+		int[][] partOfNode = new int[size][size];
+		for (int i = 0; i < qNodes.size(); i++) {
+			nodesPerPart[parts[i]]++;
+			Coord coord = qNodes.get(i).getNode().getCoord();
+			partOfNode[(int) coord.getX() / 100][(int) coord.getY() / 100] = parts[i];
+		}
+		for (int count : nodesPerPart) {
+			Assert.assertEquals(size * size / 4, count);
+		}
+
+		int edges = 0;
+		int cutEdges = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					edges++;
+					cutEdges += partOfNode[x][y] != partOfNode[x + 1][y] ? 1 : 0;
+				}
+				if (y + 1 < size) {
+					edges++;
+					cutEdges += partOfNode[x][y] != partOfNode[x][y + 1] ? 1 : 0;
+				}
+			}
+		}
+		// round robin would cut nearly every edge, two straight cuts through the grid cut 40 of 760 edges
+		Assert.assertTrue("too many edges between parts: " + cutEdges + " of " + edges, cutEdges < 0.1 * edges);
+	}
+
+	@Test
+	public void testPartition_weights() {
+		Network network = NetworkUtils.createNetwork();
+		List<QNodeI> qNodes = new ArrayList<>();
+		for (int x = 0; x < 10; x++) {
+			qNodes.add(new NodeStub(NetworkUtils.createAndAddNode(network, Id.createNodeId("w" + x), new Coord(100 * x, 0))));
+		}
+		double[] weights = {1, 1, 1, 1, 1, 1, 1, 1, 1, 9};
+
+		int[] parts = QNodePartitioner.partition(qNodes, weights, 2);
+
+		// the heavy node alone weighs about as much as all others together
+		int heavyPart = parts[9];
+		for (int i = 0; i < 9; i++) {
+			Assert.assertNotEquals(heavyPart, parts[i]);
+		}
+	}
+
+	@Test
+	public void testSameEventsWithAllPartitionings() {
+		List<String> expected = runQSim(NodePartitioning.roundRobin);
+		Assert.assertFalse(expected.isEmpty());
+		Assert.assertEquals(expected, runQSim(NodePartitioning.spaceFillingCurve));
+		Assert.assertEquals(expected, runQSim(NodePartitioning.spaceFillingCurveWithRebalancing));
+	}
+
+	@Test
+	public void testNodeMovesOfAllRunnersAreRecorded() {
+		Config config = QSimTestUtils.loadEquilConfig(utils);
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setNodePartitioning(NodePartitioning.spaceFillingCurveWithRebalancing);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		QNodeLoadHistory[] history = new QNodeLoadHistory[1];
+		Set<Id<Node>> passedNodes = new HashSet<>();
+		QSimTestUtils.runQSim(scenario, qsim -> {
+			history[0] = qsim.getChildInjector().getInstance(QNodeLoadHistory.class);
+			qsim.getEventsManager().addHandler((LinkLeaveEventHandler) event ->
+					passedNodes.add(scenario.getNetwork().getLinks().get(event.getLinkId()).getToNode().getId()));
+		});
+
+		// every node a vehicle passed was moved, whichever runner it belongs to
+		int[] nodeMoves = history[0].getNodeMoves();
+		Assert.assertNotNull(nodeMoves);
+		Assert.assertTrue(passedNodes.size() > 4);
+		for (Id<Node> nodeId : passedNodes) {
+			Assert.assertTrue(nodeId.toString(), nodeMoves[nodeId.index()] > 0);
+		}
+		for (int index = 0; index < nodeMoves.length; index++) {
+			if (nodeMoves[index] > 0) {
+				Assert.assertTrue(scenario.getNetwork().getNodes().containsKey(Id.get(index, Node.class)));
+			}
+		}
+	}
+
+	private List<String> runQSim(NodePartitioning nodePartitioning) {
+		Config config = QSimTestUtils.loadEquilConfig(utils);
+		config.qsim().setNumberOfThreads(4);
+		config.qsim().setNodePartitioning(nodePartitioning);
+		Scenario scenario = ScenarioUtils.loadScenario(config);
+
+		List<String> result = QSimTestUtils.runQSim(scenario);
+		// the order of events from different threads within a time step is not defined
+		Collections.sort(result);
+		return result;
+	}
+
+	private static class NodeStub implements QNodeI {
+		private final Node node;
+
+		NodeStub(Node node) {
+			this.node = node;
+		}
+
+		@Override
+		public Node getNode() {
+			return this.node;
+		}
+
+		@Override
+		public boolean doSimStep(double now) {
+			return false;
+		}
+
+		@Override
+		public void init() {
+		}
+
+		@Override
+		public Map<String, Object> getCustomAttributes() {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,195 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.Scenario;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.api.core.v01.population.PlanElement;
+import org.matsim.core.config.Config;
+import org.matsim.core.config.ConfigUtils;
+import org.matsim.core.scenario.MutableScenario;
+import org.matsim.core.scenario.ScenarioUtils;
+import org.matsim.core.utils.io.IOUtils;
+import org.matsim.examples.ExamplesUtils;
+import org.matsim.facilities.ActivityFacility;
+import org.matsim.testcases.MatsimTestUtils;
+import org.matsim.utils.objectattributes.AttributeConverter;
+
+public class ParallelPopulationReaderMatsimV6Test {
+
+	@Rule
+	public MatsimTestUtils utils = new MatsimTestUtils();
+
+	@Test
+	public void testSameResultAsSequentialReader() {
+		Config config = utils.loadConfig(IOUtils.extendUrl(ExamplesUtils.getTestScenarioURL("equil"), "config.xml"));
+		config.plans().setInputFile("plans2000.xml.gz");
+		Scenario original = ScenarioUtils.loadScenario(config);
+		int i = 0;
+		for (Person person : original.getPopulation().getPersons().values()) {
+			person.getAttributes().putAttribute("index", i++);
+			for (PlanElement pe : person.getSelectedPlan().getPlanElements()) {
+				pe.getAttributes().putAttribute("person", person.getId().toString());
+			}
+		}
+		original.getPopulation().getAttributes().putAttribute("description", "parallel reader test");
+		String file = utils.getOutputDirectory() + "population.xml.gz";
+		new PopulationWriter(original.getPopulation(), original.getNetwork()).writeV6(file);
+
+		Scenario sequential = readPopulation(original, file, 1);
+		Scenario parallel = readPopulation(original, file, 4);
+
+		Assert.assertEquals(original.getPopulation().getPersons().size(), parallel.getPopulation().getPersons().size());
+		Assert.assertEquals(new ArrayList<>(sequential.getPopulation().getPersons().keySet()), new ArrayList<>(parallel.getPopulation().getPersons().keySet()));
+		Assert.assertEquals("parallel reader test", parallel.getPopulation().getAttributes().getAttribute("description"));
+		Assert.assertEquals(write(sequential), write(parallel));
+	}
+
+	@Test
+	public void testExceptionInWorkerIsReported() throws IOException {
+		String file = utils.getOutputDirectory() + "population.xml";
+		try (Writer writer = IOUtils.getBufferedWriter(file)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+			writer.write("<!DOCTYPE population SYSTEM \"http://www.matsim.org/files/dtd/population_v6.dtd\">\n");
+			writer.write("<population>\n");
+			for (int i = 0; i < 1000; i++) {
+				String endTime = i == 789 ? "07:99:00" : "07:00:00";
+				writer.write("<person id=\"" + i + "\"><plan selected=\"yes\">"
+						+ "<activity type=\"h\" x=\"0\" y=\"0\" end_time=\"" + endTime + "\" /><leg mode=\"walk\" />"
+						+ "<activity type=\"w\" x=\"100\" y=\"0\" /></plan></person>\n");
+			}
+			writer.write("</population>\n");
+		}
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(4);
+		config.plans().setParallelReading(true);
+		try {
+			new PopulationReader(ScenarioUtils.createScenario(config)).readFile(file);
+			Assert.fail("expected exception.");
+		} catch (RuntimeException e) {
+			Throwable cause = e;
+			while (!(cause instanceof IllegalArgumentException) && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			Assert.assertTrue(cause.getMessage(), cause.getMessage().contains("07:99:00"));
+		}
+	}
+
+	@Test
+	public void testIdsAreCreatedInFileOrder() throws IOException {
+		String file = utils.getOutputDirectory() + "population.xml";
+		List<String> linkIds = new ArrayList<>();
+		try (Writer writer = IOUtils.getBufferedWriter(file)) {
+			writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+			writer.write("<!DOCTYPE population SYSTEM \"http://www.matsim.org/files/dtd/population_v6.dtd\">\n");
+			writer.write("<population>\n");
+			for (int i = 0; i < 2000; i++) {
+				String from = "idOrderLink" + (2 * i);
+				String to = "idOrderLink" + (2 * i + 1);
+				String via = "idOrderViaLink" + i;
+				linkIds.add(from);
+				linkIds.add(to);
+				linkIds.add(via);
+				writer.write("<person id=\"idOrderPerson" + i + "\"><attributes><attribute name=\"holder\" class=\"" + IdHolder.class.getName()
+						+ "\">idOrderHolder" + i + "</attribute></attributes><plan selected=\"yes\">"
+						+ "<activity type=\"h\" link=\"" + from + "\" facility=\"idOrderFacility" + i + "\" x=\"0\" y=\"0\" end_time=\"07:00:00\" />"
+						+ "<leg mode=\"car\"><route type=\"links\" start_link=\"" + from + "\" end_link=\"" + to + "\" vehicleRefId=\"idOrderVehicle" + i + "\">"
+						+ from + " " + via + " " + to + "</route></leg>"
+						+ "<activity type=\"w\" link=\"" + to + "\" x=\"100\" y=\"0\" /></plan></person>\n");
+			}
+			writer.write("</population>\n");
+		}
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(4);
+		config.plans().setParallelReading(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		PopulationReader reader = new PopulationReader(scenario);
+		IdHolderConverter converter = new IdHolderConverter();
+		reader.putAttributeConverter(IdHolder.class, converter);
+		reader.readFile(file);
+
+		// each value is converted once, and the converted value is set
+		Assert.assertEquals(2000, converter.conversions.get());
+		IdHolder holder = (IdHolder) scenario.getPopulation().getPersons().get(Id.createPersonId("idOrderPerson1999")).getAttributes().getAttribute("holder");
+		Assert.assertEquals("idOrderHolder1999", holder.id.toString());
+
+		for (int i = 1; i < linkIds.size(); i++) {
+			Assert.assertTrue(linkIds.get(i), Id.createLinkId(linkIds.get(i - 1)).index() < Id.createLinkId(linkIds.get(i)).index());
+		}
+		for (int i = 1; i < 2000; i++) {
+			Assert.assertTrue(Id.createPersonId("idOrderPerson" + (i - 1)).index() < Id.createPersonId("idOrderPerson" + i).index());
+			Assert.assertTrue(Id.create("idOrderFacility" + (i - 1), ActivityFacility.class).index() < Id.create("idOrderFacility" + i, ActivityFacility.class).index());
+			Assert.assertTrue(Id.createVehicleId("idOrderVehicle" + (i - 1)).index() < Id.createVehicleId("idOrderVehicle" + i).index());
+			Assert.assertTrue(Id.create("idOrderHolder" + (i - 1), IdHolder.class).index() < Id.create("idOrderHolder" + i, IdHolder.class).index());
+		}
+	}
+
+	private static class IdHolder {
+		final Id<IdHolder> id;
+
+		IdHolder(Id<IdHolder> id) {
+			this.id = id;
+		}
+	}
+
+	private static class IdHolderConverter implements AttributeConverter<IdHolder> {
+		final AtomicInteger conversions = new AtomicInteger();
+
+		@Override
+		public IdHolder convert(String value) {
+			this.conversions.incrementAndGet();
+			return new IdHolder(Id.create(value, IdHolder.class));
+		}
+
+		@Override
+		public String convertToString(Object o) {
+			return ((IdHolder) o).id.toString();
+		}
+	}
+
+	private static Scenario readPopulation(Scenario original, String file, int numberOfThreads) {
+		Config config = ConfigUtils.createConfig();
+		config.global().setNumberOfThreads(numberOfThreads);
+		config.plans().setParallelReading(true);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		((MutableScenario) scenario).setNetwork(original.getNetwork());
+		new PopulationReader(scenario).readFile(file);
+		return scenario;
+	}
+
+	private static String write(Scenario scenario) {
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		new PopulationWriter(scenario.getPopulation(), scenario.getNetwork()).writeV6(stream);
+		return stream.toString();
+	}
+
+}
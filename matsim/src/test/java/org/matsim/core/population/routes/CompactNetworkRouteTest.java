@@ -0,0 +1,86 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.population.routes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.core.network.NetworkUtils;
+
+public class CompactNetworkRouteTest extends AbstractNetworkRouteTest {
+
+	@Override
+	public NetworkRoute getNetworkRouteInstance(final Id<Link> fromLinkId, final Id<Link> toLinkId, final Network network) {
+		return (NetworkRoute) new CompactNetworkRouteFactory().createRoute(fromLinkId, toLinkId);
+	}
+
+	@Test
+	public void testClone() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		List<Id<Link>> srcRoute = new ArrayList<>();
+		srcRoute.add(Id.create(3, Link.class));
+		srcRoute.add(Id.create(4, Link.class));
+		NetworkRoute route1 = getNetworkRouteInstance(id1, id2, null);
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		NetworkRoute route2 = (NetworkRoute) route1.clone();
+
+		srcRoute.add(Id.create(5, Link.class));
+		route1.setLinkIds(id1, srcRoute, id2);
+
+		Assert.assertEquals(3, route1.getLinkIds().size());
+		Assert.assertEquals(2, route2.getLinkIds().size());
+	}
+
+	@Test
+	public void testGetLinkIds_isReadOnly() {
+		Id<Link> id1 = Id.create(1, Link.class);
+		Id<Link> id2 = Id.create(2, Link.class);
+		NetworkRoute route = getNetworkRouteInstance(id1, id2, null);
+		route.setLinkIds(id1, NetworkUtils.getLinkIds("3 4"), id2);
+		try {
+			route.getLinkIds().add(Id.create(5, Link.class));
+			Assert.fail("expected exception.");
+		} catch (UnsupportedOperationException e) {
+			// expected
+		}
+		Assert.assertEquals(1, route.getLinkIds().indexOf(Id.create(4, Link.class)));
+		Assert.assertFalse(route.getLinkIds().contains(Id.create(1, Link.class)));
+		Assert.assertEquals("1 3 4 2", route.getRouteDescription());
+	}
+
+	@Test
+	public void testRouteDescription() {
+		NetworkRoute route = getNetworkRouteInstance(null, null, null);
+		route.setRouteDescription("1 3 4 2");
+		Assert.assertEquals(Id.create(1, Link.class), route.getStartLinkId());
+		Assert.assertEquals(Id.create(2, Link.class), route.getEndLinkId());
+		Assert.assertEquals(NetworkUtils.getLinkIds("3 4"), route.getLinkIds());
+		Assert.assertEquals(NetworkUtils.getLinkIds("3 4"), new ArrayList<>(route.getLinkIds()));
+	}
+
+}
@@ -20,12 +20,20 @@
 
 package org.matsim.core.replanning.modules;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.apache.log4j.Logger;
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.population.Plan;
 import org.matsim.core.config.Config;
 import org.matsim.core.config.groups.GlobalConfigGroup;
+import org.matsim.core.config.groups.GlobalConfigGroup.ReplanningExecution;
+import org.matsim.core.gbl.MatsimRandom;
+import org.matsim.core.population.PopulationUtils;
 import org.matsim.core.population.algorithms.PlanAlgorithm;
 
 /**
@@ -60,6 +68,65 @@ public class AbstractMultithreadedModuleTest {
 
 	}
 
+	@Test
+	public void testCrashingThreadWithWorkStealing() {
+		try {
+			DummyCrashingModule testee = new DummyCrashingModule(2, ReplanningExecution.workStealing);
+			testee.prepareReplanning(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.handlePlan(null);
+			testee.finishReplanning();
+			Assert.fail("expected exception, got none.");
+		} catch (Exception e) {
+			log.info("Catched expected exception.", e);
+		}
+	}
+
+	@Test
+	public void testWorkStealingIsReproducible() {
+		List<Double> first = runRandomScoring(3);
+		List<Double> second = runRandomScoring(3);
+		Assert.assertEquals(first, second);
+		for (Double score : first) {
+			Assert.assertNotNull(score);
+		}
+	}
+
+	@Test
+	public void testWorkStealingCreatesPlanAlgorithmsPerIteration() {
+		RandomScoringModule testee = new RandomScoringModule(2, ReplanningExecution.workStealing);
+		for (int iteration = 0; iteration < 3; iteration++) {
+			testee.prepareReplanning(null);
+			for (int i = 0; i < 100; i++) {
+				testee.handlePlan(PopulationUtils.createPlan());
+			}
+			testee.finishReplanning();
+		}
+		// 4 batches per thread, each with its own instance
+		Assert.assertEquals(3 * 2 * 4, testee.instances.get());
+	}
+
+	private static List<Double> runRandomScoring(int iterations) {
+		MatsimRandom.reset(4711);
+		RandomScoringModule testee = new RandomScoringModule(4, ReplanningExecution.workStealing);
+		List<Double> scores = new ArrayList<>();
+		for (int iteration = 0; iteration < iterations; iteration++) {
+			List<Plan> plans = new ArrayList<>();
+			testee.prepareReplanning(null);
+			for (int i = 0; i < 1000; i++) {
+				Plan plan = PopulationUtils.createPlan();
+				plans.add(plan);
+				testee.handlePlan(plan);
+			}
+			testee.finishReplanning();
+			for (Plan plan : plans) {
+				scores.add(plan.getScore());
+			}
+		}
+		return scores;
+	}
+
 	private static class DummyAbstractMultithreadedModule extends AbstractMultithreadedModule {
 		public DummyAbstractMultithreadedModule(GlobalConfigGroup globalConfigGroup) {
 			super(globalConfigGroup);
@@ -74,12 +141,28 @@ public class AbstractMultithreadedModuleTest {
 		public DummyCrashingModule(final int nOfThreads) {
 			super(nOfThreads);
 		}
+		public DummyCrashingModule(final int nOfThreads, final ReplanningExecution replanningExecution) {
+			super(nOfThreads, replanningExecution);
+		}
 		@Override
 		public PlanAlgorithm getPlanAlgoInstance() {
 			return new CrashingPlanAlgo();
 		}
 	}
 
+	private static class RandomScoringModule extends AbstractMultithreadedModule {
+		private final AtomicInteger instances = new AtomicInteger();
+		public RandomScoringModule(final int nOfThreads, final ReplanningExecution replanningExecution) {
+			super(nOfThreads, replanningExecution);
+		}
+		@Override
+		public PlanAlgorithm getPlanAlgoInstance() {
+			this.instances.incrementAndGet();
+			Random random = MatsimRandom.getLocalInstance();
+			return plan -> plan.setScore(random.nextDouble());
+		}
+	}
+
 	private static class CrashingPlanAlgo implements PlanAlgorithm {
 		@Override
 		public void run(Plan plan) {
@@ -0,0 +1,244 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Link;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.api.core.v01.population.Person;
+import org.matsim.core.config.groups.PlanCalcScoreConfigGroup;
+import org.matsim.core.config.groups.PlansCalcRouteConfigGroup;
+import org.matsim.core.config.groups.TravelTimeCalculatorConfigGroup;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.population.PopulationUtils;
+import org.matsim.core.router.costcalculators.FreespeedTravelTimeAndDisutility;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.costcalculators.TravelDisutilityFactory;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.vehicles.Vehicle;
+
+public class CCHTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		FreespeedTravelTimeAndDisutility travelTimeCostCalculator = new FreespeedTravelTimeAndDisutility(new PlanCalcScoreConfigGroup());
+		return new CCHFactory(900, 30 * 3600).createPathCalculator(network, travelTimeCostCalculator, travelTimeCostCalculator);
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = createRandomGridNetwork(30, 4711);
+		// slower in the morning peak, with different factors per link
+		TravelTime travelTime = new TravelTime() {
+			@Override
+			public double getLinkTravelTime(Link link, double time, Person person, Vehicle vehicle) {
+				double factor = (time >= 7 * 3600 && time < 9 * 3600) ? 1.0 + (link.getId().index() % 7) * 0.5 : 1.0;
+				return link.getLength() / link.getFreespeed() * factor;
+			}
+		};
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelDisutility, travelTime);
+		LeastCostPathCalculator cch = new CCHFactory(3600, 30 * 3600).createPathCalculator(network, travelDisutility, travelTime);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			Node from = nodes.get(random.nextInt(nodes.size()));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			// departure at the start of the time bin, and all trips are short enough to stay within it
+			double time = (random.nextBoolean() ? 7 : 12) * 3600;
+			Path expected = dijkstra.calcLeastCostPath(from, to, time, null, null);
+			Path actual = cch.calcLeastCostPath(from, to, time, null, null);
+			assertEquals(expected.travelCost, actual.travelCost, 1e-2);
+			assertEquals(expected.travelTime, actual.travelTime, 1e-2);
+			assertEquals(from, actual.getFromNode());
+			assertEquals(to, actual.getToNode());
+			for (int l = 0; l < actual.links.size(); l++) {
+				assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+				assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+			}
+		}
+	}
+
+	public void testCostsAreCustomizedOnceForAllRouters() throws InterruptedException {
+		Network network = createRandomGridNetwork(20, 4711);
+		TravelTime travelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (time < 10 * 3600 ? 2.0 : 1.0);
+		Person person = PopulationUtils.getFactory().createPerson(Id.createPersonId("p"));
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+
+		// the costs of two time bins, customized by a single router
+		AtomicInteger singleCustomizationCalls = new AtomicInteger();
+		LeastCostPathCalculator single = new CCHFactory(3600, 30 * 3600).createPathCalculator(network,
+				new CustomizationCountingDisutility(travelTime, singleCustomizationCalls), travelTime);
+		single.calcLeastCostPath(nodes.get(0), nodes.get(1), 7 * 3600, person, null);
+		single.calcLeastCostPath(nodes.get(0), nodes.get(1), 12 * 3600, person, null);
+		assertTrue(singleCustomizationCalls.get() > 0);
+
+		// several routers with their own disutility instances of the same factory, routing concurrently in the same two time bins
+		CCHFactory factory = new CCHFactory(3600, 30 * 3600);
+		AtomicInteger sharedCustomizationCalls = new AtomicInteger();
+		TravelDisutilityFactory travelDisutilityFactory = tt -> new CustomizationCountingDisutility(tt, sharedCustomizationCalls);
+		AtomicInteger wrongRoutes = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final long seed = t;
+			threads[t] = new Thread(() -> {
+				TravelDisutility travelDisutility = travelDisutilityFactory.createTravelDisutility(travelTime);
+				LeastCostPathCalculator cch = factory.createPathCalculator(network, travelDisutilityFactory, travelDisutility, travelTime);
+				LeastCostPathCalculator dijkstra = new Dijkstra(network, travelDisutility, travelTime);
+				Random random = new Random(seed);
+				for (int i = 0; i < 200; i++) {
+					Node from = nodes.get(random.nextInt(nodes.size()));
+					Node to = nodes.get(random.nextInt(nodes.size()));
+					double time = (random.nextBoolean() ? 7 : 12) * 3600;
+					Path expected = dijkstra.calcLeastCostPath(from, to, time, person, null);
+					Path actual = cch.calcLeastCostPath(from, to, time, person, null);
+					if (Math.abs(expected.travelCost - actual.travelCost) > 1e-2) {
+						wrongRoutes.incrementAndGet();
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, wrongRoutes.get());
+		assertEquals(singleCustomizationCalls.get(), sharedCustomizationCalls.get());
+
+		// a new iteration customizes the costs again
+		factory.notifyIterationStarts(null);
+		LeastCostPathCalculator cch = factory.createPathCalculator(network, travelDisutilityFactory, travelDisutilityFactory.createTravelDisutility(travelTime), travelTime);
+		cch.calcLeastCostPath(nodes.get(0), nodes.get(1), 7 * 3600, person, null);
+		assertTrue(sharedCustomizationCalls.get() > singleCustomizationCalls.get());
+	}
+
+	public void testDisutilityInstancesWithoutFactoryDoNotShareCosts() {
+		Network network = createRandomGridNetwork(10, 4711);
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		CCHFactory factory = new CCHFactory(3600, 30 * 3600);
+		// same class, but different cost functions
+		TravelTime fastTravelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed();
+		TravelTime slowTravelTime = (link, time, person, vehicle) -> link.getLength() / link.getFreespeed() * (1.0 + (link.getId().index() % 5));
+		AtomicInteger fastCalls = new AtomicInteger();
+		AtomicInteger slowCalls = new AtomicInteger();
+		LeastCostPathCalculator fast = factory.createPathCalculator(network, new CustomizationCountingDisutility(fastTravelTime, fastCalls), fastTravelTime);
+		LeastCostPathCalculator slow = factory.createPathCalculator(network, new CustomizationCountingDisutility(slowTravelTime, slowCalls), fastTravelTime);
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, new OnlyTimeDependentTravelDisutility(slowTravelTime), fastTravelTime);
+
+		fast.calcLeastCostPath(nodes.get(0), nodes.get(1), 7 * 3600, null, null);
+		Path expected = dijkstra.calcLeastCostPath(nodes.get(0), nodes.get(nodes.size() - 1), 7 * 3600, null, null);
+		Path actual = slow.calcLeastCostPath(nodes.get(0), nodes.get(nodes.size() - 1), 7 * 3600, null, null);
+		assertTrue(fastCalls.get() > 0);
+		assertTrue(slowCalls.get() > 0);
+		assertEquals(expected.travelCost, actual.travelCost, 1e-2);
+	}
+
+	public void testRoutingRandomnessIsRejected() {
+		PlansCalcRouteConfigGroup routeConfig = new PlansCalcRouteConfigGroup();
+		assertTrue(routeConfig.getRoutingRandomness() != 0.);
+		try {
+			new CCHFactory(new TravelTimeCalculatorConfigGroup(), routeConfig);
+			fail("expected exception because of the routing randomness.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		routeConfig.setRoutingRandomness(0.);
+		new CCHFactory(new TravelTimeCalculatorConfigGroup(), routeConfig);
+	}
+
+	public void testUnreachable() {
+		Network network = NetworkUtils.createNetwork();
+		Node a = NetworkUtils.createAndAddNode(network, Id.createNodeId("a"), new Coord(0, 0));
+		Node b = NetworkUtils.createAndAddNode(network, Id.createNodeId("b"), new Coord(100, 0));
+		Node c = NetworkUtils.createAndAddNode(network, Id.createNodeId("c"), new Coord(200, 0));
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("ab"), a, b, 100, 10, 1000, 1);
+		NetworkUtils.createAndAddLink(network, Id.createLinkId("cb"), c, b, 100, 10, 1000, 1);
+		LeastCostPathCalculator cch = getLeastCostPathCalculator(network);
+		assertNull(cch.calcLeastCostPath(a, c, 0, null, null));
+		assertEquals(1, cch.calcLeastCostPath(c, b, 0, null, null).links.size());
+	}
+
+	/**
+	 * Counts the calls without a person, i.e. the ones used to customize the costs.
+	 */
+	private static class CustomizationCountingDisutility implements TravelDisutility {
+
+		private final TravelTime travelTime;
+		private final AtomicInteger customizationCalls;
+
+		CustomizationCountingDisutility(TravelTime travelTime, AtomicInteger customizationCalls) {
+			this.travelTime = travelTime;
+			this.customizationCalls = customizationCalls;
+		}
+
+		@Override
+		public double getLinkTravelDisutility(Link link, double time, Person person, Vehicle vehicle) {
+			if (person == null) {
+				this.customizationCalls.incrementAndGet();
+			}
+			return this.travelTime.getLinkTravelTime(link, time, person, vehicle);
+		}
+
+		@Override
+		public double getLinkMinimumTravelDisutility(Link link) {
+			return link.getLength() / link.getFreespeed();
+		}
+	}
+
+	private static Network createRandomGridNetwork(int size, long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(x * 100 + random.nextInt(50), y * 100 + random.nextInt(50)));
+			}
+		}
+		int linkCount = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[x][y], nodes[x + 1][y], 100 + random.nextInt(100), 5 + random.nextInt(20), 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[x + 1][y], nodes[x][y], 100 + random.nextInt(100), 5 + random.nextInt(20), 1000, 1);
+				}
+				if (y + 1 < size && random.nextInt(10) > 0) {
+					// some one-way streets
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[x][y], nodes[x][y + 1], 100 + random.nextInt(100), 5 + random.nextInt(20), 1000, 1);
+					if (random.nextInt(4) > 0) {
+						NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[x][y + 1], nodes[x][y], 100 + random.nextInt(100), 5 + random.nextInt(20), 1000, 1);
+					}
+				}
+			}
+		}
+		return network;
+	}
+
+}
@@ -0,0 +1,167 @@
+/* *********************************************************************** *
+ * project: org.matsim.*
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ * copyright       : (C) 2020 by the members listed in the COPYING,        *
+ *                   LICENSE and WARRANTY file.                            *
+ * email           : info at matsim dot org                                *
+ *                                                                         *
+ * *********************************************************************** *
+ *                                                                         *
+ *   This program is free software; you can redistribute it and/or modify  *
+ *   it under the terms of the GNU General Public License as published by  *
+ *   the Free Software Foundation; either version 2 of the License, or     *
+ *   (at your option) any later version.                                   *
+ *   See also COPYING, LICENSE and WARRANTY file                           *
+ *                                                                         *
+ * *********************************************************************** */
+
+
+package org.matsim.core.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.matsim.api.core.v01.Coord;
+import org.matsim.api.core.v01.Id;
+import org.matsim.api.core.v01.network.Network;
+import org.matsim.api.core.v01.network.Node;
+import org.matsim.core.controler.events.IterationStartsEvent;
+import org.matsim.core.network.NetworkUtils;
+import org.matsim.core.router.costcalculators.OnlyTimeDependentTravelDisutility;
+import org.matsim.core.router.util.LeastCostPathCalculator;
+import org.matsim.core.router.util.LeastCostPathCalculator.Path;
+import org.matsim.core.router.util.TravelDisutility;
+import org.matsim.core.router.util.TravelTime;
+import org.matsim.core.trafficmonitoring.FreeSpeedTravelTime;
+
+public class CachingLeastCostPathCalculatorTest extends AbstractLeastCostPathCalculatorTest {
+
+	@Override
+	protected LeastCostPathCalculator getLeastCostPathCalculator(final Network network) {
+		return createCachingCalculator(network, 1024 * 1024, new ShortestPathTreeCacheStatistics());
+	}
+
+	public void testSameCostsAsDijkstra() {
+		Network network = createRandomGridNetwork(20, 4711);
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, travelDisutility, travelTime);
+		ShortestPathTreeCacheStatistics statistics = new ShortestPathTreeCacheStatistics();
+		LeastCostPathCalculator cache = createCachingCalculator(network, 1024 * 1024, statistics);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Random random = new Random(42);
+		for (int i = 0; i < 500; i++) {
+			// few origins, like many agents leaving from the same blocks
+			Node from = nodes.get(random.nextInt(10));
+			Node to = nodes.get(random.nextInt(nodes.size()));
+			double time = 7 * 3600 + random.nextInt(3600);
+			assertSamePath(dijkstra.calcLeastCostPath(from, to, time, null, null), cache.calcLeastCostPath(from, to, time, null, null));
+		}
+		assertEquals(500, statistics.getRequests());
+		assertTrue(statistics.getTrees() > 0);
+		// at most 10 origins in 4 time bins, the first request of each is not served from a tree
+		assertTrue(statistics.getTrees() <= 40);
+		assertTrue(statistics.getHits() >= 500 - 40 - 10);
+	}
+
+	public void testMemoryBoundAndIterations() {
+		Network network = createRandomGridNetwork(10, 4711);
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		LeastCostPathCalculator dijkstra = new Dijkstra(network, new OnlyTimeDependentTravelDisutility(travelTime), travelTime);
+		ShortestPathTreeCacheStatistics statistics = new ShortestPathTreeCacheStatistics();
+		// only enough memory for a single tree
+		LeastCostPathCalculator cache = createCachingCalculator(network, 1, statistics);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Node to = nodes.get(nodes.size() - 1);
+		for (int i = 0; i < 6; i++) {
+			Node from = nodes.get(i % 2);
+			assertSamePath(dijkstra.calcLeastCostPath(from, to, 8 * 3600, null, null), cache.calcLeastCostPath(from, to, 8 * 3600, null, null));
+		}
+		// only the origin which is requested twice first gets a tree, the other one is always routed by the delegate
+		assertEquals(1, statistics.getTrees());
+		assertEquals(2, statistics.getHits());
+
+		// a new iteration drops all trees and request counts
+		statistics.notifyIterationStarts(new IterationStartsEvent(null, 1));
+		cache.calcLeastCostPath(nodes.get(0), to, 8 * 3600, null, null);
+		assertEquals(0, statistics.getHits());
+		assertEquals(0, statistics.getTrees());
+		cache.calcLeastCostPath(nodes.get(0), to, 8 * 3600, null, null);
+		assertEquals(1, statistics.getHits());
+		assertEquals(1, statistics.getTrees());
+	}
+
+	public void testRequestCountsAreBounded() {
+		Network network = createRandomGridNetwork(10, 4711);
+		ShortestPathTreeCacheStatistics statistics = new ShortestPathTreeCacheStatistics();
+		LeastCostPathCalculator cache = createCachingCalculator(network, 1, statistics);
+
+		List<Node> nodes = new ArrayList<>(network.getNodes().values());
+		Node from = nodes.get(0);
+		Node to = nodes.get(nodes.size() - 1);
+		// one request in each of more time bins than there may be request counts
+		for (int i = 0; i <= CachingLeastCostPathCalculator.MIN_REQUEST_COUNTS; i++) {
+			cache.calcLeastCostPath(from, to, i * 900, null, null);
+		}
+		assertEquals(0, statistics.getTrees());
+		// the count of the first time bin was forgotten, so this is the first request again
+		cache.calcLeastCostPath(from, to, 0, null, null);
+		assertEquals(0, statistics.getTrees());
+		// whereas the last time bin is still counted
+		cache.calcLeastCostPath(from, to, CachingLeastCostPathCalculator.MIN_REQUEST_COUNTS * 900, null, null);
+		assertEquals(1, statistics.getTrees());
+		assertEquals(1, statistics.getHits());
+	}
+
+	private static LeastCostPathCalculator createCachingCalculator(Network network, long maxMemory, ShortestPathTreeCacheStatistics statistics) {
+		TravelTime travelTime = new FreeSpeedTravelTime();
+		TravelDisutility travelDisutility = new OnlyTimeDependentTravelDisutility(travelTime);
+		LeastCostPathCalculator delegate = new FastDijkstraFactory().createPathCalculator(network, travelDisutility, travelTime);
+		FastMultiNodeDijkstra treeCalculator = (FastMultiNodeDijkstra) new FastMultiNodeDijkstraFactory(true).createPathCalculator(network, travelDisutility, travelTime);
+		return new CachingLeastCostPathCalculator(delegate, treeCalculator, travelDisutility, travelTime, 900, maxMemory, statistics);
+	}
+
+	private static void assertSamePath(Path expected, Path actual) {
+		assertEquals(expected.travelCost, actual.travelCost, 1e-9);
+		assertEquals(expected.travelTime, actual.travelTime, 1e-9);
+		assertEquals(expected.getFromNode(), actual.getFromNode());
+		assertEquals(expected.getToNode(), actual.getToNode());
+		assertEquals(actual.links.size() + 1, actual.nodes.size());
+		for (int l = 0; l < actual.links.size(); l++) {
+			assertEquals(actual.nodes.get(l), actual.links.get(l).getFromNode());
+			assertEquals(actual.nodes.get(l + 1), actual.links.get(l).getToNode());
+		}
+	}
+
+	private static Network createRandomGridNetwork(int size, long seed) {
+		Random random = new Random(seed);
+		Network network = NetworkUtils.createNetwork();
+		Node[][] nodes = new Node[size][size];
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				nodes[x][y] = NetworkUtils.createAndAddNode(network, Id.createNodeId(x + "_" + y),
+						new Coord(x * 100 + random.nextInt(50), y * 100 + random.nextInt(50)));
+			}
+		}
+		int linkCount = 0;
+		for (int x = 0; x < size; x++) {
+			for (int y = 0; y < size; y++) {
+				if (x + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[x][y], nodes[x + 1][y], 100 + random.nextInt(100), 5 + random.nextInt(20), 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[x + 1][y], nodes[x][y], 100 + random.nextInt(100), 5 + random.nextInt(20), 1000, 1);
+				}
+				if (y + 1 < size) {
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[x][y], nodes[x][y + 1], 100 + random.nextInt(100), 5 + random.nextInt(20), 1000, 1);
+					NetworkUtils.createAndAddLink(network, Id.createLinkId(linkCount++), nodes[x][y + 1], nodes[x][y], 100 + random.nextInt(100), 5 + random.nextInt(20), 1000, 1);
+				}
+			}
+		}
+		return network;
+	}
+
+}
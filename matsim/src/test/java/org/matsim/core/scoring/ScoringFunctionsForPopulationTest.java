@@ -21,6 +21,8 @@
 
  package org.matsim.core.scoring;
 
+import java.util.concurrent.CountDownLatch;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.matsim.api.core.v01.Coord;
@@ -28,6 +30,7 @@ import org.matsim.api.core.v01.Id;
 import org.matsim.api.core.v01.Scenario;
 import org.matsim.api.core.v01.TransportMode;
 import org.matsim.api.core.v01.events.Event;
+import org.matsim.api.core.v01.events.PersonMoneyEvent;
 import org.matsim.api.core.v01.population.Activity;
 import org.matsim.api.core.v01.population.Leg;
 import org.matsim.api.core.v01.population.Person;
@@ -92,6 +95,123 @@ public class ScoringFunctionsForPopulationTest {
 		Assert.assertEquals("transit_walk", ((Leg) rs.lastTrip.getTripElements().get(4)).getMode());
 	}
 
+	@Test
+	public void testConcurrentScoringMatchesSequentialScoring() throws InterruptedException {
+		final int nOfPersons = 20;
+		final int nOfThreads = 8;
+		double[] sequentialScores = scoreWithThreads(nOfPersons, 1, nOfThreads);
+		double[] parallelScores = scoreWithThreads(nOfPersons, nOfThreads, 1);
+		for (int i = 0; i < nOfPersons; i++) {
+			Assert.assertEquals("wrong score for person " + i, sequentialScores[i], parallelScores[i], 0.0);
+		}
+	}
+
+	/**
+	 * Feeds the same events to every person <code>nOfRepetitions</code> times from each of <code>nOfThreads</code>
+	 * threads, so that with several threads all of them work on the same persons at the same time.
+	 */
+	private static double[] scoreWithThreads(int nOfPersons, int nOfThreads, int nOfRepetitions) throws InterruptedException {
+		Scenario scenario = ScenarioUtils.createScenario(ConfigUtils.createConfig());
+		Population population = scenario.getPopulation();
+		PopulationFactory pf = population.getFactory();
+		for (int i = 0; i < nOfPersons; i++) {
+			population.addPerson(pf.createPerson(Id.create(i, Person.class)));
+		}
+
+		ControlerListenerManagerImpl controlerListenerManager = new ControlerListenerManagerImpl();
+		EventsManager eventsManager = EventsUtils.createEventsManager();
+		ScoringFunctionFactory scoringFunctionFactory = agentId -> new SummingScoringFunction();
+		ScoringFunctionsForPopulation sf = new ScoringFunctionsForPopulation(controlerListenerManager, eventsManager,
+				new EventsToActivities(), new EventsToLegs(scenario), population, scoringFunctionFactory);
+		controlerListenerManager.fireControlerIterationStartsEvent(0);
+
+		CountDownLatch startSignal = new CountDownLatch(1);
+		Thread[] threads = new Thread[nOfThreads];
+		for (int t = 0; t < nOfThreads; t++) {
+			threads[t] = new Thread(() -> {
+				try {
+					startSignal.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+				for (int r = 0; r < nOfRepetitions; r++) {
+					for (int round = 0; round < 100; round++) {
+						for (int i = 0; i < nOfPersons; i++) {
+							sf.handleEvent(new PersonMoneyEvent(round, Id.create(i, Person.class), i + 1, "fare", "operator"));
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		startSignal.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		sf.finishScoringFunctions();
+
+		double[] scores = new double[nOfPersons];
+		for (int i = 0; i < nOfPersons; i++) {
+			scores[i] = sf.getScoringFunctionForAgent(Id.create(i, Person.class)).getScore();
+		}
+		return scores;
+	}
+
+	/**
+	 * A scoring function that sums up its input. The result does not depend on the order of the input, but the
+	 * function is not thread-safe: it yields between reading and writing its score, so that it loses updates when it
+	 * is called concurrently without a lock, even on a single core.
+	 */
+	private static class SummingScoringFunction implements ScoringFunction {
+
+		private double score = 0;
+
+		private void add(double value) {
+			double oldScore = this.score;
+			Thread.yield();
+			this.score = oldScore + value;
+		}
+
+		@Override
+		public void handleActivity(Activity activity) {
+			add(1);
+		}
+
+		@Override
+		public void handleLeg(Leg leg) {
+			add(1);
+		}
+
+		@Override
+		public void handleTrip(TripStructureUtils.Trip trip) {
+			add(1);
+		}
+
+		@Override
+		public void agentStuck(double time) {
+			add(-1);
+		}
+
+		@Override
+		public void addMoney(double amount) {
+			add(amount);
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		@Override
+		public double getScore() {
+			return this.score;
+		}
+
+		@Override
+		public void handleEvent(Event event) {
+			add(event.getTime());
+		}
+	}
+
 	private static class RecordingScoringFunction implements ScoringFunction {
 
 		int tripCounter = 0;
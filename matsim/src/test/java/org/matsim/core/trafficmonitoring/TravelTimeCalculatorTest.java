@@ -24,6 +24,8 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Random;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -319,6 +321,72 @@ public class TravelTimeCalculatorTest extends MatsimTestCase {
 		assertEquals(linkTravelTime2, ttcalc.getLinkTravelTimes().getLinkTravelTime(link1, firstTimeBinStart + 2.5*timeBinSize, null, null), EPSILON);
 	}
 
+	public void testTravelTimeSnapshot_average() {
+		doTestTravelTimeSnapshot("average");
+	}
+
+	public void testTravelTimeSnapshot_linearInterpolation() {
+		doTestTravelTimeSnapshot("linearinterpolation");
+	}
+
+	/**
+	 * Tests that the travel times read from the snapshot are exactly the same as the ones computed from the
+	 * per-link data, and that the snapshot is discarded as soon as new travel times are observed.
+	 */
+	private void doTestTravelTimeSnapshot(String travelTimeGetterType) {
+		Config config = ConfigUtils.createConfig();
+		config.travelTimeCalculator().setTravelTimeGetterType(travelTimeGetterType);
+		config.travelTimeCalculator().setTraveltimeBinSize(15*60);
+		config.travelTimeCalculator().setMaxTime(12*3600);
+		Scenario scenario = ScenarioUtils.createScenario(config);
+		Network network = scenario.getNetwork();
+		Node n1 = NetworkUtils.createAndAddNode(network, Id.create("1", Node.class), new Coord(0, 0));
+		Node n2 = NetworkUtils.createAndAddNode(network, Id.create("2", Node.class), new Coord(1000, 0));
+		Node n3 = NetworkUtils.createAndAddNode(network, Id.create("3", Node.class), new Coord(2000, 0));
+		Link link1 = NetworkUtils.createAndAddLink(network, Id.create("1", Link.class), n1, n2, 1000.0, 10.0, 3600.0, 1.0);
+		Link link2 = NetworkUtils.createAndAddLink(network, Id.create("2", Link.class), n2, n3, 1000.0, 20.0, 3600.0, 1.0);
+		Link unusedLink = NetworkUtils.createAndAddLink(network, Id.create("3", Link.class), n3, n1, 2000.0, 30.0, 3600.0, 1.0);
+
+		TravelTimeCalculator live = TravelTimeCalculator.create(network, config.travelTimeCalculator());
+		TravelTimeCalculator frozen = TravelTimeCalculator.create(network, config.travelTimeCalculator());
+		Random random = new Random(4711);
+		for (int i = 0; i < 200; i++) {
+			Id<Vehicle> vehId = Id.create(i, Vehicle.class);
+			Link link = random.nextBoolean() ? link1 : link2;
+			double enterTime = 6*3600 + random.nextInt(4*3600);
+			double leaveTime = enterTime + 50 + random.nextInt(1800);
+			for (TravelTimeCalculator ttcalc : new TravelTimeCalculator[] { live, frozen }) {
+				ttcalc.handleEvent(new LinkEnterEvent(enterTime, vehId, link.getId()));
+				ttcalc.handleEvent(new LinkLeaveEvent(leaveTime, vehId, link.getId()));
+			}
+		}
+		frozen.createTravelTimeSnapshot();
+
+		for (Link link : new Link[] { link1, link2, unusedLink }) {
+			for (double time = 0; time < 14*3600; time += 97) {
+				assertEquals(live.getLinkTravelTimes().getLinkTravelTime(link, time, null, null),
+						frozen.getLinkTravelTimes().getLinkTravelTime(link, time, null, null), 0.0);
+			}
+		}
+
+		// a new observation must be visible immediately
+		Id<Vehicle> vehId = Id.create("late", Vehicle.class);
+		for (TravelTimeCalculator ttcalc : new TravelTimeCalculator[] { live, frozen }) {
+			ttcalc.handleEvent(new LinkEnterEvent(11*3600, vehId, unusedLink.getId()));
+			ttcalc.handleEvent(new LinkLeaveEvent(11*3600 + 1000, vehId, unusedLink.getId()));
+		}
+		assertEquals(1000.0, frozen.getLinkTravelTimes().getLinkTravelTime(unusedLink, 11*3600 + 450, null, null), EPSILON);
+		assertEquals(live.getLinkTravelTimes().getLinkTravelTime(unusedLink, 11*3600 + 600, null, null),
+				frozen.getLinkTravelTimes().getLinkTravelTime(unusedLink, 11*3600 + 600, null, null), 0.0);
+	}
+
+	public void testTravelTimeSnapshotSizeDoesNotOverflow() {
+		Id<Link> linkId = Id.create("snapshotSize", Link.class);
+		long size = TravelTimeDataSnapshot.getSize(Collections.singleton(linkId), Integer.MAX_VALUE);
+		assertEquals((linkId.index() + 1L) * Integer.MAX_VALUE, size);
+		assertTrue(size > TravelTimeDataSnapshot.MAX_SIZE);
+	}
+
 	/**
 	 * Tests that calculating LinkTravelTimes works also without reading in a complete scenario including population.
 	 *